@@ -2,6 +2,8 @@ package com.vaadin.jandex;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.jboss.jandex.ClassInfo;
 import org.jboss.jandex.DotName;
@@ -10,11 +12,17 @@ import org.jboss.jandex.IndexReader;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.server.HandlerHelper;
 
 public class JandexSmokeTest {
 
+    // set by the build to the profile the index was built with
+    private static final boolean FULL_INDEX = "full"
+            .equals(System.getProperty("vaadin.jandex.profile", "full"));
+
     @Test
     public void generatedJandex_containsContentFromFlowAndComponents()
             throws IOException {
@@ -23,12 +31,10 @@ public class JandexSmokeTest {
             IndexReader reader = new IndexReader(jandexStream);
             final Index index = reader.read();
 
-            ClassInfo classByName = index.getClassByName(
-                    DotName.createSimple(HandlerHelper.class.getName()));
-            Assert.assertNotNull("Class from flow-server was not found",
-                    classByName);
+            assertOnlyInFullIndex(index, HandlerHelper.class,
+                    "Class from flow-server was not found");
 
-            classByName = index.getClassByName(
+            ClassInfo classByName = index.getClassByName(
                     DotName.createSimple(VerticalLayout.class.getName()));
             Assert.assertNotNull("Class from a component was not found",
                     classByName);
@@ -36,4 +42,41 @@ public class JandexSmokeTest {
 
     }
 
+    @Test
+    public void generatedJandex_componentLookupsSucceed() throws IOException {
+        try (InputStream jandexStream = JandexSmokeTest.class.getClassLoader()
+                .getResourceAsStream("META-INF/jandex.idx")) {
+            final Index index = new IndexReader(jandexStream).read();
+
+            Set<String> tagged = index
+                    .getAnnotations(DotName.createSimple(Tag.class.getName()))
+                    .stream().map(tag -> tag.target().asClass().name())
+                    .map(DotName::toString).collect(Collectors.toSet());
+            Assert.assertTrue("Component annotated with @Tag was not found",
+                    tagged.contains(VerticalLayout.class.getName()));
+
+            Assert.assertTrue("Component subclass was not found",
+                    index.getAllKnownSubclasses(
+                            DotName.createSimple(Component.class.getName()))
+                            .stream()
+                            .anyMatch(info -> info.name().toString().equals(
+                                    VerticalLayout.class.getName())));
+        }
+    }
+
+    /**
+     * Asserts that a class without annotations is in the index only when the
+     * index was built with the full profile.
+     */
+    private static void assertOnlyInFullIndex(Index index, Class<?> type,
+            String message) {
+        ClassInfo info = index
+                .getClassByName(DotName.createSimple(type.getName()));
+        if (FULL_INDEX) {
+            Assert.assertNotNull(message, info);
+        } else {
+            Assert.assertNull(type.getSimpleName()
+                    + " has no annotations and should be left out", info);
+        }
+    }
 }
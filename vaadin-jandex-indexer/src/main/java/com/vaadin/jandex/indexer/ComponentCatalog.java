@@ -0,0 +1,427 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexView;
+
+/**
+ * The Vaadin components and their TestBench elements, as found in a Jandex
+ * index without loading any class: for each component its tag, JavaScript
+ * modules, npm packages and TestBench element, and the tag of each element.
+ * <p>
+ * Only the public, non-abstract, top level classes of
+ * {@code com.vaadin.flow.component} and its sub-packages are listed, and only
+ * the components having a tag. The annotations are looked up the way
+ * {@link Class#getAnnotationsByType(Class)} does, including the ones
+ * inherited from the super classes.
+ * <p>
+ * Usage: {@code ComponentCatalog <classpath file> <catalog file> <cache dir>}
+ * where the classpath file is the same as for {@link JandexIndexer}. The
+ * catalog lists the TestBench elements of the jars named after a component
+ * jar, e.g. {@code vaadin-button-testbench} for {@code vaadin-button-flow}.
+ */
+public class ComponentCatalog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String FILE = "vaadin-component-catalog.properties";
+    /**
+     * The resource the catalog is written to in {@code vaadin} and
+     * {@code vaadin-core}.
+     */
+    public static final String RESOURCE = "META-INF/" + FILE;
+
+    static final String PACKAGE = "com.vaadin.flow.component.";
+    static final DotName COMPONENT = DotName
+            .createSimple("com.vaadin.flow.component.Component");
+    static final DotName TAG = DotName
+            .createSimple("com.vaadin.flow.component.Tag");
+    static final DotName TEST_BENCH_ELEMENT = DotName
+            .createSimple("com.vaadin.testbench.TestBenchElement");
+    static final DotName ELEMENT = DotName
+            .createSimple("com.vaadin.testbench.elementsbase.Element");
+
+    private static final String COMPONENT_PREFIX = "component.";
+    private static final String ELEMENT_PREFIX = "element.";
+    private static final String TAG_KEY = ".tag";
+    private static final String JS_MODULES_KEY = ".jsModules";
+    private static final String NPM_PACKAGES_KEY = ".npmPackages";
+    private static final String ELEMENT_KEY = ".element";
+
+    /**
+     * A component of the catalog.
+     */
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+        private String tag;
+        private List<String> jsModules = new ArrayList<>();
+        private Map<String, String> npmPackages = new LinkedHashMap<>();
+        private String element;
+
+        Entry(String className) {
+            this.className = className;
+        }
+
+        /**
+         * Gets the name of the component class.
+         *
+         * @return the class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Gets the tag of the component, from its {@code @Tag}.
+         *
+         * @return the tag
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * Gets the modules of the {@code @JsModule} annotations, in the
+         * order they are declared.
+         *
+         * @return the JavaScript modules
+         */
+        public List<String> getJsModules() {
+            return jsModules;
+        }
+
+        /**
+         * Gets the npm packages of the {@code @NpmPackage} annotations.
+         *
+         * @return the versions of the packages by name
+         */
+        public Map<String, String> getNpmPackages() {
+            return npmPackages;
+        }
+
+        /**
+         * Gets the TestBench element of the component: the
+         * {@code <Component>Element} class of the {@code testbench}
+         * sub-package, otherwise an element with the same tag.
+         *
+         * @return the element class name, or {@code null} if there is none
+         */
+        public String getElement() {
+            return element;
+        }
+    }
+
+    private final Map<String, Entry> components = new TreeMap<>();
+    private final Map<String, String> elements = new TreeMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println(
+                    "Usage: ComponentCatalog <classpath file> <catalog file> <cache dir>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        List<Path> jars = JandexIndexer.jars(Paths.get(args[0]));
+        List<Index> indexes = new JandexIndexer(Paths.get(args[2]))
+                .index(jars);
+        Set<String> artifacts = new HashSet<>();
+        for (Path jar : jars) {
+            artifacts.add(JandexIndexer.artifact(jar));
+        }
+        Set<String> elementClasses = new HashSet<>();
+        for (int i = 0; i < jars.size(); i++) {
+            String artifact = JandexIndexer.artifact(jars.get(i));
+            String component = artifact.replaceFirst("-testbench$", "");
+            if (!component.equals(artifact)
+                    && (artifacts.contains(component)
+                            || artifacts.contains(component + "-flow"))) {
+                indexes.get(i).getKnownClasses().forEach(
+                        info -> elementClasses.add(info.name().toString()));
+            }
+        }
+
+        ComponentCatalog catalog = collect(JandexIndexer.merge(indexes),
+                elementClasses::contains);
+        StringWriter writer = new StringWriter();
+        catalog.write(writer);
+        Path output = Paths.get(args[1]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.write(output, writer.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.printf(
+                "Catalog of %d components and %d TestBench elements written to %s in %d ms%n",
+                catalog.components.size(), catalog.elements.size(), output,
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Collects the components and all the TestBench elements of an index.
+     *
+     * @param index
+     *            the index of the components and elements
+     * @return the catalog
+     */
+    public static ComponentCatalog collect(IndexView index) {
+        return collect(index, name -> true);
+    }
+
+    /**
+     * Collects the components and some TestBench elements of an index.
+     *
+     * @param index
+     *            the index of the components and elements
+     * @param elementFilter
+     *            tells which element classes to include
+     * @return the catalog
+     */
+    public static ComponentCatalog collect(IndexView index,
+            Predicate<String> elementFilter) {
+        ComponentCatalog catalog = new ComponentCatalog();
+        for (ClassInfo info : index.getAllKnownSubclasses(TEST_BENCH_ELEMENT)) {
+            String name = info.name().toString();
+            if (isListed(info) && elementFilter.test(name)) {
+                List<AnnotationInstance> element = inherited(index, info,
+                        ELEMENT, null);
+                catalog.elements.put(name, element.isEmpty() ? ""
+                        : element.get(0).value().asString());
+            }
+        }
+        for (ClassInfo info : index.getAllKnownSubclasses(COMPONENT)) {
+            List<AnnotationInstance> tag = inherited(index, info, TAG, null);
+            if (!isListed(info) || tag.isEmpty()) {
+                continue;
+            }
+            Entry entry = new Entry(info.name().toString());
+            entry.tag = tag.get(0).value().asString();
+            Set<String> jsModules = new LinkedHashSet<>();
+            for (AnnotationInstance jsModule : inherited(index, info,
+                    VaadinBuildMetadata.JS_MODULE,
+                    VaadinBuildMetadata.JS_MODULES)) {
+                jsModules.add(jsModule.value().asString());
+            }
+            entry.jsModules.addAll(jsModules);
+            for (AnnotationInstance npmPackage : inherited(index, info,
+                    VaadinBuildMetadata.NPM_PACKAGE,
+                    VaadinBuildMetadata.NPM_PACKAGES)) {
+                entry.npmPackages.put(npmPackage.value().asString(),
+                        npmPackage.value("version").asString());
+            }
+            catalog.components.put(entry.className, entry);
+        }
+        catalog.matchElements();
+        return catalog;
+    }
+
+    private static boolean isListed(ClassInfo info) {
+        return info.name().toString().startsWith(PACKAGE)
+                && info.nestingType() == ClassInfo.NestingType.TOP_LEVEL
+                && Modifier.isPublic(info.flags())
+                && !Modifier.isAbstract(info.flags());
+    }
+
+    /**
+     * Gets the instances of an {@code @Inherited} annotation present on a
+     * class: the ones of the class if it has any, otherwise the ones of its
+     * closest super class having some.
+     */
+    private static List<AnnotationInstance> inherited(IndexView index,
+            ClassInfo info, DotName annotation, DotName container) {
+        for (ClassInfo type = info; type != null; type = type
+                .superName() == null ? null
+                        : index.getClassByName(type.superName())) {
+            List<AnnotationInstance> instances = new ArrayList<>();
+            AnnotationInstance instance = type.classAnnotation(annotation);
+            if (instance != null) {
+                instances.add(instance);
+            }
+            AnnotationInstance repeated = container == null ? null
+                    : type.classAnnotation(container);
+            if (repeated != null) {
+                instances.addAll(
+                        Arrays.asList(repeated.value().asNestedArray()));
+            }
+            if (!instances.isEmpty()) {
+                return instances;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void matchElements() {
+        Map<String, String> elementsByTag = new TreeMap<>();
+        elements.forEach((element, tag) -> elementsByTag.putIfAbsent(tag,
+                element));
+        for (Entry entry : components.values()) {
+            String equivalent = entry.className
+                    .replaceFirst("(.*)\\.(.*)", "$1.testbench.$2Element");
+            entry.element = elements.containsKey(equivalent) ? equivalent
+                    : elementsByTag.get(entry.tag);
+        }
+    }
+
+    /**
+     * Reads and merges all the catalogs found by a class loader, i.e. the
+     * ones of {@code vaadin} and {@code vaadin-core}.
+     *
+     * @param loader
+     *            the class loader to find the catalogs with
+     * @return the merged catalog, empty if there are none
+     * @throws IOException
+     *             if a catalog cannot be read
+     */
+    public static ComponentCatalog read(ClassLoader loader)
+            throws IOException {
+        ComponentCatalog catalog = new ComponentCatalog();
+        Enumeration<URL> resources = loader.getResources(RESOURCE);
+        while (resources.hasMoreElements()) {
+            try (InputStream stream = resources.nextElement().openStream()) {
+                ComponentCatalog read = read(stream);
+                catalog.components.putAll(read.components);
+                catalog.elements.putAll(read.elements);
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Reads a catalog written by {@link #write(Writer)}.
+     *
+     * @param stream
+     *            the stream to read
+     * @return the catalog
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public static ComponentCatalog read(InputStream stream)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.load(stream);
+        ComponentCatalog catalog = new ComponentCatalog();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(ELEMENT_PREFIX)) {
+                catalog.elements.put(key.substring(ELEMENT_PREFIX.length()),
+                        properties.getProperty(key));
+            } else if (key.startsWith(COMPONENT_PREFIX)
+                    && key.endsWith(TAG_KEY)) {
+                String name = key.substring(0, key.length() - TAG_KEY.length());
+                Entry entry = new Entry(
+                        name.substring(COMPONENT_PREFIX.length()));
+                entry.tag = properties.getProperty(key);
+                entry.element = properties.getProperty(name + ELEMENT_KEY);
+                String jsModules = properties.getProperty(name + JS_MODULES_KEY);
+                if (jsModules != null && !jsModules.isEmpty()) {
+                    entry.jsModules.addAll(Arrays.asList(jsModules.split(",")));
+                }
+                String npmPackages = properties
+                        .getProperty(name + NPM_PACKAGES_KEY);
+                if (npmPackages != null && !npmPackages.isEmpty()) {
+                    for (String npmPackage : npmPackages.split(",")) {
+                        // the name may start with @, the version may not
+                        int at = npmPackage.lastIndexOf('@');
+                        entry.npmPackages.put(npmPackage.substring(0, at),
+                                npmPackage.substring(at + 1));
+                    }
+                }
+                catalog.components.put(entry.className, entry);
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Writes the catalog as properties, sorted so that the same catalog is
+     * always written the same way.
+     *
+     * @param writer
+     *            the writer to write to
+     * @throws IOException
+     *             if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        SortedProperties properties = new SortedProperties();
+        for (Entry entry : components.values()) {
+            String name = COMPONENT_PREFIX + entry.className;
+            properties.setProperty(name + TAG_KEY, entry.tag);
+            if (!entry.jsModules.isEmpty()) {
+                properties.setProperty(name + JS_MODULES_KEY,
+                        String.join(",", entry.jsModules));
+            }
+            if (!entry.npmPackages.isEmpty()) {
+                List<String> npmPackages = new ArrayList<>();
+                entry.npmPackages.forEach((npmPackage,
+                        version) -> npmPackages.add(npmPackage + "@" + version));
+                properties.setProperty(name + NPM_PACKAGES_KEY,
+                        String.join(",", npmPackages));
+            }
+            if (entry.element != null) {
+                properties.setProperty(name + ELEMENT_KEY, entry.element);
+            }
+        }
+        elements.forEach((element, tag) -> properties
+                .setProperty(ELEMENT_PREFIX + element, tag));
+        properties.store(writer);
+    }
+
+    /**
+     * Gets the components having a tag.
+     *
+     * @return the components by class name
+     */
+    public Map<String, Entry> getComponents() {
+        return Collections.unmodifiableMap(components);
+    }
+
+    /**
+     * Gets the TestBench elements and their tag, from their
+     * {@code @Element}.
+     *
+     * @return the tags by element class name, empty when an element has no
+     *         tag
+     */
+    public Map<String, String> getElements() {
+        return Collections.unmodifiableMap(elements);
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds the components of a {@link ComponentCatalog} that the views of an
+ * application use, with the modules a bundle of only these components would
+ * need instead of all of {@code @vaadin/bundles}. The result is advisory and
+ * no build uses it to prune the bundle.
+ * <p>
+ * A Java view uses a component when it refers to its class by its fully
+ * qualified name, usually in an import. A view importing the package of a
+ * component with a wildcard, e.g. {@code import
+ * com.vaadin.flow.component.button.*;}, counts as using all the components
+ * of the package, whether it uses them or not: a component left out would be
+ * missing from the bundle, while one too many only makes it bigger. A
+ * component used without its name in the view, e.g. created by a library, is
+ * not found. A TypeScript view uses a component
+ * when it imports one of its modules or renders its tag. These are the
+ * patterns {@code ComponentUsageTest} of the platform tests checks the test
+ * views with. All the patterns are looked for at once by a
+ * {@link UsageScanner}, so each file is read once, and the files are scanned
+ * in parallel.
+ * <p>
+ * Usage:
+ * {@code ComponentUsage <output file> <node_modules dir> <source dir>...}
+ * writes the imports of the npm modules of the components used by the
+ * sources to the output file, and reports the size of the npm packages of
+ * these components compared to the packages of all the components. The
+ * components used by each file are written to {@code component-usage.txt}
+ * next to the output file. The catalogs are read from the classpath.
+ */
+public class ComponentUsage {
+
+    private static final String VAADIN_MODULE = "^@vaadin/.*$";
+
+    private final ComponentCatalog catalog;
+    private final UsageScanner javaScanner;
+    private final UsageScanner typeScriptScanner;
+    private final Set<String> used = new TreeSet<>();
+    private final Map<Path, Set<String>> usedByFile = new TreeMap<>();
+
+    /**
+     * Creates a usage of the components of a catalog.
+     *
+     * @param catalog
+     *            the components which can be used
+     */
+    public ComponentUsage(ComponentCatalog catalog) {
+        this.catalog = catalog;
+        UsageScanner.Builder java = UsageScanner.builder();
+        UsageScanner.Builder typeScript = UsageScanner.builder();
+        for (ComponentCatalog.Entry entry : catalog.getComponents()
+                .values()) {
+            String component = entry.getClassName();
+            java.javaReference(component, component);
+            java.javaPackageImport(component,
+                    component.substring(0, component.lastIndexOf('.')));
+            typeScript.jsRender(component, entry.getTag());
+            entry.getJsModules().stream().filter(m -> m.matches(VAADIN_MODULE))
+                    .forEach(m -> typeScript.jsImport(component,
+                            withoutExtension(m)));
+        }
+        javaScanner = java.build();
+        typeScriptScanner = typeScript.build();
+    }
+
+    /**
+     * Gets the line importing a module the way
+     * {@link UsageScanner.Builder#jsImport(String, String)} expects it.
+     *
+     * @param module
+     *            the module, without its {@code .js} or {@code .ts} extension
+     * @return the import line
+     */
+    public static String jsImport(String module) {
+        String packageName = mainModulePackage(module);
+        return "import '" + (packageName == null ? module : packageName)
+                + "';";
+    }
+
+    static String mainModulePackage(String module) {
+        String[] t = module.split("/");
+        if (t.length == 4 && t[2].equals("src")
+                && t[1].equals(t[3].replaceFirst("^vaadin-", ""))) {
+            return t[0] + "/" + t[1];
+        }
+        return null;
+    }
+
+    static String withoutExtension(String module) {
+        return module.replaceFirst("\\.[tj]s$", "");
+    }
+
+    /**
+     * Adds the components a Java source file refers to.
+     *
+     * @param lines
+     *            the lines of the file
+     */
+    public void scanJava(List<String> lines) {
+        used.addAll(javaScanner.scan(String.join("\n", lines)));
+    }
+
+    /**
+     * Adds the components a TypeScript source file imports or renders.
+     *
+     * @param lines
+     *            the lines of the file
+     */
+    public void scanTypeScript(List<String> lines) {
+        used.addAll(typeScriptScanner.scan(String.join("\n", lines)));
+    }
+
+    /**
+     * Adds the components used by the Java and TypeScript files of a
+     * folder and its sub-folders.
+     *
+     * @param folder
+     *            the source folder
+     * @return the components used by each file of the folder, only for the
+     *         files using some
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    public Map<Path, Set<String>> scan(Path folder) throws IOException {
+        Map<Path, Set<String>> byFile = new TreeMap<>();
+        byFile.putAll(javaScanner.scan(folder,
+                file -> isSource(file, ".java")));
+        byFile.putAll(typeScriptScanner.scan(folder,
+                file -> isSource(file, ".ts", ".js")));
+        byFile.values().forEach(used::addAll);
+        usedByFile.putAll(byFile);
+        return byFile;
+    }
+
+    private static boolean isSource(Path file, String... extensions) {
+        String name = file.getFileName().toString();
+        return !file.toString().contains("node_modules")
+                && Stream.of(extensions).anyMatch(name::endsWith);
+    }
+
+    /**
+     * Gets the components found so far.
+     *
+     * @return the class names of the used components
+     */
+    public Set<String> getUsedComponents() {
+        return used;
+    }
+
+    /**
+     * Gets the components used by each of the files scanned so far with
+     * {@link #scan(Path)}.
+     *
+     * @return the class names of the used components by file
+     */
+    public Map<Path, Set<String>> getUsedComponentsByFile() {
+        return usedByFile;
+    }
+
+    /**
+     * Gets the npm modules of the used components. The modules of the
+     * application, starting with {@code ./}, are left out, as Flow imports
+     * them itself.
+     *
+     * @return the modules, sorted
+     */
+    public Set<String> getUsedModules() {
+        return modules(used);
+    }
+
+    /**
+     * Gets the npm packages of the used components.
+     *
+     * @return the versions of the packages by name
+     */
+    public Map<String, String> getUsedPackages() {
+        return packages(used);
+    }
+
+    /**
+     * Gets the npm packages of all the components of the catalog.
+     *
+     * @return the versions of the packages by name
+     */
+    public Map<String, String> getAllPackages() {
+        return packages(catalog.getComponents().keySet());
+    }
+
+    private Set<String> modules(Collection<String> components) {
+        return components.stream()
+                .flatMap(component -> catalog.getComponents().get(component)
+                        .getJsModules().stream())
+                .filter(module -> !module.startsWith("."))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private Map<String, String> packages(Collection<String> components) {
+        Map<String, String> packages = new TreeMap<>();
+        for (String component : components) {
+            packages.putAll(
+                    catalog.getComponents().get(component).getNpmPackages());
+        }
+        return packages;
+    }
+
+    /**
+     * Writes a module importing the modules of the used components, to
+     * bundle instead of all of {@code @vaadin/bundles}.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void writeImports(Path file) throws IOException {
+        StringBuilder imports = new StringBuilder(
+                "// The modules of the components used by the application\n");
+        for (String module : getUsedModules()) {
+            imports.append("import '").append(module).append("';\n");
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, imports.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the components used by each file, one file per line followed
+     * by the simple names of its components.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void writeUsage(Path file) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        usedByFile.forEach((source, components) -> lines.append(source)
+                .append(": ")
+                .append(components.stream()
+                        .map(c -> c.substring(c.lastIndexOf('.') + 1))
+                        .collect(Collectors.joining(", ")))
+                .append('\n'));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the size of the JavaScript files of npm packages, without their
+     * own dependencies.
+     *
+     * @param nodeModules
+     *            the {@code node_modules} folder the packages are installed
+     *            in
+     * @param packages
+     *            the names of the packages
+     * @return the size in bytes, the missing packages counting as empty
+     * @throws IOException
+     *             if a folder cannot be read
+     */
+    static long size(Path nodeModules, Collection<String> packages)
+            throws IOException {
+        long size = 0;
+        for (String name : packages) {
+            Path folder = nodeModules.resolve(name);
+            if (!Files.isDirectory(folder)) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(folder)) {
+                for (Path file : (Iterable<Path>) walk::iterator) {
+                    String path = folder.relativize(file).toString();
+                    if ((path.endsWith(".js") || path.endsWith(".mjs"))
+                            && !path.contains("node_modules")
+                            && Files.isRegularFile(file)) {
+                        size += Files.size(file);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println(
+                    "Usage: ComponentUsage <output file> <node_modules dir> <source dir>...");
+            System.exit(2);
+        }
+        ComponentCatalog catalog = ComponentCatalog
+                .read(ComponentUsage.class.getClassLoader());
+        ComponentUsage usage = new ComponentUsage(catalog);
+        long start = System.nanoTime();
+        for (int i = 2; i < args.length; i++) {
+            usage.scan(Paths.get(args[i]));
+        }
+        long time = (System.nanoTime() - start) / 1_000_000;
+        Path output = Paths.get(args[0]);
+        usage.writeImports(output);
+        usage.writeUsage(output.resolveSibling("component-usage.txt"));
+
+        Path nodeModules = Paths.get(args[1]);
+        long all = size(nodeModules, usage.getAllPackages().keySet());
+        long used = size(nodeModules, usage.getUsedPackages().keySet());
+        System.out.printf(
+                "%d of %d components used, importing %d modules of %d npm packages of %d, written to %s%n",
+                usage.getUsedComponents().size(),
+                catalog.getComponents().size(), usage.getUsedModules().size(),
+                usage.getUsedPackages().size(), usage.getAllPackages().size(),
+                args[0]);
+        System.out.printf("%d files using components, scanned in %d ms%n",
+                usage.getUsedComponentsByFile().size(), time);
+        if (all > 0) {
+            System.out.printf(
+                    "Component packages: %d KB used of %d KB, %d KB less%n",
+                    used / 1024, all / 1024, (all - used) / 1024);
+        } else {
+            System.out.println("No packages found in " + nodeModules
+                    + ", run npm install to compare the sizes");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+
+/**
+ * Which classes {@link JandexIndexer} keeps in the index.
+ */
+public enum IndexProfile {
+
+    /**
+     * All the Vaadin classes.
+     */
+    FULL,
+
+    /**
+     * The classes which annotation scanners and service lookups can find: the
+     * types having annotations, the services and their implementations, and
+     * all the super classes and interfaces of these. Classes like the model
+     * of Vaadin Charts, only ever loaded by name, are left out.
+     * <p>
+     * {@code @Deprecated}, {@code @FunctionalInterface} and
+     * {@code @SafeVarargs} are not taken into account, as nothing looks them
+     * up.
+     */
+    ANNOTATED;
+
+    static final Set<DotName> IGNORED_ANNOTATIONS = Set.of(
+            DotName.createSimple(Deprecated.class.getName()),
+            DotName.createSimple(FunctionalInterface.class.getName()),
+            DotName.createSimple(SafeVarargs.class.getName()));
+
+    /**
+     * Gets a profile by its name, as given in the pom.
+     *
+     * @param name
+     *            the name of the profile, in any case
+     * @return the profile
+     * @throws IllegalArgumentException
+     *             if there is no such profile
+     */
+    public static IndexProfile of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Selects the classes of an index to keep.
+     *
+     * @param index
+     *            the index of all the classes
+     * @param services
+     *            the services and implementations listed in
+     *            {@code META-INF/services} of the indexed jars
+     * @return the names of the classes to keep
+     */
+    Set<DotName> select(Index index, Collection<DotName> services) {
+        Set<DotName> selected = new HashSet<>();
+        Deque<ClassInfo> toProcess = new ArrayDeque<>();
+        for (ClassInfo info : index.getKnownClasses()) {
+            if (this == FULL || !IGNORED_ANNOTATIONS
+                    .containsAll(info.annotations().keySet())) {
+                toProcess.add(info);
+            }
+        }
+        for (DotName service : services) {
+            ClassInfo info = index.getClassByName(service);
+            if (info != null) {
+                toProcess.add(info);
+                // looked up by the service type in the index instead
+                toProcess.addAll(index.getAllKnownImplementors(service));
+            }
+        }
+        while (!toProcess.isEmpty()) {
+            ClassInfo info = toProcess.poll();
+            if (!selected.add(info.name())) {
+                continue;
+            }
+            if (info.superName() != null) {
+                add(index, info.superName(), toProcess);
+            }
+            for (DotName type : info.interfaceNames()) {
+                add(index, type, toProcess);
+            }
+        }
+        return selected;
+    }
+
+    private static void add(Index index, DotName name,
+            Deque<ClassInfo> toProcess) {
+        ClassInfo info = index.getClassByName(name);
+        if (info != null) {
+            toProcess.add(info);
+        }
+    }
+}
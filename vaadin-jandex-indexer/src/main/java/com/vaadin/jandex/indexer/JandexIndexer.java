@@ -0,0 +1,511 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.jandex.Indexer;
+
+/**
+ * Builds one Jandex index of the Vaadin classes in a list of jars.
+ * <p>
+ * The index of each jar is kept in a cache directory, named after the
+ * SHA-256 checksum of the jar, so that only the jars which changed since the
+ * previous build are indexed again. The merged index is cached the same way,
+ * by the checksums of all the jars, and copied as is when none of them
+ * changed.
+ * <p>
+ * The index of each jar is also written next to the merged index, as a shard
+ * of a {@link ShardedIndex}, together with the {@link VaadinBuildMetadata} of
+ * all the jars.
+ * <p>
+ * With a profile other than {@link IndexProfile#FULL}, the merged index and
+ * the shards only have the classes selected by the profile, while the build
+ * metadata is still collected from all the classes.
+ * <p>
+ * Usage:
+ * {@code JandexIndexer <classpath file> <index file> <cache dir> [profile]}
+ * where the classpath file lists the jars separated by the path separator,
+ * as written by {@code maven-dependency-plugin:build-classpath}, and the
+ * profile is {@code full}, the default, or {@code annotated}.
+ */
+public class JandexIndexer {
+
+    /**
+     * Only the classes in this package and its sub-packages are indexed.
+     */
+    static final String INCLUDED_PACKAGE = "com/vaadin/";
+
+    private static final String SERVICES = "META-INF/services/";
+
+    // changed when the indexed content changes, invalidating the cache
+    private static final String CACHE_VERSION = "1";
+
+    private final Path cache;
+    private final IndexProfile profile;
+    // counts of the last write, for reporting
+    int indexedJars;
+    int cachedJars;
+
+    /**
+     * Creates an indexer keeping the indexes in the given directory.
+     *
+     * @param cache
+     *            the cache directory, created if missing
+     */
+    public JandexIndexer(Path cache) {
+        this(cache, IndexProfile.FULL);
+    }
+
+    /**
+     * Creates an indexer keeping the indexes in the given directory, and only
+     * the classes of the given profile in the written indexes.
+     *
+     * @param cache
+     *            the cache directory, created if missing
+     * @param profile
+     *            the classes to keep
+     */
+    public JandexIndexer(Path cache, IndexProfile profile) {
+        this.cache = cache;
+        this.profile = profile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println(
+                    "Usage: JandexIndexer <classpath file> <index file> <cache dir> [profile]");
+            System.exit(2);
+        }
+        List<Path> jars = jars(Paths.get(args[0]));
+
+        long start = System.nanoTime();
+        IndexProfile profile = args.length > 3 ? IndexProfile.of(args[3])
+                : IndexProfile.FULL;
+        JandexIndexer indexer = new JandexIndexer(Paths.get(args[2]),
+                profile);
+        boolean merged = indexer.write(jars, Paths.get(args[1]));
+        System.out.printf(
+                "Jandex index of %d jars written to %s in %d ms: %s%n",
+                jars.size(), args[1], (System.nanoTime() - start) / 1000000,
+                merged ? indexer.indexedJars + " indexed, " + indexer.cachedJars
+                        + " from cache" : "unchanged, copied from cache");
+        System.out.printf("Profile %s: %d KB%n",
+                profile.name().toLowerCase(Locale.ROOT),
+                Files.size(Paths.get(args[1])) / 1024);
+    }
+
+    /**
+     * Reads the jars of a classpath file.
+     *
+     * @param classpathFile
+     *            the file listing the jars separated by the path separator
+     * @return the jars, without the folders and missing files
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static List<Path> jars(Path classpathFile) throws IOException {
+        String classpath = new String(Files.readAllBytes(classpathFile),
+                StandardCharsets.UTF_8).trim();
+        List<Path> jars = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            Path jar = Paths.get(entry);
+            if (entry.endsWith(".jar") && Files.isRegularFile(jar)) {
+                jars.add(jar);
+            }
+        }
+        return jars;
+    }
+
+    /**
+     * Gets the index of each of the given jars, reading the ones in the
+     * cache.
+     *
+     * @param jars
+     *            the jars to index
+     * @return the index of each jar, in the same order
+     * @throws IOException
+     *             if a jar cannot be read
+     */
+    List<Index> index(List<Path> jars) throws IOException {
+        indexedJars = 0;
+        cachedJars = 0;
+        List<Index> indexes = new ArrayList<>();
+        for (Path jar : jars) {
+            indexes.add(index(jar, checksum(jar)));
+        }
+        return indexes;
+    }
+
+    /**
+     * Writes the index of the given jars, and next to it the index of each
+     * jar with the manifest read by {@link ShardedIndex}.
+     *
+     * @param jars
+     *            the jars to index
+     * @param output
+     *            the index file
+     * @return {@code false} if the indexes were copied from the cache,
+     *         {@code true} if they were merged from the index of each jar
+     * @throws IOException
+     *             if a jar cannot be read or the index cannot be written
+     */
+    public boolean write(List<Path> jars, Path output) throws IOException {
+        List<String> checksums = new ArrayList<>();
+        for (Path jar : jars) {
+            checksums.add(checksum(jar));
+        }
+        String key = String.join(",", checksums);
+        if (profile != IndexProfile.FULL) {
+            key = profile + ":" + key;
+        }
+        key = checksum(key.getBytes(StandardCharsets.UTF_8));
+        Path merged = cache.resolve("merged-" + key + ".idx");
+        Path manifest = cache.resolve("merged-" + key + ".properties");
+        Path metadata = cache.resolve("merged-" + key + ".metadata");
+        Map<String, Path> shards = new LinkedHashMap<>();
+        for (int i = 0; i < jars.size(); i++) {
+            String name = artifact(jars.get(i));
+            for (int suffix = 2; shards.containsKey(name); suffix++) {
+                name = artifact(jars.get(i)) + "-" + suffix;
+            }
+            // the shards of the other profiles depend on all the jars
+            shards.put(name,
+                    cache.resolve(profile == IndexProfile.FULL
+                            ? checksums.get(i) + ".idx"
+                            : "merged-" + key + "-" + name + ".idx"));
+        }
+
+        indexedJars = 0;
+        cachedJars = 0;
+        boolean cached = Files.isRegularFile(merged)
+                && Files.isRegularFile(manifest)
+                && Files.isRegularFile(metadata) && shards.values().stream()
+                        .allMatch(Files::isRegularFile);
+        if (!cached) {
+            List<Index> indexes = new ArrayList<>();
+            for (int i = 0; i < jars.size(); i++) {
+                indexes.add(index(jars.get(i), checksums.get(i)));
+            }
+            Index index = merge(indexes);
+            Set<DotName> selected = null;
+            if (profile != IndexProfile.FULL) {
+                Set<DotName> services = new HashSet<>();
+                for (Path jar : jars) {
+                    services.addAll(services(jar));
+                }
+                selected = profile.select(index, services);
+            }
+
+            StringWriter description = new StringWriter();
+            int i = 0;
+            for (Map.Entry<String, Path> shard : shards.entrySet()) {
+                Index shardIndex = indexes.get(i++);
+                if (selected != null) {
+                    shardIndex = filter(shardIndex, selected);
+                    store(shardIndex, shard.getValue());
+                }
+                if (!shardIndex.getKnownClasses().isEmpty()) {
+                    ShardedIndex.Shard.of(shard.getKey(), shardIndex)
+                            .write(description);
+                }
+            }
+            store(selected == null ? index : filter(index, selected), merged);
+            store(description.toString().getBytes(StandardCharsets.UTF_8),
+                    manifest);
+            StringWriter collected = new StringWriter();
+            VaadinBuildMetadata.collect(index).write(collected);
+            store(collected.toString().getBytes(StandardCharsets.UTF_8),
+                    metadata);
+        }
+
+        Path folder = output.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        copy(merged, output);
+        copy(manifest, folder.resolve(ShardedIndex.MANIFEST_FILE));
+        copy(metadata, folder.resolve(VaadinBuildMetadata.FILE));
+        Path shardFolder = folder.resolve(ShardedIndex.SHARDS);
+        if (Files.isDirectory(shardFolder)) {
+            // shards of the jars which are no longer dependencies
+            try (Stream<Path> files = Files.list(shardFolder)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.createDirectories(shardFolder);
+        for (ShardedIndex.Shard shard : ShardedIndex
+                .read(manifest.toUri().toURL())) {
+            copy(shards.get(shard.name),
+                    shardFolder.resolve(shard.name + ".idx"));
+        }
+        return !cached;
+    }
+
+    private static void copy(Path cached, Path output) throws IOException {
+        // not Files.copy, which would keep the permissions of the temp file
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            Files.copy(cached, stream);
+        }
+    }
+
+    /**
+     * Gets the artifact id of a jar in a Maven repository, otherwise its file
+     * name.
+     */
+    static String artifact(Path jar) {
+        String fileName = jar.getFileName().toString();
+        Path versionFolder = jar.getParent();
+        if (versionFolder != null && versionFolder.getParent() != null) {
+            String artifactId = versionFolder.getParent().getFileName()
+                    .toString();
+            if (fileName.startsWith(artifactId + "-"
+                    + versionFolder.getFileName())) {
+                return artifactId;
+            }
+        }
+        return fileName.endsWith(".jar")
+                ? fileName.substring(0, fileName.length() - 4)
+                : fileName;
+    }
+
+    private Index index(Path jar, String checksum) throws IOException {
+        Path cached = cache.resolve(checksum + ".idx");
+        if (Files.isRegularFile(cached)) {
+            try (InputStream stream = Files.newInputStream(cached)) {
+                Index index = new IndexReader(stream).read();
+                cachedJars++;
+                return index;
+            } catch (IOException | RuntimeException e) {
+                // a broken cache entry, e.g. written by an older version
+                Files.deleteIfExists(cached);
+            }
+        }
+        Index index = index(jar);
+        store(index, cached);
+        indexedJars++;
+        return index;
+    }
+
+    /**
+     * Indexes the Vaadin classes of a jar.
+     *
+     * @param jar
+     *            the jar file
+     * @return the index of the jar
+     * @throws IOException
+     *             if the jar cannot be read
+     */
+    static Index index(Path jar) throws IOException {
+        Indexer indexer = new Indexer();
+        try (JarFile file = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.startsWith(INCLUDED_PACKAGE)
+                        && name.endsWith(".class")) {
+                    try (InputStream stream = file.getInputStream(entry)) {
+                        indexer.index(stream);
+                    }
+                }
+            }
+        }
+        return indexer.complete();
+    }
+
+    /**
+     * Gets the services and their implementations listed in
+     * {@code META-INF/services} of a jar.
+     *
+     * @param jar
+     *            the jar file
+     * @return the names of the services and implementations
+     * @throws IOException
+     *             if the jar cannot be read
+     */
+    static Set<DotName> services(Path jar) throws IOException {
+        Set<DotName> services = new HashSet<>();
+        try (JarFile file = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.startsWith(SERVICES) || entry.isDirectory()) {
+                    continue;
+                }
+                services.add(DotName
+                        .createSimple(name.substring(SERVICES.length())));
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(file.getInputStream(entry),
+                                StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int comment = line.indexOf('#');
+                        String implementation = (comment < 0 ? line
+                                : line.substring(0, comment)).trim();
+                        if (!implementation.isEmpty()) {
+                            services.add(DotName.createSimple(implementation));
+                        }
+                    }
+                }
+            }
+        }
+        return services;
+    }
+
+    /**
+     * Merges indexes into one, as if all their classes had been indexed
+     * together. When a class is in several indexes, the last one is used.
+     *
+     * @param indexes
+     *            the indexes to merge
+     * @return the merged index
+     */
+    static Index merge(List<Index> indexes) {
+        Map<DotName, ClassInfo> classes = new LinkedHashMap<>();
+        for (Index index : indexes) {
+            for (ClassInfo info : index.getKnownClasses()) {
+                classes.put(info.name(), info);
+            }
+        }
+        return create(classes);
+    }
+
+    /**
+     * Gets an index of only the given classes of an index.
+     *
+     * @param index
+     *            the index to filter
+     * @param selected
+     *            the names of the classes to keep
+     * @return the filtered index
+     */
+    static Index filter(Index index, Set<DotName> selected) {
+        Map<DotName, ClassInfo> classes = new LinkedHashMap<>();
+        for (ClassInfo info : index.getKnownClasses()) {
+            if (selected.contains(info.name())) {
+                classes.put(info.name(), info);
+            }
+        }
+        return create(classes);
+    }
+
+    private static Index create(Map<DotName, ClassInfo> classes) {
+        Map<DotName, List<AnnotationInstance>> annotations = new HashMap<>();
+        Map<DotName, List<ClassInfo>> subclasses = new HashMap<>();
+        Map<DotName, List<ClassInfo>> implementors = new HashMap<>();
+        for (ClassInfo info : classes.values()) {
+            info.annotations().forEach((name, instances) -> annotations
+                    .computeIfAbsent(name, key -> new ArrayList<>())
+                    .addAll(instances));
+            if (info.superName() != null) {
+                subclasses.computeIfAbsent(info.superName(),
+                        key -> new ArrayList<>()).add(info);
+            }
+            for (DotName name : info.interfaceNames()) {
+                implementors.computeIfAbsent(name, key -> new ArrayList<>())
+                        .add(info);
+            }
+        }
+        return Index.create(annotations, subclasses, implementors, classes);
+    }
+
+    private static void store(Index index, Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new IndexWriter(bytes).write(index);
+        store(bytes.toByteArray(), file);
+    }
+
+    private static void store(byte[] content, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        // written aside and moved, as builds running in parallel share the
+        // cache
+        Path temp = Files.createTempFile(file.getParent(), "index", ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String checksum(Path jar) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(CACHE_VERSION.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream stream = Files.newInputStream(jar)) {
+            for (int read = stream.read(buffer); read >= 0; read = stream
+                    .read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static String checksum(byte[] content) {
+        return hex(sha256().digest(content));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.CompositeIndex;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexView;
+
+/**
+ * An index made of the index of each artifact, the shards written by
+ * {@link JandexIndexer} next to {@code META-INF/jandex.idx}. A shard is only
+ * read when a lookup may find something in it: when the class looked up is in
+ * one of its packages, when one of its classes extends or implements the
+ * type looked up, or when it uses the annotation looked up. Only
+ * {@link #getKnownClasses()} reads all the shards.
+ * <p>
+ * The shards are described in {@value #MANIFEST}, listing for each shard its
+ * packages, the annotations and the super types it refers to.
+ */
+public class ShardedIndex implements IndexView {
+
+    static final String MANIFEST_FILE = "jandex-shards.properties";
+    /**
+     * The resource describing the shards.
+     */
+    public static final String MANIFEST = "META-INF/" + MANIFEST_FILE;
+    /**
+     * The folder of the shards, relative to the manifest.
+     */
+    static final String SHARDS = "jandex-shards/";
+
+    private static final String PACKAGES = ".packages";
+    private static final String ANNOTATIONS = ".annotations";
+    private static final String SUPERTYPES = ".supertypes";
+    private static final DotName REPEATABLE = DotName
+            .createSimple("java.lang.annotation.Repeatable");
+
+    /**
+     * An index of one artifact, read on first use.
+     */
+    static class Shard {
+        final String name;
+        final Set<String> packages;
+        final Set<String> annotations;
+        final Set<String> supertypes;
+        private final URL url;
+        private volatile Index index;
+
+        Shard(String name, URL url, Set<String> packages,
+                Set<String> annotations, Set<String> supertypes) {
+            this.name = name;
+            this.url = url;
+            this.packages = packages;
+            this.annotations = annotations;
+            this.supertypes = supertypes;
+        }
+
+        /**
+         * Describes the given index as a shard, for the manifest.
+         */
+        static Shard of(String name, Index index) {
+            Set<String> packages = new TreeSet<>();
+            Set<String> annotations = new TreeSet<>();
+            Set<String> supertypes = new TreeSet<>();
+            for (ClassInfo info : index.getKnownClasses()) {
+                packages.add(packageOf(info.name()));
+                info.annotations().keySet().forEach(
+                        annotation -> annotations.add(annotation.toString()));
+                if (info.superName() != null) {
+                    supertypes.add(info.superName().toString());
+                }
+                info.interfaceNames().forEach(
+                        type -> supertypes.add(type.toString()));
+            }
+            return new Shard(name, null, packages, annotations, supertypes);
+        }
+
+        boolean isLoaded() {
+            return index != null;
+        }
+
+        Index load() {
+            Index loaded = index;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = index;
+                    if (loaded == null) {
+                        try (InputStream stream = url.openStream()) {
+                            loaded = new IndexReader(stream).read();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(
+                                    "Cannot read the Jandex index " + url, e);
+                        }
+                        index = loaded;
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        void write(Writer writer) throws IOException {
+            writer.write(name + PACKAGES + "=" + String.join(",", packages)
+                    + "\n");
+            writer.write(name + ANNOTATIONS + "="
+                    + String.join(",", annotations) + "\n");
+            writer.write(name + SUPERTYPES + "="
+                    + String.join(",", supertypes) + "\n");
+        }
+    }
+
+    private final List<Shard> shards;
+
+    ShardedIndex(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Reads the manifests of all the sharded indexes found by the class
+     * loader, without reading any shard.
+     *
+     * @param loader
+     *            the class loader to find the manifests with
+     * @return the index of all the shards
+     * @throws IOException
+     *             if a manifest cannot be read
+     */
+    public static ShardedIndex read(ClassLoader loader) throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        Enumeration<URL> manifests = loader.getResources(MANIFEST);
+        while (manifests.hasMoreElements()) {
+            shards.addAll(read(manifests.nextElement()));
+        }
+        return new ShardedIndex(shards);
+    }
+
+    static List<Shard> read(URL manifest) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream stream = manifest.openStream()) {
+            properties.load(stream);
+        }
+        List<Shard> shards = new ArrayList<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.endsWith(PACKAGES)) {
+                String name = key.substring(0,
+                        key.length() - PACKAGES.length());
+                shards.add(new Shard(name,
+                        new URL(manifest, SHARDS + name + ".idx"),
+                        split(properties.getProperty(key)),
+                        split(properties.getProperty(name + ANNOTATIONS)),
+                        split(properties.getProperty(name + SUPERTYPES))));
+            }
+        }
+        return shards;
+    }
+
+    private static Set<String> split(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Arrays.asList(value.split(",")));
+    }
+
+    private static String packageOf(DotName name) {
+        String className = name.toString();
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? "" : className.substring(0, dot);
+    }
+
+    /**
+     * Gets the names of the shards which have been read so far.
+     *
+     * @return the names of the read shards
+     */
+    public Set<String> getLoadedShards() {
+        return shards.stream().filter(Shard::isLoaded)
+                .map(shard -> shard.name)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Checks whether a jar is indexed by one of the shards, the shards being
+     * named after the artifact id of their jar.
+     *
+     * @param jarName
+     *            the file name of the jar, e.g. {@code flow-server-23.3.0.jar}
+     * @return whether the jar is indexed
+     */
+    public boolean covers(String jarName) {
+        for (Shard shard : shards) {
+            if (jarName.equals(shard.name + ".jar")
+                    || jarName.startsWith(shard.name + "-")
+                            && jarName.length() > shard.name.length() + 1
+                            && Character.isDigit(
+                                    jarName.charAt(shard.name.length() + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets an index of the shards referring to the given name.
+     */
+    private IndexView indexOf(String name,
+            Function<Shard, Set<String>> names) {
+        List<IndexView> indexes = new ArrayList<>();
+        for (Shard shard : shards) {
+            if (names.apply(shard).contains(name)) {
+                indexes.add(shard.load());
+            }
+        }
+        return CompositeIndex.create(indexes);
+    }
+
+    @Override
+    public Collection<ClassInfo> getKnownClasses() {
+        List<IndexView> indexes = new ArrayList<>();
+        for (Shard shard : shards) {
+            indexes.add(shard.load());
+        }
+        return CompositeIndex.create(indexes).getKnownClasses();
+    }
+
+    @Override
+    public ClassInfo getClassByName(DotName className) {
+        return indexOf(packageOf(className), shard -> shard.packages)
+                .getClassByName(className);
+    }
+
+    @Override
+    public Collection<ClassInfo> getKnownDirectSubclasses(DotName className) {
+        return indexOf(className.toString(), shard -> shard.supertypes)
+                .getKnownDirectSubclasses(className);
+    }
+
+    @Override
+    public Collection<ClassInfo> getAllKnownSubclasses(DotName className) {
+        Set<ClassInfo> subclasses = new HashSet<>();
+        Set<DotName> processed = new HashSet<>();
+        Deque<DotName> toProcess = new ArrayDeque<>();
+        toProcess.add(className);
+        while (!toProcess.isEmpty()) {
+            for (ClassInfo subclass : getKnownDirectSubclasses(
+                    toProcess.poll())) {
+                if (processed.add(subclass.name())) {
+                    subclasses.add(subclass);
+                    toProcess.add(subclass.name());
+                }
+            }
+        }
+        return subclasses;
+    }
+
+    @Override
+    public Collection<ClassInfo> getKnownDirectImplementors(
+            DotName className) {
+        return indexOf(className.toString(), shard -> shard.supertypes)
+                .getKnownDirectImplementors(className);
+    }
+
+    @Override
+    public Collection<ClassInfo> getAllKnownImplementors(DotName interfaceName) {
+        // the same as Index does, but going through the shards
+        Set<ClassInfo> implementors = new HashSet<>();
+        Set<DotName> processed = new HashSet<>();
+        Deque<DotName> interfaces = new ArrayDeque<>();
+        Deque<DotName> classes = new ArrayDeque<>();
+        interfaces.add(interfaceName);
+        while (!interfaces.isEmpty()) {
+            for (ClassInfo implementor : getKnownDirectImplementors(
+                    interfaces.poll())) {
+                if (!processed.add(implementor.name())) {
+                    continue;
+                }
+                if (Modifier.isInterface(implementor.flags())) {
+                    interfaces.add(implementor.name());
+                } else {
+                    implementors.add(implementor);
+                    classes.add(implementor.name());
+                }
+            }
+        }
+        while (!classes.isEmpty()) {
+            for (ClassInfo subclass : getKnownDirectSubclasses(
+                    classes.poll())) {
+                if (processed.add(subclass.name())) {
+                    implementors.add(subclass);
+                    classes.add(subclass.name());
+                }
+            }
+        }
+        return implementors;
+    }
+
+    @Override
+    public Collection<AnnotationInstance> getAnnotations(
+            DotName annotationName) {
+        return indexOf(annotationName.toString(), shard -> shard.annotations)
+                .getAnnotations(annotationName);
+    }
+
+    @Override
+    public Collection<AnnotationInstance> getAnnotationsWithRepeatable(
+            DotName annotationName, IndexView index) {
+        List<AnnotationInstance> instances = new ArrayList<>(
+                getAnnotations(annotationName));
+        ClassInfo annotation = index.getClassByName(annotationName);
+        AnnotationInstance repeatable = annotation == null ? null
+                : annotation.classAnnotation(REPEATABLE);
+        if (repeatable != null) {
+            for (AnnotationInstance container : getAnnotations(
+                    repeatable.value().asClass().name())) {
+                for (AnnotationInstance instance : container.value()
+                        .asNestedArray()) {
+                    instances.add(AnnotationInstance.create(instance.name(),
+                            container.target(), instance.values()));
+                }
+            }
+        }
+        return instances;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Properties stored in the order of their keys and without the date comment,
+ * so that the same properties are always written the same way and do not
+ * change the artifacts they are written to.
+ */
+class SortedProperties extends Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        // used by store
+        Set<Map.Entry<Object, Object>> sorted = new TreeSet<>(
+                Comparator.comparing(entry -> entry.getKey().toString()));
+        sorted.addAll(super.entrySet());
+        return Collections.unmodifiableSet(sorted);
+    }
+
+    /**
+     * Writes the properties like {@link #store(Writer, String)}, without any
+     * comment.
+     *
+     * @param writer
+     *            the writer to write to
+     * @throws IOException
+     *             if writing fails
+     */
+    void store(Writer writer) throws IOException {
+        StringWriter stored = new StringWriter();
+        store(stored, null);
+        String content = stored.toString();
+        writer.write(content.substring(content.indexOf('\n') + 1));
+    }
+}
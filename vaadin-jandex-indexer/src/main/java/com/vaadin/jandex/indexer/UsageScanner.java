@@ -0,0 +1,333 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds which of many patterns occur in source files, reading each file once
+ * whatever the number of patterns.
+ * <p>
+ * Each pattern is a literal, e.g. a class name or a tag, found with one
+ * Aho-Corasick automaton for all the patterns, and then checked in its
+ * context: a class name must not be part of a longer name, an import must be
+ * the whole line. A pattern has an id, reported when it is found, and
+ * several patterns can have the same id, e.g. all the ways a component can
+ * be used.
+ * <p>
+ * A scanner is immutable once built, so it can scan files in parallel.
+ */
+public class UsageScanner {
+
+    private enum Kind {
+        JAVA_REFERENCE, JS_IMPORT, JS_RENDER
+    }
+
+    private static final class Keyword {
+        private final String id;
+        private final Kind kind;
+        private final int length;
+        // the whole line, for the imports
+        private final Pattern line;
+
+        private Keyword(String id, Kind kind, int length, Pattern line) {
+            this.id = id;
+            this.kind = kind;
+            this.length = length;
+            this.line = line;
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> next = new HashMap<>();
+        private final List<Keyword> keywords = new ArrayList<>();
+        private Node fail;
+    }
+
+    /**
+     * Collects the patterns of a scanner. A builder builds a single scanner.
+     */
+    public static class Builder {
+        private final Node root = new Node();
+        private final Set<String> ids = new TreeSet<>();
+
+        /**
+         * Adds a reference to a class by its fully qualified name, e.g. in
+         * an import, as the one line pattern
+         * {@code .*[^\w](className)[^\w].*}.
+         *
+         * @param id
+         *            the id to report
+         * @param className
+         *            the fully qualified class name
+         * @return this builder
+         */
+        public Builder javaReference(String id, String className) {
+            return add(className, new Keyword(id, Kind.JAVA_REFERENCE,
+                    className.length(), null));
+        }
+
+        /**
+         * Adds the import of all the classes of a package, as the one line
+         * pattern {@code .*[^\w](packageName\.\*)[^\w].*}.
+         *
+         * @param id
+         *            the id to report
+         * @param packageName
+         *            the package name
+         * @return this builder
+         */
+        public Builder javaPackageImport(String id, String packageName) {
+            String literal = packageName + ".*";
+            return add(literal, new Keyword(id, Kind.JAVA_REFERENCE,
+                    literal.length(), null));
+        }
+
+        /**
+         * Adds the import of a module, on a line of its own. The main
+         * module of a package, e.g. {@code @vaadin/button/src/vaadin-button},
+         * can also be imported by the package name.
+         *
+         * @param id
+         *            the id to report
+         * @param module
+         *            the module, without its {@code .js} or {@code .ts}
+         *            extension
+         * @return this builder
+         */
+        public Builder jsImport(String id, String module) {
+            String packageName = ComponentUsage.mainModulePackage(module);
+            Pattern line = Pattern.compile("^\\s*import\\s+'("
+                    + Pattern.quote(module)
+                    + (packageName == null ? ""
+                            : "|" + Pattern.quote(packageName))
+                    + ")'; *");
+            add("'" + module + "'",
+                    new Keyword(id, Kind.JS_IMPORT, module.length() + 2, line));
+            if (packageName != null) {
+                add("'" + packageName + "'", new Keyword(id, Kind.JS_IMPORT,
+                        packageName.length() + 2, line));
+            }
+            return this;
+        }
+
+        /**
+         * Adds the opening or closing tag of an element, as the one line
+         * pattern {@code ^.*</?tag>.*}.
+         *
+         * @param id
+         *            the id to report
+         * @param tag
+         *            the tag of the element
+         * @return this builder
+         */
+        public Builder jsRender(String id, String tag) {
+            add("<" + tag + ">",
+                    new Keyword(id, Kind.JS_RENDER, tag.length() + 2, null));
+            return add("</" + tag + ">",
+                    new Keyword(id, Kind.JS_RENDER, tag.length() + 3, null));
+        }
+
+        private Builder add(String literal, Keyword keyword) {
+            Node node = root;
+            for (int i = 0; i < literal.length(); i++) {
+                node = node.next.computeIfAbsent(literal.charAt(i),
+                        c -> new Node());
+            }
+            node.keywords.add(keyword);
+            ids.add(keyword.id);
+            return this;
+        }
+
+        /**
+         * Builds the automaton of the patterns.
+         *
+         * @return the scanner
+         */
+        public UsageScanner build() {
+            // breadth first, so that the failure of the parent is known
+            Deque<Node> queue = new ArrayDeque<>();
+            root.fail = root;
+            for (Node child : root.next.values()) {
+                child.fail = root;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+                    Node child = edge.getValue();
+                    Node fail = node.fail;
+                    while (fail != root
+                            && !fail.next.containsKey(edge.getKey())) {
+                        fail = fail.fail;
+                    }
+                    Node target = fail.next.get(edge.getKey());
+                    child.fail = target != null && target != child ? target
+                            : root;
+                    child.keywords.addAll(child.fail.keywords);
+                    queue.add(child);
+                }
+            }
+            return new UsageScanner(root, new TreeSet<>(ids));
+        }
+    }
+
+    private final Node root;
+    private final Set<String> ids;
+
+    private UsageScanner(Node root, Set<String> ids) {
+        this.root = root;
+        this.ids = Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Creates a builder of a scanner.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the ids of the patterns of the scanner.
+     *
+     * @return the ids, sorted
+     */
+    public Set<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * Finds the patterns occurring in a text.
+     *
+     * @param text
+     *            the text, e.g. the content of a file
+     * @return the ids of the patterns found
+     */
+    public Set<String> scan(CharSequence text) {
+        Set<String> found = new TreeSet<>();
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Node next = node.next.get(c);
+            while (next == null && node != root) {
+                node = node.fail;
+                next = node.next.get(c);
+            }
+            node = next == null ? root : next;
+            for (Keyword keyword : node.keywords) {
+                if (!found.contains(keyword.id)
+                        && matches(text, i + 1 - keyword.length, i + 1,
+                                keyword)) {
+                    found.add(keyword.id);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean matches(CharSequence text, int start, int end,
+            Keyword keyword) {
+        switch (keyword.kind) {
+        case JAVA_REFERENCE:
+            return start > 0 && end < text.length()
+                    && isSeparator(text.charAt(start - 1))
+                    && isSeparator(text.charAt(end));
+        case JS_IMPORT:
+            int lineStart = start;
+            while (lineStart > 0 && !isLineEnd(text.charAt(lineStart - 1))) {
+                lineStart--;
+            }
+            int lineEnd = end;
+            while (lineEnd < text.length() && !isLineEnd(text.charAt(lineEnd))) {
+                lineEnd++;
+            }
+            return keyword.line.matcher(text.subSequence(lineStart, lineEnd))
+                    .matches();
+        default:
+            return true;
+        }
+    }
+
+    // [^\w] on a single line
+    private static boolean isSeparator(char c) {
+        return !isLineEnd(c) && !(c == '_' || c >= 'a' && c <= 'z'
+                || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9');
+    }
+
+    private static boolean isLineEnd(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * Finds the patterns occurring in each file of a folder and its
+     * sub-folders, reading the files in parallel.
+     *
+     * @param folder
+     *            the folder to scan
+     * @param files
+     *            tells which files to scan
+     * @return the ids of the patterns found by file, only for the files
+     *         where some were found
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    public Map<Path, Set<String>> scan(Path folder, Predicate<Path> files)
+            throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(folder)) {
+            paths = walk.filter(Files::isRegularFile).filter(files)
+                    .collect(Collectors.toList());
+        }
+        try {
+            return paths.parallelStream()
+                    .map(path -> Map.entry(path, scan(read(path))))
+                    .filter(entry -> !entry.getValue().isEmpty())
+                    .collect(Collectors.toMap(Map.Entry::getKey,
+                            Map.Entry::getValue, (a, b) -> a, TreeMap::new));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String read(Path file) {
+        try {
+            return new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
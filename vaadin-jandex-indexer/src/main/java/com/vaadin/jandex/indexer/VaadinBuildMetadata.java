@@ -0,0 +1,262 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.AnnotationValue;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexView;
+
+/**
+ * What Vaadin discovers when the application starts, computed from a Jandex
+ * index at build time instead: the route targets, the npm packages and
+ * JavaScript modules the frontend is built from, and the
+ * {@code AppShellConfigurator} of the application.
+ * <p>
+ * It only has collections of strings with getters and setters, so that a
+ * Quarkus deployment processor can collect it from the combined index in a
+ * build step and pass it to a recorder, the runtime registering the recorded
+ * classes instead of looking them up. {@link JandexIndexer} writes the
+ * metadata of the platform artifacts to {@value #RESOURCE}.
+ */
+public class VaadinBuildMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String FILE = "vaadin-build-metadata.properties";
+    /**
+     * The resource written next to the Jandex index.
+     */
+    public static final String RESOURCE = "META-INF/" + FILE;
+
+    static final DotName ROUTE = DotName
+            .createSimple("com.vaadin.flow.router.Route");
+    static final DotName NPM_PACKAGE = DotName
+            .createSimple("com.vaadin.flow.component.dependency.NpmPackage");
+    static final DotName NPM_PACKAGES = DotName.createSimple(
+            "com.vaadin.flow.component.dependency.NpmPackage$Container");
+    static final DotName JS_MODULE = DotName
+            .createSimple("com.vaadin.flow.component.dependency.JsModule");
+    static final DotName JS_MODULES = DotName.createSimple(
+            "com.vaadin.flow.component.dependency.JsModule$Container");
+    static final DotName APP_SHELL = DotName
+            .createSimple("com.vaadin.flow.component.page.AppShellConfigurator");
+
+    private static final String ROUTES_KEY = "routes";
+    private static final String JS_MODULES_KEY = "jsModules";
+    private static final String APP_SHELLS_KEY = "appShells";
+    private static final String NPM_PACKAGE_PREFIX = "npmPackage.";
+
+    private Set<String> routes = new TreeSet<>();
+    private Map<String, String> npmPackages = new TreeMap<>();
+    private Set<String> jsModules = new TreeSet<>();
+    private Set<String> appShells = new TreeSet<>();
+
+    /**
+     * Collects the metadata of the classes of an index.
+     *
+     * @param index
+     *            the index, of the application and its dependencies
+     * @return the metadata
+     */
+    public static VaadinBuildMetadata collect(IndexView index) {
+        VaadinBuildMetadata metadata = new VaadinBuildMetadata();
+        for (AnnotationInstance route : index.getAnnotations(ROUTE)) {
+            AnnotationValue registerAtStartup = route
+                    .value("registerAtStartup");
+            if (route.target().kind() == AnnotationTarget.Kind.CLASS
+                    && (registerAtStartup == null
+                            || registerAtStartup.asBoolean())) {
+                metadata.routes
+                        .add(route.target().asClass().name().toString());
+            }
+        }
+        for (AnnotationInstance npmPackage : instances(index, NPM_PACKAGE,
+                NPM_PACKAGES)) {
+            metadata.npmPackages.put(npmPackage.value().asString(),
+                    npmPackage.value("version").asString());
+        }
+        for (AnnotationInstance jsModule : instances(index, JS_MODULE,
+                JS_MODULES)) {
+            metadata.jsModules.add(jsModule.value().asString());
+        }
+        for (ClassInfo shell : index.getAllKnownImplementors(APP_SHELL)) {
+            if (!Modifier.isAbstract(shell.flags())) {
+                metadata.appShells.add(shell.name().toString());
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Gets the instances of a repeatable annotation, including the ones in
+     * its container annotation.
+     */
+    private static Iterable<AnnotationInstance> instances(IndexView index,
+            DotName annotation, DotName container) {
+        List<AnnotationInstance> instances = new ArrayList<>(
+                index.getAnnotations(annotation));
+        for (AnnotationInstance repeated : index.getAnnotations(container)) {
+            instances.addAll(Arrays.asList(repeated.value().asNestedArray()));
+        }
+        return instances;
+    }
+
+    /**
+     * Reads metadata written by {@link #write(Writer)}.
+     *
+     * @param stream
+     *            the stream to read
+     * @return the metadata
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public static VaadinBuildMetadata read(InputStream stream)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.load(stream);
+        VaadinBuildMetadata metadata = new VaadinBuildMetadata();
+        split(properties.getProperty(ROUTES_KEY), metadata.routes);
+        split(properties.getProperty(JS_MODULES_KEY), metadata.jsModules);
+        split(properties.getProperty(APP_SHELLS_KEY), metadata.appShells);
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(NPM_PACKAGE_PREFIX)) {
+                metadata.npmPackages.put(
+                        key.substring(NPM_PACKAGE_PREFIX.length()),
+                        properties.getProperty(key));
+            }
+        }
+        return metadata;
+    }
+
+    private static void split(String value, Set<String> values) {
+        if (value != null && !value.isEmpty()) {
+            values.addAll(Arrays.asList(value.split(",")));
+        }
+    }
+
+    /**
+     * Writes the metadata as properties, sorted so that the same metadata
+     * is always written the same way.
+     *
+     * @param writer
+     *            the writer to write to
+     * @throws IOException
+     *             if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        SortedProperties properties = new SortedProperties();
+        properties.setProperty(ROUTES_KEY, String.join(",", routes));
+        properties.setProperty(JS_MODULES_KEY, String.join(",", jsModules));
+        properties.setProperty(APP_SHELLS_KEY, String.join(",", appShells));
+        npmPackages.forEach((npmPackage, version) -> properties
+                .setProperty(NPM_PACKAGE_PREFIX + npmPackage, version));
+        properties.store(writer);
+    }
+
+    /**
+     * Gets the classes annotated with {@code @Route} to register at startup.
+     *
+     * @return the route target class names
+     */
+    public Set<String> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Sets the classes annotated with {@code @Route} to register at startup.
+     *
+     * @param routes
+     *            the route target class names
+     */
+    public void setRoutes(Set<String> routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * Gets the npm packages of the {@code @NpmPackage} annotations.
+     *
+     * @return the versions of the packages by name
+     */
+    public Map<String, String> getNpmPackages() {
+        return npmPackages;
+    }
+
+    /**
+     * Sets the npm packages of the {@code @NpmPackage} annotations.
+     *
+     * @param npmPackages
+     *            the versions of the packages by name
+     */
+    public void setNpmPackages(Map<String, String> npmPackages) {
+        this.npmPackages = npmPackages;
+    }
+
+    /**
+     * Gets the modules of the {@code @JsModule} annotations.
+     *
+     * @return the JavaScript modules
+     */
+    public Set<String> getJsModules() {
+        return jsModules;
+    }
+
+    /**
+     * Sets the modules of the {@code @JsModule} annotations.
+     *
+     * @param jsModules
+     *            the JavaScript modules
+     */
+    public void setJsModules(Set<String> jsModules) {
+        this.jsModules = jsModules;
+    }
+
+    /**
+     * Gets the classes implementing {@code AppShellConfigurator}, more than
+     * one being an error reported by Vaadin at startup.
+     *
+     * @return the app shell class names
+     */
+    public Set<String> getAppShells() {
+        return appShells;
+    }
+
+    /**
+     * Sets the classes implementing {@code AppShellConfigurator}.
+     *
+     * @param appShells
+     *            the app shell class names
+     */
+    public void setAppShells(Set<String> appShells) {
+        this.appShells = appShells;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.jandex.Index;
+import org.junit.Test;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.testbench.ButtonElement;
+import com.vaadin.testbench.TestBenchElement;
+
+public class ComponentCatalogTest {
+
+    @Test
+    public void collect_componentWithElement()
+            throws IOException, URISyntaxException {
+        ComponentCatalog catalog = collect();
+
+        ComponentCatalog.Entry button = catalog.getComponents()
+                .get(Button.class.getName());
+        assertEquals("vaadin-button", button.getTag());
+        assertTrue(button.getJsModules()
+                .contains("@vaadin/button/src/vaadin-button.js"));
+        assertTrue(button.getNpmPackages().containsKey("@vaadin/button"));
+        assertEquals(ButtonElement.class.getName(), button.getElement());
+        assertEquals("vaadin-button",
+                catalog.getElements().get(ButtonElement.class.getName()));
+
+        assertFalse("Component without a tag should not be listed",
+                catalog.getComponents().containsKey(Component.class.getName()));
+    }
+
+    @Test
+    public void write_readBack() throws IOException, URISyntaxException {
+        ComponentCatalog catalog = collect();
+        StringWriter writer = new StringWriter();
+        catalog.write(writer);
+
+        ComponentCatalog read = ComponentCatalog.read(new ByteArrayInputStream(
+                writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(catalog.getElements(), read.getElements());
+        assertEquals(catalog.getComponents().keySet(),
+                read.getComponents().keySet());
+        for (ComponentCatalog.Entry entry : catalog.getComponents()
+                .values()) {
+            ComponentCatalog.Entry readEntry = read.getComponents()
+                    .get(entry.getClassName());
+            assertEquals(entry.getTag(), readEntry.getTag());
+            assertEquals(entry.getJsModules(), readEntry.getJsModules());
+            assertEquals(entry.getNpmPackages(), readEntry.getNpmPackages());
+            assertEquals(entry.getElement(), readEntry.getElement());
+        }
+    }
+
+    private static ComponentCatalog collect()
+            throws IOException, URISyntaxException {
+        List<Index> indexes = new ArrayList<>();
+        for (Class<?> type : List.of(Component.class, Button.class,
+                TestBenchElement.class, ButtonElement.class)) {
+            indexes.add(JandexIndexer.index(Path.of(type.getProtectionDomain()
+                    .getCodeSource().getLocation().toURI())));
+        }
+        return ComponentCatalog.collect(JandexIndexer.merge(indexes));
+    }
+}
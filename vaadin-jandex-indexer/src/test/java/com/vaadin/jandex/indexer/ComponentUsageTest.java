@@ -0,0 +1,155 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ComponentUsageTest {
+
+    private static final String BUTTON = "com.vaadin.flow.component.button.Button";
+    private static final String GRID = "com.vaadin.flow.component.grid.Grid";
+    private static final String CHART = "com.vaadin.flow.component.charts.Chart";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ComponentUsage usage;
+
+    @Before
+    public void readCatalog() throws IOException {
+        String catalog = "component." + BUTTON + ".tag=vaadin-button\n"
+                + "component." + BUTTON
+                + ".jsModules=@vaadin/button/src/vaadin-button.js\n"
+                + "component." + BUTTON + ".npmPackages=@vaadin/button@23.3.0\n"
+                + "component." + GRID + ".tag=vaadin-grid\n" + "component."
+                + GRID
+                + ".jsModules=@vaadin/grid/src/vaadin-grid.js,./gridConnector.js\n"
+                + "component." + GRID + ".npmPackages=@vaadin/grid@23.3.0\n"
+                + "component." + CHART + ".tag=vaadin-chart\n" + "component."
+                + CHART + ".jsModules=@vaadin/charts/src/vaadin-chart.js\n"
+                + "component." + CHART + ".npmPackages=@vaadin/charts@23.3.0\n";
+        usage = new ComponentUsage(ComponentCatalog.read(new ByteArrayInputStream(
+                catalog.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void scanJava_referencedClasses() {
+        usage.scanJava(List.of("import " + BUTTON + ";", "",
+                "public class View {", "    Chart chart;", "}"));
+
+        assertEquals(Set.of(BUTTON), usage.getUsedComponents());
+    }
+
+    @Test
+    public void scanJava_wildcardImport_allComponentsOfPackage() {
+        usage.scanJava(List.of("import com.vaadin.flow.component.button.*;",
+                "import com.vaadin.flow.component.*;", "",
+                "public class View {", "    Button button;", "}"));
+
+        assertEquals(Set.of(BUTTON), usage.getUsedComponents());
+        assertEquals(Set.of("@vaadin/button/src/vaadin-button.js"),
+                usage.getUsedModules());
+    }
+
+    @Test
+    public void scanTypeScript_importedOrRenderedComponents() {
+        usage.scanTypeScript(List.of("import '@vaadin/grid';",
+                "  render() {", "    return html`<vaadin-button>`;", "  }"));
+
+        assertEquals(Set.of(BUTTON, GRID), usage.getUsedComponents());
+        assertEquals(Set.of("@vaadin/button/src/vaadin-button.js",
+                "@vaadin/grid/src/vaadin-grid.js"), usage.getUsedModules());
+        assertEquals(Set.of("@vaadin/button", "@vaadin/grid"),
+                usage.getUsedPackages().keySet());
+    }
+
+    @Test
+    public void withoutExtension_onlyJsOrTsExtension() {
+        assertEquals("@vaadin/grid/src/vaadin-grid", ComponentUsage
+                .withoutExtension("@vaadin/grid/src/vaadin-grid.js"));
+        assertEquals("@vaadin/grid/src/vaadin-grid", ComponentUsage
+                .withoutExtension("@vaadin/grid/src/vaadin-grid.ts"));
+        assertEquals("@vaadin/icons/vaadin-iconsets", ComponentUsage
+                .withoutExtension("@vaadin/icons/vaadin-iconsets"));
+    }
+
+    @Test
+    public void scan_componentsByFile() throws IOException {
+        Path root = folder.newFolder("frontend").toPath();
+        Path javaView = root.resolve("MainView.java");
+        write(javaView, "import " + CHART + ";\n");
+        Path tsView = root.resolve("views/main-view.ts");
+        write(tsView, "import '@vaadin/grid';\n");
+        write(root.resolve("node_modules/@vaadin/button/index.js"),
+                "import '@vaadin/button/src/vaadin-button.js';\n");
+
+        assertEquals(Map.of(javaView, Set.of(CHART), tsView, Set.of(GRID)),
+                usage.scan(root));
+        assertEquals(Set.of(CHART, GRID), usage.getUsedComponents());
+    }
+
+    @Test
+    public void writeImports_onlyUsedNpmModules() throws IOException {
+        usage.scanJava(List.of("import " + GRID + ";"));
+        Path file = folder.getRoot().toPath().resolve("used-components.ts");
+
+        usage.writeImports(file);
+
+        assertEquals(List.of(
+                "// The modules of the components used by the application",
+                "import '@vaadin/grid/src/vaadin-grid.js';"),
+                Files.readAllLines(file));
+    }
+
+    @Test
+    public void size_javaScriptOfPackages() throws IOException {
+        Path nodeModules = folder.newFolder("node_modules").toPath();
+        write(nodeModules.resolve("@vaadin/grid/src/vaadin-grid.js"), 100);
+        write(nodeModules.resolve("@vaadin/grid/README.md"), 10);
+        write(nodeModules.resolve(
+                "@vaadin/grid/node_modules/dependency/index.js"), 1000);
+        write(nodeModules.resolve("@vaadin/charts/src/vaadin-chart.js"), 50);
+
+        assertEquals(100, ComponentUsage.size(nodeModules,
+                List.of("@vaadin/grid", "@vaadin/button")));
+        assertEquals(150, ComponentUsage.size(nodeModules,
+                usage.getAllPackages().keySet()));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(Path file, int size) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+    }
+}
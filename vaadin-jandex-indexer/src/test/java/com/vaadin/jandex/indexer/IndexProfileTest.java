@@ -0,0 +1,138 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.Tag;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.HandlerHelper;
+import com.vaadin.flow.server.startup.RouteRegistryInitializer;
+
+public class IndexProfileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path jar;
+    private Index full;
+    private Index annotated;
+
+    @Before
+    public void indexFlowServer() throws IOException, URISyntaxException {
+        jar = Path.of(HandlerHelper.class.getProtectionDomain()
+                .getCodeSource().getLocation().toURI());
+        full = write(IndexProfile.FULL);
+        annotated = write(IndexProfile.ANNOTATED);
+    }
+
+    @Test
+    public void annotated_smokeLookupsSucceed() {
+        assertNotNull(annotated.getClassByName(name(Component.class)));
+        assertNotNull("Service implementation was left out", annotated
+                .getClassByName(name(RouteRegistryInitializer.class)));
+        assertEquals(targets(full, Route.class), targets(annotated, Route.class));
+        assertEquals(targets(full, Tag.class), targets(annotated, Tag.class));
+    }
+
+    @Test
+    public void annotated_sameAnnotationLookupsAsFull() {
+        for (ClassInfo info : full.getKnownClasses()) {
+            for (DotName annotation : info.annotations().keySet()) {
+                if (!IndexProfile.IGNORED_ANNOTATIONS.contains(annotation)) {
+                    assertEquals(annotation.toString(),
+                            targets(full, annotation),
+                            targets(annotated, annotation));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void annotated_keepsTypeHierarchies() {
+        for (ClassInfo info : annotated.getKnownClasses()) {
+            if (info.superName() != null
+                    && full.getClassByName(info.superName()) != null) {
+                assertNotNull(info.superName().toString(),
+                        annotated.getClassByName(info.superName()));
+            }
+            for (DotName type : info.interfaceNames()) {
+                if (full.getClassByName(type) != null) {
+                    assertNotNull(type.toString(),
+                            annotated.getClassByName(type));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void annotated_leavesOutOtherClasses() {
+        assertNotNull(full.getClassByName(name(HandlerHelper.class)));
+        assertNull(annotated.getClassByName(name(HandlerHelper.class)));
+        assertTrue(annotated.getKnownClasses().size() < full.getKnownClasses()
+                .size());
+    }
+
+    private Index write(IndexProfile profile) throws IOException {
+        String name = profile.name().toLowerCase(Locale.ROOT);
+        Path output = folder.getRoot().toPath()
+                .resolve(name + "/META-INF/jandex.idx");
+        new JandexIndexer(folder.newFolder(name + "-cache").toPath(), profile)
+                .write(List.of(jar), output);
+        try (InputStream stream = Files.newInputStream(output)) {
+            return new IndexReader(stream).read();
+        }
+    }
+
+    private static DotName name(Class<?> type) {
+        return DotName.createSimple(type.getName());
+    }
+
+    private static Set<String> targets(Index index, Class<?> annotation) {
+        return targets(index, name(annotation));
+    }
+
+    private static Set<String> targets(Index index, DotName annotation) {
+        return index.getAnnotations(annotation).stream()
+                .map(AnnotationInstance::target).map(Object::toString)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.Indexer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JandexIndexerTest {
+
+    public interface Base {
+    }
+
+    public interface Sub extends Base {
+    }
+
+    @Deprecated
+    public static class Annotated implements Sub {
+        @Deprecated
+        public void method() {
+        }
+    }
+
+    public static class Extending extends Annotated implements Base {
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void merge_sameAsIndexingTogether() throws IOException {
+        Path first = jar("first.jar", Base.class, Sub.class);
+        Path second = jar("second.jar", Annotated.class, Extending.class,
+                JandexIndexer.class);
+
+        Index merged = JandexIndexer.merge(Arrays.asList(
+                JandexIndexer.index(first), JandexIndexer.index(second)));
+
+        Indexer indexer = new Indexer();
+        for (Class<?> type : Arrays.asList(Base.class, Sub.class,
+                Annotated.class, Extending.class, JandexIndexer.class)) {
+            try (InputStream stream = classFile(type)) {
+                indexer.index(stream);
+            }
+        }
+        Index expected = indexer.complete();
+
+        assertEquals(names(expected.getKnownClasses()),
+                names(merged.getKnownClasses()));
+        assertEquals(targets(expected, Deprecated.class),
+                targets(merged, Deprecated.class));
+        for (Class<?> type : Arrays.asList(Base.class, Sub.class)) {
+            assertEquals(names(expected.getKnownDirectImplementors(name(type))),
+                    names(merged.getKnownDirectImplementors(name(type))));
+        }
+        assertEquals(names(expected.getKnownDirectSubclasses(name(Object.class))),
+                names(merged.getKnownDirectSubclasses(name(Object.class))));
+        assertEquals(
+                names(expected.getAllKnownSubclasses(name(Annotated.class))),
+                names(merged.getAllKnownSubclasses(name(Annotated.class))));
+    }
+
+    @Test
+    public void index_onlyVaadinClasses() throws IOException {
+        Path jar = jar("mixed.jar", Base.class, Test.class);
+
+        assertEquals(Set.of(Base.class.getName()),
+                names(JandexIndexer.index(jar).getKnownClasses()));
+    }
+
+    @Test
+    public void write_changedJarsIndexedAgain() throws IOException {
+        Path cache = folder.newFolder("cache").toPath();
+        Path output = folder.getRoot().toPath().resolve("out/jandex.idx");
+        Path first = jar("first.jar", Base.class);
+        Path second = jar("second.jar", Sub.class);
+        JandexIndexer indexer = new JandexIndexer(cache);
+
+        assertTrue(indexer.write(List.of(first, second), output));
+        assertEquals(2, indexer.indexedJars);
+
+        assertFalse("Unchanged jars should be copied from the cache",
+                indexer.write(List.of(first, second), output));
+        assertEquals(0, indexer.indexedJars);
+
+        jar("second.jar", Sub.class, Annotated.class);
+        assertTrue(indexer.write(List.of(first, second), output));
+        assertEquals(1, indexer.indexedJars);
+        assertEquals(1, indexer.cachedJars);
+
+        try (InputStream stream = Files.newInputStream(output)) {
+            assertEquals(
+                    Set.of(Base.class.getName(), Sub.class.getName(),
+                            Annotated.class.getName()),
+                    names(new IndexReader(stream).read().getKnownClasses()));
+        }
+    }
+
+    private Path jar(String name, Class<?>... types) throws IOException {
+        Path jar = folder.getRoot().toPath().resolve(name);
+        try (JarOutputStream out = new JarOutputStream(
+                Files.newOutputStream(jar))) {
+            for (Class<?> type : types) {
+                out.putNextEntry(
+                        new JarEntry(type.getName().replace('.', '/') + ".class"));
+                try (InputStream stream = classFile(type)) {
+                    stream.transferTo(out);
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static InputStream classFile(Class<?> type) {
+        return type.getClassLoader().getResourceAsStream(
+                type.getName().replace('.', '/') + ".class");
+    }
+
+    private static DotName name(Class<?> type) {
+        return DotName.createSimple(type.getName());
+    }
+
+    private static Set<String> names(Collection<ClassInfo> classes) {
+        return classes.stream().map(info -> info.name().toString())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Set<String> targets(IndexView index, Class<?> annotation) {
+        return index.getAnnotations(name(annotation)).stream()
+                .map(AnnotationInstance::target).map(Object::toString)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
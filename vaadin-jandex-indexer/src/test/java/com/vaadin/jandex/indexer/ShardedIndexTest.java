@@ -0,0 +1,150 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vaadin.jandex.indexer.JandexIndexerTest.Annotated;
+import com.vaadin.jandex.indexer.JandexIndexerTest.Base;
+import com.vaadin.jandex.indexer.JandexIndexerTest.Extending;
+import com.vaadin.jandex.indexer.JandexIndexerTest.Sub;
+
+public class ShardedIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Index merged;
+    private ShardedIndex sharded;
+
+    @Before
+    public void writeShards() throws IOException {
+        Path output = folder.getRoot().toPath().resolve("out/META-INF/jandex.idx");
+        new JandexIndexer(folder.newFolder("cache").toPath()).write(
+                List.of(jar("interfaces.jar", Base.class, Sub.class),
+                        jar("classes.jar", Annotated.class),
+                        jar("subclasses.jar", Extending.class),
+                        jar("indexer.jar", JandexIndexer.class)),
+                output);
+        try (InputStream stream = Files.newInputStream(output)) {
+            merged = new IndexReader(stream).read();
+        }
+        sharded = ShardedIndex.read(new URLClassLoader(new URL[] {
+                folder.getRoot().toPath().resolve("out").toUri().toURL() },
+                null));
+    }
+
+    @Test
+    public void read_noShardLoaded() {
+        assertEquals(Set.of(), sharded.getLoadedShards());
+    }
+
+    @Test
+    public void getClassByName_loadsShardsOfPackage() {
+        assertNotNull(sharded.getClassByName(name(Base.class)));
+        assertNull(sharded
+                .getClassByName(DotName.createSimple("com.example.Missing")));
+
+        // all the test classes are in the same package
+        assertEquals(Set.of("interfaces", "classes", "subclasses", "indexer"),
+                sharded.getLoadedShards());
+    }
+
+    @Test
+    public void getAnnotations_loadsShardsUsingAnnotation() {
+        assertEquals(2, sharded.getAnnotations(name(Deprecated.class)).size());
+        assertEquals(Set.of("classes"), sharded.getLoadedShards());
+    }
+
+    @Test
+    public void getKnownDirectSubclasses_loadsShardsExtendingType() {
+        assertEquals(Set.of(Extending.class.getName()), names(
+                sharded.getKnownDirectSubclasses(name(Annotated.class))));
+        assertEquals(Set.of("subclasses"), sharded.getLoadedShards());
+    }
+
+    @Test
+    public void lookups_sameAsMergedIndex() {
+        for (Class<?> type : List.of(Base.class, Sub.class, Annotated.class,
+                Object.class)) {
+            DotName name = name(type);
+            assertEquals(names(merged.getKnownDirectSubclasses(name)),
+                    names(sharded.getKnownDirectSubclasses(name)));
+            assertEquals(names(merged.getAllKnownSubclasses(name)),
+                    names(sharded.getAllKnownSubclasses(name)));
+            assertEquals(names(merged.getKnownDirectImplementors(name)),
+                    names(sharded.getKnownDirectImplementors(name)));
+            assertEquals(names(merged.getAllKnownImplementors(name)),
+                    names(sharded.getAllKnownImplementors(name)));
+        }
+        assertEquals(names(merged.getKnownClasses()),
+                names(sharded.getKnownClasses()));
+        assertTrue(names(sharded.getAllKnownImplementors(name(Base.class)))
+                .contains(Extending.class.getName()));
+    }
+
+    private Path jar(String name, Class<?>... types) throws IOException {
+        Path jar = folder.getRoot().toPath().resolve(name);
+        try (JarOutputStream out = new JarOutputStream(
+                Files.newOutputStream(jar))) {
+            for (Class<?> type : types) {
+                String entry = type.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(entry));
+                try (InputStream stream = type.getClassLoader()
+                        .getResourceAsStream(entry)) {
+                    stream.transferTo(out);
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static DotName name(Class<?> type) {
+        return DotName.createSimple(type.getName());
+    }
+
+    private static Set<String> names(Collection<ClassInfo> classes) {
+        return classes.stream().map(info -> info.name().toString())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UsageScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void javaReference_wholeNameOnOneLine() {
+        UsageScanner scanner = UsageScanner.builder()
+                .javaReference("button", "com.example.Button")
+                .javaReference("buttonGroup", "com.example.ButtonGroup")
+                .javaReference("grid", "com.example.Grid")
+                .javaReference("list", "com.example.List").build();
+
+        assertEquals(Set.of("button"),
+                scanner.scan("import com.example.Button;\n"
+                        + "com.example.Grid\n" + "// com.example.Lists\n"));
+        assertEquals(Set.of("buttonGroup", "list"), scanner.scan(
+                "new com.example.ButtonGroup();\r\n(com.example.List) x"));
+    }
+
+    @Test
+    public void javaPackageImport_wholePackageOnly() {
+        UsageScanner scanner = UsageScanner.builder()
+                .javaPackageImport("button", "com.example.button")
+                .javaPackageImport("grid", "com.example.grid").build();
+
+        assertEquals(Set.of("button"),
+                scanner.scan("import com.example.button.*;\n"
+                        + "import com.example.*;\n"
+                        + "import com.example.grid.Grid;\n"
+                        + "import com.example.grid.sub.*;\n"));
+    }
+
+    @Test
+    public void jsImport_wholeLineByModuleOrPackage() {
+        UsageScanner scanner = UsageScanner.builder()
+                .jsImport("button", "@vaadin/button/src/vaadin-button")
+                .jsImport("grid", "@vaadin/grid/src/vaadin-grid")
+                .jsImport("tree", "@vaadin/grid/src/vaadin-grid-tree-toggle")
+                .build();
+
+        assertEquals(Set.of("button", "tree"),
+                scanner.scan("import '@vaadin/button';\n"
+                        + "  import '@vaadin/grid/src/vaadin-grid-tree-toggle';  \n"
+                        + "// import '@vaadin/grid';\n"));
+        assertEquals(Set.of("grid"), scanner
+                .scan("import '@vaadin/grid/src/vaadin-grid';"));
+    }
+
+    @Test
+    public void jsRender_openingOrClosingTag() {
+        UsageScanner scanner = UsageScanner.builder()
+                .jsRender("button", "vaadin-button")
+                .jsRender("grid", "vaadin-grid")
+                .jsRender("column", "vaadin-grid-column").build();
+
+        assertEquals(Set.of("button", "column"), scanner.scan(
+                "html`<vaadin-button>\n</vaadin-grid-column>`<vaadin-grid "));
+        assertEquals(Set.of("button", "grid", "column"),
+                scanner.getIds());
+    }
+
+    @Test
+    public void scan_usageByFile() throws IOException {
+        UsageScanner scanner = UsageScanner.builder()
+                .javaReference("button", "com.example.Button")
+                .javaReference("grid", "com.example.Grid").build();
+        Path root = folder.getRoot().toPath();
+        Path view = write(root.resolve("a/View.java"),
+                "import com.example.Button;\nimport com.example.Grid;\n");
+        Path other = write(root.resolve("b/c/Other.java"),
+                "import com.example.Grid;\n");
+        write(root.resolve("b/Empty.java"), "class Empty {}\n");
+        write(root.resolve("b/notes.txt"), "import com.example.Button;\n");
+
+        Map<Path, Set<String>> usage = scanner.scan(root,
+                file -> file.toString().endsWith(".java"));
+
+        assertEquals(Map.of(view, Set.of("button", "grid"), other,
+                Set.of("grid")), usage);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
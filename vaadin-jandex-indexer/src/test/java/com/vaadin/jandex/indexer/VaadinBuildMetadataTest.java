@@ -0,0 +1,97 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.jandex.indexer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.jandex.Indexer;
+import org.junit.Test;
+
+import com.vaadin.flow.component.dependency.JsModule;
+import com.vaadin.flow.component.dependency.NpmPackage;
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.router.Route;
+
+public class VaadinBuildMetadataTest {
+
+    @Route("view")
+    @NpmPackage(value = "@vaadin/a", version = "1.0.0")
+    @NpmPackage(value = "b", version = "2.0.0")
+    @JsModule("./a.js")
+    public static class View {
+    }
+
+    @Route(value = "later", registerAtStartup = false)
+    @JsModule("./b.js")
+    @JsModule("./c.js")
+    public static class LaterView {
+    }
+
+    public static class Shell implements AppShellConfigurator {
+    }
+
+    public static abstract class AbstractShell
+            implements AppShellConfigurator {
+    }
+
+    @Test
+    public void collect_routesDependenciesAndShell() throws IOException {
+        VaadinBuildMetadata metadata = collect();
+
+        assertEquals(Set.of(View.class.getName()), metadata.getRoutes());
+        assertEquals(Map.of("@vaadin/a", "1.0.0", "b", "2.0.0"),
+                metadata.getNpmPackages());
+        assertEquals(Set.of("./a.js", "./b.js", "./c.js"),
+                metadata.getJsModules());
+        assertEquals(Set.of(Shell.class.getName()), metadata.getAppShells());
+    }
+
+    @Test
+    public void write_readBack() throws IOException {
+        VaadinBuildMetadata metadata = collect();
+        StringWriter writer = new StringWriter();
+        metadata.write(writer);
+
+        VaadinBuildMetadata read = VaadinBuildMetadata
+                .read(new ByteArrayInputStream(
+                        writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(metadata.getRoutes(), read.getRoutes());
+        assertEquals(metadata.getNpmPackages(), read.getNpmPackages());
+        assertEquals(metadata.getJsModules(), read.getJsModules());
+        assertEquals(metadata.getAppShells(), read.getAppShells());
+    }
+
+    private VaadinBuildMetadata collect() throws IOException {
+        Indexer indexer = new Indexer();
+        for (Class<?> type : new Class<?>[] { View.class, LaterView.class,
+                Shell.class, AbstractShell.class }) {
+            try (InputStream stream = type.getClassLoader().getResourceAsStream(
+                    type.getName().replace('.', '/') + ".class")) {
+                indexer.index(stream);
+            }
+        }
+        return VaadinBuildMetadata.collect(indexer.complete());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Compares a JMH JSON result file with a baseline produced by a previous run
+ * and fails when the time or the allocations per operation of any benchmark
+ * grew more than the given threshold.
+ * <p>
+ * Usage:
+ * {@code BaselineComparator <baseline.json> <result.json> [threshold [optional]]}
+ * where the threshold is a fraction, {@code 0.15} by default. When the
+ * baseline file does not exist the comparison fails, unless {@code optional}
+ * is {@code true}, as for a first run; copy a result file there to create
+ * one.
+ */
+public class BaselineComparator {
+
+    static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+
+    /**
+     * Scores of one benchmark and parameter combination.
+     */
+    static class Score {
+        final double time;
+        final double bytes;
+
+        Score(double time, double bytes) {
+            this.time = time;
+            this.bytes = bytes;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: BaselineComparator <baseline.json> <result.json> [threshold [optional]]");
+            System.exit(2);
+        }
+        Path baseline = Paths.get(args[0]);
+        Path result = Paths.get(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2])
+                : 0.15;
+        boolean optional = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(baseline)) {
+            if (optional) {
+                System.out.printf(
+                        "No baseline found at %s, copy %s there to create one%n",
+                        baseline, result);
+                return;
+            }
+            System.err.printf(
+                    "No baseline found at %s, copy %s there to create one,"
+                            + " or skip the comparison with -Djmh.baseline.optional=true%n",
+                    baseline, result);
+            System.exit(1);
+        }
+
+        List<String> regressions = compare(read(baseline), read(result),
+                threshold);
+        if (!regressions.isEmpty()) {
+            System.err.printf("%d benchmarks regressed more than %.0f%%:%n   %s%n",
+                    regressions.size(), threshold * 100,
+                    String.join("\n   ", regressions));
+            System.exit(1);
+        }
+        System.out.println("No regressions compared to " + baseline);
+    }
+
+    static List<String> compare(Map<String, Score> baseline,
+            Map<String, Score> current, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((key, score) -> {
+            Score base = baseline.get(key);
+            if (base == null) {
+                return;
+            }
+            if (score.time > base.time * (1 + threshold)) {
+                regressions.add(String.format("%s: %.0f ns/op -> %.0f ns/op",
+                        key, base.time, score.time));
+            }
+            if (score.bytes > base.bytes * (1 + threshold)) {
+                regressions.add(String.format("%s: %.0f B/op -> %.0f B/op",
+                        key, base.bytes, score.bytes));
+            }
+        });
+        return regressions;
+    }
+
+    static Map<String, Score> read(Path file) throws IOException {
+        JsonArray runs = Json.instance().parse(
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Map<String, Score> scores = new TreeMap<>();
+        for (int i = 0; i < runs.length(); i++) {
+            JsonObject run = runs.getObject(i);
+            String key = run.getString("benchmark");
+            if (run.hasKey("params")) {
+                JsonObject params = run.getObject("params");
+                for (String param : params.keys()) {
+                    key += " " + param + "=" + params.getString(param);
+                }
+            }
+            double time = run.getObject("primaryMetric").getNumber("score");
+            double bytes = 0;
+            if (run.hasKey("secondaryMetrics") && run
+                    .getObject("secondaryMetrics").hasKey(ALLOCATION_METRIC)) {
+                bytes = run.getObject("secondaryMetrics")
+                        .getObject(ALLOCATION_METRIC).getNumber("score");
+            }
+            scores.put(key, new Score(time, bytes));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bean used by the data components, same shape as the {@code Entity} of the
+ * platform smoke tests.
+ */
+public class BenchmarkEntity {
+    private String name;
+    private List<BenchmarkEntity> entities = Collections.emptyList();
+
+    public BenchmarkEntity() {
+    }
+
+    public BenchmarkEntity(String name, BenchmarkEntity... entities) {
+        this.name = name;
+        this.entities = Arrays.asList(entities);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<BenchmarkEntity> getEntities() {
+        return entities;
+    }
+
+    public void setEntities(List<BenchmarkEntity> entities) {
+        this.entities = entities;
+    }
+
+    static List<BenchmarkEntity> sample() {
+        return Arrays.asList(
+                new BenchmarkEntity("Pato", new BenchmarkEntity("Donald")),
+                new BenchmarkEntity("Toro", new BenchmarkEntity("Bravo"),
+                        new BenchmarkEntity("Manso")),
+                new BenchmarkEntity("Perro"), new BenchmarkEntity("Gato"));
+    }
+}
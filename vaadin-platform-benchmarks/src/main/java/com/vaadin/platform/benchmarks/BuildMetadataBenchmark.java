@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.jandex.indexer.JandexIndexer;
+import com.vaadin.jandex.indexer.VaadinBuildMetadata;
+
+/**
+ * Measures getting the {@link VaadinBuildMetadata} of the platform:
+ * {@code readMetadata} parses the properties written at build time, while
+ * {@code readIndexAndCollect} reads the Jandex index and collects the
+ * metadata from it, as done when the application starts without the
+ * recorded metadata. {@code collect} only collects from an index already
+ * read.
+ * <p>
+ * The index is written by {@link JandexIndexer} from the jars of the
+ * classpath in the setup, so with the benchmarks jar it has all the classes
+ * of the platform.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildMetadataBenchmark {
+
+    private Path folder;
+    private byte[] indexBytes;
+    private byte[] metadataBytes;
+    private Index index;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Path> jars = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path")
+                .split(File.pathSeparator)) {
+            if (entry.endsWith(".jar")) {
+                jars.add(Paths.get(entry));
+            }
+        }
+        folder = Files.createTempDirectory("build-metadata");
+        Path indexFile = folder.resolve("jandex.idx");
+        new JandexIndexer(folder.resolve("cache")).write(jars, indexFile);
+
+        indexBytes = Files.readAllBytes(indexFile);
+        metadataBytes = Files.readAllBytes(folder.resolve(
+                Paths.get(VaadinBuildMetadata.RESOURCE).getFileName()));
+        index = new IndexReader(new ByteArrayInputStream(indexBytes)).read();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files
+                    .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public VaadinBuildMetadata readMetadata() throws IOException {
+        return VaadinBuildMetadata
+                .read(new ByteArrayInputStream(metadataBytes));
+    }
+
+    @Benchmark
+    public VaadinBuildMetadata readIndexAndCollect() throws IOException {
+        return VaadinBuildMetadata.collect(
+                new IndexReader(new ByteArrayInputStream(indexBytes)).read());
+    }
+
+    @Benchmark
+    public VaadinBuildMetadata collect() {
+        return VaadinBuildMetadata.collect(index);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.flow.component.Component;
+
+/**
+ * Measures the cost of building each {@link PlatformComponent} and of
+ * attaching it to a UI.
+ * <p>
+ * Run with the {@code gc} profiler to get the allocated bytes per operation
+ * ({@code gc.alloc.rate.norm}) next to the time per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentBenchmark {
+
+    @Param
+    public PlatformComponent component;
+
+    private MockedUI ui;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ui = new MockedUI();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ui.release();
+    }
+
+    /**
+     * Builds the component without attaching it.
+     */
+    @Benchmark
+    public Component build() {
+        return component.create();
+    }
+
+    /**
+     * Builds the component, attaches it to the UI and collects the changes
+     * that would be sent to the client. The component is detached afterwards
+     * so that the UI does not grow between invocations.
+     */
+    @Benchmark
+    public int buildAndAttach() {
+        Component created = component.create();
+        ui.add(created);
+        int changes = ui.flush();
+        ui.remove(created);
+        return changes + ui.flush();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.mockito.Mockito;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.di.Lookup;
+import com.vaadin.flow.function.DeploymentConfiguration;
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * A {@link UI} bound to a session that is always locked by the current thread
+ * and to a mocked {@link VaadinService}, so that components can be built and
+ * attached without a servlet container.
+ */
+public class MockedUI extends UI {
+
+    private static class AlwaysLockedSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        AlwaysLockedSession(VaadinService service) {
+            super(service);
+            lock.lock();
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+    }
+
+    /**
+     * Context keeping its attributes in memory, needed by the components
+     * reading feature flags.
+     */
+    private static class MemoryContext implements VaadinContext {
+        private final Map<Class<?>, Object> attributes = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> T getAttribute(Class<T> type,
+                Supplier<T> defaultValueSupplier) {
+            if (defaultValueSupplier == null) {
+                return type.cast(attributes.get(type));
+            }
+            return type.cast(attributes.computeIfAbsent(type,
+                    key -> defaultValueSupplier.get()));
+        }
+
+        @Override
+        public <T> void setAttribute(Class<T> clazz, T value) {
+            attributes.put(clazz, value);
+        }
+
+        @Override
+        public void removeAttribute(Class<?> clazz) {
+            attributes.remove(clazz);
+        }
+
+        @Override
+        public Enumeration<String> getContextParameterNames() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public String getContextParameter(String name) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new UI with its own session and sets both as current for the
+     * calling thread.
+     */
+    public MockedUI() {
+        DeploymentConfiguration configuration = Mockito
+                .mock(DeploymentConfiguration.class);
+        Mockito.when(configuration.isProductionMode()).thenReturn(true);
+        Mockito.when(configuration.getInitParameters())
+                .thenReturn(new Properties());
+
+        VaadinContext context = new MemoryContext();
+        context.setAttribute(Lookup.class, Mockito.mock(Lookup.class));
+
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        Mockito.when(service.getContext()).thenReturn(context);
+
+        VaadinSession session = new AlwaysLockedSession(service);
+        session.setConfiguration(configuration);
+
+        getInternals().setSession(session);
+
+        VaadinService.setCurrent(service);
+        VaadinSession.setCurrent(session);
+        UI.setCurrent(this);
+    }
+
+    /**
+     * Runs the tasks registered with {@link #beforeClientResponse} and
+     * collects the pending changes of the state tree, as done before a
+     * response is written to the client.
+     *
+     * @return the number of collected changes
+     */
+    public int flush() {
+        getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        int[] changes = new int[1];
+        getInternals().getStateTree().collectChanges(change -> changes[0]++);
+        return changes[0];
+    }
+
+    /**
+     * Clears the thread locals set by the constructor.
+     */
+    public void release() {
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+        VaadinService.setCurrent(null);
+    }
+}
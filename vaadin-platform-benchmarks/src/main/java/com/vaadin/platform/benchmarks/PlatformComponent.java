@@ -0,0 +1,600 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasValue;
+import com.vaadin.flow.component.HtmlComponent;
+import com.vaadin.flow.component.accordion.Accordion;
+import com.vaadin.flow.component.accordion.AccordionPanel;
+import com.vaadin.flow.component.applayout.AppLayout;
+import com.vaadin.flow.component.applayout.DrawerToggle;
+import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.avatar.AvatarGroup;
+import com.vaadin.flow.component.avatar.AvatarGroup.AvatarGroupItem;
+import com.vaadin.flow.component.board.Board;
+import com.vaadin.flow.component.board.Row;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.charts.Chart;
+import com.vaadin.flow.component.charts.model.ChartType;
+import com.vaadin.flow.component.charts.model.ListSeries;
+import com.vaadin.flow.component.checkbox.Checkbox;
+import com.vaadin.flow.component.checkbox.CheckboxGroup;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.combobox.MultiSelectComboBox;
+import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
+import com.vaadin.flow.component.contextmenu.ContextMenu;
+import com.vaadin.flow.component.cookieconsent.CookieConsent;
+import com.vaadin.flow.component.crud.BinderCrudEditor;
+import com.vaadin.flow.component.crud.Crud;
+import com.vaadin.flow.component.crud.CrudGrid;
+import com.vaadin.flow.component.customfield.CustomField;
+import com.vaadin.flow.component.datepicker.DatePicker;
+import com.vaadin.flow.component.datetimepicker.DateTimePicker;
+import com.vaadin.flow.component.details.Details;
+import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridSelectionColumn;
+import com.vaadin.flow.component.gridpro.GridPro;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.html.Article;
+import com.vaadin.flow.component.html.Aside;
+import com.vaadin.flow.component.html.DescriptionList;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Emphasis;
+import com.vaadin.flow.component.html.Footer;
+import com.vaadin.flow.component.html.H1;
+import com.vaadin.flow.component.html.H2;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.html.H4;
+import com.vaadin.flow.component.html.H5;
+import com.vaadin.flow.component.html.H6;
+import com.vaadin.flow.component.html.Header;
+import com.vaadin.flow.component.html.Hr;
+import com.vaadin.flow.component.html.HtmlObject;
+import com.vaadin.flow.component.html.IFrame;
+import com.vaadin.flow.component.html.Image;
+import com.vaadin.flow.component.html.Input;
+import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.html.ListItem;
+import com.vaadin.flow.component.html.Main;
+import com.vaadin.flow.component.html.NativeButton;
+import com.vaadin.flow.component.html.NativeDetails;
+import com.vaadin.flow.component.html.Nav;
+import com.vaadin.flow.component.html.OrderedList;
+import com.vaadin.flow.component.html.Paragraph;
+import com.vaadin.flow.component.html.Param;
+import com.vaadin.flow.component.html.Pre;
+import com.vaadin.flow.component.html.Section;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.html.UnorderedList;
+import com.vaadin.flow.component.icon.Icon;
+import com.vaadin.flow.component.icon.IronIcon;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.ironlist.IronList;
+import com.vaadin.flow.component.listbox.ListBox;
+import com.vaadin.flow.component.listbox.MultiSelectListBox;
+import com.vaadin.flow.component.login.LoginForm;
+import com.vaadin.flow.component.login.LoginOverlay;
+import com.vaadin.flow.component.menubar.MenuBar;
+import com.vaadin.flow.component.messages.MessageInput;
+import com.vaadin.flow.component.messages.MessageList;
+import com.vaadin.flow.component.messages.MessageListItem;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.Notification.Position;
+import com.vaadin.flow.component.orderedlayout.FlexLayout;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.Scroller;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.radiobutton.RadioButtonGroup;
+import com.vaadin.flow.component.richtexteditor.RichTextEditor;
+import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.component.splitlayout.SplitLayout;
+import com.vaadin.flow.component.splitlayout.SplitLayout.Orientation;
+import com.vaadin.flow.component.tabs.Tab;
+import com.vaadin.flow.component.tabs.TabSheet;
+import com.vaadin.flow.component.tabs.Tabs;
+import com.vaadin.flow.component.textfield.BigDecimalField;
+import com.vaadin.flow.component.textfield.EmailField;
+import com.vaadin.flow.component.textfield.IntegerField;
+import com.vaadin.flow.component.textfield.NumberField;
+import com.vaadin.flow.component.textfield.PasswordField;
+import com.vaadin.flow.component.textfield.TextArea;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.component.timepicker.TimePicker;
+import com.vaadin.flow.component.treegrid.TreeGrid;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
+import com.vaadin.flow.component.virtuallist.VirtualList;
+import com.vaadin.flow.data.binder.Binder;
+import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.provider.hierarchy.TreeData;
+import com.vaadin.flow.data.provider.hierarchy.TreeDataProvider;
+import com.vaadin.flow.data.value.HasValueChangeMode;
+import com.vaadin.flow.data.value.ValueChangeMode;
+
+/**
+ * The components built by {@code com.vaadin.platform.test.ComponentsView},
+ * each configured the same way as in the view.
+ * <p>
+ * {@code CollaborationAvatarGroup} is not included since it needs a
+ * {@code CollaborationEngine} bound to a running {@code VaadinService}.
+ */
+public enum PlatformComponent {
+
+    // HTML components
+    H1(() -> new H1("h1")),
+    H2(() -> new H2("h2")),
+    H3(() -> new H3("h3")),
+    H4(() -> new H4("h4")),
+    H5(() -> new H5("h5")),
+    H6(() -> new H6("h6")),
+    DIV(() -> new Div(new Span("div"))),
+    SPAN(() -> new Span("Header")),
+    HEADER(() -> new Header(new Span("Header"))),
+    ANCHOR(() -> new Anchor("#", "anchor")),
+    ORDERED_LIST(() -> new OrderedList(new ListItem("ordered list"))),
+    UNORDERED_LIST(() -> new UnorderedList(new ListItem("unordered list"))),
+    ASIDE(() -> new Aside(new Span("Aside"))),
+    ARTICLE(() -> new Article(new Anchor("#", "anchor"))),
+    NAV(() -> new Nav(new Span("nav"))),
+    DESCRIPTION_LIST(DescriptionList::new),
+    EMPHASIS(() -> new Emphasis("enphasis")),
+    FOOTER(() -> new Footer(new Span("Footer"))),
+    HR(Hr::new),
+    IFRAME(() -> new IFrame("")),
+    IMAGE(PlatformComponent::image),
+    INPUT(Input::new),
+    LABEL(() -> new Label("label")),
+    NATIVE_BUTTON(() -> new NativeButton("nativeButton")),
+    PRE(() -> new Pre("pre")),
+    SELECT_ELEMENT(() -> new HtmlComponent("select")),
+    NATIVE_DETAILS(PlatformComponent::nativeDetails),
+    HTML_OBJECT(HtmlObject::new),
+    PARAM(Param::new),
+    PARAGRAPH(() -> new Paragraph("content")),
+    SECTION(() -> new Section(new Span("section"))),
+    SCROLLER(() -> new Scroller(new Section(new Span("section")))),
+    MAIN(() -> new Main(new Span("main"))),
+
+    // Vaadin components
+    IRON_ICON(() -> new IronIcon("communication", "email")),
+    ICON(() -> new Icon(VaadinIcon.AIRPLANE)),
+    BUTTON(PlatformComponent::button),
+    CHECKBOX(PlatformComponent::checkbox),
+    CHECKBOX_GROUP(PlatformComponent::checkboxGroup),
+    COMBO_BOX(PlatformComponent::comboBox),
+    MULTI_SELECT_COMBO_BOX(PlatformComponent::multiSelectComboBox),
+    DATE_PICKER(PlatformComponent::datePicker),
+    DATE_TIME_PICKER(PlatformComponent::dateTimePicker),
+    TIME_PICKER(PlatformComponent::timePicker),
+    SELECT(PlatformComponent::select),
+    GRID(PlatformComponent::grid),
+    TREE_GRID(PlatformComponent::treeGrid),
+    IRON_LIST(PlatformComponent::ironList),
+    VIRTUAL_LIST(PlatformComponent::virtualList),
+    LIST_BOX(PlatformComponent::listBox),
+    MULTI_SELECT_LIST_BOX(PlatformComponent::multiSelectListBox),
+    PROGRESS_BAR(PlatformComponent::progressBar),
+    RADIO_BUTTON_GROUP(PlatformComponent::radioButtonGroup),
+    TEXT_FIELD(() -> eager(new TextField())),
+    PASSWORD_FIELD(() -> eager(new PasswordField())),
+    BIG_DECIMAL_FIELD(() -> eager(new BigDecimalField())),
+    NUMBER_FIELD(() -> eager(new NumberField())),
+    EMAIL_FIELD(() -> eager(new EmailField())),
+    INTEGER_FIELD(() -> eager(new IntegerField())),
+    TEXT_AREA(() -> eager(new TextArea())),
+    UPLOAD(PlatformComponent::upload),
+    DIALOG(PlatformComponent::dialog),
+    NOTIFICATION(() -> new Notification("Hello", 2000000, Position.TOP_CENTER)),
+    CUSTOM_FIELD(PlatformComponent::customField),
+    DETAILS(() -> new Details("Details", new Span("Content"))),
+    ACCORDION(PlatformComponent::accordion),
+    ACCORDION_PANEL(() -> new AccordionPanel("AccordionPanel",
+            new Span("Content"))),
+    AVATAR(() -> new Avatar("Donald")),
+    AVATAR_GROUP(() -> new AvatarGroup(new AvatarGroupItem("Pluto"),
+            new AvatarGroupItem("Mickey"))),
+    MESSAGE_LIST(PlatformComponent::messageList),
+    MESSAGE_INPUT(PlatformComponent::messageInput),
+    LOGIN_FORM(LoginForm::new),
+    LOGIN_OVERLAY(PlatformComponent::loginOverlay),
+    MENU_BAR(PlatformComponent::menuBar),
+    MAP(com.vaadin.flow.component.map.Map::new),
+
+    // Layouts
+    APP_LAYOUT(PlatformComponent::appLayout),
+    FORM_LAYOUT(PlatformComponent::formLayout),
+    VERTICAL_LAYOUT(() -> new VerticalLayout(buttons("VerticalLayout"))),
+    HORIZONTAL_LAYOUT(() -> new HorizontalLayout(buttons("HorizontalLayout"))),
+    FLEX_LAYOUT(() -> new FlexLayout(buttons("FlexLayout"))),
+    SPLIT_LAYOUT(() -> new SplitLayout(new Button("Button Left"),
+            new Button("Button Right"))),
+    SPLIT_LAYOUT_VERTICAL(PlatformComponent::splitLayoutVertical),
+    TABS(PlatformComponent::tabs),
+    TAB_SHEET(PlatformComponent::tabSheet),
+    CONTEXT_MENU(PlatformComponent::contextMenu),
+
+    // Commercial components
+    BOARD(PlatformComponent::board),
+    CHART(PlatformComponent::chart),
+    CONFIRM_DIALOG(PlatformComponent::confirmDialog),
+    COOKIE_CONSENT(CookieConsent::new),
+    CRUD(PlatformComponent::crud),
+    GRID_PRO(GridPro::new),
+    RICH_TEXT_EDITOR(RichTextEditor::new);
+
+    private final Supplier<Component> factory;
+
+    PlatformComponent(Supplier<Component> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Builds a new instance of the component.
+     *
+     * @return the new component, not attached
+     */
+    public Component create() {
+        return factory.get();
+    }
+
+    private static void noop(Object event) {
+        // Listeners are registered to include their cost, but do nothing
+    }
+
+    private static Component image() {
+        Image image = new Image(
+                "data:image/gif;base64,R0lGODlhAQABAAAAACH5BAEKAAEALAAAAAABAAEAAAICTAEAOw==",
+                "image");
+        image.setWidth("20px");
+        image.getElement().getStyle().set("background", "blue");
+        return image;
+    }
+
+    private static Component nativeDetails() {
+        NativeDetails nativeDetails = new NativeDetails(
+                new Span("native details"));
+        nativeDetails.setContent(new Span("content"));
+        return nativeDetails;
+    }
+
+    private static Component button() {
+        Button button = new Button("Button text", PlatformComponent::noop);
+        button.setIcon(new Icon(VaadinIcon.AIRPLANE));
+        return button;
+    }
+
+    private static Component checkbox() {
+        Checkbox checkbox = new Checkbox("Checkbox label");
+        checkbox.addValueChangeListener(PlatformComponent::noop);
+        return checkbox;
+    }
+
+    private static Component checkboxGroup() {
+        CheckboxGroup<String> checkboxGroup = new CheckboxGroup<>();
+        checkboxGroup.setItems("foo", "bar");
+        checkboxGroup.addValueChangeListener(PlatformComponent::noop);
+        return checkboxGroup;
+    }
+
+    private static Component comboBox() {
+        ComboBox<String> comboBox = new ComboBox<>("ComboBox label");
+        comboBox.setItems("First", "Second", "Third");
+        comboBox.addValueChangeListener(PlatformComponent::noop);
+        return comboBox;
+    }
+
+    private static Component multiSelectComboBox() {
+        MultiSelectComboBox<String> multiSelectComboBox = new MultiSelectComboBox<>();
+        multiSelectComboBox.setItems(Arrays.asList("foo", "bar", "baz"));
+        multiSelectComboBox.setValue(Set.of("foo", "bar"));
+        multiSelectComboBox.addValueChangeListener(PlatformComponent::noop);
+        return multiSelectComboBox;
+    }
+
+    private static Component datePicker() {
+        DatePicker datePicker = new DatePicker();
+        datePicker.addValueChangeListener(PlatformComponent::noop);
+        return datePicker;
+    }
+
+    private static Component dateTimePicker() {
+        DateTimePicker dateTimePicker = new DateTimePicker();
+        dateTimePicker.addValueChangeListener(PlatformComponent::noop);
+        return dateTimePicker;
+    }
+
+    private static Component timePicker() {
+        TimePicker timePicker = new TimePicker();
+        timePicker.addValueChangeListener(PlatformComponent::noop);
+        return timePicker;
+    }
+
+    private static Component select() {
+        Select<String> select = new Select<>();
+        select.setItems("Spring", "Summer", "Autumn", "Winter");
+        select.addValueChangeListener(PlatformComponent::noop);
+        return select;
+    }
+
+    private static Component grid() {
+        GridSelectionColumn gridSelectionColumn = new GridSelectionColumn(
+                () -> {
+                }, () -> {
+                });
+        Grid<Map<String, String>> grid = new Grid<>();
+        grid.setWidth("100%");
+        grid.getElement().insertChild(0, gridSelectionColumn.getElement());
+        grid.addColumn(map -> map.get("foo")).setHeader("Foo-Header");
+        grid.addColumn(map -> map.get("bar")).setHeader("Bar-Header");
+        grid.addSelectionListener(PlatformComponent::noop);
+        grid.setItems(Arrays.asList(row("Some", "Data"), row("Second", "Row")));
+        grid.addContextMenu().addItem("foo", PlatformComponent::noop);
+        return grid;
+    }
+
+    private static Map<String, String> row(String foo, String bar) {
+        Map<String, String> map = new HashMap<>();
+        map.put("foo", foo);
+        map.put("bar", bar);
+        return map;
+    }
+
+    private static Component treeGrid() {
+        TreeData<BenchmarkEntity> treeData = new TreeData<>();
+        treeData.addItems(BenchmarkEntity.sample(),
+                BenchmarkEntity::getEntities);
+        TreeGrid<BenchmarkEntity> treeGrid = new TreeGrid<>();
+        treeGrid.addHierarchyColumn(BenchmarkEntity::getName)
+                .setHeader("Name");
+        treeGrid.addColumn(e -> e.getEntities().size())
+                .setHeader("child count");
+        treeGrid.setDataProvider(new TreeDataProvider<>(treeData));
+        return treeGrid;
+    }
+
+    private static Component ironList() {
+        IronList<String> ironList = new IronList<>();
+        ironList.setHeight("50px");
+        ironList.setItems(items(100));
+        return ironList;
+    }
+
+    private static Component virtualList() {
+        VirtualList<String> virtualList = new VirtualList<>();
+        virtualList.setHeight("50px");
+        virtualList.setItems(items(100));
+        return virtualList;
+    }
+
+    private static Component listBox() {
+        ListBox<String> listBox = new ListBox<>();
+        listBox.setItems(items(7));
+        listBox.addValueChangeListener(PlatformComponent::noop);
+        listBox.add(new Div(new Span("One more item as a component")));
+        return listBox;
+    }
+
+    private static Component multiSelectListBox() {
+        MultiSelectListBox<String> multiSelectListBox = new MultiSelectListBox<>();
+        multiSelectListBox.setItems(items(7));
+        multiSelectListBox.addValueChangeListener(PlatformComponent::noop);
+        return multiSelectListBox;
+    }
+
+    private static List<String> items(int count) {
+        return IntStream.range(0, count).mapToObj(i -> ("Item " + i))
+                .collect(Collectors.toList());
+    }
+
+    private static Component progressBar() {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setWidth("100%");
+        progressBar.setValue(0.7);
+        return progressBar;
+    }
+
+    private static Component radioButtonGroup() {
+        RadioButtonGroup<String> radioButtonGroup = new RadioButtonGroup<>();
+        radioButtonGroup.setItems(items(5));
+        radioButtonGroup.addValueChangeListener(PlatformComponent::noop);
+        return radioButtonGroup;
+    }
+
+    private static <T extends Component & HasValue<?, ?> & HasValueChangeMode> Component eager(
+            T field) {
+        field.setValueChangeMode(ValueChangeMode.EAGER);
+        field.addValueChangeListener(PlatformComponent::noop);
+        return field;
+    }
+
+    private static Component upload() {
+        Upload upload = new Upload(new MemoryBuffer());
+        upload.addSucceededListener(PlatformComponent::noop);
+        return upload;
+    }
+
+    private static Component dialog() {
+        Dialog dialog = new Dialog();
+        dialog.add(new Label("This is the contents of the dialog"));
+        return dialog;
+    }
+
+    private static Component customField() {
+        TextField wrappedField = new TextField();
+        CustomField<String> customField = new CustomField<String>() {
+            {
+                add(wrappedField);
+                setLabel("Name");
+            }
+
+            @Override
+            protected String generateModelValue() {
+                return wrappedField.getValue();
+            }
+
+            @Override
+            protected void setPresentationValue(String newPresentationValue) {
+                wrappedField.setValue(newPresentationValue);
+            }
+        };
+        return customField;
+    }
+
+    private static Component accordion() {
+        Accordion accordion = new Accordion();
+        accordion.add("Accordion", new Paragraph("content"));
+        return accordion;
+    }
+
+    private static Component messageList() {
+        MessageList messageList = new MessageList();
+        messageList.setItems(new MessageListItem("foo"),
+                new MessageListItem("bar"));
+        return messageList;
+    }
+
+    private static Component messageInput() {
+        MessageInput messageInput = new MessageInput();
+        messageInput.addSubmitListener(PlatformComponent::noop);
+        return messageInput;
+    }
+
+    private static Component loginOverlay() {
+        LoginOverlay loginOverlay = new LoginOverlay();
+        loginOverlay.addLoginListener(e -> loginOverlay.close());
+        loginOverlay.addForgotPasswordListener(e -> loginOverlay.close());
+        return loginOverlay;
+    }
+
+    private static Component menuBar() {
+        MenuBar menuBar = new MenuBar();
+        menuBar.addItem("foo");
+        return menuBar;
+    }
+
+    private static Component appLayout() {
+        AppLayout appLayout = new AppLayout();
+        appLayout.addToNavbar(new DrawerToggle());
+        appLayout.setContent(new VerticalLayout(new Span("content")));
+        return appLayout;
+    }
+
+    private static Component formLayout() {
+        FormLayout formLayout = new FormLayout();
+        IntStream.range(0, 6).forEach(
+                i -> formLayout.add(new TextField("FormLayout field " + i)));
+        return formLayout;
+    }
+
+    private static Component[] buttons(String prefix) {
+        return IntStream.range(0, 3)
+                .mapToObj(i -> new Button(prefix + " Button " + i))
+                .toArray(Component[]::new);
+    }
+
+    private static Component splitLayoutVertical() {
+        SplitLayout splitVertical = new SplitLayout(new Button("Button Top"),
+                new Button("Button Bottom"));
+        splitVertical.setOrientation(Orientation.VERTICAL);
+        return splitVertical;
+    }
+
+    private static Component tabs() {
+        Tabs tabs = new Tabs(new Tab("foo"), new Tab("bar"));
+        tabs.addSelectedChangeListener(PlatformComponent::noop);
+        return tabs;
+    }
+
+    private static Component tabSheet() {
+        TabSheet tabSheet = new TabSheet();
+        tabSheet.add("Tab one", new Span("Tab one content"));
+        tabSheet.add("Tab two", new Span("Tab two content"));
+        tabSheet.addSelectedChangeListener(PlatformComponent::noop);
+        return tabSheet;
+    }
+
+    private static Component contextMenu() {
+        Div contextMenuTarget = new Div();
+        contextMenuTarget.setText("Context Menu Target");
+        ContextMenu contextMenu = new ContextMenu(contextMenuTarget);
+        contextMenu.setOpenOnClick(true);
+        contextMenu.addItem(new Span("Item 0"), PlatformComponent::noop);
+        contextMenu.addItem(new Span("Item 1"), PlatformComponent::noop);
+        return contextMenuTarget;
+    }
+
+    private static Component board() {
+        Label header = new Label("This is a board");
+        header.setWidth("100%");
+        Row row = new Row(header);
+        row.setComponentSpan(header, 4);
+        Board board = new Board();
+        board.add(row, new Row(chart(), chart()));
+        return board;
+    }
+
+    private static Component chart() {
+        Chart chart = new Chart(ChartType.LINE);
+        chart.getConfiguration()
+                .addSeries(new ListSeries(1, 3, 2, 4, 3, 5, 5, 4, 7));
+        chart.getElement().getStyle().set("width", "100%");
+        chart.getElement().getStyle().set("height", "100%");
+        return chart;
+    }
+
+    private static Component confirmDialog() {
+        ConfirmDialog confirmDialog = new ConfirmDialog();
+        confirmDialog.setHeader("Meeting starting");
+        confirmDialog.setText("Your next meeting starts in 5 minutes");
+        confirmDialog.setConfirmText("OK");
+        return confirmDialog;
+    }
+
+    private static Component crud() {
+        List<BenchmarkEntity> entities = BenchmarkEntity.sample();
+        Binder<BenchmarkEntity> binder = new Binder<>(BenchmarkEntity.class);
+        TextField nameField = new TextField("name");
+        binder.bind(nameField, BenchmarkEntity::getName,
+                BenchmarkEntity::setName);
+        Crud<BenchmarkEntity> crud = new Crud<>(BenchmarkEntity.class,
+                new CrudGrid<>(BenchmarkEntity.class, true),
+                new BinderCrudEditor<>(binder, nameField));
+        crud.setDataProvider(DataProvider.fromFilteringCallbacks(
+                query -> stream(entities, query.getOffset(), query.getLimit()),
+                query -> entities.size()));
+        return crud;
+    }
+
+    private static <T> Stream<T> stream(List<T> items, int offset,
+            int limit) {
+        return items.stream().skip(offset).limit(limit);
+    }
+
+}
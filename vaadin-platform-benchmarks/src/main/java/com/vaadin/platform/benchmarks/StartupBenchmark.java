@@ -0,0 +1,178 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Measures the cold start of the test applications of each supported
+ * runtime, from launching the application to rendering its first view, see
+ * {@link StartupTarget} for the measured phases.
+ * <p>
+ * The applications are defined in {@code startup-runtimes.properties} and
+ * must be built before, each of them is started the given number of times in
+ * turn. The median of each phase is printed and all the runs are written as
+ * JSON to the result file.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code startup.runtimes}: the applications to start, all by
+ * default</li>
+ * <li>{@code startup.iterations}: the number of starts, 5 by default</li>
+ * <li>{@code startup.timeout}: the seconds after which a start fails, 300 by
+ * default</li>
+ * <li>{@code startup.root}: the directory the application directories are
+ * relative to, the current directory by default</li>
+ * <li>{@code startup.result}: the JSON result file,
+ * {@code target/startup-result.json} by default</li>
+ * <li>{@code startup.<runtime>.<key>}: overrides an entry of the properties
+ * file, e.g. {@code -Dstartup.quarkus.dir=/path/to/app}</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+
+    static final String CONFIG = "startup-runtimes.properties";
+
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        Properties config = new Properties();
+        try (InputStream stream = StartupBenchmark.class
+                .getResourceAsStream("/" + CONFIG)) {
+            config.load(stream);
+        }
+        List<String> runtimes = Arrays.asList(System
+                .getProperty("startup.runtimes",
+                        config.getProperty("runtimes"))
+                .split("\\s*,\\s*"));
+        int iterations = Integer.getInteger("startup.iterations", 5);
+        long timeout = Long.getLong("startup.timeout", 300);
+        Path root = Paths.get(System.getProperty("startup.root", "."));
+        Path result = Paths.get(System.getProperty("startup.result",
+                "target/startup-result.json"));
+        Path logs = result.toAbsolutePath().resolveSibling("startup-logs");
+
+        JsonObject report = Json.createObject();
+        boolean failed = false;
+        for (String runtime : runtimes) {
+            StartupTarget target = StartupTarget.read(runtime, config, root);
+            if (target == null || !Files.isDirectory(target.directory)) {
+                System.out.printf("Skipping %s, no application found%s%n",
+                        runtime, target == null ? ""
+                                : " in " + target.directory);
+                continue;
+            }
+            System.out.printf("Starting %s %d times: %s%n", runtime,
+                    iterations, String.join(" ", target.command));
+            List<StartupTarget.Measurement> measurements = new ArrayList<>();
+            try {
+                for (int i = 0; i < iterations; i++) {
+                    measurements.add(target.measure(
+                            logs.resolve(runtime + "-" + i + ".log"),
+                            timeout));
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                failed = true;
+            }
+            if (!measurements.isEmpty()) {
+                print(runtime, measurements);
+                report.put(runtime, toJson(target, measurements));
+            }
+        }
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.write(result, report.toJson().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + result);
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static void print(String runtime,
+            List<StartupTarget.Measurement> measurements) {
+        System.out.printf("%n%-14s %10s %10s %10s %10s%n", runtime,
+                "since", "phase", "min", "max");
+        double previous = 0;
+        for (int phase = 0; phase < StartupTarget.PHASES.size(); phase++) {
+            double[] times = times(measurements, phase);
+            double median = median(times);
+            System.out.printf("%-14s %8.0fms %8.0fms %8.0fms %8.0fms%n",
+                    StartupTarget.PHASES.get(phase), median,
+                    median - previous, times[0], times[times.length - 1]);
+            previous = median;
+        }
+        System.out.println();
+    }
+
+    private static JsonObject toJson(StartupTarget target,
+            List<StartupTarget.Measurement> measurements) {
+        JsonObject json = Json.createObject();
+        json.put("command", String.join(" ", target.command));
+        json.put("url", target.url.resolve(target.route).toString());
+        JsonObject median = Json.createObject();
+        for (int phase = 0; phase < StartupTarget.PHASES.size(); phase++) {
+            median.put(StartupTarget.PHASES.get(phase),
+                    median(times(measurements, phase)));
+        }
+        json.put("median", median);
+        JsonArray runs = Json.createArray();
+        for (StartupTarget.Measurement measurement : measurements) {
+            JsonObject run = Json.createObject();
+            for (int phase = 0; phase < StartupTarget.PHASES.size(); phase++) {
+                run.put(StartupTarget.PHASES.get(phase),
+                        millis(measurement.phases[phase]));
+            }
+            run.put("routeRetries", measurement.routeRetries);
+            runs.set(runs.length(), run);
+        }
+        json.put("runs", runs);
+        return json;
+    }
+
+    /**
+     * Gets the sorted times of the given phase, in milliseconds.
+     */
+    private static double[] times(List<StartupTarget.Measurement> measurements,
+            int phase) {
+        return measurements.stream()
+                .mapToDouble(measurement -> millis(measurement.phases[phase]))
+                .sorted().toArray();
+    }
+
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle]
+                : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
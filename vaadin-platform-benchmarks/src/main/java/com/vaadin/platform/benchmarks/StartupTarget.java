@@ -0,0 +1,277 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.flow.shared.ApplicationConstants;
+import com.vaadin.flow.shared.JsonConstants;
+import com.vaadin.platform.test.uidl.UidlSession;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+/**
+ * An application started by {@link StartupBenchmark}: the command launching
+ * it and the URL of the Vaadin servlet it deploys.
+ * <p>
+ * The phases are measured from outside of the process, each one as the time
+ * from launching the command to the first moment the application does the
+ * following:
+ * <ol>
+ * <li>{@code containerUp}: the HTTP port accepts connections</li>
+ * <li>{@code servletInit}: the Vaadin servlet responds to a request, which
+ * initializes it when it is not loaded on startup</li>
+ * <li>{@code bootstrap}: the page of the route is loaded</li>
+ * <li>{@code firstView}: the UI is created and the view of the route is
+ * rendered, as the client engine does after loading the page. The route is
+ * requested again until it is found in the route registry, which happens
+ * only after the servlet is ready in OSGi.</li>
+ * </ol>
+ */
+class StartupTarget {
+
+    static final List<String> PHASES = Arrays.asList("containerUp",
+            "servletInit", "bootstrap", "firstView");
+
+    private static final String ROUTE_NOT_FOUND = "Could not navigate to";
+    private static final long POLL_MILLIS = 10;
+
+    /**
+     * Times of the phases of one start, in nanoseconds from launching the
+     * command.
+     */
+    static class Measurement {
+        final long[] phases = new long[PHASES.size()];
+        int routeRetries;
+    }
+
+    final String name;
+    final Path directory;
+    final List<String> command;
+    final URI url;
+    final String route;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1)).build();
+
+    StartupTarget(String name, Path directory, List<String> command, URI url,
+            String route) {
+        this.name = name;
+        this.directory = directory;
+        this.command = command;
+        this.url = url;
+        this.route = route;
+    }
+
+    /**
+     * Reads the target with the given name from the configuration, the
+     * {@code startup.<name>.<key>} system properties overriding the
+     * {@code <name>.<key>} entries.
+     *
+     * @return the target, or {@code null} if no directory is configured for
+     *         it
+     */
+    static StartupTarget read(String name, Properties config, Path root) {
+        String directory = value(name, "dir", config);
+        if (directory.isEmpty()) {
+            return null;
+        }
+        List<String> command = Arrays
+                .asList(value(name, "command", config).trim().split("\\s+"));
+        return new StartupTarget(name, root.resolve(directory).normalize(),
+                command, URI.create(value(name, "url", config)),
+                value(name, "route", config));
+    }
+
+    private static String value(String name, String key, Properties config) {
+        return System.getProperty("startup." + name + "." + key,
+                config.getProperty(name + "." + key, ""));
+    }
+
+    /**
+     * Launches the application, waits for each phase and stops it.
+     *
+     * @param log
+     *            the file where the output of the application is written
+     * @param timeoutSeconds
+     *            the time after which the start is considered failed
+     * @return the times of the phases
+     * @throws IOException
+     *             if the application fails to start in time
+     */
+    Measurement measure(Path log, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        if (accepts()) {
+            throw new IOException(
+                    "Port " + url.getPort() + " is already in use");
+        }
+        Files.createDirectories(log.getParent());
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile()).redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+
+        Measurement measurement = new Measurement();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (!accepts()) {
+                await(process, deadline, log);
+            }
+            measurement.phases[0] = System.nanoTime() - start;
+
+            while (!servletResponds()) {
+                await(process, deadline, log);
+            }
+            measurement.phases[1] = System.nanoTime() - start;
+
+            while (!bootstrapLoaded()) {
+                await(process, deadline, log);
+            }
+            measurement.phases[2] = System.nanoTime() - start;
+
+            while (!viewRendered()) {
+                measurement.routeRetries++;
+                await(process, deadline, log);
+            }
+            measurement.phases[3] = System.nanoTime() - start;
+            return measurement;
+        } finally {
+            stop(process);
+        }
+    }
+
+    private boolean accepts() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(url.getHost(), url.getPort()),
+                    100);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean servletResponds() throws InterruptedException {
+        // a heartbeat without a session is rejected by the servlet, anything
+        // else comes from the container before the servlet is deployed
+        int status = status(HttpRequest
+                .newBuilder(query(ApplicationConstants.REQUEST_TYPE_HEARTBEAT
+                        + "&" + ApplicationConstants.UI_ID_PARAMETER + "=0"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+        return status > 0 && status != 404 && status != 503;
+    }
+
+    private boolean bootstrapLoaded() throws IOException, InterruptedException {
+        int status = status(
+                HttpRequest.newBuilder(url.resolve(route)).GET().build());
+        if (status == 200) {
+            return true;
+        }
+        if (status > 0 && status != 404 && status != 503) {
+            throw new IOException(
+                    "Loading " + url.resolve(route) + " failed: " + status);
+        }
+        return false;
+    }
+
+    private boolean viewRendered() throws IOException, InterruptedException {
+        // the same requests the client engine sends after the page is loaded
+        JsonObject uidl;
+        try {
+            uidl = new UidlSession(client, url.toString()).open(route);
+        } catch (JsonException e) {
+            throw new IOException("Unexpected init response", e);
+        }
+        if (!uidl.hasKey("changes")
+                || uidl.get("changes").getType() != JsonType.ARRAY) {
+            throw new IOException("Unexpected init response");
+        }
+        JsonArray changes = uidl.getArray("changes");
+        // when the route is not found, either only the container of the view
+        // is attached or the error view is shown
+        int attached = 0;
+        for (int i = 0; i < changes.length(); i++) {
+            if (JsonConstants.CHANGE_TYPE_ATTACH.equals(changes.getObject(i)
+                    .getString(JsonConstants.CHANGE_TYPE))) {
+                attached++;
+            }
+        }
+        return attached > 1 && !uidl.toJson().contains(ROUTE_NOT_FOUND);
+    }
+
+    private URI query(String requestType) {
+        return URI.create(url + "?" + ApplicationConstants.REQUEST_TYPE_PARAMETER
+                + "=" + requestType);
+    }
+
+    /**
+     * Gets the status of the response, or 0 if the request could not be
+     * sent.
+     */
+    private int status(HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void await(Process process, long deadline, Path log)
+            throws IOException, InterruptedException {
+        if (!process.isAlive()) {
+            throw new IOException(name + " exited with " + process.exitValue()
+                    + ", see " + log);
+        }
+        if (System.nanoTime() > deadline) {
+            throw new IOException(name + " did not start in time, see " + log);
+        }
+        Thread.sleep(POLL_MILLIS);
+    }
+
+    /**
+     * Stops the application and the processes it launched, e.g. the JVM
+     * forked by Maven or Gradle, and waits until the port is free again.
+     */
+    private void stop(Process process) throws InterruptedException {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (accepts() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.platform.test.compare.ComparisonResult;
+import com.vaadin.platform.test.compare.Pixels;
+import com.vaadin.platform.test.compare.ReferenceImageCache;
+import com.vaadin.platform.test.compare.TileComparator;
+
+/**
+ * Measures comparing a 4K screenshot to its reference: {@code matches} when
+ * nothing changed, or when the first or the last tile changed, and
+ * {@code compare} finding every differing tile, with one thread or all the
+ * cores. {@code decodeReference} and {@code cachedReference} measure getting
+ * the reference image from its PNG file, without and with the cache.
+ * {@code perPixel} is a plain loop over all the pixels, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TileComparatorBenchmark {
+
+    private static final int WIDTH = 3840;
+    private static final int HEIGHT = 2160;
+
+    @Param({ "1", "0" })
+    public int threads;
+
+    private ForkJoinPool pool;
+    private TileComparator comparator;
+    private Pixels reference;
+    private Pixels same;
+    private Pixels firstTileChanged;
+    private Pixels lastTileChanged;
+    private Path referenceFile;
+    private ReferenceImageCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        pool = threads == 0 ? new ForkJoinPool()
+                : new ForkJoinPool(threads);
+        comparator = new TileComparator(TileComparator.DEFAULT_TILE_SIZE,
+                0.01, pool);
+
+        // a page like image: mostly flat colors, a few gradients and noise
+        Random random = new Random(42);
+        int[] rgb = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                rgb[y * WIDTH + x] = y % 200 < 40 ? 0x1676f3
+                        : x % 480 < 8 ? x / 16 << 8 | y / 16
+                                : 0xfafafa ^ random.nextInt(2);
+            }
+        }
+        reference = new Pixels(WIDTH, HEIGHT, rgb);
+        same = new Pixels(WIDTH, HEIGHT, rgb.clone());
+        firstTileChanged = changed(rgb, 0);
+        lastTileChanged = changed(rgb, rgb.length - 1);
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, WIDTH, HEIGHT, rgb, 0, WIDTH);
+        referenceFile = Files.createTempFile("reference", ".png");
+        ImageIO.write(image, "png", referenceFile.toFile());
+        cache = new ReferenceImageCache(256L * 1024 * 1024);
+        cache.get(referenceFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(referenceFile);
+    }
+
+    @Benchmark
+    public boolean matchesSame() {
+        return comparator.matches(same, reference);
+    }
+
+    @Benchmark
+    public boolean matchesFirstTileChanged() {
+        return comparator.matches(firstTileChanged, reference);
+    }
+
+    @Benchmark
+    public boolean matchesLastTileChanged() {
+        return comparator.matches(lastTileChanged, reference);
+    }
+
+    @Benchmark
+    public ComparisonResult compareLastTileChanged() {
+        return comparator.compare(lastTileChanged, reference);
+    }
+
+    @Benchmark
+    public long perPixel() {
+        int[] actual = lastTileChanged.getRgb();
+        int[] expected = reference.getRgb();
+        long difference = 0;
+        for (int i = 0; i < actual.length; i++) {
+            int a = actual[i];
+            int e = expected[i];
+            difference += Math.abs((a >> 16 & 0xff) - (e >> 16 & 0xff))
+                    + Math.abs((a >> 8 & 0xff) - (e >> 8 & 0xff))
+                    + Math.abs((a & 0xff) - (e & 0xff));
+        }
+        return difference;
+    }
+
+    @Benchmark
+    public Pixels decodeReference() throws IOException {
+        return Pixels.of(ImageIO.read(referenceFile.toFile()));
+    }
+
+    @Benchmark
+    public Pixels cachedReference() {
+        return cache.get(referenceFile);
+    }
+
+    private static Pixels changed(int[] rgb, int index) {
+        int[] changed = rgb.clone();
+        for (int i = 0; i < 64; i++) {
+            // the first or the last pixels, over the tolerance
+            changed[index + (index == 0 ? i : -i)] ^= 0xffffff;
+        }
+        return new Pixels(WIDTH, HEIGHT, changed);
+    }
+}
@@ -17,6 +17,7 @@ package com.vaadin.platform.gradle.test;
 
 import org.junit.Before;
 
+import com.vaadin.platform.test.server.TestServerPool;
 import com.vaadin.testbench.parallel.ParallelTest;
 import io.github.bonigarcia.wdm.WebDriverManager;
 import org.junit.BeforeClass;
@@ -64,10 +65,13 @@ public abstract class AbstractPlatformTest extends ParallelTest {
     /**
      * Used to determine what port the test is running on.
      *
-     * @return The port the test is running on, by default 8080
+     * @return The port the test is running on, by default 8080, or the port
+     *         of the server of this fork when {@link TestServerPool} is
+     *         enabled
      */
     protected int getDeploymentPort() {
-        return SERVER_PORT;
+        return TestServerPool.isEnabled() ? TestServerPool.getPort()
+                : SERVER_PORT;
     }
 
     /**
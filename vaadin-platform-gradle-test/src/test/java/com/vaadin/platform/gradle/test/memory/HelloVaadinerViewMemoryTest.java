@@ -0,0 +1,58 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.gradle.test.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.platform.gradle.test.views.helloview.HelloVaadinerView;
+import com.vaadin.platform.test.memory.SessionMemoryReport;
+
+/**
+ * Reports the memory retained by a session showing
+ * {@link HelloVaadinerView}, the report is also written to
+ * {@code session-memory/HelloVaadinerView.json} in the build folder of the
+ * project, given by the {@code vaadin.test.buildDir} system property.
+ */
+public class HelloVaadinerViewMemoryTest {
+
+    @Test
+    public void helloVaadinerView_reportsRetainedMemoryPerComponentType()
+            throws Exception {
+        SessionMemoryReport report = SessionMemoryReport
+                .measure(HelloVaadinerView::new);
+        LoggerFactory.getLogger(HelloVaadinerViewMemoryTest.class)
+                .info("Session memory\n{}", report);
+        report.write(Paths.get(
+                System.getProperty("vaadin.test.buildDir", "build"),
+                "session-memory", "HelloVaadinerView.json"));
+
+        assertTrue(report.getRetained() > 0);
+        assertTrue(report.getSerialized() > 0);
+        assertEquals(report.getRetained(), report.getEntries().stream()
+                .mapToLong(SessionMemoryReport.Entry::getRetained).sum());
+        assertEquals(report.getSerialized(), report.getEntries().stream()
+                .mapToLong(SessionMemoryReport.Entry::getSerialized).sum());
+        assertTrue(report.getEntries().stream().anyMatch(
+                entry -> entry.getType().equals(TextField.class.getName())));
+    }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.io.File;
 
+import com.vaadin.platform.test.pool.PooledDriverRule;
 import com.vaadin.testbench.Parameters;
 import com.vaadin.testbench.TestBench;
 import com.vaadin.testbench.TestBenchDriverProxy;
@@ -77,11 +78,25 @@ public abstract class ChromeDeviceTest extends ParallelTest {
         }
     }
 
+    private final PooledDriverRule driverRule = new PooledDriverRule(this);
+
+    public ChromeDeviceTest() {
+        // releases the browser to the pool after the failure screenshot
+        screenshotOnFailure = driverRule;
+    }
+
     @Before
     @Override
     public void setup() throws Exception {
         ChromeOptions chromeOptions =
                 customizeChromeOptions(new ChromeOptions());
+        setDriver(driverRule.acquire(
+                chromeOptions.merge(getDesiredCapabilities()),
+                () -> createDriver(chromeOptions)));
+    }
+
+    private WebDriver createDriver(ChromeOptions chromeOptions)
+            throws Exception {
         WebDriver driver;
         // Always give priority to @RunLocally annotation
         if ((getRunLocallyBrowser() != null)) {
@@ -99,7 +114,7 @@ public abstract class ChromeDeviceTest extends ParallelTest {
             driver = new ChromeDriver(chromeOptions);
         }
 
-        setDriver(TestBench.createDriver(driver));
+        return TestBench.createDriver(driver);
     }
 
     /**
@@ -26,6 +26,10 @@ import org.openqa.selenium.mobile.NetworkConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vaadin.platform.test.pool.FreshBrowser;
+
+// installs the service worker from scratch and switches the network off
+@FreshBrowser
 public class ChromeOfflineIT extends ChromeDeviceTest {
 
   protected Logger getLogger() {
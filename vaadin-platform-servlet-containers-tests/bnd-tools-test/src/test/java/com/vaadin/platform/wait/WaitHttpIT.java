@@ -16,8 +16,11 @@
 package com.vaadin.platform.wait;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -26,9 +29,10 @@ public class WaitHttpIT {
     public static final int SERVER_PORT = Integer
             .parseInt(System.getProperty("serverPort", "8080"));
 
+    private static final long TIMEOUT_SECONDS = 60;
+
     @Test
-    public void waitForHttp()
-            throws MalformedURLException, InterruptedException {
+    public void waitForHttp() throws IOException, InterruptedException {
         // This is not really a test.
         // It allows to wait when HTTP container inside OSGi becomes ready.
         // Without this workaround IT tests starts immediately because there is
@@ -37,25 +41,46 @@ public class WaitHttpIT {
         // With the current configuration the server start is done async in the
         // separate JVM and no one waits for its readiness.
         // As a result IT tests starts immediately and this workaround is used
-        // to wait when HTTP server starts to handle HTTP requests.
+        // to wait until the readiness endpoint of the application reports
+        // that the routes are registered and the servlets can serve pages.
         // It's executed before any other IT test.
-        waitRootUrl(60);
+        waitReadyUrl();
     }
 
-    private void waitRootUrl(int count)
-            throws MalformedURLException, InterruptedException {
-        String viewUrl = "http://localhost:+" + SERVER_PORT + "/";
-        if (count == 0) {
-            throw new IllegalStateException(
-                    "URL '" + viewUrl + "' is not avialable");
-        }
-        URL url = new URL(viewUrl);
-        try {
-            url.openConnection().connect();
-        } catch (IOException exception) {
-            Thread.sleep(1000);
-            waitRootUrl(count - 1);
+    private void waitReadyUrl() throws IOException, InterruptedException {
+        URL url = new URL("http://localhost:" + SERVER_PORT + "/ready");
+        long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        String timings = null;
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url
+                        .openConnection();
+                int status = connection.getResponseCode();
+                InputStream body = status == HttpURLConnection.HTTP_OK
+                        ? connection.getInputStream()
+                        : connection.getErrorStream();
+                if (body != null) {
+                    try (InputStream stream = body) {
+                        timings = new String(stream.readAllBytes(),
+                                StandardCharsets.UTF_8);
+                    }
+                }
+                if (status == HttpURLConnection.HTTP_OK) {
+                    return;
+                }
+                if (status == HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                    throw new IllegalStateException(
+                            "Application failed to start: " + timings);
+                }
+            } catch (IOException exception) {
+                // not listening yet
+            }
+            Thread.sleep(100);
         }
+        throw new IllegalStateException("URL '" + url
+                + "' did not report ready in " + TIMEOUT_SECONDS
+                + " seconds, last response: " + timings);
     }
 
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.vaadin.testbench.TestBenchElement;
+
+/**
+ * The values of an element read by a {@link SnapshotQuery}, at the time the
+ * query was run. Reading them needs no round-trip to the browser.
+ *
+ * @param <T>
+ *            the element type
+ */
+public class ElementSnapshot<T extends TestBenchElement> {
+
+    private final T element;
+    private final boolean textFetched;
+    private final String text;
+    private final double width;
+    private final double height;
+    private final Map<String, Object> properties;
+    private final Map<String, Object> attributes;
+
+    ElementSnapshot(T element, boolean textFetched, String text, double width,
+            double height, Map<String, Object> properties,
+            Map<String, Object> attributes) {
+        this.element = element;
+        this.textFetched = textFetched;
+        this.text = text;
+        this.width = width;
+        this.height = height;
+        this.properties = Collections.unmodifiableMap(properties);
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Gets the element, to interact with it.
+     *
+     * @return the element
+     */
+    public T getElement() {
+        return element;
+    }
+
+    /**
+     * Gets the rendered text of the element, its {@code innerText} without
+     * the leading and trailing white space, like {@code getText()} gives.
+     *
+     * @return the text, or {@code null} if the element has none, like SVG
+     *         elements
+     * @throws IllegalStateException
+     *             if the query did not read the text
+     */
+    public String getText() {
+        if (!textFetched) {
+            throw new IllegalStateException("The text was not fetched");
+        }
+        return text;
+    }
+
+    /**
+     * Gets the width of the bounding rectangle of the element.
+     *
+     * @return the width in pixels
+     * @throws IllegalStateException
+     *             if the query did not read the size
+     */
+    public double getWidth() {
+        checkSize();
+        return width;
+    }
+
+    /**
+     * Gets the height of the bounding rectangle of the element.
+     *
+     * @return the height in pixels
+     * @throws IllegalStateException
+     *             if the query did not read the size
+     */
+    public double getHeight() {
+        checkSize();
+        return height;
+    }
+
+    /**
+     * Checks whether the element takes space on the page.
+     *
+     * @return {@code true} if both the width and the height are positive
+     * @throws IllegalStateException
+     *             if the query did not read the size
+     */
+    public boolean isRendered() {
+        return getWidth() > 0 && getHeight() > 0;
+    }
+
+    /**
+     * Gets the value of a property as a string, like
+     * {@link TestBenchElement#getPropertyString(String...)}.
+     *
+     * @param name
+     *            the property name
+     * @return the value, or {@code null} if the property has no value
+     * @throws IllegalArgumentException
+     *             if the query did not read the property
+     */
+    public String getPropertyString(String name) {
+        Object value = get(properties, "Property", name);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    /**
+     * Gets the value of a boolean property.
+     *
+     * @param name
+     *            the property name
+     * @return the value, or {@code null} if the property has no value
+     * @throws IllegalArgumentException
+     *             if the query did not read the property
+     */
+    public Boolean getPropertyBoolean(String name) {
+        Object value = get(properties, "Property", name);
+        if (value == null || value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return Boolean.valueOf(String.valueOf(value));
+    }
+
+    /**
+     * Gets the value of a number property.
+     *
+     * @param name
+     *            the property name
+     * @return the value, or {@code null} if the property has no value
+     * @throws IllegalArgumentException
+     *             if the query did not read the property
+     */
+    public Double getPropertyDouble(String name) {
+        Object value = get(properties, "Property", name);
+        if (value == null || value instanceof Number) {
+            return value == null ? null : ((Number) value).doubleValue();
+        }
+        return Double.valueOf(String.valueOf(value));
+    }
+
+    /**
+     * Gets the value of an integer property.
+     *
+     * @param name
+     *            the property name
+     * @return the value, or {@code null} if the property has no value
+     * @throws IllegalArgumentException
+     *             if the query did not read the property
+     */
+    public Integer getPropertyInteger(String name) {
+        Double value = getPropertyDouble(name);
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * Gets the value of an attribute.
+     *
+     * @param name
+     *            the attribute name
+     * @return the value, or {@code null} if the element has no such attribute
+     * @throws IllegalArgumentException
+     *             if the query did not read the attribute
+     */
+    public String getAttribute(String name) {
+        Object value = get(attributes, "Attribute", name);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return element.getClass().getSimpleName() + " text=" + text
+                + " properties=" + properties + " attributes=" + attributes;
+    }
+
+    private void checkSize() {
+        if (Double.isNaN(width)) {
+            throw new IllegalStateException("The size was not fetched");
+        }
+    }
+
+    private static Object get(Map<String, Object> values, String kind,
+            String name) {
+        if (!values.containsKey(name)) {
+            throw new IllegalArgumentException(
+                    kind + " " + name + " was not fetched");
+        }
+        return values.get(name);
+    }
+}
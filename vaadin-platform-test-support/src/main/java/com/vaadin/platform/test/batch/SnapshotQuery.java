@@ -0,0 +1,290 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.vaadin.testbench.HasTestBenchCommandExecutor;
+import com.vaadin.testbench.TestBench;
+import com.vaadin.testbench.TestBenchElement;
+import com.vaadin.testbench.commands.TestBenchCommandExecutor;
+import com.vaadin.testbench.elementsbase.Element;
+
+/**
+ * Reads a declared set of values of many elements in one
+ * {@code executeScript} call, instead of one WebDriver round-trip for each
+ * {@code getText()}, {@code getAttribute()} or {@code getPropertyString()}
+ * of each element.
+ * <p>
+ * The elements can be found by the same script, searching a context like
+ * {@code $(type).all()} does: both in the shadow root of the context and in
+ * its light DOM. For example, to check all the radio buttons of a group
+ * with one round-trip:
+ *
+ * <pre>
+ * List&lt;ElementSnapshot&lt;RadioButtonElement&gt;&gt; buttons = new SnapshotQuery()
+ *         .text().size().property("checked")
+ *         .fetch(group, RadioButtonElement.class);
+ * </pre>
+ *
+ * Only values that can be returned by {@code executeScript}, like strings,
+ * numbers, booleans, arrays and plain objects of them, can be read.
+ */
+public class SnapshotQuery {
+
+    private static final String SCRIPT = ""
+            + "var context = arguments[0], selector = arguments[1],"
+            + "  elements = arguments[2], properties = arguments[3],"
+            + "  attributes = arguments[4], text = arguments[5],"
+            + "  size = arguments[6];"
+            + "if (selector) {"
+            + "  elements = [];"
+            + "  (context ? [context.shadowRoot, context] : [document])"
+            + "    .forEach(function(scope) {"
+            + "      if (scope) {"
+            + "        scope.querySelectorAll(selector).forEach(function(e) {"
+            + "          if (elements.indexOf(e) < 0) { elements.push(e); }"
+            + "        });"
+            + "      }"
+            + "    });"
+            + "}"
+            + "return elements.map(function(element) {"
+            + "  var snapshot = { element: element, properties: {},"
+            + "    attributes: {} };"
+            + "  properties.forEach(function(name) {"
+            + "    var value = element[name];"
+            + "    snapshot.properties[name] ="
+            + "      value === undefined ? null : value;"
+            + "  });"
+            + "  attributes.forEach(function(name) {"
+            + "    snapshot.attributes[name] = element.getAttribute(name);"
+            + "  });"
+            + "  if (text) {"
+            + "    snapshot.text = element.innerText === undefined"
+            + "      ? null : element.innerText.trim();"
+            + "  }"
+            + "  if (size) {"
+            + "    var rect = element.getBoundingClientRect();"
+            + "    snapshot.width = rect.width;"
+            + "    snapshot.height = rect.height;"
+            + "  }"
+            + "  return snapshot;"
+            + "});";
+
+    private final Set<String> properties = new LinkedHashSet<>();
+    private final Set<String> attributes = new LinkedHashSet<>();
+    private boolean text;
+    private boolean size;
+
+    /**
+     * Reads the rendered text, see {@link ElementSnapshot#getText()}.
+     *
+     * @return this query
+     */
+    public SnapshotQuery text() {
+        text = true;
+        return this;
+    }
+
+    /**
+     * Reads the size of the bounding rectangle, see
+     * {@link ElementSnapshot#isRendered()}.
+     *
+     * @return this query
+     */
+    public SnapshotQuery size() {
+        size = true;
+        return this;
+    }
+
+    /**
+     * Reads the given properties.
+     *
+     * @param names
+     *            the property names
+     * @return this query
+     */
+    public SnapshotQuery property(String... names) {
+        properties.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * Reads the given attributes.
+     *
+     * @param names
+     *            the attribute names
+     * @return this query
+     */
+    public SnapshotQuery attribute(String... names) {
+        attributes.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * Finds the elements of the given type in the context and reads their
+     * values, in one round-trip.
+     *
+     * @param context
+     *            the element to search in
+     * @param type
+     *            the element type, annotated with {@link Element}
+     * @param <T>
+     *            the element type
+     * @return the snapshots, the ones in the shadow root first
+     */
+    public <T extends TestBenchElement> List<ElementSnapshot<T>> fetch(
+            TestBenchElement context, Class<T> type) {
+        return fetch(context, context.getCommandExecutor(), getTag(type),
+                element -> element.wrap(type));
+    }
+
+    /**
+     * Finds the elements of the given type in the document and reads their
+     * values, in one round-trip.
+     *
+     * @param driver
+     *            the TestBench driver
+     * @param type
+     *            the element type, annotated with {@link Element}
+     * @param <T>
+     *            the element type
+     * @return the snapshots, in document order
+     * @throws IllegalArgumentException
+     *             if the driver is not created by TestBench
+     */
+    public <T extends TestBenchElement> List<ElementSnapshot<T>> fetch(
+            WebDriver driver, Class<T> type) {
+        if (!(driver instanceof HasTestBenchCommandExecutor)) {
+            throw new IllegalArgumentException(
+                    "The driver must be created with TestBench.createDriver");
+        }
+        return fetch(null,
+                ((HasTestBenchCommandExecutor) driver).getCommandExecutor(),
+                getTag(type), element -> element.wrap(type));
+    }
+
+    /**
+     * Finds the elements matching a CSS selector in the context and reads
+     * their values, in one round-trip.
+     *
+     * @param context
+     *            the element to search in
+     * @param selector
+     *            the CSS selector
+     * @return the snapshots, the ones in the shadow root first
+     */
+    public List<ElementSnapshot<TestBenchElement>> fetch(
+            TestBenchElement context, String selector) {
+        return fetch(context, context.getCommandExecutor(), selector,
+                Function.identity());
+    }
+
+    /**
+     * Reads the values of elements already found, in one round-trip.
+     *
+     * @param elements
+     *            the elements
+     * @param <T>
+     *            the element type
+     * @return the snapshots, in the same order as the elements
+     */
+    public <T extends TestBenchElement> List<ElementSnapshot<T>> fetch(
+            List<T> elements) {
+        if (elements.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> results = execute(
+                elements.get(0).getCommandExecutor(), null, null, elements);
+        List<ElementSnapshot<T>> snapshots = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            snapshots.add(toSnapshot(elements.get(i), results.get(i)));
+        }
+        return snapshots;
+    }
+
+    private <T extends TestBenchElement> List<ElementSnapshot<T>> fetch(
+            TestBenchElement context, TestBenchCommandExecutor executor,
+            String selector, Function<TestBenchElement, T> wrap) {
+        List<Map<String, Object>> results = execute(executor, context,
+                selector, Collections.emptyList());
+        List<ElementSnapshot<T>> snapshots = new ArrayList<>(results.size());
+        for (Map<String, Object> result : results) {
+            WebElement element = (WebElement) result.get("element");
+            TestBenchElement found = element instanceof TestBenchElement
+                    ? (TestBenchElement) element
+                    : TestBench.createElement(element, executor);
+            snapshots.add(toSnapshot(wrap.apply(found), result));
+        }
+        return snapshots;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> execute(
+            TestBenchCommandExecutor executor, SearchContext context,
+            String selector, List<? extends WebElement> elements) {
+        Object result = executor.executeScript(SCRIPT, context, selector,
+                elements, new ArrayList<>(properties),
+                new ArrayList<>(attributes), text, size);
+        return (List<Map<String, Object>>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends TestBenchElement> ElementSnapshot<T> toSnapshot(T element,
+            Map<String, Object> result) {
+        Map<String, Object> propertyValues = (Map<String, Object>) result
+                .get("properties");
+        Map<String, Object> attributeValues = (Map<String, Object>) result
+                .get("attributes");
+        // the declared names are kept even when the browser drops nulls
+        Map<String, Object> fetchedProperties = new LinkedHashMap<>();
+        properties.forEach(name -> fetchedProperties.put(name,
+                propertyValues == null ? null : propertyValues.get(name)));
+        Map<String, Object> fetchedAttributes = new LinkedHashMap<>();
+        attributes.forEach(name -> fetchedAttributes.put(name,
+                attributeValues == null ? null : attributeValues.get(name)));
+        return new ElementSnapshot<>(element, text, (String) result.get("text"),
+                size ? toDouble(result.get("width")) : Double.NaN,
+                size ? toDouble(result.get("height")) : Double.NaN,
+                fetchedProperties, fetchedAttributes);
+    }
+
+    private static double toDouble(Object value) {
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    private static String getTag(Class<? extends TestBenchElement> type) {
+        Element annotation = type.getAnnotation(Element.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException(type.getName()
+                    + " has no @" + Element.class.getSimpleName()
+                    + " annotation");
+        }
+        return annotation.value();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of comparing a screenshot to its reference image with a
+ * {@link TileComparator}.
+ */
+public final class ComparisonResult {
+
+    private final boolean sameSize;
+    private final List<Rectangle> differingTiles;
+
+    private ComparisonResult(boolean sameSize,
+            List<Rectangle> differingTiles) {
+        this.sameSize = sameSize;
+        this.differingTiles = Collections.unmodifiableList(differingTiles);
+    }
+
+    static ComparisonResult sizeMismatch() {
+        return new ComparisonResult(false, Collections.emptyList());
+    }
+
+    static ComparisonResult of(List<Rectangle> differingTiles) {
+        return new ComparisonResult(true, differingTiles);
+    }
+
+    /**
+     * Tells whether the images have the same size and no tile differs.
+     *
+     * @return {@code true} if the screenshot matches the reference
+     */
+    public boolean isMatch() {
+        return sameSize && differingTiles.isEmpty();
+    }
+
+    public boolean isSameSize() {
+        return sameSize;
+    }
+
+    /**
+     * Gets the differing tiles, from top to bottom and left to right.
+     *
+     * @return the differing tiles, empty if the sizes differ
+     */
+    public List<Rectangle> getDifferingTiles() {
+        return differingTiles;
+    }
+
+    @Override
+    public String toString() {
+        if (!sameSize) {
+            return "ComparisonResult[size mismatch]";
+        }
+        return "ComparisonResult[" + differingTiles.size()
+                + " differing tiles]";
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * The pixels of an image as one {@code int} per pixel, in rows, with the red,
+ * green and blue components in the bits 16 to 23, 8 to 15 and 0 to 7. Alpha is
+ * ignored, as screenshots are opaque.
+ */
+public final class Pixels {
+
+    private final int width;
+    private final int height;
+    private final int[] rgb;
+
+    /**
+     * Creates pixels from an array, which is used as is.
+     *
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param rgb
+     *            the pixels, {@code width * height} of them
+     */
+    public Pixels(int width, int height, int[] rgb) {
+        if (rgb.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height
+                    + " pixels but got " + rgb.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.rgb = rgb;
+    }
+
+    /**
+     * Gets the pixels of an image. The pixels of an {@code int} image are not
+     * copied, so the image must not be changed while they are used.
+     *
+     * @param image
+     *            the image
+     * @return the pixels
+     */
+    public static Pixels of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        switch (image.getType()) {
+        case BufferedImage.TYPE_INT_RGB:
+        case BufferedImage.TYPE_INT_ARGB:
+            if (isPacked(raster, width)) {
+                return new Pixels(width, height,
+                        ((DataBufferInt) raster.getDataBuffer()).getData());
+            }
+            break;
+        case BufferedImage.TYPE_3BYTE_BGR:
+            if (isInterleaved(raster, width, 3)) {
+                return fromBytes(width, height,
+                        ((DataBufferByte) raster.getDataBuffer()).getData(),
+                        3);
+            }
+            break;
+        case BufferedImage.TYPE_4BYTE_ABGR:
+            if (isInterleaved(raster, width, 4)) {
+                return fromBytes(width, height,
+                        ((DataBufferByte) raster.getDataBuffer()).getData(),
+                        4);
+            }
+            break;
+        default:
+            break;
+        }
+        // converts any other color model, one pixel at a time
+        return new Pixels(width, height,
+                image.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the pixels, which must not be changed.
+     *
+     * @return the pixels, in rows
+     */
+    public int[] getRgb() {
+        return rgb;
+    }
+
+    /**
+     * Gets the number of bytes taken by the pixels.
+     *
+     * @return the size in bytes
+     */
+    public long getByteSize() {
+        return 4L * rgb.length;
+    }
+
+    private static boolean isPacked(Raster raster, int width) {
+        return raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel())
+                        .getScanlineStride() == width
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0;
+    }
+
+    private static boolean isInterleaved(Raster raster, int width,
+            int pixelStride) {
+        return raster.getSampleModel() instanceof ComponentSampleModel
+                && ((ComponentSampleModel) raster.getSampleModel())
+                        .getPixelStride() == pixelStride
+                && ((ComponentSampleModel) raster.getSampleModel())
+                        .getScanlineStride() == width * pixelStride
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0;
+    }
+
+    private static Pixels fromBytes(int width, int height, byte[] bytes,
+            int pixelStride) {
+        // the bytes are B, G, R, or A, B, G, R
+        int blue = pixelStride - 3;
+        int[] rgb = new int[width * height];
+        for (int i = 0, b = blue; i < rgb.length; i++, b += pixelStride) {
+            rgb[i] = (bytes[b + 2] & 0xff) << 16 | (bytes[b + 1] & 0xff) << 8
+                    | bytes[b] & 0xff;
+        }
+        return new Pixels(width, height, rgb);
+    }
+}
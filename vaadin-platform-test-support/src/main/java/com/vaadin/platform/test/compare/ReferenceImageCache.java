@@ -0,0 +1,176 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Keeps the decoded reference images, so that the tests of a JVM comparing
+ * screenshots to the same references decode them once.
+ * <p>
+ * An image is decoded again when its file has changed. The least recently
+ * used images are dropped when the cache holds more than its size, by default
+ * {@value #DEFAULT_SIZE_MB} MB or the value of the {@value #SIZE_PROPERTY}
+ * system property.
+ */
+public class ReferenceImageCache {
+
+    /**
+     * The system property giving the size of the default cache, in megabytes.
+     */
+    public static final String SIZE_PROPERTY = "vaadin.test.referenceCache.mb";
+    /**
+     * The size of the default cache, in megabytes.
+     */
+    public static final int DEFAULT_SIZE_MB = 256;
+
+    private static ReferenceImageCache defaultCache;
+
+    private final long maxBytes;
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private long bytes;
+
+    private static class Entry {
+        private final FileTime modified;
+        private final long fileSize;
+        private final Pixels pixels;
+
+        Entry(FileTime modified, long fileSize, Pixels pixels) {
+            this.modified = modified;
+            this.fileSize = fileSize;
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes
+     *            the size of the decoded images to keep, in bytes
+     */
+    public ReferenceImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cache of this JVM.
+     *
+     * @return the cache
+     */
+    public static synchronized ReferenceImageCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new ReferenceImageCache(
+                    Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE_MB)
+                            * 1024L * 1024L);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Gets the pixels of a reference image, decoding it if it is not cached
+     * or has changed.
+     *
+     * @param file
+     *            the image file
+     * @return the pixels
+     * @throws UncheckedIOException
+     *             if the file cannot be read or is not an image
+     */
+    public Pixels get(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new UncheckedIOException("No reference image " + key, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + key, e);
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null
+                    && entry.modified.equals(attributes.lastModifiedTime())
+                    && entry.fileSize == attributes.size()) {
+                return entry.pixels;
+            }
+        }
+        // decoded without the lock, another thread may decode it too
+        Pixels pixels = decode(key);
+        put(key, new Entry(attributes.lastModifiedTime(), attributes.size(),
+                pixels));
+        return pixels;
+    }
+
+    /**
+     * Drops all the images.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Gets the size of the cached images.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private synchronized void put(Path key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.pixels.getByteSize();
+        }
+        bytes += entry.pixels.getByteSize();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Entry dropped = eldest.next();
+            if (dropped != entry) {
+                bytes -= dropped.pixels.getByteSize();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static Pixels decode(Path file) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+        if (image == null) {
+            throw new UncheckedIOException(new IOException(
+                    file + " is not an image ImageIO can read"));
+        }
+        return Pixels.of(image);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import com.vaadin.testbench.Parameters;
+
+/**
+ * Compares screenshots of the browser or of an element to the reference
+ * images, like {@code compareScreen} of TestBench, with a
+ * {@link TileComparator} and the references kept decoded in a
+ * {@link ReferenceImageCache}.
+ * <p>
+ * The reference of an id is the PNG file named after it in the reference
+ * directory. When the screenshot does not match, or there is no reference
+ * yet, the screenshot is written with the same name in the error directory.
+ */
+public class ScreenshotComparison {
+
+    private final TileComparator comparator;
+    private final ReferenceImageCache cache;
+    private final Path referenceDirectory;
+    private final Path errorDirectory;
+
+    /**
+     * Creates a comparison.
+     *
+     * @param comparator
+     *            compares the images
+     * @param cache
+     *            keeps the decoded references
+     * @param referenceDirectory
+     *            the directory of the reference images
+     * @param errorDirectory
+     *            the directory the differing screenshots are written to
+     */
+    public ScreenshotComparison(TileComparator comparator,
+            ReferenceImageCache cache, Path referenceDirectory,
+            Path errorDirectory) {
+        this.comparator = comparator;
+        this.cache = cache;
+        this.referenceDirectory = referenceDirectory;
+        this.errorDirectory = errorDirectory;
+    }
+
+    /**
+     * Creates a comparison using the tolerance and the directories of the
+     * TestBench {@link Parameters}, and the cache of this JVM.
+     *
+     * @return the comparison
+     */
+    public static ScreenshotComparison getDefault() {
+        return new ScreenshotComparison(
+                new TileComparator(
+                        Parameters.getScreenshotComparisonTolerance()),
+                ReferenceImageCache.getDefault(),
+                Paths.get(Parameters.getScreenshotReferenceDirectory()),
+                Paths.get(Parameters.getScreenshotErrorDirectory()));
+    }
+
+    /**
+     * Checks whether a screenshot matches the reference, stopping at the
+     * first differing tile.
+     *
+     * @param target
+     *            the driver or element to take a screenshot of
+     * @param referenceId
+     *            the name of the reference, without {@code .png}
+     * @return {@code true} if the screenshot matches
+     * @throws UncheckedIOException
+     *             if there is no reference, or the images cannot be read
+     */
+    public boolean matches(TakesScreenshot target, String referenceId) {
+        byte[] png = target.getScreenshotAs(OutputType.BYTES);
+        boolean match = comparator.matches(decode(png),
+                getReference(referenceId, png));
+        if (!match) {
+            writeError(referenceId, png);
+        }
+        return match;
+    }
+
+    /**
+     * Compares a screenshot to the reference, finding all the differing tiles.
+     *
+     * @param target
+     *            the driver or element to take a screenshot of
+     * @param referenceId
+     *            the name of the reference, without {@code .png}
+     * @return the result
+     * @throws UncheckedIOException
+     *             if there is no reference, or the images cannot be read
+     */
+    public ComparisonResult compare(TakesScreenshot target,
+            String referenceId) {
+        byte[] png = target.getScreenshotAs(OutputType.BYTES);
+        ComparisonResult result = comparator.compare(decode(png),
+                getReference(referenceId, png));
+        if (!result.isMatch()) {
+            writeError(referenceId, png);
+            getLogger().info(() -> referenceId + ": " + result);
+        }
+        return result;
+    }
+
+    private Pixels getReference(String referenceId, byte[] png) {
+        Path file = referenceDirectory.resolve(referenceId + ".png");
+        if (!Files.exists(file)) {
+            Path written = writeError(referenceId, png);
+            throw new UncheckedIOException(new IOException("No reference "
+                    + file + ", the screenshot was written to " + written));
+        }
+        return cache.get(file);
+    }
+
+    private Path writeError(String referenceId, byte[] png) {
+        Path file = errorDirectory.resolve(referenceId + ".png");
+        try {
+            Files.createDirectories(errorDirectory);
+            // the PNG of the browser as is, usable as the new reference
+            Files.write(file, png);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+        return file;
+    }
+
+    private static Pixels decode(byte[] png) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(png));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the screenshot", e);
+        }
+        if (image == null) {
+            throw new UncheckedIOException(
+                    new IOException("The screenshot is not a PNG image"));
+        }
+        return Pixels.of(image);
+    }
+
+    static Logger getLogger() {
+        return Logger.getLogger(ScreenshotComparison.class.getName());
+    }
+}
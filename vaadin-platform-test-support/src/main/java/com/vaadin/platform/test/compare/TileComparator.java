@@ -0,0 +1,211 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares a screenshot to its reference image in square tiles, checked in
+ * parallel in a fork-join pool.
+ * <p>
+ * A tile differs when the mean difference of the red, green and blue
+ * components of its pixels, from 0 to 1, is over the tolerance; with a
+ * tolerance of 0 any different pixel makes its tile differ. The rows of a
+ * tile are first compared as a whole, so the tiles that did not change cost
+ * little more than reading them.
+ * <p>
+ * {@link #matches(Pixels, Pixels)} stops at the first differing tile, while
+ * {@link #compare(Pixels, Pixels)} finds all of them.
+ */
+public class TileComparator {
+
+    /**
+     * The default tile size, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    // the rows of tiles checked by one task
+    private static final int BAND_HEIGHT_IN_TILES = 4;
+
+    private final int tileSize;
+    private final double tolerance;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a comparator with the default tile size, running in the common
+     * pool.
+     *
+     * @param tolerance
+     *            the mean difference allowed in a tile, from 0 to 1
+     */
+    public TileComparator(double tolerance) {
+        this(DEFAULT_TILE_SIZE, tolerance, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a comparator.
+     *
+     * @param tileSize
+     *            the width and height of the tiles, in pixels
+     * @param tolerance
+     *            the mean difference allowed in a tile, from 0 to 1
+     * @param pool
+     *            the pool comparing the tiles
+     */
+    public TileComparator(int tileSize, double tolerance, ForkJoinPool pool) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("The tile size must be positive");
+        }
+        if (tolerance < 0 || tolerance > 1) {
+            throw new IllegalArgumentException(
+                    "The tolerance must be between 0 and 1");
+        }
+        this.tileSize = tileSize;
+        this.tolerance = tolerance;
+        this.pool = pool;
+    }
+
+    /**
+     * Checks whether the screenshot matches the reference, stopping at the
+     * first differing tile.
+     *
+     * @param screenshot
+     *            the screenshot
+     * @param reference
+     *            the reference image
+     * @return {@code true} if the images have the same size and no tile
+     *         differs
+     */
+    public boolean matches(Pixels screenshot, Pixels reference) {
+        return run(screenshot, reference, true).isMatch();
+    }
+
+    /**
+     * Compares the screenshot to the reference, finding all the differing
+     * tiles.
+     *
+     * @param screenshot
+     *            the screenshot
+     * @param reference
+     *            the reference image
+     * @return the result
+     */
+    public ComparisonResult compare(Pixels screenshot, Pixels reference) {
+        return run(screenshot, reference, false);
+    }
+
+    private ComparisonResult run(Pixels screenshot, Pixels reference,
+            boolean stopAtFirst) {
+        if (screenshot.getWidth() != reference.getWidth()
+                || screenshot.getHeight() != reference.getHeight()) {
+            return ComparisonResult.sizeMismatch();
+        }
+        Queue<Rectangle> differing = new ConcurrentLinkedQueue<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        int tileRows = (screenshot.getHeight() + tileSize - 1) / tileSize;
+        pool.invoke(new BandTask(screenshot, reference, 0, tileRows,
+                stopAtFirst, stop, differing));
+
+        List<Rectangle> tiles = new ArrayList<>(differing);
+        tiles.sort(Comparator.comparingInt((Rectangle tile) -> tile.y)
+                .thenComparingInt(tile -> tile.x));
+        return ComparisonResult.of(tiles);
+    }
+
+    private class BandTask extends RecursiveAction {
+        private final Pixels screenshot;
+        private final Pixels reference;
+        private final int fromTileRow;
+        private final int toTileRow;
+        private final boolean stopAtFirst;
+        private final AtomicBoolean stop;
+        private final Queue<Rectangle> differing;
+
+        BandTask(Pixels screenshot, Pixels reference, int fromTileRow,
+                int toTileRow, boolean stopAtFirst, AtomicBoolean stop,
+                Queue<Rectangle> differing) {
+            this.screenshot = screenshot;
+            this.reference = reference;
+            this.fromTileRow = fromTileRow;
+            this.toTileRow = toTileRow;
+            this.stopAtFirst = stopAtFirst;
+            this.stop = stop;
+            this.differing = differing;
+        }
+
+        @Override
+        protected void compute() {
+            if (toTileRow - fromTileRow > BAND_HEIGHT_IN_TILES) {
+                int middle = (fromTileRow + toTileRow) >>> 1;
+                invokeAll(
+                        new BandTask(screenshot, reference, fromTileRow,
+                                middle, stopAtFirst, stop, differing),
+                        new BandTask(screenshot, reference, middle, toTileRow,
+                                stopAtFirst, stop, differing));
+                return;
+            }
+            int width = screenshot.getWidth();
+            for (int tileRow = fromTileRow; tileRow < toTileRow; tileRow++) {
+                int y = tileRow * tileSize;
+                int height = Math.min(tileSize, screenshot.getHeight() - y);
+                for (int x = 0; x < width; x += tileSize) {
+                    if (stopAtFirst && stop.get()) {
+                        return;
+                    }
+                    int tileWidth = Math.min(tileSize, width - x);
+                    if (differs(screenshot.getRgb(), reference.getRgb(),
+                            width, x, y, tileWidth, height)) {
+                        differing.add(new Rectangle(x, y, tileWidth, height));
+                        stop.set(true);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean differs(int[] actual, int[] expected, int width, int x,
+            int y, int tileWidth, int tileHeight) {
+        long difference = 0;
+        for (int row = y; row < y + tileHeight; row++) {
+            int from = row * width + x;
+            int to = from + tileWidth;
+            // vectorized by the JIT, most rows are the same
+            int i = Arrays.mismatch(actual, from, to, expected, from, to);
+            if (i < 0) {
+                continue;
+            }
+            for (i += from; i < to; i++) {
+                int a = actual[i];
+                int e = expected[i];
+                if (a != e) {
+                    difference += Math.abs((a >> 16 & 0xff) - (e >> 16 & 0xff))
+                            + Math.abs((a >> 8 & 0xff) - (e >> 8 & 0xff))
+                            + Math.abs((a & 0xff) - (e & 0xff));
+                }
+            }
+        }
+        return difference > tolerance * 3 * 255 * tileWidth * tileHeight;
+    }
+}
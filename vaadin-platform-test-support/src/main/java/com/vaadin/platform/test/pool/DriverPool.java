@@ -0,0 +1,288 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.pool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Keeps the browser sessions of the finished tests open, so that the next
+ * tests of the JVM asking for the same capabilities reuse them instead of
+ * starting a new browser.
+ * <p>
+ * A released session is reset before it is reused: the windows opened by the
+ * test are closed, the local and session storage, the caches, the IndexedDB
+ * databases and the service workers of the page it was left on are cleared,
+ * as well as the cookies, and the browser is sent to {@code about:blank}.
+ * Storage of other origins visited during the test is kept, tests needing a
+ * clean profile must not use the pool, see {@link FreshBrowser}.
+ * <p>
+ * The pool is enabled unless the {@value #ENABLED_PROPERTY} system property is
+ * {@code false}. A session is quit after {@value #MAX_USES_PROPERTY} tests,
+ * 100 by default, and the idle sessions are quit when the JVM exits.
+ */
+public class DriverPool {
+
+    /**
+     * The system property disabling the pool when {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "vaadin.test.driverPool";
+    /**
+     * The system property giving the number of tests a session is used for.
+     */
+    public static final String MAX_USES_PROPERTY = "vaadin.test.driverPool.maxUses";
+
+    // resolves with false if something could not be cleared
+    static final String RESET_SCRIPT = "const done = arguments[arguments.length - 1];"
+            + "const tasks = [];"
+            + "try { localStorage.clear(); sessionStorage.clear(); }"
+            + " catch (e) { tasks.push(Promise.reject(e)); }"
+            + "if (navigator.serviceWorker) {"
+            + "  tasks.push(navigator.serviceWorker.getRegistrations()"
+            + "    .then(all => Promise.all(all.map(r => r.unregister()))));"
+            + "}"
+            + "if (window.caches) {"
+            + "  tasks.push(caches.keys()"
+            + "    .then(all => Promise.all(all.map(k => caches.delete(k)))));"
+            + "}"
+            + "if (window.indexedDB && indexedDB.databases) {"
+            + "  tasks.push(indexedDB.databases().then(all => Promise.all("
+            + "    all.map(db => new Promise(resolve => {"
+            + "      const request = indexedDB.deleteDatabase(db.name);"
+            + "      request.onsuccess = request.onerror"
+            + "        = request.onblocked = resolve;"
+            + "    })))));"
+            + "}"
+            + "Promise.all(tasks).then(() => done(true), () => done(false));";
+
+    private static DriverPool defaultPool;
+
+    private final int maxUses;
+    private final Map<String, Deque<WebDriver>> idle = new HashMap<>();
+    private final Map<WebDriver, String> leased = new IdentityHashMap<>();
+    private final Map<WebDriver, Integer> uses = new IdentityHashMap<>();
+    private final Map<WebDriver, String> mainWindows = new IdentityHashMap<>();
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxUses
+     *            the number of tests a session is used for before it is quit
+     */
+    public DriverPool(int maxUses) {
+        if (maxUses <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of uses must be positive");
+        }
+        this.maxUses = maxUses;
+    }
+
+    static Logger getLogger() {
+        return Logger.getLogger(DriverPool.class.getName());
+    }
+
+    /**
+     * Tells whether the tests should use the pool.
+     *
+     * @return {@code true} unless disabled with {@value #ENABLED_PROPERTY}
+     */
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Gets the pool of this JVM, which quits its sessions when the JVM exits.
+     *
+     * @return the pool
+     */
+    public static synchronized DriverPool getDefault() {
+        if (defaultPool == null) {
+            defaultPool = new DriverPool(
+                    Integer.getInteger(MAX_USES_PROPERTY, 100));
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(defaultPool::close, "driver-pool-close"));
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Gets an idle session with the given capabilities, or creates one.
+     *
+     * @param capabilities
+     *            the capabilities the session was created with; sessions are
+     *            only reused for the same capabilities
+     * @param factory
+     *            creates the session if there is no idle one
+     * @return the session, to give back with {@link #release(WebDriver)}
+     * @throws Exception
+     *             if the factory fails
+     */
+    public WebDriver acquire(Capabilities capabilities,
+            Callable<WebDriver> factory) throws Exception {
+        String key = new TreeMap<>(capabilities.asMap()).toString();
+        WebDriver driver;
+        while ((driver = pollIdle(key)) != null) {
+            if (isAlive(driver)) {
+                break;
+            }
+            discard(driver);
+        }
+        if (driver == null) {
+            driver = factory.call();
+            // the window opened with the driver, kept on release; the
+            // other handles have no order
+            String mainWindow = driver.getWindowHandle();
+            synchronized (this) {
+                mainWindows.put(driver, mainWindow);
+            }
+        }
+        synchronized (this) {
+            leased.put(driver, key);
+            uses.merge(driver, 1, Integer::sum);
+        }
+        return driver;
+    }
+
+    /**
+     * Resets the session and keeps it for the next test, or quits it if it
+     * cannot be reset, has been used for too many tests or was not acquired
+     * from this pool.
+     *
+     * @param driver
+     *            the session of the finished test
+     */
+    public void release(WebDriver driver) {
+        String key;
+        synchronized (this) {
+            key = leased.remove(driver);
+        }
+        if (key == null) {
+            quit(driver);
+            return;
+        }
+        if (getUses(driver) >= maxUses
+                || !reset(driver, getMainWindow(driver))) {
+            discard(driver);
+            return;
+        }
+        synchronized (this) {
+            idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(driver);
+        }
+    }
+
+    /**
+     * Quits all the idle sessions.
+     */
+    public void close() {
+        List<WebDriver> drivers = new ArrayList<>();
+        synchronized (this) {
+            idle.values().forEach(drivers::addAll);
+            idle.clear();
+        }
+        drivers.forEach(this::discard);
+    }
+
+    /**
+     * Gets the number of idle sessions.
+     *
+     * @return the number of sessions kept for the next tests
+     */
+    public synchronized int getIdleCount() {
+        return idle.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    private synchronized WebDriver pollIdle(String key) {
+        Deque<WebDriver> drivers = idle.get(key);
+        return drivers == null ? null : drivers.poll();
+    }
+
+    private synchronized int getUses(WebDriver driver) {
+        return uses.getOrDefault(driver, 0);
+    }
+
+    private synchronized String getMainWindow(WebDriver driver) {
+        return mainWindows.get(driver);
+    }
+
+    private void discard(WebDriver driver) {
+        synchronized (this) {
+            uses.remove(driver);
+            mainWindows.remove(driver);
+        }
+        quit(driver);
+    }
+
+    private static boolean isAlive(WebDriver driver) {
+        try {
+            // fails if the browser has crashed or the hub has timed out
+            driver.getWindowHandles();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static boolean reset(WebDriver driver, String mainWindow) {
+        try {
+            Set<String> windows = driver.getWindowHandles();
+            if (mainWindow == null || !windows.contains(mainWindow)) {
+                // the test closed the window the session was created with
+                return false;
+            }
+            for (String window : windows) {
+                if (!window.equals(mainWindow)) {
+                    driver.switchTo().window(window).close();
+                }
+            }
+            driver.switchTo().window(mainWindow);
+            String url = driver.getCurrentUrl();
+            if (url != null && url.startsWith("http")
+                    && !Boolean.TRUE.equals(((JavascriptExecutor) driver)
+                            .executeAsyncScript(RESET_SCRIPT))) {
+                return false;
+            }
+            driver.manage().deleteAllCookies();
+            driver.get("about:blank");
+            return true;
+        } catch (RuntimeException e) {
+            getLogger().log(Level.FINE, "Cannot reset the session", e);
+            return false;
+        }
+    }
+
+    private static void quit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            getLogger().log(Level.FINE, "Cannot quit the session", e);
+        }
+    }
+}
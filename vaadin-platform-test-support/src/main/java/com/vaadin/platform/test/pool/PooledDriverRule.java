@@ -0,0 +1,110 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.pool;
+
+import java.util.concurrent.Callable;
+
+import org.junit.runner.Description;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+
+import com.vaadin.testbench.HasDriver;
+import com.vaadin.testbench.ScreenshotOnFailureRule;
+
+/**
+ * Takes a screenshot when a test fails, like {@link ScreenshotOnFailureRule},
+ * then gives the session of the test back to the {@link DriverPool} instead of
+ * quitting it.
+ * <p>
+ * Replaces the screenshot rule of the test, so that the session is only
+ * released after the screenshot, and creates the driver of the test in its
+ * {@code @Before} method:
+ *
+ * <pre>
+ * public MyTest() {
+ *     screenshotOnFailure = driverRule = new PooledDriverRule(this);
+ * }
+ *
+ * &#64;Before
+ * &#64;Override
+ * public void setup() throws Exception {
+ *     setDriver(driverRule.acquire(getDesiredCapabilities(), () -&gt; {
+ *         super.setup();
+ *         return getDriver();
+ *     }));
+ * }
+ * </pre>
+ *
+ * Tests annotated with {@link FreshBrowser}, or all the tests when the pool is
+ * disabled, get a new session quit at the end of the test.
+ */
+public class PooledDriverRule extends ScreenshotOnFailureRule {
+
+    private final HasDriver test;
+    private boolean pooled;
+
+    /**
+     * Creates the rule of a test.
+     *
+     * @param test
+     *            the test, giving its driver
+     */
+    public PooledDriverRule(HasDriver test) {
+        super(test, false);
+        this.test = test;
+    }
+
+    @Override
+    protected void starting(Description description) {
+        super.starting(description);
+        Class<?> testClass = description.getTestClass();
+        pooled = DriverPool.isEnabled()
+                && description.getAnnotation(FreshBrowser.class) == null
+                && (testClass == null
+                        || !testClass.isAnnotationPresent(FreshBrowser.class));
+    }
+
+    /**
+     * Gets the session of the running test, from the pool if the test uses it.
+     *
+     * @param capabilities
+     *            the capabilities of the session
+     * @param factory
+     *            creates a new session
+     * @return the session
+     * @throws Exception
+     *             if the factory fails
+     */
+    public WebDriver acquire(Capabilities capabilities,
+            Callable<WebDriver> factory) throws Exception {
+        return pooled ? DriverPool.getDefault().acquire(capabilities, factory)
+                : factory.call();
+    }
+
+    @Override
+    protected void finished(Description description) {
+        super.finished(description);
+        WebDriver driver = test.getDriver();
+        if (driver == null) {
+            return;
+        }
+        if (pooled) {
+            DriverPool.getDefault().release(driver);
+        } else {
+            driver.quit();
+        }
+    }
+}
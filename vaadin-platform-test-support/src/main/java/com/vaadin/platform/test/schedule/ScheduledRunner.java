@@ -0,0 +1,114 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.schedule;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+
+import com.vaadin.testbench.parallel.ParallelRunner;
+
+/**
+ * Runs the tests of a {@code ParallelTest} class given to one shard by a
+ * {@link TestSchedule}, the longest first, and records how long each one
+ * takes.
+ * <p>
+ * Each test method is run once per browser, and each of these runs is
+ * scheduled on its own.
+ */
+public class ScheduledRunner extends ParallelRunner {
+
+    private final TestDurations durations;
+    private TestSchedule schedule;
+    private int shard;
+
+    /**
+     * Creates a runner for the class, running all its tests until a schedule
+     * is set.
+     *
+     * @param klass
+     *            the test class
+     * @param durations
+     *            where to record the durations
+     * @throws InitializationError
+     *             if the test class is malformed
+     */
+    public ScheduledRunner(Class<?> klass, TestDurations durations)
+            throws InitializationError {
+        super(klass);
+        this.durations = durations;
+    }
+
+    /**
+     * Gets the keys of all the tests of the class, one for each method and
+     * browser.
+     *
+     * @return the test keys
+     */
+    public List<String> getTestKeys() {
+        return computeTestMethods().stream().map(this::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Only runs the tests of the given shard. Must be called before the
+     * runner is described or run.
+     *
+     * @param schedule
+     *            the schedule of the run
+     * @param shard
+     *            the shard index, from 0
+     */
+    public void setSchedule(TestSchedule schedule, int shard) {
+        this.schedule = schedule;
+        this.shard = shard;
+    }
+
+    @Override
+    protected List<FrameworkMethod> getChildren() {
+        List<FrameworkMethod> methods = super.getChildren();
+        if (schedule == null) {
+            return methods;
+        }
+        return methods.stream()
+                .filter(method -> schedule.isInShard(getKey(method), shard))
+                .sorted(Comparator.comparingLong(
+                        (FrameworkMethod method) -> schedule
+                                .getEstimate(getKey(method)))
+                        .reversed())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected void runChild(FrameworkMethod method, RunNotifier notifier) {
+        long start = System.nanoTime();
+        super.runChild(method, notifier);
+        if (!isIgnored(method)) {
+            durations.record(getKey(method), TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private String getKey(FrameworkMethod method) {
+        // the name includes the browser the method is run in
+        return getTestClass().getName() + "#" + method.getName();
+    }
+}
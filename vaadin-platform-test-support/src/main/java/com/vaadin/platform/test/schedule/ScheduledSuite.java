@@ -0,0 +1,280 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.schedule;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+
+import com.vaadin.testbench.parallel.ParallelTest;
+
+/**
+ * Runs one shard of all the integration tests of a module, as scheduled by
+ * {@link TestSchedule} from the durations of the previous runs, so that the
+ * run takes about the total time of the tests divided by the number of
+ * shards, instead of the time of the slowest class.
+ * <p>
+ * The build runs the integration tests in as many forks as there are shards,
+ * given with the {@value #SHARDS_PROPERTY} system property, and tells each
+ * fork its number, from 1, with the {@value #FORK_PROPERTY} system property:
+ *
+ * <pre>
+ * &lt;forkCount&gt;4&lt;/forkCount&gt;
+ * &lt;systemPropertyVariables&gt;
+ *     &lt;vaadin.test.shards&gt;4&lt;/vaadin.test.shards&gt;
+ *     &lt;vaadin.test.fork&gt;${surefire.forkNumber}&lt;/vaadin.test.fork&gt;
+ * &lt;/systemPropertyVariables&gt;
+ * </pre>
+ *
+ * The forks run the entry classes, the nested classes run with this runner,
+ * in the order the build gives them out, which does not have to be one per
+ * fork. Each entry class claims the shard of its fork number, or the first
+ * shard no other one has claimed, and runs nothing when all the shards are
+ * claimed, so there must be at least as many entry classes as shards.
+ * <p>
+ * The tests are the classes named {@code *IT} in the class folder of the
+ * entry classes, except the classes and packages listed in the
+ * {@value #EXCLUDES_PROPERTY} system property, separated by commas. The tests of {@link ParallelTest} classes are scheduled one
+ * by one when their class is split, the other classes are scheduled as a
+ * whole.
+ *
+ * <pre>
+ * public class ScheduledShardsIT {
+ *     &#64;RunWith(ScheduledSuite.class)
+ *     public static class Fork1 {
+ *     }
+ *
+ *     &#64;RunWith(ScheduledSuite.class)
+ *     public static class Fork2 {
+ *     }
+ * }
+ * </pre>
+ */
+public class ScheduledSuite extends ParentRunner<Runner> {
+
+    /**
+     * The system property giving the number of shards of the run.
+     */
+    public static final String SHARDS_PROPERTY = "vaadin.test.shards";
+    /**
+     * The system property giving the number of the fork, from 1.
+     */
+    public static final String FORK_PROPERTY = "vaadin.test.fork";
+    /**
+     * The system property listing the classes and packages not to run.
+     */
+    public static final String EXCLUDES_PROPERTY = "vaadin.test.excludes";
+
+    private final List<Runner> runners;
+
+    private static class TimedRunner extends Runner {
+        private final Runner runner;
+        private final String key;
+        private final TestDurations durations;
+
+        TimedRunner(Runner runner, String key, TestDurations durations) {
+            this.runner = runner;
+            this.key = key;
+            this.durations = durations;
+        }
+
+        @Override
+        public Description getDescription() {
+            return runner.getDescription();
+        }
+
+        @Override
+        public void run(RunNotifier notifier) {
+            long start = System.nanoTime();
+            runner.run(notifier);
+            durations.record(key, TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Creates the runner of an entry class.
+     *
+     * @param klass
+     *            the entry class
+     * @param builder
+     *            builds the runners of the classes scheduled as a whole
+     * @throws InitializationError
+     *             if the number of shards is not valid or a test class is
+     *             malformed
+     */
+    public ScheduledSuite(Class<?> klass, RunnerBuilder builder)
+            throws InitializationError {
+        super(klass);
+        int shardCount = Integer.getInteger(SHARDS_PROPERTY, 1);
+        if (shardCount <= 0) {
+            throw new InitializationError(
+                    SHARDS_PROPERTY + " must be a positive number");
+        }
+        TestDurations durations = TestDurations.getDefault();
+
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        Map<String, Runner> classRunners = new LinkedHashMap<>();
+        for (Class<?> testClass : findTestClasses(klass)) {
+            String name = testClass.getName();
+            if (ParallelTest.class.isAssignableFrom(testClass)) {
+                ScheduledRunner runner = new ScheduledRunner(testClass,
+                        durations);
+                tests.put(name, runner.getTestKeys());
+                classRunners.put(name, runner);
+            } else {
+                tests.put(name, List.of(name));
+                classRunners.put(name, builder.safeRunnerForClass(testClass));
+            }
+        }
+        TestSchedule schedule = TestSchedule.forRun(durations, tests,
+                shardCount);
+        int shard = TestSchedule.claimShard(durations,
+                Integer.getInteger(FORK_PROPERTY, 1) - 1);
+        Logger logger = Logger.getLogger(ScheduledSuite.class.getName());
+        if (shard < 0) {
+            runners = List.of();
+            logger.info(() -> klass.getSimpleName()
+                    + " runs nothing, all the shards are claimed");
+            return;
+        }
+
+        Map<Runner, Long> loads = new LinkedHashMap<>();
+        classRunners.forEach((name, runner) -> {
+            List<String> inShard = tests.get(name).stream()
+                    .filter(test -> schedule.isInShard(test, shard))
+                    .collect(Collectors.toList());
+            if (inShard.isEmpty()) {
+                return;
+            }
+            if (runner instanceof ScheduledRunner) {
+                ((ScheduledRunner) runner).setSchedule(schedule, shard);
+            } else {
+                runner = new TimedRunner(runner, name, durations);
+            }
+            loads.put(runner, inShard.stream()
+                    .mapToLong(schedule::getEstimate).sum());
+        });
+        // the longest classes first, like their tests
+        runners = loads.keySet().stream()
+                .sorted(Comparator.comparingLong(loads::get).reversed())
+                .collect(Collectors.toList());
+
+        logger.info(String.format(
+                "Shard %d of %d runs %d classes, estimated %d s"
+                        + " (total %d s, %d s per shard)",
+                shard + 1, shardCount, runners.size(),
+                schedule.getLoad(shard) / 1000, schedule.getTotal() / 1000,
+                schedule.getTotal() / shardCount / 1000));
+    }
+
+    @Override
+    protected List<Runner> getChildren() {
+        return runners;
+    }
+
+    @Override
+    protected Description describeChild(Runner child) {
+        return child.getDescription();
+    }
+
+    @Override
+    protected void runChild(Runner child, RunNotifier notifier) {
+        child.run(notifier);
+    }
+
+    private static List<Class<?>> findTestClasses(Class<?> shardClass)
+            throws InitializationError {
+        Path root;
+        try {
+            root = Paths.get(shardClass.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new InitializationError(e);
+        }
+        List<String> names;
+        try (Stream<Path> files = Files.walk(root)) {
+            names = files.map(root::relativize).map(Path::toString)
+                    .filter(path -> path.endsWith("IT.class")
+                            && !path.contains("$"))
+                    .map(path -> path
+                            .substring(0, path.length() - ".class".length())
+                            .replace(root.getFileSystem().getSeparator(), "."))
+                    .sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new InitializationError(e);
+        }
+        List<Class<?>> classes = new ArrayList<>();
+        for (String name : names) {
+            Class<?> testClass;
+            try {
+                testClass = Class.forName(name, false,
+                        shardClass.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new InitializationError(e);
+            }
+            if (!Modifier.isAbstract(testClass.getModifiers())
+                    && !isShardHolder(testClass) && !isExcluded(name)) {
+                classes.add(testClass);
+            }
+        }
+        return classes;
+    }
+
+    private static boolean isExcluded(String className) {
+        for (String excluded : System.getProperty(EXCLUDES_PROPERTY, "")
+                .split(",")) {
+            excluded = excluded.trim();
+            if (!excluded.isEmpty() && (className.equals(excluded)
+                    || className.startsWith(excluded + "."))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isShardHolder(Class<?> testClass) {
+        return isEntry(testClass) || Arrays
+                .stream(testClass.getDeclaredClasses())
+                .anyMatch(ScheduledSuite::isEntry);
+    }
+
+    private static boolean isEntry(Class<?> testClass) {
+        RunWith runWith = testClass.getAnnotation(RunWith.class);
+        return runWith != null && runWith.value() == ScheduledSuite.class;
+    }
+}
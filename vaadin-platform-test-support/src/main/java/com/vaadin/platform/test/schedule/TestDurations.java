@@ -0,0 +1,178 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.schedule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * The durations of the tests measured in the previous runs, kept in a local
+ * properties file shared by all the forks of the run.
+ * <p>
+ * The file is given with the {@value #FILE_PROPERTY} system property, by
+ * default {@value #DEFAULT_FILE} in the working directory, which is the
+ * module folder for Maven. The keys are the class name followed by
+ * {@code #} and the test name, or only the class name for tests that are
+ * scheduled as a whole, and the values are the last duration in
+ * milliseconds.
+ */
+public class TestDurations {
+
+    /**
+     * The system property giving the durations file.
+     */
+    public static final String FILE_PROPERTY = "vaadin.test.durations";
+    /**
+     * The durations file used when {@value #FILE_PROPERTY} is not set.
+     */
+    public static final String DEFAULT_FILE = "test-durations.properties";
+
+    // the file lock is held by the JVM, threads are excluded here
+    private static final Object LOCK = new Object();
+
+    private final Path file;
+
+    /**
+     * Creates durations kept in the given file.
+     *
+     * @param file
+     *            the properties file, created when the first duration is
+     *            recorded
+     */
+    public TestDurations(Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * Gets the durations file given by the system property.
+     *
+     * @return the durations
+     */
+    public static TestDurations getDefault() {
+        return new TestDurations(
+                Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads all the recorded durations.
+     *
+     * @return the durations in milliseconds by test key
+     */
+    public Map<String, Long> read() {
+        return locked(() -> toDurations(load(file)));
+    }
+
+    /**
+     * Records the duration of a test, replacing the previous one.
+     *
+     * @param key
+     *            the test key
+     * @param millis
+     *            the duration in milliseconds
+     */
+    public void record(String key, long millis) {
+        locked(() -> {
+            Properties properties = load(file);
+            properties.setProperty(key, String.valueOf(millis));
+            store(properties, file);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the action while holding the lock of the file, excluding the other
+     * forks and threads.
+     *
+     * @param action
+     *            the action to run
+     * @param <T>
+     *            the result type
+     * @return the result of the action
+     */
+    // the lock is only held while the action runs, never referenced
+    @SuppressWarnings("try")
+    <T> T locked(Supplier<T> action) {
+        synchronized (LOCK) {
+            Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                try (FileChannel channel = FileChannel.open(lockFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock lock = channel.lock()) {
+                    return action.get();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(
+                        "Cannot lock " + lockFile, e);
+            }
+        }
+    }
+
+    static Properties load(Path file) {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + file, e);
+            }
+        }
+        return properties;
+    }
+
+    static void store(Properties properties, Path file) {
+        // written aside and moved, so that a killed fork leaves no half file
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+    }
+
+    static Map<String, Long> toDurations(Properties properties) {
+        Map<String, Long> durations = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                durations.put(key,
+                        Long.parseLong(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // edited by hand, the test is measured again
+            }
+        }
+        return durations;
+    }
+}
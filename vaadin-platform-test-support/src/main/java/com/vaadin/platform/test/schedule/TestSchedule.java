@@ -0,0 +1,318 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.schedule;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns the tests of a run to shards, so that each shard takes about the
+ * same time according to the durations of the previous runs.
+ * <p>
+ * The classes are kept whole, so that their set up is done once, unless a
+ * class takes longer than a shard should: the total of all the tests divided
+ * by the number of shards. Such a class is split, and its tests are
+ * scheduled one by one. The classes and the split tests are then given to the
+ * shards longest first, each one to the shard with the least work so far.
+ * Tests never measured are estimated with the mean of the measured ones.
+ * <p>
+ * Every fork of a run must use the same schedule, so the first fork computes
+ * it and writes it next to the durations file, and the other forks read it.
+ * The shards the forks claim are kept in the same file.
+ */
+public class TestSchedule {
+
+    /**
+     * The system property identifying the run, by default the Maven or Gradle
+     * process that started the forks.
+     */
+    public static final String RUN_ID_PROPERTY = "vaadin.test.runId";
+
+    static final long DEFAULT_ESTIMATE = 10_000;
+
+    private static final String RUN_ID_KEY = "(runId)";
+    private static final String SHARDS_KEY = "(shards)";
+    private static final String CLAIMED_KEY = "(claimed)";
+
+    private final int shardCount;
+    private final Map<String, Integer> shards;
+    private final Map<String, Long> estimates;
+
+    private static class Unit {
+        private final String key;
+        private final List<String> tests;
+        private final long estimate;
+
+        Unit(String key, List<String> tests, long estimate) {
+            this.key = key;
+            this.tests = tests;
+            this.estimate = estimate;
+        }
+    }
+
+    private TestSchedule(int shardCount, Map<String, Integer> shards,
+            Map<String, Long> estimates) {
+        this.shardCount = shardCount;
+        this.shards = shards;
+        this.estimates = estimates;
+    }
+
+    /**
+     * Computes the schedule of the given tests.
+     *
+     * @param testsByClass
+     *            the test keys of each class; a class scheduled as a whole
+     *            only has its own name as key
+     * @param durations
+     *            the durations of the previous runs, in milliseconds
+     * @param shardCount
+     *            the number of shards
+     * @return the schedule
+     */
+    public static TestSchedule plan(Map<String, List<String>> testsByClass,
+            Map<String, Long> durations, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of shards must be positive");
+        }
+        long mean = Math.round(durations.values().stream()
+                .mapToLong(Long::longValue).average()
+                .orElse(DEFAULT_ESTIMATE));
+        Map<String, Long> estimates = new HashMap<>();
+        testsByClass.values().forEach(tests -> tests.forEach(test -> estimates
+                .put(test, Math.max(1, durations.getOrDefault(test, mean)))));
+
+        long total = estimates.values().stream().mapToLong(Long::longValue)
+                .sum();
+        long bound = total / shardCount;
+        List<Unit> units = new ArrayList<>();
+        testsByClass.forEach((className, tests) -> {
+            long classEstimate = tests.stream().mapToLong(estimates::get)
+                    .sum();
+            if (classEstimate > bound && tests.size() > 1) {
+                tests.forEach(test -> units.add(
+                        new Unit(test, List.of(test), estimates.get(test))));
+            } else {
+                units.add(new Unit(className, tests, classEstimate));
+            }
+        });
+        // the same order in every fork, whatever the order of the classes
+        units.sort(Comparator.comparingLong((Unit unit) -> unit.estimate)
+                .reversed().thenComparing(unit -> unit.key));
+
+        long[] loads = new long[shardCount];
+        Map<String, Integer> shards = new HashMap<>();
+        for (Unit unit : units) {
+            int shard = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[shard]) {
+                    shard = i;
+                }
+            }
+            loads[shard] += unit.estimate;
+            for (String test : unit.tests) {
+                shards.put(test, shard);
+            }
+        }
+        return new TestSchedule(shardCount, shards, estimates);
+    }
+
+    /**
+     * Gets the schedule of the current run, computing it from the durations
+     * of the previous runs if no other fork of the run has done it yet.
+     *
+     * @param durations
+     *            the durations of the previous runs
+     * @param testsByClass
+     *            the test keys of each class, see
+     *            {@link #plan(Map, Map, int)}
+     * @param shardCount
+     *            the number of shards
+     * @return the schedule
+     */
+    public static TestSchedule forRun(TestDurations durations,
+            Map<String, List<String>> testsByClass, int shardCount) {
+        Path file = getScheduleFile(durations);
+        String runId = getRunId();
+        return durations.locked(() -> {
+            Properties saved = TestDurations.load(file);
+            if (runId.equals(saved.getProperty(RUN_ID_KEY)) && String
+                    .valueOf(shardCount)
+                    .equals(saved.getProperty(SHARDS_KEY))) {
+                return read(saved, shardCount);
+            }
+            TestSchedule schedule = plan(testsByClass,
+                    TestDurations.toDurations(
+                            TestDurations.load(durations.getFile())),
+                    shardCount);
+            Properties properties = schedule.toProperties();
+            properties.setProperty(RUN_ID_KEY, runId);
+            TestDurations.store(properties, file);
+            return schedule;
+        });
+    }
+
+    /**
+     * Claims a shard of the current run, so that each shard is run once
+     * whichever fork asks for which. The preferred shard is claimed if no
+     * other fork has claimed it, otherwise the first unclaimed one.
+     * {@link #forRun(TestDurations, Map, int)} must have been called first.
+     *
+     * @param durations
+     *            the durations the schedule was computed from
+     * @param preferred
+     *            the shard to claim if it is free, from 0
+     * @return the claimed shard, or -1 if all the shards are claimed
+     */
+    public static int claimShard(TestDurations durations, int preferred) {
+        Path file = getScheduleFile(durations);
+        String runId = getRunId();
+        return durations.locked(() -> {
+            Properties saved = TestDurations.load(file);
+            if (!runId.equals(saved.getProperty(RUN_ID_KEY))) {
+                throw new IllegalStateException(
+                        "No schedule for the current run in " + file);
+            }
+            int shardCount = Integer.parseInt(saved.getProperty(SHARDS_KEY));
+            Set<Integer> claimed = new TreeSet<>();
+            for (String shard : saved.getProperty(CLAIMED_KEY, "")
+                    .split(",")) {
+                if (!shard.isEmpty()) {
+                    claimed.add(Integer.parseInt(shard));
+                }
+            }
+            int shard = preferred;
+            if (shard < 0 || shard >= shardCount || claimed.contains(shard)) {
+                shard = 0;
+                while (shard < shardCount && claimed.contains(shard)) {
+                    shard++;
+                }
+                if (shard == shardCount) {
+                    return -1;
+                }
+            }
+            claimed.add(shard);
+            saved.setProperty(CLAIMED_KEY, claimed.stream()
+                    .map(String::valueOf).collect(Collectors.joining(",")));
+            TestDurations.store(saved, file);
+            return shard;
+        });
+    }
+
+    /**
+     * Checks whether the test is run by the given shard. Tests the schedule
+     * does not know, like ones added after it was computed, are given to a
+     * shard by their key.
+     *
+     * @param test
+     *            the test key
+     * @param shard
+     *            the shard index, from 0
+     * @return {@code true} if the shard runs the test
+     */
+    public boolean isInShard(String test, int shard) {
+        Integer assigned = shards.get(test);
+        if (assigned == null) {
+            assigned = Math.floorMod(test.hashCode(), shardCount);
+        }
+        return assigned == shard;
+    }
+
+    /**
+     * Gets the estimated duration of the test.
+     *
+     * @param test
+     *            the test key
+     * @return the estimate in milliseconds, 0 for unknown tests
+     */
+    public long getEstimate(String test) {
+        return estimates.getOrDefault(test, 0L);
+    }
+
+    /**
+     * Gets the estimated duration of all the tests of a shard.
+     *
+     * @param shard
+     *            the shard index, from 0
+     * @return the estimate in milliseconds
+     */
+    public long getLoad(int shard) {
+        return shards.entrySet().stream()
+                .filter(entry -> entry.getValue() == shard)
+                .mapToLong(entry -> estimates.get(entry.getKey())).sum();
+    }
+
+    /**
+     * Gets the estimated duration of all the tests.
+     *
+     * @return the estimate in milliseconds
+     */
+    public long getTotal() {
+        return estimates.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    private Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(SHARDS_KEY, String.valueOf(shardCount));
+        shards.forEach((test, shard) -> properties.setProperty(test,
+                shard + "," + estimates.get(test)));
+        return properties;
+    }
+
+    private static TestSchedule read(Properties properties, int shardCount) {
+        Map<String, Integer> shards = new HashMap<>();
+        Map<String, Long> estimates = new HashMap<>();
+        for (String test : properties.stringPropertyNames()) {
+            if (test.equals(RUN_ID_KEY) || test.equals(SHARDS_KEY)
+                    || test.equals(CLAIMED_KEY)) {
+                continue;
+            }
+            String[] value = properties.getProperty(test).split(",");
+            shards.put(test, Integer.parseInt(value[0]));
+            estimates.put(test, Long.parseLong(value[1]));
+        }
+        return new TestSchedule(shardCount, shards, estimates);
+    }
+
+    private static Path getScheduleFile(TestDurations durations) {
+        return durations.getFile().resolveSibling(
+                durations.getFile().getFileName() + ".schedule");
+    }
+
+    private static String getRunId() {
+        String runId = System.getProperty(RUN_ID_PROPERTY);
+        if (runId != null && !runId.isEmpty()) {
+            return runId;
+        }
+        // the forks of a run are started by the same build process
+        ProcessHandle process = ProcessHandle.current().parent()
+                .orElse(ProcessHandle.current());
+        return process.pid() + "@" + process.info().startInstant()
+                .map(Object::toString).orElse("");
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.uidl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.flow.internal.nodefeature.ElementAttributeMap;
+import com.vaadin.flow.internal.nodefeature.ElementPropertyMap;
+import com.vaadin.flow.internal.nodefeature.NodeFeatureRegistry;
+import com.vaadin.flow.shared.ApplicationConstants;
+import com.vaadin.flow.shared.JsonConstants;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * A browserless client for one UI, speaking the same UIDL protocol as the
+ * Flow client engine: it bootstraps the UI, keeps the sync ids and the CSRF
+ * token, and sends RPC invocations to the nodes of the server side state
+ * tree.
+ * <p>
+ * Only the attributes and the properties of every node are tracked from the
+ * server changes, which is enough to find the elements to interact with and
+ * to read what the server reports in them.
+ */
+public class UidlSession {
+
+    private static final String UIDL_PREFIX = "for(;;);";
+    private static final int ELEMENT_ATTRIBUTES = NodeFeatureRegistry
+            .getId(ElementAttributeMap.class);
+    private static final int ELEMENT_PROPERTIES = NodeFeatureRegistry
+            .getId(ElementPropertyMap.class);
+    private static final int UI_NODE = 1;
+
+    private final HttpClient client;
+    private final String url;
+    private final Map<Integer, Map<String, String>> attributes =
+            new HashMap<>();
+    private final Map<Integer, Map<String, JsonValue>> properties =
+            new HashMap<>();
+
+    private String cookie;
+    private int uiId;
+    private String csrfToken;
+    private int syncId;
+    private int clientId;
+    private int lastResponseLength;
+
+    /**
+     * Creates a session for the application deployed at the given URL.
+     *
+     * @param client
+     *            the HTTP client, can be shared between sessions since
+     *            cookies are handled by each session
+     * @param url
+     *            the URL of the servlet, e.g.
+     *            {@code http://localhost:8080/prod-mode/}
+     */
+    public UidlSession(HttpClient client, String url) {
+        this.client = client;
+        this.url = url;
+    }
+
+    /**
+     * Creates the UI in the server and navigates to the root route, as the
+     * browser does when the page is loaded.
+     *
+     * @return the UIDL response rendering the view
+     * @throws IOException
+     *             if the server responds with an error
+     */
+    public JsonObject open() throws IOException, InterruptedException {
+        return open("");
+    }
+
+    /**
+     * Creates the UI in the server and navigates to the given location, as
+     * the browser does when the page is loaded.
+     *
+     * @param location
+     *            the route path relative to the servlet, with an optional
+     *            query string, e.g. {@code grid-stress?rows=100000}
+     * @return the UIDL response rendering the view
+     * @throws IOException
+     *             if the server responds with an error
+     */
+    public JsonObject open(String location)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest
+                .newBuilder(URI.create(url + "?"
+                        + ApplicationConstants.REQUEST_TYPE_PARAMETER + "="
+                        + ApplicationConstants.REQUEST_TYPE_INIT + "&"
+                        + ApplicationConstants.REQUEST_LOCATION_PARAMETER
+                        + "="
+                        + URLEncoder.encode(location, StandardCharsets.UTF_8)))
+                .GET().build();
+        HttpResponse<String> response = client.send(request,
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        check(response);
+        cookie = response.headers().firstValue("Set-Cookie")
+                .map(value -> value.split(";", 2)[0]).orElse(null);
+
+        JsonObject appConfig = Json.parse(response.body())
+                .getObject("appConfig");
+        uiId = (int) appConfig.getNumber(ApplicationConstants.UI_ID_PARAMETER);
+        JsonObject uidl = appConfig.getObject("uidl");
+        csrfToken = uidl.getString(ApplicationConstants.UIDL_SECURITY_TOKEN_ID);
+        handle(uidl);
+
+        String container = "flow-container-root-" + uiId;
+        return send(callServer(UI_NODE, "connectClient",
+                Json.create(container), Json.create("ROOT-" + uiId),
+                Json.create(location), Json.create(""), Json.createNull()));
+    }
+
+    /**
+     * Gets the node of the element with the given {@code id} attribute.
+     *
+     * @param id
+     *            the id of the element
+     * @return the node id
+     * @throws IllegalStateException
+     *             if there is no element with that id
+     */
+    public int findNode(String id) {
+        return attributes.entrySet().stream()
+                .filter(entry -> id.equals(entry.getValue().get("id")))
+                .map(Map.Entry::getKey).findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "No element with id '" + id + "' in the UI"));
+    }
+
+    /**
+     * Gets the last value of an element attribute sent by the server.
+     *
+     * @param node
+     *            the id of the node
+     * @param attribute
+     *            the attribute name
+     * @return the value, or {@code null} if the server has not sent it
+     */
+    public String getAttribute(int node, String attribute) {
+        return attributes.getOrDefault(node, Map.of()).get(attribute);
+    }
+
+    /**
+     * Gets the last value of an element property sent by the server.
+     *
+     * @param node
+     *            the id of the node
+     * @param property
+     *            the property name
+     * @return the value, or {@code null} if the server has not sent it
+     */
+    public JsonValue getProperty(int node, String property) {
+        return properties.getOrDefault(node, Map.of()).get(property);
+    }
+
+    /**
+     * Gets the size of the body of the last UIDL response, as sent over the
+     * wire without compression.
+     *
+     * @return the size in bytes
+     */
+    public int getLastResponseLength() {
+        return lastResponseLength;
+    }
+
+    /**
+     * Creates a DOM event invocation.
+     *
+     * @param node
+     *            the id of the target node
+     * @param event
+     *            the name of the event, e.g. {@code click}
+     * @return the invocation to send
+     */
+    public static JsonObject event(int node, String event) {
+        JsonObject invocation = invocation(JsonConstants.RPC_TYPE_EVENT, node);
+        invocation.put(JsonConstants.RPC_EVENT_TYPE, event);
+        invocation.put(JsonConstants.RPC_EVENT_DATA, Json.createObject());
+        return invocation;
+    }
+
+    /**
+     * Creates an invocation synchronizing an element property, as done when
+     * the user changes the value of a field.
+     *
+     * @param node
+     *            the id of the target node
+     * @param property
+     *            the property name
+     * @param value
+     *            the new value
+     * @return the invocation to send
+     */
+    public static JsonObject sync(int node, String property, JsonValue value) {
+        JsonObject invocation = invocation(JsonConstants.RPC_TYPE_MAP_SYNC,
+                node);
+        invocation.put(JsonConstants.RPC_FEATURE, ELEMENT_PROPERTIES);
+        invocation.put(JsonConstants.RPC_PROPERTY, property);
+        invocation.put(JsonConstants.RPC_PROPERTY_VALUE, value);
+        return invocation;
+    }
+
+    /**
+     * Creates an invocation of a {@code @ClientCallable} method.
+     *
+     * @param node
+     *            the id of the target node
+     * @param method
+     *            the method name
+     * @param args
+     *            the method arguments
+     * @return the invocation to send
+     */
+    public static JsonObject callServer(int node, String method,
+            JsonValue... args) {
+        JsonObject invocation = invocation(
+                JsonConstants.RPC_PUBLISHED_SERVER_EVENT_HANDLER, node);
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_METHOD_NAME, method);
+        JsonArray array = Json.createArray();
+        for (JsonValue arg : args) {
+            array.set(array.length(), arg);
+        }
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_ARGS, array);
+        return invocation;
+    }
+
+    /**
+     * Sends the given invocations in one UIDL request and applies the
+     * response.
+     *
+     * @param invocations
+     *            the RPC invocations
+     * @return the UIDL response
+     * @throws IOException
+     *             if the server responds with an error
+     */
+    public JsonObject send(JsonObject... invocations)
+            throws IOException, InterruptedException {
+        JsonArray rpc = Json.createArray();
+        for (JsonObject invocation : invocations) {
+            rpc.set(rpc.length(), invocation);
+        }
+        JsonObject payload = Json.createObject();
+        payload.put(ApplicationConstants.CSRF_TOKEN, csrfToken);
+        payload.put(ApplicationConstants.RPC_INVOCATIONS, rpc);
+        payload.put(ApplicationConstants.SERVER_SYNC_ID, syncId);
+        payload.put(ApplicationConstants.CLIENT_TO_SERVER_ID, clientId++);
+
+        HttpRequest.Builder request = HttpRequest
+                .newBuilder(URI.create(url + "?"
+                        + ApplicationConstants.REQUEST_TYPE_PARAMETER + "="
+                        + ApplicationConstants.REQUEST_TYPE_UIDL + "&"
+                        + ApplicationConstants.UI_ID_PARAMETER + "=" + uiId))
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toJson(),
+                        StandardCharsets.UTF_8));
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        HttpResponse<String> response = client.send(request.build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        check(response);
+
+        String body = response.body();
+        lastResponseLength = body.getBytes(StandardCharsets.UTF_8).length;
+        if (!body.startsWith(UIDL_PREFIX)) {
+            throw new IOException("Unexpected UIDL response: " + body);
+        }
+        body = body.substring(UIDL_PREFIX.length());
+        JsonObject uidl = ((JsonArray) Json.instance().parse(body))
+                .getObject(0);
+        if (uidl.hasKey("meta")) {
+            JsonObject meta = uidl.getObject("meta");
+            if (meta.hasKey("appError")
+                    || meta.hasKey(JsonConstants.META_SESSION_EXPIRED)) {
+                throw new IOException("Server reported an error: " + body);
+            }
+        }
+        handle(uidl);
+        return uidl;
+    }
+
+    private void handle(JsonObject uidl) {
+        if (uidl.hasKey(ApplicationConstants.SERVER_SYNC_ID)) {
+            syncId = (int) uidl.getNumber(ApplicationConstants.SERVER_SYNC_ID);
+        }
+        if (uidl.hasKey(ApplicationConstants.CLIENT_TO_SERVER_ID)) {
+            clientId = (int) uidl
+                    .getNumber(ApplicationConstants.CLIENT_TO_SERVER_ID);
+        }
+        if (!uidl.hasKey("changes")) {
+            return;
+        }
+        JsonArray changes = uidl.getArray("changes");
+        for (int i = 0; i < changes.length(); i++) {
+            JsonObject change = changes.getObject(i);
+            int node = (int) change.getNumber(JsonConstants.CHANGE_NODE);
+            String type = change.getString(JsonConstants.CHANGE_TYPE);
+            if (JsonConstants.CHANGE_TYPE_DETACH.equals(type)) {
+                attributes.remove(node);
+                properties.remove(node);
+            } else if (JsonConstants.CHANGE_TYPE_PUT.equals(type)) {
+                int feature = (int) change
+                        .getNumber(JsonConstants.CHANGE_FEATURE);
+                String key = change.getString(JsonConstants.CHANGE_MAP_KEY);
+                if (feature == ELEMENT_ATTRIBUTES
+                        && change.hasKey(JsonConstants.CHANGE_PUT_VALUE)) {
+                    attributes.computeIfAbsent(node, id -> new HashMap<>())
+                            .put(key, attributeValue(change
+                                    .get(JsonConstants.CHANGE_PUT_VALUE)));
+                } else if (feature == ELEMENT_PROPERTIES
+                        && change.hasKey(JsonConstants.CHANGE_PUT_VALUE)) {
+                    properties.computeIfAbsent(node, id -> new HashMap<>())
+                            .put(key, change.get(
+                                    JsonConstants.CHANGE_PUT_VALUE));
+                }
+            }
+        }
+    }
+
+    /**
+     * Uploads a file to an upload component, the same way as the browser
+     * does, and waits for the upload to complete.
+     *
+     * @param node
+     *            the id of the upload component node
+     * @param fileName
+     *            the file name
+     * @param mimeType
+     *            the MIME type of the file
+     * @param content
+     *            the content of the file, read while it is being sent
+     * @param length
+     *            the number of bytes in the content
+     * @throws IOException
+     *             if the server responds with an error
+     */
+    public void upload(int node, String fileName, String mimeType,
+            InputStream content, long length)
+            throws IOException, InterruptedException {
+        String target = getAttribute(node, "target");
+        if (target == null) {
+            throw new IllegalStateException(
+                    "Node " + node + " has no upload target");
+        }
+        String boundary = "UidlSession" + Long.toHexString(System.nanoTime());
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\""
+                + fileName + "\"\r\nContent-Type: " + mimeType + "\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers
+                .fromPublisher(HttpRequest.BodyPublishers.ofInputStream(
+                        () -> new SequenceInputStream(Collections
+                                .enumeration(List.of(
+                                        new ByteArrayInputStream(head),
+                                        content,
+                                        new ByteArrayInputStream(tail))))),
+                        head.length + length + tail.length);
+
+        HttpRequest.Builder request = HttpRequest
+                .newBuilder(URI.create(url).resolve(target))
+                .header("Content-Type",
+                        "multipart/form-data; boundary=" + boundary)
+                .POST(body);
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        check(client.send(request.build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+    }
+
+    private static String attributeValue(JsonValue value) {
+        // resources, like the target of an upload, are sent as an object
+        if (value instanceof JsonObject
+                && ((JsonObject) value).hasKey("uri")) {
+            return ((JsonObject) value).getString("uri");
+        }
+        return value.asString();
+    }
+
+    private static JsonObject invocation(String type, int node) {
+        JsonObject invocation = Json.createObject();
+        invocation.put(JsonConstants.RPC_TYPE, type);
+        invocation.put(JsonConstants.RPC_NODE, node);
+        return invocation;
+    }
+
+    private static void check(HttpResponse<String> response)
+            throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " for "
+                    + response.uri() + ": " + response.body());
+        }
+    }
+}
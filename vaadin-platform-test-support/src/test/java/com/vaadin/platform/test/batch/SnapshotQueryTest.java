@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.vaadin.testbench.TestBenchElement;
+import com.vaadin.testbench.commands.TestBenchCommandExecutor;
+
+public class SnapshotQueryTest {
+
+    private TestBenchCommandExecutor executor;
+    private TestBenchElement first;
+    private TestBenchElement second;
+
+    @Before
+    public void setUp() {
+        executor = Mockito.mock(TestBenchCommandExecutor.class);
+        first = element();
+        second = element();
+    }
+
+    @Test
+    public void fetch_oneScriptForAllElements() {
+        respond(result("Item 0", 10L, 20.5, true, "0"),
+                result("Item 1", 0L, 0L, false, "1"));
+
+        List<ElementSnapshot<TestBenchElement>> snapshots = new SnapshotQuery()
+                .text().size().property("checked", "index")
+                .fetch(List.of(first, second));
+
+        Mockito.verify(executor, Mockito.times(1)).executeScript(
+                ArgumentMatchers.anyString(), ArgumentMatchers.any());
+        assertEquals(2, snapshots.size());
+
+        ElementSnapshot<TestBenchElement> snapshot = snapshots.get(0);
+        assertSame(first, snapshot.getElement());
+        assertEquals("Item 0", snapshot.getText());
+        assertEquals(10, snapshot.getWidth(), 0);
+        assertEquals(20.5, snapshot.getHeight(), 0);
+        assertTrue(snapshot.isRendered());
+        assertTrue(snapshot.getPropertyBoolean("checked"));
+        assertEquals(Integer.valueOf(0), snapshot.getPropertyInteger("index"));
+        assertEquals("0", snapshot.getPropertyString("index"));
+
+        snapshot = snapshots.get(1);
+        assertSame(second, snapshot.getElement());
+        assertFalse(snapshot.isRendered());
+        assertFalse(snapshot.getPropertyBoolean("checked"));
+        assertEquals(1.0, snapshot.getPropertyDouble("index"), 0);
+    }
+
+    @Test
+    public void fetch_missingValues_readAsNull() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("properties", Collections.emptyMap());
+        result.put("attributes", Collections.emptyMap());
+        respond(result);
+
+        ElementSnapshot<TestBenchElement> snapshot = new SnapshotQuery()
+                .property("value").attribute("part")
+                .fetch(List.of(first)).get(0);
+
+        assertNull(snapshot.getPropertyString("value"));
+        assertNull(snapshot.getPropertyInteger("value"));
+        assertNull(snapshot.getAttribute("part"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void propertyNotFetched_throws() {
+        respond(result("Item 0", 1L, 1L, true, "0"));
+        new SnapshotQuery().property("checked").fetch(List.of(first)).get(0)
+                .getPropertyString("value");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sizeNotFetched_throws() {
+        respond(result("Item 0", 1L, 1L, true, "0"));
+        new SnapshotQuery().text().fetch(List.of(first)).get(0).isRendered();
+    }
+
+    @Test
+    public void noElements_noScript() {
+        assertTrue(new SnapshotQuery().text().fetch(List.of()).isEmpty());
+        Mockito.verifyNoInteractions(executor);
+    }
+
+    private TestBenchElement element() {
+        TestBenchElement element = Mockito.mock(TestBenchElement.class);
+        Mockito.when(element.getCommandExecutor()).thenReturn(executor);
+        return element;
+    }
+
+    @SafeVarargs
+    private void respond(Map<String, Object>... results) {
+        Mockito.when(executor.executeScript(ArgumentMatchers.anyString(),
+                ArgumentMatchers.any())).thenReturn(List.of(results));
+    }
+
+    private static Map<String, Object> result(String text, Object width,
+            Object height, boolean checked, String index) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("checked", checked);
+        properties.put("index", Long.valueOf(index));
+        Map<String, Object> result = new HashMap<>();
+        result.put("text", text);
+        result.put("width", width);
+        result.put("height", height);
+        result.put("properties", properties);
+        result.put("attributes", Collections.emptyMap());
+        return result;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.compare;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TileComparatorTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 70;
+
+    private static ForkJoinPool pool;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void sameImage_matches() {
+        TileComparator comparator = new TileComparator(16, 0, pool);
+
+        assertTrue(comparator.matches(pixels(), pixels()));
+        assertTrue(comparator.compare(pixels(), pixels()).isMatch());
+    }
+
+    @Test
+    public void differentPixels_differingTilesInOrder() {
+        Pixels actual = pixels();
+        actual.getRgb()[index(99, 69)] ^= 0xffffff;
+        actual.getRgb()[index(20, 40)] ^= 0x000001;
+        actual.getRgb()[index(0, 0)] ^= 0x010000;
+
+        ComparisonResult result = new TileComparator(16, 0, pool)
+                .compare(actual, pixels());
+
+        assertFalse(result.isMatch());
+        assertEquals(List.of(new Rectangle(0, 0, 16, 16),
+                new Rectangle(16, 32, 16, 16), new Rectangle(96, 64, 4, 6)),
+                result.getDifferingTiles());
+        assertFalse(new TileComparator(16, 0, pool).matches(actual,
+                pixels()));
+    }
+
+    @Test
+    public void differenceWithinTolerance_matches() {
+        Pixels actual = pixels();
+        // 765 of the 16 * 16 * 3 * 255 a tile may differ by at 1%
+        actual.getRgb()[index(5, 5)] ^= 0xffffff;
+
+        assertTrue(new TileComparator(16, 0.01, pool).matches(actual,
+                pixels()));
+        assertFalse(new TileComparator(4, 0.01, pool).matches(actual,
+                pixels()));
+    }
+
+    @Test
+    public void differentSize_doesNotMatch() {
+        ComparisonResult result = new TileComparator(0.01).compare(pixels(),
+                new Pixels(WIDTH, HEIGHT - 1, new int[WIDTH * (HEIGHT - 1)]));
+
+        assertFalse(result.isMatch());
+        assertFalse(result.isSameSize());
+    }
+
+    @Test
+    public void alphaIsIgnored() {
+        Pixels actual = pixels();
+        for (int i = 0; i < actual.getRgb().length; i++) {
+            actual.getRgb()[i] |= 0xff000000;
+        }
+
+        assertTrue(new TileComparator(16, 0, pool).matches(actual, pixels()));
+    }
+
+    @Test
+    public void pixelsOf_imageTypes_sameRgb() {
+        for (int type : new int[] { BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+                BufferedImage.TYPE_USHORT_565_RGB }) {
+            BufferedImage image = new BufferedImage(2, 1, type);
+            image.setRGB(0, 0, 0xff0000);
+            image.setRGB(1, 0, 0x00ff00);
+
+            int[] rgb = Pixels.of(image).getRgb();
+
+            assertArrayEquals("type " + type, new int[] { 0xff0000, 0x00ff00 },
+                    new int[] { rgb[0] & 0xffffff, rgb[1] & 0xffffff });
+        }
+    }
+
+    @Test
+    public void referenceCache_decodesOnceUntilChanged() throws IOException {
+        Path file = write(pixels(), "reference.png");
+        ReferenceImageCache cache = new ReferenceImageCache(1 << 20);
+
+        Pixels reference = cache.get(file);
+        assertSame(reference, cache.get(file));
+        assertTrue(new TileComparator(16, 0, pool).matches(pixels(),
+                reference));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertNotSame(reference, cache.get(file));
+    }
+
+    @Test
+    public void referenceCache_dropsLeastRecentlyUsed() throws IOException {
+        Path first = write(pixels(), "first.png");
+        Path second = write(pixels(), "second.png");
+        // room for one image
+        ReferenceImageCache cache = new ReferenceImageCache(
+                4L * WIDTH * HEIGHT);
+
+        Pixels reference = cache.get(first);
+        cache.get(second);
+
+        assertEquals(4L * WIDTH * HEIGHT, cache.getBytes());
+        assertNotSame(reference, cache.get(first));
+    }
+
+    private Path write(Pixels pixels, String name) throws IOException {
+        BufferedImage image = new BufferedImage(pixels.getWidth(),
+                pixels.getHeight(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, pixels.getWidth(), pixels.getHeight(),
+                pixels.getRgb(), 0, pixels.getWidth());
+        Path file = folder.getRoot().toPath().resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    private static Pixels pixels() {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                rgb[index(x, y)] = (x * 2) << 16 | (y * 3) << 8 | (x + y);
+            }
+        }
+        return new Pixels(WIDTH, HEIGHT, rgb);
+    }
+
+    private static int index(int x, int y) {
+        return y * WIDTH + x;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class DriverPoolTest {
+
+    private DriverPool pool;
+    private MutableCapabilities chrome;
+    private MutableCapabilities firefox;
+
+    @Before
+    public void setUp() {
+        pool = new DriverPool(3);
+        chrome = new MutableCapabilities();
+        chrome.setCapability("browserName", "chrome");
+        firefox = new MutableCapabilities();
+        firefox.setCapability("browserName", "firefox");
+    }
+
+    @Test
+    public void acquire_releasedSessionIsReused() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        assertSame(driver, pool.acquire(chrome, () -> driver));
+        pool.release(driver);
+
+        assertSame(driver, pool.acquire(chrome, () -> driver(null, true)));
+        Mockito.verify(driver, Mockito.never()).quit();
+    }
+
+    @Test
+    public void release_sessionIsReset() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/view", true);
+        pool.acquire(chrome, () -> driver);
+        pool.release(driver);
+
+        Mockito.verify((JavascriptExecutor) driver)
+                .executeAsyncScript(DriverPool.RESET_SCRIPT);
+        Mockito.verify(driver.manage()).deleteAllCookies();
+        Mockito.verify(driver).get("about:blank");
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_openedWindowsAreClosed() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        pool.acquire(chrome, () -> driver);
+        // no order, the popup may come first
+        Mockito.when(driver.getWindowHandles())
+                .thenReturn(new LinkedHashSet<>(List.of("popup", "main")));
+        pool.release(driver);
+
+        Mockito.verify(driver.switchTo()).window("popup");
+        Mockito.verify(driver.switchTo()).window("main");
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_mainWindowClosed_sessionIsQuit() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        pool.acquire(chrome, () -> driver);
+        Mockito.when(driver.getWindowHandles())
+                .thenReturn(new LinkedHashSet<>(List.of("popup")));
+        pool.release(driver);
+
+        Mockito.verify(driver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_resetFails_sessionIsQuit() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", false);
+        pool.acquire(chrome, () -> driver);
+        pool.release(driver);
+
+        Mockito.verify(driver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_notFromPool_sessionIsQuit() {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        pool.release(driver);
+
+        Mockito.verify(driver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_usedTooManyTimes_sessionIsQuit() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        for (int i = 0; i < 3; i++) {
+            assertSame(driver, pool.acquire(chrome, () -> driver));
+            pool.release(driver);
+        }
+
+        Mockito.verify(driver).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void acquire_otherCapabilities_newSession() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        pool.acquire(chrome, () -> driver);
+        pool.release(driver);
+
+        WebDriver other = driver(null, true);
+        assertSame(other, pool.acquire(firefox, () -> other));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void acquire_deadSession_isReplaced() throws Exception {
+        WebDriver driver = driver("http://localhost:8080/", true);
+        pool.acquire(chrome, () -> driver);
+        pool.release(driver);
+        Mockito.when(driver.getWindowHandles())
+                .thenThrow(new WebDriverException("session deleted"));
+
+        WebDriver other = driver(null, true);
+        assertNotSame(driver, pool.acquire(chrome, () -> other));
+        Mockito.verify(driver).quit();
+    }
+
+    @Test
+    public void close_idleSessionsAreQuit() throws Exception {
+        WebDriver first = driver("http://localhost:8080/", true);
+        WebDriver second = driver("http://localhost:8080/", true);
+        pool.acquire(chrome, () -> first);
+        pool.acquire(chrome, () -> second);
+        pool.release(first);
+        pool.release(second);
+
+        pool.close();
+
+        Mockito.verify(first).quit();
+        Mockito.verify(second).quit();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static WebDriver driver(String url, boolean resetSucceeds) {
+        WebDriver driver = Mockito.mock(WebDriver.class,
+                Mockito.withSettings()
+                        .extraInterfaces(JavascriptExecutor.class)
+                        .defaultAnswer(Answers.RETURNS_DEEP_STUBS));
+        Set<String> windows = new LinkedHashSet<>(List.of("main"));
+        Mockito.when(driver.getWindowHandle()).thenReturn("main");
+        Mockito.when(driver.getWindowHandles()).thenReturn(windows);
+        Mockito.when(driver.getCurrentUrl()).thenReturn(url);
+        Mockito.when(((JavascriptExecutor) driver)
+                .executeAsyncScript(DriverPool.RESET_SCRIPT))
+                .thenReturn(resetSucceeds);
+        return driver;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestScheduleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDurations durations;
+
+    @Before
+    public void setUp() {
+        durations = new TestDurations(
+                folder.getRoot().toPath().resolve("durations.properties"));
+        System.setProperty(TestSchedule.RUN_ID_PROPERTY, "run-1");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(TestSchedule.RUN_ID_PROPERTY);
+    }
+
+    @Test
+    public void plan_slowClassIsSplit() {
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        tests.put("SlowIT", List.of("SlowIT#a", "SlowIT#b", "SlowIT#c"));
+        tests.put("FastIT", List.of("FastIT#a"));
+        tests.put("OtherIT", List.of("OtherIT"));
+
+        TestSchedule schedule = TestSchedule.plan(tests,
+                Map.of("SlowIT#a", 60L, "SlowIT#b", 60L, "SlowIT#c", 60L,
+                        "FastIT#a", 30L, "OtherIT", 30L),
+                2);
+
+        assertEquals(240, schedule.getTotal());
+        assertEquals(120, schedule.getLoad(0));
+        assertEquals(120, schedule.getLoad(1));
+        assertFalse(schedule.isInShard("SlowIT#a", 0)
+                && schedule.isInShard("SlowIT#b", 0)
+                && schedule.isInShard("SlowIT#c", 0));
+    }
+
+    @Test
+    public void plan_classesAreKeptWhole() {
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        tests.put("AIT", List.of("AIT#a", "AIT#b"));
+        tests.put("BIT", List.of("BIT#a", "BIT#b"));
+
+        TestSchedule schedule = TestSchedule.plan(tests,
+                Map.of("AIT#a", 10L, "AIT#b", 10L, "BIT#a", 5L, "BIT#b",
+                        15L),
+                2);
+
+        int shard = schedule.isInShard("AIT#a", 0) ? 0 : 1;
+        assertTrue(schedule.isInShard("AIT#b", shard));
+        assertTrue(schedule.isInShard("BIT#a", 1 - shard));
+        assertTrue(schedule.isInShard("BIT#b", 1 - shard));
+    }
+
+    @Test
+    public void plan_unknownTestsEstimatedWithMean() {
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        tests.put("AIT", List.of("AIT#a", "AIT#new"));
+
+        TestSchedule schedule = TestSchedule.plan(tests,
+                Map.of("AIT#a", 10L, "RemovedIT#a", 30L), 1);
+
+        assertEquals(20, schedule.getEstimate("AIT#new"));
+        assertEquals(TestSchedule.DEFAULT_ESTIMATE, TestSchedule
+                .plan(tests, Map.of(), 1).getEstimate("AIT#a"));
+    }
+
+    @Test
+    public void isInShard_unknownTestInExactlyOneShard() {
+        TestSchedule schedule = TestSchedule.plan(Map.of(), Map.of(), 3);
+
+        int count = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            if (schedule.isInShard("NewIT#a", shard)) {
+                count++;
+            }
+        }
+        assertEquals(1, count);
+    }
+
+    @Test
+    public void forRun_sameScheduleForAllForks() {
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        tests.put("AIT", List.of("AIT#a", "AIT#b"));
+        tests.put("BIT", List.of("BIT"));
+        TestSchedule first = TestSchedule.forRun(durations, tests, 2);
+
+        // a later fork sees durations recorded meanwhile
+        durations.record("AIT#a", 100_000);
+        TestSchedule second = TestSchedule.forRun(durations, tests, 2);
+
+        for (String test : List.of("AIT#a", "AIT#b", "BIT")) {
+            assertEquals(first.isInShard(test, 0),
+                    second.isInShard(test, 0));
+            assertEquals(first.getEstimate(test), second.getEstimate(test));
+        }
+    }
+
+    @Test
+    public void forRun_newRunUsesRecordedDurations() {
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+        tests.put("AIT", List.of("AIT#a"));
+        TestSchedule.forRun(durations, tests, 2);
+        durations.record("AIT#a", 1234);
+
+        System.setProperty(TestSchedule.RUN_ID_PROPERTY, "run-2");
+
+        assertEquals(1234, TestSchedule.forRun(durations, tests, 2)
+                .getEstimate("AIT#a"));
+    }
+
+    @Test
+    public void claimShard_preferredShardOrFirstUnclaimed() {
+        TestSchedule.forRun(durations, Map.of(), 3);
+
+        assertEquals(1, TestSchedule.claimShard(durations, 1));
+        assertEquals(0, TestSchedule.claimShard(durations, 1));
+        assertEquals(2, TestSchedule.claimShard(durations, 7));
+        assertEquals(-1, TestSchedule.claimShard(durations, 0));
+    }
+
+    @Test
+    public void claimShard_newRunHasNoClaims() {
+        TestSchedule.forRun(durations, Map.of(), 1);
+        assertEquals(0, TestSchedule.claimShard(durations, 0));
+
+        System.setProperty(TestSchedule.RUN_ID_PROPERTY, "run-2");
+        TestSchedule.forRun(durations, Map.of(), 1);
+
+        assertEquals(0, TestSchedule.claimShard(durations, 0));
+    }
+
+    @Test
+    public void record_replacesPreviousDuration() {
+        durations.record("AIT#a", 10);
+        durations.record("AIT#b", 20);
+        durations.record("AIT#a", 30);
+
+        assertEquals(Map.of("AIT#a", 30L, "AIT#b", 20L), durations.read());
+    }
+
+    @Test
+    public void defaultFile_relativeToWorkingDirectory() throws IOException {
+        assertEquals(Paths.get(TestDurations.DEFAULT_FILE).toAbsolutePath(),
+                TestDurations.getDefault().getFile());
+
+        // a file name without a folder, like the default one
+        Path file = Paths.get("TestScheduleTest.properties");
+        try {
+            TestDurations relative = new TestDurations(file);
+            relative.record("AIT#a", 10);
+
+            assertEquals(Map.of("AIT#a", 10L), relative.read());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Paths.get(file + ".lock"));
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletContainerInitializer;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.annotation.HandlesTypes;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.annotation.WebServlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.EventListener;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.CompositeIndex;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.Indexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.jandex.indexer.ShardedIndex;
+
+/**
+ * Runs the Vaadin initializers with the classes found in Jandex indexes
+ * instead of the classes the servlet container finds by scanning the
+ * classpath.
+ * <p>
+ * It is enabled by the {@value #ENABLED} context parameter, which must go
+ * with a container configuration not running the initializers matching
+ * {@link #INITIALIZERS} and not scanning the classpath, see the
+ * {@code jandex-discovery} profile. The classes come from the index shards of
+ * {@code vaadin-jandex}, from the {@code META-INF/jandex.idx} index of the
+ * application classes and of any other jar, and from indexing on startup the
+ * jars and folders without an index. The listeners and servlets annotated
+ * with {@link WebListener} and {@link WebServlet} are registered too, as the
+ * container no longer finds them, the context listeners through
+ * {@link ContextListeners}.
+ */
+public class JandexDiscoveryInitializer implements ServletContainerInitializer {
+
+    /**
+     * The context parameter enabling the discovery from the indexes.
+     */
+    public static final String ENABLED = "vaadin.jandex.discovery";
+    /**
+     * The initializers run by this class, which the container should not
+     * run.
+     */
+    public static final Pattern INITIALIZERS = Pattern
+            .compile("com\\.vaadin\\.(flow|base)\\..*");
+    private static final String INDEX = "META-INF/jandex.idx";
+
+    private final Logger logger = LoggerFactory
+            .getLogger(JandexDiscoveryInitializer.class);
+
+    @Override
+    public void onStartup(Set<Class<?>> classes, ServletContext context)
+            throws ServletException {
+        if (!Boolean.parseBoolean(context.getInitParameter(ENABLED))) {
+            return;
+        }
+        StartupTimings.get().begin(StartupTimings.DISCOVERY);
+        ClassLoader loader = context.getClassLoader();
+        IndexView index;
+        try {
+            index = index(loader);
+        } catch (IOException e) {
+            throw new ServletException("Cannot read the Jandex indexes", e);
+        }
+
+        List<Class<? extends ServletContextListener>> contextListeners =
+                new ArrayList<>();
+        for (Class<?> listener : annotated(index, WebListener.class,
+                loader)) {
+            if (ServletContextListener.class.isAssignableFrom(listener)) {
+                contextListeners.add(
+                        listener.asSubclass(ServletContextListener.class));
+            } else {
+                context.addListener(listener.asSubclass(EventListener.class));
+            }
+        }
+        context.setAttribute(ContextListeners.class.getName(),
+                contextListeners);
+        for (Class<?> servlet : annotated(index, WebServlet.class, loader)) {
+            register(servlet.asSubclass(Servlet.class), context);
+        }
+
+        // the classes of each initializer are found before running any, so
+        // that the discovery is timed on its own
+        Map<ServletContainerInitializer, Set<Class<?>>> initializers =
+                new LinkedHashMap<>();
+        for (ServletContainerInitializer initializer : ServiceLoader
+                .load(ServletContainerInitializer.class, loader)) {
+            if (INITIALIZERS.matcher(initializer.getClass().getName())
+                    .matches()) {
+                HandlesTypes handled = initializer.getClass()
+                        .getAnnotation(HandlesTypes.class);
+                Set<Class<?>> handledClasses = handled == null ? null
+                        : classes(index, handled.value(), loader);
+                // as the container does, null when no class is found
+                initializers.put(initializer,
+                        handledClasses == null || handledClasses.isEmpty()
+                                ? null
+                                : handledClasses);
+            }
+        }
+        StartupTimings.get().end(StartupTimings.DISCOVERY);
+        for (ServletContainerInitializer initializer : initializers
+                .keySet()) {
+            initializer.onStartup(initializers.get(initializer), context);
+        }
+    }
+
+    /**
+     * Calls the context listeners found in the indexes. A listener added by
+     * an initializer cannot use all the methods of the context, so this one
+     * is declared in the deployment descriptor instead.
+     */
+    public static class ContextListeners implements ServletContextListener {
+
+        private final List<ServletContextListener> listeners =
+                new ArrayList<>();
+
+        @Override
+        public void contextInitialized(ServletContextEvent event) {
+            @SuppressWarnings("unchecked")
+            List<Class<? extends ServletContextListener>> classes =
+                    (List<Class<? extends ServletContextListener>>) event
+                            .getServletContext()
+                            .getAttribute(ContextListeners.class.getName());
+            if (classes == null) {
+                return;
+            }
+            for (Class<? extends ServletContextListener> type : classes) {
+                ServletContextListener listener;
+                try {
+                    listener = type.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(
+                            "Cannot create the listener " + type.getName(), e);
+                }
+                listeners.add(listener);
+                listener.contextInitialized(event);
+            }
+        }
+
+        @Override
+        public void contextDestroyed(ServletContextEvent event) {
+            for (int i = listeners.size() - 1; i >= 0; i--) {
+                listeners.get(i).contextDestroyed(event);
+            }
+            listeners.clear();
+        }
+    }
+
+    private IndexView index(ClassLoader loader) throws IOException {
+        ShardedIndex sharded = ShardedIndex.read(loader);
+        List<IndexView> indexes = new ArrayList<>();
+        if (!(loader instanceof URLClassLoader)) {
+            logger.warn("Cannot list the jars of {}, only the indexes of "
+                    + "vaadin-jandex are used", loader);
+            return sharded;
+        }
+        int read = 0;
+        int scanned = 0;
+        for (URL url : ((URLClassLoader) loader).getURLs()) {
+            Path path;
+            try {
+                path = Paths.get(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                continue;
+            }
+            if (Files.isDirectory(path)) {
+                Path file = path.resolve(INDEX);
+                if (Files.isRegularFile(file)) {
+                    try (InputStream stream = Files.newInputStream(file)) {
+                        indexes.add(new IndexReader(stream).read());
+                    }
+                    read++;
+                } else {
+                    indexes.add(scan(path));
+                    scanned++;
+                }
+            } else if (Files.isRegularFile(path)
+                    && !sharded.covers(path.getFileName().toString())) {
+                try (JarFile jar = new JarFile(path.toFile())) {
+                    if (jar.getEntry(ShardedIndex.MANIFEST) != null) {
+                        // vaadin-jandex itself, its shards are already read
+                        continue;
+                    }
+                    JarEntry entry = jar.getJarEntry(INDEX);
+                    if (entry != null) {
+                        try (InputStream stream = jar.getInputStream(entry)) {
+                            indexes.add(new IndexReader(stream).read());
+                        }
+                        read++;
+                    } else {
+                        indexes.add(scan(jar));
+                        scanned++;
+                    }
+                }
+            }
+        }
+        // after the application, whose listeners then run first as when
+        // the container scans the classes
+        indexes.add(sharded);
+        logger.info(
+                "Classes discovered from the vaadin-jandex shards, {} "
+                        + "indexes and {} scanned jars or folders",
+                read, scanned);
+        return CompositeIndex.create(indexes);
+    }
+
+    private static Index scan(Path folder) throws IOException {
+        Indexer indexer = new Indexer();
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(".class")) {
+                    try (InputStream stream = Files.newInputStream(file)) {
+                        indexer.index(stream);
+                    }
+                }
+            }
+        }
+        return indexer.complete();
+    }
+
+    private static Index scan(JarFile jar) throws IOException {
+        Indexer indexer = new Indexer();
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (entry.getName().endsWith(".class")
+                    && !entry.getName().startsWith("META-INF/")) {
+                try (InputStream stream = jar.getInputStream(entry)) {
+                    indexer.index(stream);
+                }
+            }
+        }
+        return indexer.complete();
+    }
+
+    /**
+     * Gets the classes which extend, implement or are annotated with the
+     * given types, as the container passes them to an initializer.
+     */
+    private Set<Class<?>> classes(IndexView index, Class<?>[] types,
+            ClassLoader loader) {
+        Set<Class<?>> classes = new HashSet<>();
+        for (Class<?> type : types) {
+            if (type.isAnnotation()) {
+                classes.addAll(annotated(index, type, loader));
+                continue;
+            }
+            DotName name = DotName.createSimple(type.getName());
+            Set<ClassInfo> infos = new HashSet<>(
+                    index.getAllKnownSubclasses(name));
+            if (type.isInterface()) {
+                infos.addAll(index.getAllKnownImplementors(name));
+                infos.addAll(index.getKnownDirectImplementors(name));
+            }
+            for (ClassInfo info : infos) {
+                load(info.name(), loader, classes);
+            }
+        }
+        return classes;
+    }
+
+    private Set<Class<?>> annotated(IndexView index, Class<?> annotation,
+            ClassLoader loader) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (AnnotationInstance instance : index
+                .getAnnotations(DotName.createSimple(annotation.getName()))) {
+            AnnotationTarget target = instance.target();
+            if (target == null) {
+                continue;
+            }
+            switch (target.kind()) {
+            case CLASS:
+                load(target.asClass().name(), loader, classes);
+                break;
+            case METHOD:
+                load(target.asMethod().declaringClass().name(), loader,
+                        classes);
+                break;
+            case FIELD:
+                load(target.asField().declaringClass().name(), loader,
+                        classes);
+                break;
+            default:
+                break;
+            }
+        }
+        return classes;
+    }
+
+    private void load(DotName name, ClassLoader loader,
+            Set<Class<?>> classes) {
+        try {
+            classes.add(Class.forName(name.toString(), false, loader));
+        } catch (ClassNotFoundException | LinkageError e) {
+            // skipped like the container does, e.g. an optional dependency
+            // is missing
+            logger.debug("Cannot load {}", name, e);
+        }
+    }
+
+    private static void register(Class<? extends Servlet> servlet,
+            ServletContext context) {
+        WebServlet annotation = servlet.getAnnotation(WebServlet.class);
+        String name = annotation.name().isEmpty() ? servlet.getName()
+                : annotation.name();
+        ServletRegistration.Dynamic registration = context.addServlet(name,
+                servlet);
+        if (registration == null) {
+            // already registered by the application
+            return;
+        }
+        registration.addMapping(annotation.urlPatterns().length > 0
+                ? annotation.urlPatterns()
+                : annotation.value());
+        registration.setLoadOnStartup(annotation.loadOnStartup());
+        registration.setAsyncSupported(annotation.asyncSupported());
+        for (WebInitParam parameter : annotation.initParams()) {
+            registration.setInitParameter(parameter.name(), parameter.value());
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.stream.Stream;
 
 import com.vaadin.flow.component.tabs.TabSheet;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import com.vaadin.collaborationengine.CollaborationAvatarGroup;
 import com.vaadin.collaborationengine.CollaborationEngine;
@@ -59,7 +60,6 @@ import com.vaadin.flow.component.contextmenu.MenuItem;
 import com.vaadin.flow.component.cookieconsent.CookieConsent;
 import com.vaadin.flow.component.crud.BinderCrudEditor;
 import com.vaadin.flow.component.crud.Crud;
-import com.vaadin.flow.component.crud.CrudFilter;
 import com.vaadin.flow.component.crud.CrudGrid;
 import com.vaadin.flow.component.customfield.CustomField;
 import com.vaadin.flow.component.datepicker.DatePicker;
@@ -140,16 +140,11 @@ import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.component.timepicker.TimePicker;
 import com.vaadin.flow.component.treegrid.TreeGrid;
 import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
 import com.vaadin.flow.component.virtuallist.VirtualList;
 import com.vaadin.flow.component.webcomponent.WebComponentUI;
 import com.vaadin.flow.component.webcomponent.WebComponentWrapper;
 import com.vaadin.flow.data.binder.Binder;
-import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
-import com.vaadin.flow.data.provider.Query;
-import com.vaadin.flow.data.provider.hierarchy.AbstractBackEndHierarchicalDataProvider;
 import com.vaadin.flow.data.provider.hierarchy.HierarchicalDataProvider;
-import com.vaadin.flow.data.provider.hierarchy.HierarchicalQuery;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.internal.MessageDigestUtil;
 import com.vaadin.flow.router.Route;
@@ -167,6 +162,8 @@ public class ComponentsView extends AppLayout {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int MAX_LOGGED_TEXT = 1024;
+
     private Log log;
     private List<Entity> entities;
 
@@ -252,6 +249,7 @@ public class ComponentsView extends AppLayout {
             log.log("Clicked button");
         });
         button.setIcon(icon);
+        button.setId("button");
 
         Checkbox checkbox = new Checkbox("Checkbox label");
         log.log("Checkbox default is " + checkbox.getValue());
@@ -304,6 +302,7 @@ public class ComponentsView extends AppLayout {
 
         GridSelectionColumn gridSelectionColumn = new GridSelectionColumn(() -> log.log("select-all"), () -> {});
         Grid<Map<String, String>> grid = new Grid<>();
+        grid.setId("grid");
         grid.setWidth("100%");
         grid.getElement().insertChild(0, gridSelectionColumn.getElement());
         grid.addColumn(map -> map.get("foo")).setHeader("Foo-Header");
@@ -324,22 +323,8 @@ public class ComponentsView extends AppLayout {
         GridMenuItem<Map<String, String>> gridMenuItem = new GridMenuItem<>(gridContextMenu, () -> {});
 
 
-        HierarchicalDataProvider<Entity, Void> hierarchicalDataProvider = new AbstractBackEndHierarchicalDataProvider<Entity, Void>() {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public int getChildCount(HierarchicalQuery<Entity, Void> query) {
-                return query.getParent() == null ? entities.size() : query.getParent().getEntities().size();
-            }
-            @Override
-            public boolean hasChildren(Entity item) {
-                return !item.getEntities().isEmpty();
-            }
-            @Override
-            protected Stream<Entity> fetchChildrenFromBackEnd(HierarchicalQuery<Entity, Void> query) {
-                return query.getParent() == null ? entities.stream() : query.getParent().getEntities().stream();
-            }
-        };
+        HierarchicalDataProvider<Entity, Void> hierarchicalDataProvider = new IndexedHierarchicalDataProvider<>(
+                entities, Entity::getEntities);
         TreeGrid<Entity> treeGrid = new TreeGrid<>();
         treeGrid.addHierarchyColumn(Entity::getName).setHeader("Name");
         treeGrid.addColumn(e -> e.getEntities().size()).setHeader("child count");
@@ -384,6 +369,7 @@ public class ComponentsView extends AppLayout {
         });
 
         TextField textField = new TextField();
+        textField.setId("textfield");
         textField.setValueChangeMode(ValueChangeMode.EAGER);
         log.log("TextField default is " + textField.getValue());
         textField.addValueChangeListener(e -> {
@@ -432,10 +418,11 @@ public class ComponentsView extends AppLayout {
             log.log("TextArea value changed from " + e.getOldValue() + " to " + e.getValue());
         });
 
-        MemoryBuffer buffer = new MemoryBuffer();
+        SpoolingReceiver buffer = new SpoolingReceiver();
         Upload upload = new Upload(buffer);
         upload.addSucceededListener(
                 event -> handleUploadedFile(event.getMIMEType(), event.getMIMEType(), buffer.getInputStream()));
+        upload.addFailedListener(event -> buffer.abort());
 
         Dialog dialog = new Dialog();
         dialog.add(new Label("This is the contents of the dialog"));
@@ -526,19 +513,7 @@ public class ComponentsView extends AppLayout {
 
         CookieConsent cookieConsent = new CookieConsent();
 
-        AbstractBackEndDataProvider<Entity, CrudFilter> crudProvider = new AbstractBackEndDataProvider<Entity, CrudFilter>() {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            protected Stream<Entity> fetchFromBackEnd(Query<Entity, CrudFilter> query) {
-                return entities.stream();
-            }
-
-            @Override
-            protected int sizeInBackEnd(Query<Entity, CrudFilter> query) {
-                return entities.size();
-            }
-        };
+        IndexedCrudDataProvider<Entity> crudProvider = new IndexedCrudDataProvider<>(Entity.class, entities);
 
         Binder<Entity> crudBinder = new Binder<>(Entity.class);
         TextField nameField = new TextField("name");
@@ -685,10 +660,12 @@ public class ComponentsView extends AppLayout {
     }
 
     private void handleUploadedFile(String mimeType, String fileName, InputStream stream) {
+        // closing the stream releases the spooled file, read or not
         if (mimeType.startsWith("text")) {
             String text = "";
-            try {
-                text = IOUtils.toString(stream, "UTF-8");
+            try (stream) {
+                // large files are not read into memory
+                text = IOUtils.toString(new BoundedInputStream(stream, MAX_LOGGED_TEXT), "UTF-8");
             } catch (IOException e) {
                 text = "exception reading stream";
             }
@@ -696,7 +673,11 @@ public class ComponentsView extends AppLayout {
         } else {
             String text = String.format("Mime type: '%s'\nSHA-256 hash: '%s'", mimeType,
                     MessageDigestUtil.sha256(stream.toString()));
-            log.log("Upload received file " + fileName + " with " + text);
+            try (stream) {
+                log.log("Upload received file " + fileName + " with " + text);
+            } catch (IOException e) {
+                log.log("Upload could not close the stream of file " + fileName);
+            }
         }
     }
 
@@ -32,21 +32,26 @@ public class CustomServletDeployer implements ServletContextListener {
         ServletContext servletContext = sce.getServletContext();
         ServletRegistration.Dynamic devModeRegistration = servletContext
                 .addServlet("DevMode" + VaadinServlet.class.getName(),
-                        VaadinServlet.class);
+                        TimedVaadinServlet.class);
 
         devModeRegistration.setInitParameter(
                 Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
                 Boolean.FALSE.toString());
         devModeRegistration.setAsyncSupported(true);
+        // initialized on startup so that ReadinessServlet knows when the
+        // application is ready
+        devModeRegistration.setLoadOnStartup(1);
         devModeRegistration.addMapping("/*");
 
         ServletRegistration.Dynamic productionRegistration = servletContext
-                .addServlet(VaadinServlet.class.getName(), VaadinServlet.class);
+                .addServlet(VaadinServlet.class.getName(),
+                        TimedVaadinServlet.class);
 
         productionRegistration.setInitParameter(
                 Constants.SERVLET_PARAMETER_PRODUCTION_MODE,
                 Boolean.TRUE.toString());
         productionRegistration.setAsyncSupported(true);
+        productionRegistration.setLoadOnStartup(1);
         productionRegistration.addMapping("/prod-mode/*");
 
     }
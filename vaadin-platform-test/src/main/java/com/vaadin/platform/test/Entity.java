@@ -1,11 +1,12 @@
 package com.vaadin.platform.test;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class Entity {
+public class Entity implements Serializable {
     private String name;
     private List<Entity> entities = Collections.emptyList();
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.io.Serializable;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * What a {@link MeteredGrid} did to answer one data request of the client.
+ */
+public class GridScrollSample implements Serializable {
+
+    private final int requestedStart;
+    private final int requestedLength;
+    private final int updateId;
+    private final long nanos;
+    private final int items;
+    private final long bytes;
+
+    GridScrollSample(int requestedStart, int requestedLength, int updateId,
+            long nanos, int items, long bytes) {
+        this.requestedStart = requestedStart;
+        this.requestedLength = requestedLength;
+        this.updateId = updateId;
+        this.nanos = nanos;
+        this.items = items;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Gets the first row of the range requested by the client.
+     *
+     * @return the row index
+     */
+    public int getRequestedStart() {
+        return requestedStart;
+    }
+
+    /**
+     * Gets the length of the range requested by the client.
+     *
+     * @return the number of rows
+     */
+    public int getRequestedLength() {
+        return requestedLength;
+    }
+
+    /**
+     * Gets the id of the update, which the client confirms with
+     * {@code confirmUpdate}.
+     *
+     * @return the update id
+     */
+    public int getUpdateId() {
+        return updateId;
+    }
+
+    /**
+     * Gets the time spent in the data communicator, from fetching the items to
+     * queueing them for the client.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Gets the number of items serialized for the client.
+     *
+     * @return the item count
+     */
+    public int getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the size of the serialized items, as UTF-8 JSON.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the sample as JSON, with the time in microseconds.
+     *
+     * @return a JSON object
+     */
+    public JsonObject toJson() {
+        JsonObject json = Json.createObject();
+        json.put("requestedStart", requestedStart);
+        json.put("requestedLength", requestedLength);
+        json.put("updateId", updateId);
+        json.put("micros", nanos / 1000);
+        json.put("items", items);
+        json.put("bytes", bytes);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rows %d-%d: %d items, %d bytes in %.2f ms",
+                requestedStart, requestedStart + requestedLength, items,
+                bytes, nanos / 1_000_000d);
+    }
+}
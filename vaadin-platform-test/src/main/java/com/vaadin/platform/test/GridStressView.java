@@ -0,0 +1,127 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.Route;
+
+/**
+ * The {@code Map} grid of {@link ComponentsView} with a large number of rows,
+ * generated on the fly, for measuring how the grid pages its data.
+ * <p>
+ * The number of rows is given with the {@code rows} query parameter, e.g.
+ * {@code grid-stress?rows=10000000}, and is one million by default. Each
+ * update sent to the client is measured with a {@link MeteredGrid}: the
+ * totals are shown below the grid and the last update is available as JSON in
+ * the {@value #LAST_SAMPLE_PROPERTY} property of the view element.
+ */
+@Route("grid-stress")
+public class GridStressView extends Div implements BeforeEnterObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_ROWS = 1_000_000;
+    static final int MAX_ROWS = 10_000_000;
+    static final String LAST_SAMPLE_PROPERTY = "lastSample";
+
+    private final MeteredGrid<Map<String, String>> grid;
+    private final Span summary = new Span();
+
+    private int updates;
+    private long totalNanos;
+    private long totalItems;
+    private long totalBytes;
+
+    public GridStressView() {
+        setId("grid-stress");
+        setSizeFull();
+
+        grid = new MeteredGrid<>(50, this::record);
+        grid.setId("grid");
+        grid.setWidth("100%");
+        grid.setHeight("600px");
+        grid.addColumn(map -> map.get("foo")).setHeader("Foo-Header");
+        grid.addColumn(map -> map.get("bar")).setHeader("Bar-Header");
+
+        summary.setId("grid-stress-summary");
+        add(grid, summary);
+    }
+
+    @Override
+    public void beforeEnter(BeforeEnterEvent event) {
+        List<String> parameter = event.getLocation().getQueryParameters()
+                .getParameters().get("rows");
+        int rows = parameter == null || parameter.isEmpty() ? DEFAULT_ROWS
+                : parseRows(parameter.get(0));
+        grid.setItems(query -> fetch(query, rows), query -> rows);
+    }
+
+    private static int parseRows(String value) {
+        int rows;
+        try {
+            rows = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // e.g. ?rows=1e6
+            throw new IllegalArgumentException(
+                    "The number of rows must be an integer, not " + value, e);
+        }
+        if (rows < 0 || rows > MAX_ROWS) {
+            throw new IllegalArgumentException(
+                    "The number of rows must be between 0 and " + MAX_ROWS);
+        }
+        return rows;
+    }
+
+    private static Stream<Map<String, String>> fetch(
+            Query<Map<String, String>, Void> query, int rows) {
+        int from = Math.min(query.getOffset(), rows);
+        int to = (int) Math.min((long) from + query.getLimit(), rows);
+        return IntStream.range(from, to).mapToObj(GridStressView::row);
+    }
+
+    private static Map<String, String> row(int index) {
+        Map<String, String> map = new HashMap<>();
+        map.put("foo", "Row " + index);
+        map.put("bar", Integer.toHexString(index * 0x9E3779B1));
+        return map;
+    }
+
+    private void record(GridScrollSample sample) {
+        updates++;
+        totalNanos += sample.getNanos();
+        totalItems += sample.getItems();
+        totalBytes += sample.getBytes();
+
+        getElement().setPropertyJson(LAST_SAMPLE_PROPERTY, sample.toJson());
+        summary.setText(String.format(
+                "%d updates, %d items, %d KB, %.2f ms per update. Last: %s",
+                updates, totalItems, totalBytes / 1024,
+                totalNanos / 1_000_000d / updates, sample));
+        LoggerFactory.getLogger(GridStressView.class).debug("{}", sample);
+    }
+}
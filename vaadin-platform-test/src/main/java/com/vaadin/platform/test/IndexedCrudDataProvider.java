@@ -0,0 +1,446 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.component.crud.CrudFilter;
+import com.vaadin.flow.data.binder.BeanPropertySet;
+import com.vaadin.flow.data.binder.PropertyDefinition;
+import com.vaadin.flow.data.binder.PropertySet;
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.function.ValueProvider;
+
+/**
+ * In-memory {@link com.vaadin.flow.component.crud.Crud} backend for large
+ * lists of beans, answering the {@link CrudFilter} constraints, the sort
+ * orders, and the offset and limit of each query.
+ * <p>
+ * A sorted index is built for each bean property the first time it is filtered
+ * or sorted by. Constraints match the beginning of the property value, ignoring
+ * case, so each of them is a range of its index found with a binary search.
+ * Sort orders compare {@link Comparable} values, strings ignoring case. With
+ * a single constraint, or a single sort order, or both on the same string
+ * property, the size and each page are then read directly from the index.
+ * Other combinations are resolved from the narrowest range and cached until
+ * the filter changes, so that scrolling does not resolve them again.
+ * <p>
+ * Filtered results without sort orders are ordered by one of the filtered
+ * properties. Call {@link #refreshAll()} or {@link #refreshItem(Object)} after
+ * changing the items, to rebuild the indexes.
+ * <p>
+ * The provider can be shared by several sessions.
+ *
+ * @param <T>
+ *            the bean type
+ */
+public class IndexedCrudDataProvider<T>
+        extends AbstractBackEndDataProvider<T, CrudFilter> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Items ordered by the value of one property.
+     * <p>
+     * The filter matches the start of the key of the value, the lower case
+     * string, so the items are ordered by key to find the matching ones. They
+     * are sorted by value when the values are {@link Comparable}, so that
+     * numbers and dates are not sorted as strings, and by key otherwise.
+     * Strings are sorted by key, ignoring case.
+     */
+    private static class PropertyIndex {
+        // item positions, ordered by key
+        private final int[] keyOrder;
+        // keys in the same order
+        private final String[] keys;
+        // key of each item
+        private final String[] itemKeys;
+        // item positions, ordered by value
+        private final int[] order;
+        // position of each item in the value order
+        private final int[] rank;
+        // the same for items with equal values, to break ties
+        private final int[] group;
+        // whether the value order is the key order
+        private final boolean sortedByKey;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        <T> PropertyIndex(List<T> items, ValueProvider<T, ?> getter) {
+            int size = items.size();
+            Object[] values = new Object[size];
+            itemKeys = new String[size];
+            boolean comparable = true;
+            boolean strings = true;
+            for (int i = 0; i < size; i++) {
+                values[i] = getter.apply(items.get(i));
+                itemKeys[i] = key(values[i]);
+                if (values[i] != null) {
+                    comparable &= values[i] instanceof Comparable;
+                    strings &= values[i] instanceof String;
+                }
+            }
+            keyOrder = sortedPositions(size,
+                    Comparator.comparing(i -> itemKeys[i]));
+            keys = new String[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = itemKeys[keyOrder[i]];
+            }
+
+            sortedByKey = strings || !comparable;
+            Comparator<Integer> byValue;
+            if (sortedByKey) {
+                byValue = Comparator.comparing(i -> itemKeys[i]);
+                order = keyOrder;
+            } else {
+                Comparator<Comparable> natural = Comparator
+                        .nullsFirst(Comparator.naturalOrder());
+                byValue = (a, b) -> natural.compare((Comparable) values[a],
+                        (Comparable) values[b]);
+                order = sortedPositions(size, byValue);
+            }
+            rank = new int[size];
+            group = new int[size];
+            for (int i = 0; i < size; i++) {
+                rank[order[i]] = i;
+                group[order[i]] = i > 0
+                        && byValue.compare(order[i - 1], order[i]) == 0
+                                ? group[order[i - 1]]
+                                : i;
+            }
+        }
+
+        private static int[] sortedPositions(int size,
+                Comparator<Integer> comparator) {
+            // stable, equal values keep the order of the items
+            return IntStream.range(0, size).boxed().sorted(comparator)
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Finds the keys starting with the given prefix.
+         *
+         * @return the start and end positions of the keys in the order
+         */
+        int[] range(String prefix) {
+            return new int[] { lowerBound(prefix),
+                    lowerBound(prefix + Character.MAX_VALUE) };
+        }
+
+        boolean matches(int item, String prefix) {
+            return itemKeys[item].startsWith(prefix);
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Positions of the items matching a filter, in the requested order.
+     */
+    private static class Selection {
+        private final int[] positions;
+        private final int from;
+        private final int to;
+        private final boolean descending;
+
+        Selection(int[] positions, int from, int to, boolean descending) {
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.descending = descending;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        int get(int index) {
+            int position = descending ? to - 1 - index : from + index;
+            return positions == null ? position : positions[position];
+        }
+    }
+
+    /**
+     * The indexes built for the current items.
+     */
+    private static class Indexes {
+        private final Map<String, PropertyIndex> byProperty = new HashMap<>();
+        private volatile CachedSelection cache;
+    }
+
+    /**
+     * A resolved filter, kept to answer the following queries with the same
+     * filter.
+     */
+    private static class CachedSelection {
+        private final Map<String, String> constraints;
+        private final List<Map.Entry<String, SortDirection>> sortOrders;
+        private final Selection selection;
+
+        CachedSelection(Map<String, String> constraints,
+                List<Map.Entry<String, SortDirection>> sortOrders,
+                Selection selection) {
+            this.constraints = constraints;
+            this.sortOrders = sortOrders;
+            this.selection = selection;
+        }
+    }
+
+    private final List<T> items;
+    private final PropertySet<T> propertySet;
+
+    // rebuilt on demand, so that they are not serialized with the session
+    private transient volatile Indexes indexes;
+
+    /**
+     * Creates a provider for the given items.
+     *
+     * @param beanType
+     *            the bean type, its properties are the ones used by the filter
+     * @param items
+     *            the items, not copied if the list has random access
+     */
+    public IndexedCrudDataProvider(Class<T> beanType, Collection<T> items) {
+        Objects.requireNonNull(items, "Items cannot be null");
+        this.propertySet = BeanPropertySet.get(beanType);
+        this.items = items instanceof List && items instanceof RandomAccess
+                ? (List<T>) items
+                : new ArrayList<>(items);
+    }
+
+    @Override
+    protected Stream<T> fetchFromBackEnd(Query<T, CrudFilter> query) {
+        Selection selection = select(query);
+        int from = Math.min(query.getOffset(), selection.size());
+        int to = (int) Math.min((long) from + query.getLimit(),
+                selection.size());
+        return IntStream.range(from, to)
+                .mapToObj(index -> items.get(selection.get(index)));
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<T, CrudFilter> query) {
+        return select(query).size();
+    }
+
+    @Override
+    public void refreshAll() {
+        clearIndexes();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        clearIndexes();
+        super.refreshItem(item);
+    }
+
+    @Override
+    public void refreshItem(T item, boolean refreshChildren) {
+        clearIndexes();
+        super.refreshItem(item, refreshChildren);
+    }
+
+    private void clearIndexes() {
+        indexes = null;
+    }
+
+    private synchronized Indexes indexes() {
+        if (indexes == null) {
+            indexes = new Indexes();
+        }
+        return indexes;
+    }
+
+    private Selection select(Query<T, CrudFilter> query) {
+        CrudFilter filter = query.getFilter().orElse(null);
+        // the filter of the grid is modified in place, so copy it
+        Map<String, String> constraints = new HashMap<>();
+        List<Map.Entry<String, SortDirection>> sortOrders = new ArrayList<>();
+        if (filter != null) {
+            filter.getConstraints().forEach((property, value) -> {
+                if (value != null && !value.isEmpty()) {
+                    constraints.put(property, key(value));
+                }
+            });
+            sortOrders.addAll(new LinkedHashMap<>(filter.getSortOrders())
+                    .entrySet());
+        }
+        if (sortOrders.isEmpty()) {
+            query.getSortOrders().forEach(order -> sortOrders.add(
+                    Map.entry(order.getSorted(), order.getDirection())));
+        }
+
+        // cached on the indexes it is resolved with: if a refresh replaces
+        // them meanwhile, the selection goes to the discarded ones
+        Indexes current = indexes();
+        CachedSelection cached = current.cache;
+        if (cached != null && cached.constraints.equals(constraints)
+                && cached.sortOrders.equals(sortOrders)) {
+            return cached.selection;
+        }
+        Selection selection = select(current, constraints, sortOrders);
+        current.cache = new CachedSelection(constraints, sortOrders,
+                selection);
+        return selection;
+    }
+
+    private Selection select(Indexes current, Map<String, String> constraints,
+            List<Map.Entry<String, SortDirection>> sortOrders) {
+        // the constraint matching the fewest items
+        String narrowest = null;
+        int[] range = { 0, items.size() };
+        for (Map.Entry<String, String> constraint : constraints.entrySet()) {
+            int[] candidate = index(current, constraint.getKey())
+                    .range(constraint.getValue());
+            if (narrowest == null
+                    || candidate[1] - candidate[0] < range[1] - range[0]) {
+                narrowest = constraint.getKey();
+                range = candidate;
+            }
+        }
+
+        if (sortOrders.size() <= 1 && constraints.size() <= 1) {
+            String sorted = sortOrders.isEmpty() ? narrowest
+                    : sortOrders.get(0).getKey();
+            boolean descending = !sortOrders.isEmpty() && sortOrders.get(0)
+                    .getValue() == SortDirection.DESCENDING;
+            if (sorted == null) {
+                return new Selection(null, 0, items.size(), false);
+            }
+            if (narrowest == null) {
+                // read directly from the value order
+                return new Selection(index(current, sorted).order, 0,
+                        items.size(), descending);
+            }
+            PropertyIndex index = index(current, narrowest);
+            if (narrowest.equals(sorted)
+                    && (sortOrders.isEmpty() || index.sortedByKey)) {
+                // read directly from the key order
+                return new Selection(index.keyOrder, range[0], range[1],
+                        descending);
+            }
+        }
+
+        // resolve from the narrowest range
+        PropertyIndex source = narrowest == null ? null
+                : index(current, narrowest);
+        int[] positions = IntStream.range(range[0], range[1])
+                .map(position -> source == null ? position
+                        : source.keyOrder[position])
+                .filter(item -> matchesAll(current, item, constraints))
+                .toArray();
+        sort(current, positions, sortOrders);
+        return new Selection(positions, 0, positions.length, false);
+    }
+
+    private boolean matchesAll(Indexes current, int item,
+            Map<String, String> constraints) {
+        for (Map.Entry<String, String> constraint : constraints.entrySet()) {
+            if (!index(current, constraint.getKey()).matches(item,
+                    constraint.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sort(Indexes current, int[] positions,
+            List<Map.Entry<String, SortDirection>> sortOrders) {
+        if (sortOrders.isEmpty()) {
+            // keep the key order of the narrowest index
+            return;
+        }
+        if (sortOrders.size() == 1) {
+            // ranks are unique, sort them and map them back to the items
+            PropertyIndex index = index(current,
+                    sortOrders.get(0).getKey());
+            boolean descending = sortOrders.get(0)
+                    .getValue() == SortDirection.DESCENDING;
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = index.rank[positions[i]];
+            }
+            Arrays.sort(positions);
+            int last = positions.length - 1;
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = index.order[positions[i]];
+            }
+            if (descending) {
+                for (int i = 0; i < positions.length / 2; i++) {
+                    int swap = positions[i];
+                    positions[i] = positions[last - i];
+                    positions[last - i] = swap;
+                }
+            }
+            return;
+        }
+        Comparator<Integer> comparator = null;
+        for (Map.Entry<String, SortDirection> sortOrder : sortOrders) {
+            PropertyIndex index = index(current, sortOrder.getKey());
+            Comparator<Integer> byProperty = Comparator
+                    .comparingInt(item -> index.group[item]);
+            if (sortOrder.getValue() == SortDirection.DESCENDING) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty
+                    : comparator.thenComparing(byProperty);
+        }
+        int[] sorted = Arrays.stream(positions).boxed().sorted(comparator)
+                .mapToInt(Integer::intValue).toArray();
+        System.arraycopy(sorted, 0, positions, 0, sorted.length);
+    }
+
+    private PropertyIndex index(Indexes current, String property) {
+        synchronized (current) {
+            return current.byProperty.computeIfAbsent(property, name -> {
+                PropertyDefinition<T, ?> definition = propertySet
+                        .getProperty(name)
+                        .orElseThrow(() -> new IllegalArgumentException(
+                                "Unknown property '" + name + "'"));
+                return new PropertyIndex(items, definition.getGetter());
+            });
+        }
+    }
+
+    private static String key(Object value) {
+        return value == null ? "" : value.toString().toLowerCase(Locale.ROOT);
+    }
+}
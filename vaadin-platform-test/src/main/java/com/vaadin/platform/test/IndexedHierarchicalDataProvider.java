@@ -0,0 +1,165 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.data.provider.hierarchy.AbstractBackEndHierarchicalDataProvider;
+import com.vaadin.flow.data.provider.hierarchy.HierarchicalQuery;
+import com.vaadin.flow.function.SerializableFunction;
+
+/**
+ * Hierarchical data provider for trees where a single item can have a very
+ * large number of children, like org charts or file trees.
+ * <p>
+ * The children of each item are read once and kept in an index which can be
+ * addressed by offset, so that counting them and fetching a page of them does
+ * not depend on how many there are. Only the items in the requested range are
+ * passed to the component. When the grid is sorted in memory, each list of
+ * children is sorted once for that sort order.
+ * <p>
+ * Call {@link #refreshAll()} or {@link #refreshItem(Object, boolean)} after
+ * changing the children of an item, to drop them and their descendants from
+ * the index.
+ *
+ * @param <T>
+ *            the item type
+ */
+public class IndexedHierarchicalDataProvider<T>
+        extends AbstractBackEndHierarchicalDataProvider<T, Void> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Indexed children of a single item.
+     */
+    private static class Children<T> {
+        private final List<T> items;
+        private Comparator<T> sortedBy;
+        private List<T> sorted;
+
+        Children(Collection<T> items) {
+            if (items instanceof List && items instanceof RandomAccess) {
+                this.items = (List<T>) items;
+            } else {
+                this.items = new ArrayList<>(items);
+            }
+        }
+
+        List<T> get(Comparator<T> comparator) {
+            if (comparator == null || items.size() < 2) {
+                return items;
+            }
+            if (comparator != sortedBy) {
+                sorted = new ArrayList<>(items);
+                sorted.sort(comparator);
+                sortedBy = comparator;
+            }
+            return sorted;
+        }
+    }
+
+    private final Collection<T> roots;
+    private final SerializableFunction<T, ? extends Collection<T>> childrenProvider;
+
+    // rebuilt on demand, so that it is not serialized with the session
+    private transient Children<T> rootIndex;
+    private transient Map<Object, Children<T>> index;
+
+    /**
+     * Creates a provider for the given tree.
+     *
+     * @param roots
+     *            the root items
+     * @param childrenProvider
+     *            returns the children of an item, never {@code null}; called
+     *            once per item until the item is refreshed
+     */
+    public IndexedHierarchicalDataProvider(Collection<T> roots,
+            SerializableFunction<T, ? extends Collection<T>> childrenProvider) {
+        this.roots = Objects.requireNonNull(roots, "Roots cannot be null");
+        this.childrenProvider = Objects.requireNonNull(childrenProvider,
+                "Children provider cannot be null");
+    }
+
+    @Override
+    public int getChildCount(HierarchicalQuery<T, Void> query) {
+        return children(query.getParent()).items.size();
+    }
+
+    @Override
+    public boolean hasChildren(T item) {
+        return !children(item).items.isEmpty();
+    }
+
+    @Override
+    protected Stream<T> fetchChildrenFromBackEnd(
+            HierarchicalQuery<T, Void> query) {
+        List<T> children = children(query.getParent())
+                .get(query.getInMemorySorting());
+        int from = Math.min(query.getOffset(), children.size());
+        int to = (int) Math.min((long) from + query.getLimit(),
+                children.size());
+        return children.subList(from, to).stream();
+    }
+
+    @Override
+    public void refreshAll() {
+        rootIndex = null;
+        index = null;
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item, boolean refreshChildren) {
+        if (refreshChildren && index != null) {
+            // the children of the descendants may have changed as well
+            Deque<T> items = new ArrayDeque<>();
+            items.push(item);
+            while (!items.isEmpty()) {
+                Children<T> children = index.remove(getId(items.pop()));
+                if (children != null) {
+                    children.items.forEach(items::push);
+                }
+            }
+        }
+        super.refreshItem(item, refreshChildren);
+    }
+
+    private Children<T> children(T parent) {
+        if (parent == null) {
+            if (rootIndex == null) {
+                rootIndex = new Children<>(roots);
+            }
+            return rootIndex;
+        }
+        if (index == null) {
+            index = new HashMap<>();
+        }
+        return index.computeIfAbsent(getId(parent),
+                id -> new Children<>(childrenProvider.apply(parent)));
+    }
+}
@@ -1,26 +1,117 @@
 package com.vaadin.platform.test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.Span;
 
+/**
+ * Shows the latest messages logged by a view, the last one in the
+ * {@code log} span.
+ * <p>
+ * Only the given number of messages is kept, in a ring buffer, and the rows
+ * showing them are reused, so that the component does not grow with the
+ * session. Messages logged while handling a request are sent to the client
+ * together, right before the response.
+ */
 public class Log extends Div {
 
-    private int nr = 1;
-    private Span logMsg = new Span();
+    /**
+     * Number of messages kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private final String[] messages;
+    // the row of each message is at the same index as the message
+    private final List<Div> rows = new ArrayList<>();
+    private final Div rowContainer = new Div();
+    private final Span logMsg = new Span();
+
+    // number of messages logged, and of those sent to the client
+    private int logged;
+    private int sent;
+    private boolean flushPending;
 
     public Log() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a log keeping the given number of messages.
+     *
+     * @param capacity
+     *            the number of messages shown
+     */
+    public Log(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        messages = new String[capacity];
         setWidth("100%");
         setHeight("5em");
         getElement().getStyle().set("overflow", "auto");
         logMsg.setId("log");
-        add(logMsg);
+        rowContainer.getStyle().set("display", "flex");
+        rowContainer.getStyle().set("flex-direction", "column");
+        add(logMsg, rowContainer);
+        // a flush scheduled before detaching is dropped with the node, so
+        // the messages not yet sent are scheduled again when re-attached
+        addDetachListener(event -> flushPending = false);
+        addAttachListener(event -> {
+            if (sent < logged) {
+                scheduleFlush();
+            }
+        });
     }
 
     public void log(String message) {
-        Div row = new Div();
-        row.setText(nr++ + ". " + message);
-        getElement().appendChild(row.getElement());
-        logMsg.setText(message);
+        messages[logged % messages.length] = message;
+        logged++;
+        scheduleFlush();
+    }
+
+    /**
+     * Gets the kept messages, the oldest first.
+     *
+     * @return the messages
+     */
+    public List<String> getMessages() {
+        int first = Math.max(0, logged - messages.length);
+        List<String> kept = new ArrayList<>(logged - first);
+        for (int i = first; i < logged; i++) {
+            kept.add(messages[i % messages.length]);
+        }
+        return Collections.unmodifiableList(kept);
+    }
+
+    private void scheduleFlush() {
+        if (!flushPending) {
+            flushPending = true;
+            getElement().getNode().runWhenAttached(ui -> ui
+                    .beforeClientResponse(this, context -> flush()));
+        }
+    }
+
+    private void flush() {
+        flushPending = false;
+        // messages overwritten before being sent are skipped
+        for (int i = Math.max(sent, logged - messages.length); i < logged;
+                i++) {
+            int index = i % messages.length;
+            while (rows.size() <= index) {
+                Div row = new Div();
+                rows.add(row);
+                rowContainer.add(row);
+            }
+            Div row = rows.get(index);
+            row.setText((i + 1) + ". " + messages[index]);
+            // reused rows are moved after the others
+            row.getStyle().set("order", String.valueOf(i));
+        }
+        sent = logged;
+        logMsg.setText(messages[(logged - 1) % messages.length]);
     }
 
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridArrayUpdater;
+import com.vaadin.flow.component.grid.GridArrayUpdater.UpdateQueueData;
+import com.vaadin.flow.data.provider.CompositeDataGenerator;
+import com.vaadin.flow.data.provider.DataCommunicator;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.function.SerializableSupplier;
+import com.vaadin.flow.function.ValueProvider;
+
+import elemental.json.JsonValue;
+
+/**
+ * A {@link Grid} measuring how each data request of the client is answered:
+ * the time spent in the data communicator, from fetching the items to queueing
+ * them for the client, and the number and JSON size of the items sent.
+ * <p>
+ * The size of the items is computed once the time has been taken, so it does
+ * not add to it.
+ *
+ * @param <T>
+ *            the item type
+ */
+public class MeteredGrid<T> extends Grid<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * State of the update being measured, shared by the data communicator and
+     * the update queues of the grid.
+     */
+    private static class Meter implements Serializable {
+        private final SerializableConsumer<GridScrollSample> consumer;
+        private int requestedStart;
+        private int requestedLength;
+        private long started = -1;
+        private transient List<List<JsonValue>> sent;
+
+        Meter(SerializableConsumer<GridScrollSample> consumer) {
+            this.consumer = Objects.requireNonNull(consumer,
+                    "Sample consumer cannot be null");
+        }
+
+        void requested(int start, int length) {
+            requestedStart = start;
+            requestedLength = length;
+            started = -1;
+        }
+
+        void start() {
+            if (started < 0) {
+                started = System.nanoTime();
+            }
+        }
+
+        void sent(List<JsonValue> items) {
+            if (sent == null) {
+                sent = new ArrayList<>();
+            }
+            sent.add(items);
+        }
+
+        void committed(int updateId) {
+            long nanos = started < 0 ? 0 : System.nanoTime() - started;
+            int items = 0;
+            long bytes = 0;
+            if (sent != null) {
+                for (List<JsonValue> list : sent) {
+                    items += list.size();
+                    for (JsonValue item : list) {
+                        bytes += item.toJson()
+                                .getBytes(StandardCharsets.UTF_8).length;
+                    }
+                }
+            }
+            started = -1;
+            sent = null;
+            consumer.accept(new GridScrollSample(requestedStart,
+                    requestedLength, updateId, nanos, items, bytes));
+        }
+    }
+
+    private static class MeteredDataCommunicator<T>
+            extends DataCommunicator<T> {
+        private final Meter meter;
+
+        MeteredDataCommunicator(Element element,
+                CompositeDataGenerator<T> dataGenerator,
+                GridArrayUpdater arrayUpdater, Meter meter) {
+            super(dataGenerator, arrayUpdater,
+                    data -> element.callJsFunction("$connector.updateData",
+                            data),
+                    element.getNode());
+            this.meter = meter;
+        }
+
+        @Override
+        public void setRequestedRange(int start, int length) {
+            meter.requested(start, length);
+            super.setRequestedRange(start, length);
+        }
+
+        @Override
+        public int getDataProviderSize() {
+            meter.start();
+            return super.getDataProviderSize();
+        }
+
+        @Override
+        protected Stream<T> fetchFromProvider(int offset, int limit) {
+            meter.start();
+            return super.fetchFromProvider(offset, limit);
+        }
+    }
+
+    private static class MeteredDataCommunicatorBuilder<T>
+            extends DataCommunicatorBuilder<T, GridArrayUpdater> {
+        private final Meter meter;
+
+        MeteredDataCommunicatorBuilder(Meter meter) {
+            this.meter = meter;
+        }
+
+        @Override
+        protected DataCommunicator<T> build(Element element,
+                CompositeDataGenerator<T> dataGenerator,
+                GridArrayUpdater arrayUpdater,
+                SerializableSupplier<ValueProvider<T, String>> uniqueKeyProviderSupplier) {
+            return new MeteredDataCommunicator<>(element, dataGenerator,
+                    arrayUpdater, meter);
+        }
+    }
+
+    private static class MeteredUpdateQueue extends UpdateQueue {
+        private final Meter meter;
+
+        MeteredUpdateQueue(UpdateQueueData data, int size, Meter meter) {
+            super(data, size);
+            this.meter = meter;
+            meter.start();
+        }
+
+        @Override
+        public void set(int start, List<JsonValue> items) {
+            meter.sent(items);
+            super.set(start, items);
+        }
+
+        @Override
+        public void commit(int updateId) {
+            super.commit(updateId);
+            meter.committed(updateId);
+        }
+    }
+
+    /**
+     * Creates a grid passing a sample to the given consumer for each update
+     * sent to the client.
+     *
+     * @param pageSize
+     *            the page size
+     * @param sampleConsumer
+     *            receives the samples
+     */
+    public MeteredGrid(int pageSize,
+            SerializableConsumer<GridScrollSample> sampleConsumer) {
+        this(pageSize, new Meter(sampleConsumer));
+    }
+
+    private MeteredGrid(int pageSize, Meter meter) {
+        super(pageSize,
+                (data, size) -> new MeteredUpdateQueue(data, size, meter),
+                new MeteredDataCommunicatorBuilder<T>(meter));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responds with the {@link StartupTimings} as JSON, with the status 200 once
+ * the application is ready, 503 before and 500 if a phase has failed.
+ */
+@WebServlet(ReadinessServlet.PATH)
+public class ReadinessServlet extends HttpServlet {
+
+    public static final String PATH = "/ready";
+
+    @Override
+    protected void doGet(HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        StartupTimings timings = StartupTimings.get();
+        if (timings.hasFailed()) {
+            response.setStatus(
+                    HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } else {
+            response.setStatus(timings.isReady() ? HttpServletResponse.SC_OK
+                    : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(timings.toJson().toJson());
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.upload.Receiver;
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.VaadinService;
+
+/**
+ * Upload receiver which does not keep large files on the heap, unlike
+ * {@link com.vaadin.flow.component.upload.receivers.MemoryBuffer}.
+ * <p>
+ * The first bytes of each file are kept in memory, and the rest is spooled to
+ * memory-mapped temporary files, which are deleted as soon as they are
+ * created. The file can be read once, either with {@link #getInputStream()}
+ * once the upload has succeeded, or by a {@link StreamHandler} while the
+ * upload is still in progress. With a handler, the upload waits whenever the
+ * handler falls behind by more than a given number of bytes, so that the disk
+ * space used is bounded as well, and fails if the handler stops reading.
+ * <p>
+ * Call {@link #abort()} from a failed listener of the upload, so that the
+ * handler does not wait for the rest of the file.
+ */
+public class SpoolingReceiver implements Receiver {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Bytes kept on the heap before spooling to disk, by default.
+     */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Size of each memory-mapped file, by default.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Bytes the handler can fall behind before the upload waits, by default.
+     */
+    public static final long DEFAULT_MAX_UNREAD = 64L * 1024 * 1024;
+
+    /**
+     * Reads an uploaded file while it is being received.
+     */
+    @FunctionalInterface
+    public interface StreamHandler extends Serializable {
+        /**
+         * Reads the file. The stream ends when the upload has been fully
+         * received, and fails if the upload is aborted.
+         *
+         * @param fileName
+         *            the name of the file
+         * @param mimeType
+         *            the MIME type of the file
+         * @param stream
+         *            the contents of the file, closed once the handler
+         *            returns
+         * @throws IOException
+         *             if reading fails, which fails the upload too
+         */
+        void handle(String fileName, String mimeType, InputStream stream)
+                throws IOException;
+    }
+
+    private final StreamHandler handler;
+    private final int memoryThreshold;
+    private final int segmentSize;
+    private final long maxUnread;
+
+    private String fileName;
+    private String mimeType;
+    private transient Spool spool;
+
+    /**
+     * Creates a receiver for reading each file after it has been uploaded,
+     * with {@link #getInputStream()}.
+     */
+    public SpoolingReceiver() {
+        this(null, DEFAULT_MEMORY_THRESHOLD, DEFAULT_SEGMENT_SIZE,
+                Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a receiver passing each file to the given handler as soon as
+     * the upload starts.
+     *
+     * @param handler
+     *            the handler, run in a separate thread
+     */
+    public SpoolingReceiver(StreamHandler handler) {
+        this(handler, DEFAULT_MEMORY_THRESHOLD, DEFAULT_SEGMENT_SIZE,
+                DEFAULT_MAX_UNREAD);
+    }
+
+    /**
+     * Creates a receiver.
+     *
+     * @param handler
+     *            the handler, run in a separate thread, or {@code null} to
+     *            read each file with {@link #getInputStream()}
+     * @param memoryThreshold
+     *            the number of bytes kept on the heap
+     * @param segmentSize
+     *            the size of each memory-mapped file
+     * @param maxUnread
+     *            the number of bytes received but not read yet after which
+     *            the upload waits for the reader
+     */
+    public SpoolingReceiver(StreamHandler handler, int memoryThreshold,
+            int segmentSize, long maxUnread) {
+        if (memoryThreshold < 0 || segmentSize <= 0 || maxUnread <= 0) {
+            throw new IllegalArgumentException(
+                    "Sizes must be positive, the memory threshold can be 0");
+        }
+        this.handler = handler;
+        this.memoryThreshold = memoryThreshold;
+        this.segmentSize = segmentSize;
+        this.maxUnread = maxUnread;
+    }
+
+    @Override
+    public OutputStream receiveUpload(String fileName, String mimeType) {
+        if (handler == null && spool != null) {
+            // the previous file can not be read anymore
+            spool.closeReader();
+        }
+        this.fileName = fileName;
+        this.mimeType = mimeType;
+        Spool current = new Spool(memoryThreshold, segmentSize, maxUnread);
+        spool = current;
+        if (handler != null) {
+            InputStream stream = current.openReader();
+            HandlerThreads.execute(() -> {
+                try (stream) {
+                    handler.handle(fileName, mimeType, stream);
+                } catch (IOException | RuntimeException e) {
+                    LoggerFactory.getLogger(SpoolingReceiver.class)
+                            .warn("Failed to handle upload " + fileName, e);
+                }
+            });
+        }
+        return current.writer();
+    }
+
+    /**
+     * Gets the contents of the last uploaded file. Can be called once for each
+     * file, and only without a {@link StreamHandler}.
+     *
+     * @return the contents
+     * @throws IllegalStateException
+     *             if no file has been uploaded, or if it is already being
+     *             read
+     */
+    public InputStream getInputStream() {
+        if (spool == null) {
+            throw new IllegalStateException("No file has been uploaded");
+        }
+        return spool.openReader();
+    }
+
+    /**
+     * Gets the name of the last uploaded file.
+     *
+     * @return the file name, or {@code null} if no file has been uploaded
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the MIME type of the last uploaded file.
+     *
+     * @return the MIME type, or {@code null} if no file has been uploaded
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Marks the last upload as failed. Reading it fails from now on, and
+     * receiving the rest of it too.
+     */
+    public void abort() {
+        if (spool != null) {
+            spool.abort();
+        }
+    }
+
+    /**
+     * The threads running the handlers of an application, stopped when its
+     * service is destroyed so that a redeployed application does not leave
+     * them behind.
+     */
+    private static class HandlerThreads {
+        private final AtomicInteger count = new AtomicInteger();
+        private final ExecutorService executor = Executors
+                .newCachedThreadPool(task -> {
+                    Thread thread = new Thread(task,
+                            "upload-stream-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        static void execute(Runnable task) {
+            VaadinService service = VaadinService.getCurrent();
+            if (service == null) {
+                // not in a request, e.g. in a unit test
+                Thread thread = new Thread(task, "upload-stream");
+                thread.setDaemon(true);
+                thread.start();
+                return;
+            }
+            VaadinContext context = service.getContext();
+            context.getAttribute(HandlerThreads.class, () -> {
+                HandlerThreads threads = new HandlerThreads();
+                service.addServiceDestroyListener(event -> {
+                    context.removeAttribute(HandlerThreads.class);
+                    // interrupts the handlers waiting for their upload
+                    threads.executor.shutdownNow();
+                });
+                return threads;
+            }).executor.execute(task);
+        }
+    }
+
+    /**
+     * A file received once and read once, at the same time or afterwards.
+     * Segments are released as soon as they have been read, and reused for
+     * writing.
+     */
+    private static class Spool {
+        private final int memoryThreshold;
+        private final int segmentSize;
+        private final long maxUnread;
+
+        private byte[] memory = new byte[0];
+        // the segments not fully read yet, the first one holds firstSegment
+        private final Deque<MappedByteBuffer> segments = new ArrayDeque<>();
+        private final Deque<MappedByteBuffer> free = new ArrayDeque<>();
+        private long firstSegment;
+
+        private long written;
+        private long read;
+        private boolean writerClosed;
+        private boolean readerOpened;
+        private boolean readerClosed;
+        private boolean aborted;
+
+        Spool(int memoryThreshold, int segmentSize, long maxUnread) {
+            this.memoryThreshold = memoryThreshold;
+            this.segmentSize = segmentSize;
+            this.maxUnread = maxUnread;
+        }
+
+        synchronized InputStream openReader() {
+            if (readerOpened) {
+                throw new IllegalStateException(
+                        "The uploaded file can only be read once");
+            }
+            readerOpened = true;
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length)
+                        throws IOException {
+                    return Spool.this.read(buffer, offset, length);
+                }
+
+                @Override
+                public int available() {
+                    return (int) Math.min(unread(), Integer.MAX_VALUE);
+                }
+
+                @Override
+                public void close() {
+                    closeReader();
+                }
+            };
+        }
+
+        OutputStream writer() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] buffer, int offset, int length)
+                        throws IOException {
+                    Spool.this.write(buffer, offset, length);
+                }
+
+                @Override
+                public void close() {
+                    closeWriter();
+                }
+            };
+        }
+
+        private synchronized long unread() {
+            return written - read;
+        }
+
+        private synchronized void write(byte[] buffer, int offset,
+                int length) throws IOException {
+            while (length > 0) {
+                while (written - read >= maxUnread && !readerClosed
+                        && !aborted) {
+                    await();
+                }
+                if (readerClosed || aborted) {
+                    throw new IOException(
+                            "The uploaded file is not read anymore");
+                }
+                int chunk = (int) Math.min(length,
+                        maxUnread - (written - read));
+                if (written < memoryThreshold) {
+                    chunk = (int) Math.min(chunk, memoryThreshold - written);
+                    if (memory.length < written + chunk) {
+                        memory = Arrays.copyOf(memory, (int) Math.min(
+                                Math.max(written + chunk, memory.length * 2L),
+                                memoryThreshold));
+                    }
+                    System.arraycopy(buffer, offset, memory, (int) written,
+                            chunk);
+                } else {
+                    long position = written - memoryThreshold;
+                    int inSegment = (int) (position % segmentSize);
+                    chunk = Math.min(chunk, segmentSize - inSegment);
+                    MappedByteBuffer segment = segmentForWriting(
+                            position / segmentSize);
+                    segment.position(inSegment);
+                    segment.put(buffer, offset, chunk);
+                }
+                written += chunk;
+                offset += chunk;
+                length -= chunk;
+                notifyAll();
+            }
+        }
+
+        private synchronized int read(byte[] buffer, int offset, int length)
+                throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (read == written && !writerClosed && !aborted
+                    && !readerClosed) {
+                await();
+            }
+            if (aborted) {
+                throw new IOException("The upload has failed");
+            }
+            if (readerClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (read == written) {
+                return -1;
+            }
+            int chunk = (int) Math.min(length, written - read);
+            if (read < memoryThreshold) {
+                chunk = (int) Math.min(chunk, memoryThreshold - read);
+                System.arraycopy(memory, (int) read, buffer, offset, chunk);
+                if (read + chunk == memoryThreshold) {
+                    memory = null;
+                }
+            } else {
+                long position = read - memoryThreshold;
+                int inSegment = (int) (position % segmentSize);
+                chunk = Math.min(chunk, segmentSize - inSegment);
+                MappedByteBuffer segment = segments.getFirst();
+                segment.position(inSegment);
+                segment.get(buffer, offset, chunk);
+                if (inSegment + chunk == segmentSize) {
+                    free.push(segments.removeFirst());
+                    firstSegment++;
+                }
+            }
+            read += chunk;
+            notifyAll();
+            return chunk;
+        }
+
+        private MappedByteBuffer segmentForWriting(long index)
+                throws IOException {
+            while (firstSegment + segments.size() <= index) {
+                segments.addLast(free.isEmpty() ? map() : free.pop());
+            }
+            // the segment being written is always the last one
+            return segments.getLast();
+        }
+
+        private MappedByteBuffer map() throws IOException {
+            File file = File.createTempFile("upload", ".spool");
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        segmentSize);
+            } finally {
+                // the mapping stays valid, and the disk space is freed once
+                // it is garbage collected
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+
+        private synchronized void closeWriter() {
+            writerClosed = true;
+            notifyAll();
+        }
+
+        synchronized void closeReader() {
+            readerClosed = true;
+            release();
+            notifyAll();
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            release();
+            notifyAll();
+        }
+
+        private void release() {
+            memory = null;
+            segments.clear();
+            free.clear();
+        }
+
+        private void await() throws InterruptedIOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while waiting for the upload");
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.startup.ApplicationRouteRegistry;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * The startup phases of the application, in milliseconds since the JVM was
+ * started.
+ * <p>
+ * Phases run by initializers, like the registration of the routes, are only
+ * seen ending, so they start when the previous phase ended. The application
+ * is ready when the routes are registered and every started phase has ended.
+ */
+public class StartupTimings {
+
+    /**
+     * From the start of the JVM to the first time the application is called.
+     */
+    public static final String CONTAINER = "container";
+    /**
+     * The initialization of the {@link com.vaadin.flow.di.Lookup}.
+     */
+    public static final String LOOKUP = "lookup";
+    /**
+     * The discovery of the classes from the Jandex indexes, when
+     * {@code JandexDiscoveryInitializer} of the {@code jandex-discovery}
+     * profile is enabled.
+     */
+    public static final String DISCOVERY = "discovery";
+    /**
+     * The registration of the routes.
+     */
+    public static final String ROUTES = "routes";
+    /**
+     * Prefix of the phase of each servlet, followed by the servlet name.
+     */
+    public static final String SERVLET_INIT = "servletInit ";
+    /**
+     * Prefix of the phase loading the frontend bundle, or starting the dev
+     * server, of each servlet, followed by the servlet name.
+     */
+    public static final String BUNDLE = "bundle ";
+
+    private static final StartupTimings INSTANCE = new StartupTimings();
+
+    private final long jvmStart = ManagementFactory.getRuntimeMXBean()
+            .getStartTime();
+    // start and end of each phase, -1 while not ended
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final Set<String> failed = new LinkedHashSet<>();
+    private long lastEnd;
+    private boolean routesWatched;
+    private boolean ready;
+
+    /**
+     * Gets the timings of the application.
+     *
+     * @return the timings
+     */
+    public static StartupTimings get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks the start of a phase, unless it has already started.
+     *
+     * @param phase
+     *            the phase name
+     */
+    public synchronized void begin(String phase) {
+        endContainer();
+        phases.putIfAbsent(phase, new long[] { now(), -1 });
+    }
+
+    /**
+     * Marks the end of a phase. A phase which was not started is considered
+     * to start when the previous phase ended.
+     *
+     * @param phase
+     *            the phase name
+     */
+    public synchronized void end(String phase) {
+        endContainer();
+        long[] times = phases.computeIfAbsent(phase,
+                name -> new long[] { lastEnd, -1 });
+        if (times[1] >= 0) {
+            return;
+        }
+        times[1] = now();
+        lastEnd = Math.max(lastEnd, times[1]);
+        if (!ready && isReady()) {
+            ready = true;
+            LoggerFactory.getLogger(StartupTimings.class)
+                    .info("Application ready: {}", toJson().toJson());
+        }
+    }
+
+    /**
+     * Marks a phase as failed, ending it if it has not ended.
+     *
+     * @param phase
+     *            the phase name
+     */
+    public synchronized void fail(String phase) {
+        failed.add(phase);
+        end(phase);
+    }
+
+    /**
+     * Checks whether a phase has failed.
+     *
+     * @return whether a phase has failed
+     */
+    public synchronized boolean hasFailed() {
+        return !failed.isEmpty();
+    }
+
+    private void endContainer() {
+        if (phases.isEmpty()) {
+            lastEnd = now();
+            phases.put(CONTAINER, new long[] { 0, lastEnd });
+        }
+    }
+
+    /**
+     * Checks whether the phase has ended.
+     *
+     * @param phase
+     *            the phase name
+     * @return whether the phase has ended
+     */
+    public synchronized boolean hasEnded(String phase) {
+        return phases.containsKey(phase) && phases.get(phase)[1] >= 0;
+    }
+
+    /**
+     * Ends the {@link #ROUTES} phase when the registry of the context has
+     * routes, now or once they are registered.
+     *
+     * @param context
+     *            the context of the Vaadin servlets
+     */
+    public synchronized void watch(VaadinContext context) {
+        if (hasEnded(ROUTES)) {
+            return;
+        }
+        ApplicationRouteRegistry registry = ApplicationRouteRegistry
+                .getInstance(context);
+        if (!registry.getRegisteredRoutes().isEmpty()) {
+            end(ROUTES);
+        } else if (!routesWatched) {
+            routesWatched = true;
+            registry.addRoutesChangeListener(event -> {
+                if (!event.getAddedRoutes().isEmpty()) {
+                    end(ROUTES);
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks whether the routes are registered and all the started phases
+     * have ended without failing, at least one Vaadin servlet being ready.
+     *
+     * @return whether the application is ready
+     */
+    public synchronized boolean isReady() {
+        return failed.isEmpty() && hasEnded(ROUTES)
+                && phases.keySet().stream().anyMatch(
+                        phase -> phase.startsWith(BUNDLE))
+                && phases.values().stream().allMatch(times -> times[1] >= 0);
+    }
+
+    /**
+     * Gets the phases as JSON, with the start, the end and the duration of
+     * each phase in milliseconds since the JVM was started, whether it
+     * failed, and whether the application is ready.
+     *
+     * @return the timings as JSON
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject json = Json.createObject();
+        json.put("ready", isReady());
+        JsonObject timings = Json.createObject();
+        phases.forEach((phase, times) -> {
+            JsonObject timing = Json.createObject();
+            timing.put("start", times[0]);
+            if (times[1] >= 0) {
+                timing.put("end", times[1]);
+                timing.put("duration", times[1] - times[0]);
+            }
+            if (failed.contains(phase)) {
+                timing.put("failed", true);
+            }
+            timings.put(phase, timing);
+        });
+        json.put("phases", timings);
+        return json;
+    }
+
+    private long now() {
+        return System.currentTimeMillis() - jvmStart;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import javax.servlet.ServletException;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.vaadin.flow.di.LookupInitializer;
+import com.vaadin.flow.function.VaadinApplicationInitializationBootstrap;
+import com.vaadin.flow.server.VaadinContext;
+
+/**
+ * Records the initialization of the lookup in {@link StartupTimings}. It is
+ * used instead of the default {@link LookupInitializer} by Flow, being found
+ * in the application classes.
+ * <p>
+ * The initializers registering the routes need the lookup, so they run
+ * after it and the routes registry is watched from there.
+ */
+public class TimedLookupInitializer extends LookupInitializer {
+
+    @Override
+    public void initialize(VaadinContext context,
+            Map<Class<?>, Collection<Class<?>>> services,
+            VaadinApplicationInitializationBootstrap bootstrap)
+            throws ServletException {
+        StartupTimings timings = StartupTimings.get();
+        timings.begin(StartupTimings.LOOKUP);
+        super.initialize(context, services, lookup -> {
+            timings.end(StartupTimings.LOOKUP);
+            timings.watch(context);
+            bootstrap.bootstrap(lookup);
+        });
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.server.VaadinServlet;
+import com.vaadin.flow.server.frontend.FrontendUtils;
+
+/**
+ * A {@link VaadinServlet} recording the time of its initialization in
+ * {@link StartupTimings}, and the time until its page can be served: when
+ * the frontend bundle is found in production mode, or when the dev server
+ * has started in development mode. The phase fails if the page is not found
+ * in 10 minutes.
+ */
+public class TimedVaadinServlet extends VaadinServlet {
+
+    private static final long BUNDLE_TIMEOUT_MINUTES = 10;
+    private static final long POLL_MILLIS = 100;
+
+    @Override
+    public void init(ServletConfig servletConfig) throws ServletException {
+        StartupTimings timings = StartupTimings.get();
+        String name = servletConfig.getServletName();
+        timings.begin(StartupTimings.SERVLET_INIT + name);
+        super.init(servletConfig);
+        timings.end(StartupTimings.SERVLET_INIT + name);
+        timings.watch(getService().getContext());
+
+        timings.begin(StartupTimings.BUNDLE + name);
+        Thread thread = new Thread(() -> awaitBundle(name),
+                "startup-bundle-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void awaitBundle(String name) {
+        // reads the file from the dev server in development mode, null when
+        // there is neither a bundle nor a dev server page yet
+        awaitPage(() -> FrontendUtils.getIndexHtmlContent(getService()),
+                StartupTimings.get(), StartupTimings.BUNDLE + name,
+                TimeUnit.MINUTES.toNanos(BUNDLE_TIMEOUT_MINUTES));
+    }
+
+    /**
+     * Reads the page until it has content, then ends the phase. The phase
+     * fails if the page cannot be read before the timeout.
+     *
+     * @param page
+     *            reads the page, returning {@code null} when it is not found
+     * @param timings
+     *            the timings where the phase is ended
+     * @param phase
+     *            the phase name
+     * @param timeoutNanos
+     *            the time after which the phase fails
+     */
+    static void awaitPage(Callable<String> page, StartupTimings timings,
+            String phase, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Exception failure = null;
+        do {
+            try {
+                if (page.call() != null) {
+                    timings.end(phase);
+                    return;
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timings.fail(phase);
+                return;
+            }
+        } while (System.nanoTime() < deadline);
+        LoggerFactory.getLogger(TimedVaadinServlet.class).error(
+                "The page of phase {} could not be loaded", phase, failure);
+        timings.fail(phase);
+    }
+}
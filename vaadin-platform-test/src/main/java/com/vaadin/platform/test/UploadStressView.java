@@ -0,0 +1,95 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.router.Route;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * An {@link Upload} reading each file while it is being uploaded, for
+ * uploading files larger than the heap of the server.
+ * <p>
+ * The SHA-256 digest and the size of each received file are available as JSON
+ * in the {@value #UPLOADS_PROPERTY} property of the view element, and the
+ * maximum heap size of the server in the {@value #MAX_HEAP_PROPERTY} property.
+ */
+@Route("upload-stress")
+public class UploadStressView extends Div {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String UPLOADS_PROPERTY = "uploads";
+    static final String MAX_HEAP_PROPERTY = "maxHeap";
+
+    private final UI ui;
+    private final List<JsonObject> uploads = new ArrayList<>();
+
+    public UploadStressView() {
+        setId("upload-stress");
+        ui = UI.getCurrent();
+        getElement().setProperty(MAX_HEAP_PROPERTY,
+                Runtime.getRuntime().maxMemory());
+
+        SpoolingReceiver receiver = new SpoolingReceiver(this::digest);
+        Upload upload = new Upload(receiver);
+        upload.setId("upload");
+        upload.addFailedListener(event -> receiver.abort());
+        add(upload);
+    }
+
+    private void digest(String fileName, String mimeType, InputStream stream)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        for (int read = stream.read(buffer); read >= 0; read = stream
+                .read(buffer)) {
+            digest.update(buffer, 0, read);
+            size += read;
+        }
+
+        JsonObject result = Json.createObject();
+        result.put("fileName", fileName);
+        result.put("size", size);
+        result.put("sha256",
+                String.format("%064x", new BigInteger(1, digest.digest())));
+        ui.access(() -> {
+            uploads.add(result);
+            JsonArray array = Json.createArray();
+            uploads.forEach(upload -> array.set(array.length(), upload));
+            getElement().setPropertyJson(UPLOADS_PROPERTY, array);
+        });
+    }
+}
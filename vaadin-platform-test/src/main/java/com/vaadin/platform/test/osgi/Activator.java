@@ -29,12 +29,13 @@ import org.osgi.service.http.NamespaceException;
 import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
 
 import com.vaadin.flow.server.InitParameters;
-import com.vaadin.flow.server.VaadinServlet;
+import com.vaadin.platform.test.ReadinessServlet;
+import com.vaadin.platform.test.TimedVaadinServlet;
 
 @Component(immediate = true)
 public class Activator {
 
-    private static class FixedVaadinServlet extends VaadinServlet {
+    private static class FixedVaadinServlet extends TimedVaadinServlet {
         @Override
         public void init(ServletConfig servletConfig) throws ServletException {
             super.init(servletConfig);
@@ -52,6 +53,12 @@ public class Activator {
                 createProperties("/*", false));
         context.registerService(Servlet.class, new FixedVaadinServlet(),
                 createProperties("/prod-mode/*", true));
+
+        Hashtable<String, Object> readiness = new Hashtable<>();
+        readiness.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN,
+                ReadinessServlet.PATH);
+        context.registerService(Servlet.class, new ReadinessServlet(),
+                readiness);
     }
 
     private Hashtable<String, Object> createProperties(String mapping,
@@ -66,6 +73,10 @@ public class Activator {
                 true);
         properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_PATTERN,
                 mapping);
+        // distinguishes the servlets in the startup timings
+        properties.put(HttpWhiteboardConstants.HTTP_WHITEBOARD_SERVLET_NAME,
+                isProductionMode ? "ProductionVaadinServlet"
+                        : "DevModeVaadinServlet");
         return properties;
     }
 
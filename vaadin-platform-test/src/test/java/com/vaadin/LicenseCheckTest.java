@@ -3,32 +3,51 @@ package com.vaadin;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.junit.Assert;
 import org.junit.Test;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
+/**
+ * Checks that the licenses of all the dependencies, listed in the
+ * {@code licenses.xml} files written by {@code mvn license:download-licenses},
+ * are whitelisted.
+ * <p>
+ * The files are parsed in parallel, with a streaming parser. The whitelisted
+ * licenses of the dependencies of a file are cached by the SHA-256 checksum of
+ * the file in {@code ~/.m2/repository/.cache/vaadin-license-check}, or in the
+ * folder given by the {@code vaadin.license.cache} system property, so an
+ * unchanged file is not parsed again as long as these licenses are still
+ * whitelisted.
+ */
 public class LicenseCheckTest {
     private static final Set<String> whitelist = new HashSet<>();
     static {
@@ -115,9 +134,11 @@ public class LicenseCheckTest {
     private static final List<String> excludeDirs = Arrays.asList(".git", "bower_components", "node", "node_modules",
             "src", "generated-sources", "classes", "test-classes");
 
+    private static final XMLInputFactory XML = XMLInputFactory.newInstance();
+
     private static class LicenseFileVisitor extends SimpleFileVisitor<Path> {
 
-        private boolean visited;
+        private final List<Path> files = new ArrayList<>();
 
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
@@ -132,89 +153,193 @@ public class LicenseCheckTest {
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
             String path = file.toString();
             if (path.endsWith("licenses.xml")) {
-                visited = true;
-                checkLicenses(file);
+                files.add(file);
             }
             return super.visitFile(file, attrs);
         }
 
-        private void checkLicenses(Path file) {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        public boolean visited() {
+            return !files.isEmpty();
+        }
+
+    }
+
+    /**
+     * The licenses of a {@code licenses.xml} file.
+     */
+    private static class LicenseFile {
+        private final Path file;
+        // the whitelisted licenses of each dependency, name or url
+        private final Map<String, Set<String>> whitelisted = new LinkedHashMap<>();
+        private final Map<String, List<String>> unsupported = new LinkedHashMap<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private LicenseFile(Path file) {
+            this.file = file;
+        }
+
+        private static LicenseFile parse(Path file, byte[] content) {
+            LicenseFile licenseFile = new LicenseFile(file);
             try {
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                Document doc = builder.parse(new ByteArrayInputStream(Files.readAllBytes(file)));
-                NodeList licenses = doc.getElementsByTagName("licenses");
-                for (int i = 0; i < licenses.getLength(); i++) {
-                    Node license = licenses.item(i);
-                    Map<String, List<String>> unsupported = new HashMap<>();
-                    if (!checkLicenses(license, unsupported)) {
-                        Assert.fail(getErrorMessage(file, unsupported));
+                XMLStreamReader reader = XML.createXMLStreamReader(new ByteArrayInputStream(content));
+                try {
+                    licenseFile.read(reader);
+                } finally {
+                    reader.close();
+                }
+            } catch (XMLStreamException exception) {
+                licenseFile.errors.add("Cannot parse license file " + file);
+            }
+            return licenseFile;
+        }
+
+        /*
+         * The texts of groupId, artifactId, name and url are kept in the
+         * element containing them, and a licenses element is checked once
+         * its parent, which has the groupId and artifactId, is read.
+         */
+        private void read(XMLStreamReader reader) throws XMLStreamException {
+            Deque<Element> elements = new ArrayDeque<>();
+            elements.push(new Element(""));
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (Element.TEXTS.contains(name)) {
+                        elements.peek().texts.putIfAbsent(name, reader.getElementText());
+                    } else {
+                        elements.push(new Element(name));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    Element element = elements.pop();
+                    if ("license".equals(element.name)) {
+                        elements.peek().licenses.add(element.texts);
+                    } else if ("licenses".equals(element.name)) {
+                        elements.peek().children.add(element.licenses);
                     }
+                    check(element);
                 }
-            } catch (ParserConfigurationException | SAXException | IOException exception) {
-                Assert.fail("Cannot parse license file " + file);
+            }
+            check(elements.pop());
+        }
+
+        private void check(Element element) {
+            for (List<Map<String, String>> licenses : element.children) {
+                check(element.texts.get("groupId") + ":" + element.texts.get("artifactId"), licenses);
             }
         }
 
-        private String getErrorMessage(Path file, Map<String, List<String>> unsupportedLicenses) {
+        private void check(String dependency, List<Map<String, String>> licenses) {
+            Set<String> keys = new HashSet<>();
+            List<String> notWhitelisted = new ArrayList<>();
+            for (Map<String, String> license : licenses) {
+                String name = license.get("name");
+                String url = license.get("url");
+                String key = url != null ? url : name;
+                if (key == null) {
+                    errors.add("There is no license info (name or url) por dependency: " + dependency);
+                } else if (!whitelist.contains(key)) {
+                    notWhitelisted.add(name + ": " + url);
+                } else {
+                    keys.add(key);
+                }
+            }
+            if (!keys.isEmpty()) {
+                whitelisted.computeIfAbsent(dependency, k -> new HashSet<>()).addAll(keys);
+            } else if (!notWhitelisted.isEmpty()) {
+                unsupported.computeIfAbsent(dependency, k -> new ArrayList<>()).addAll(notWhitelisted);
+            }
+        }
+
+        private boolean isValid() {
+            return errors.isEmpty() && unsupported.isEmpty();
+        }
+
+        private String getErrorMessage() {
+            if (!errors.isEmpty()) {
+                return String.join("\n", errors);
+            }
             StringBuilder builder = new StringBuilder("File ");
             builder.append(file)
                     .append(" contains the following dependencies with licenses that have not been whitelisted: ");
-            unsupportedLicenses.forEach((dependency, licenses) -> builder.append("\n dependency '").append(dependency)
+            unsupported.forEach((dependency, licenses) -> builder.append("\n dependency '").append(dependency)
                     .append("' has licenses : ").append(licenses));
             return builder.toString();
         }
+    }
 
-        private boolean checkLicenses(Node licenses, Map<String, List<String>> unsupportedLicenses) {
-            NodeList children = licenses.getChildNodes();
-            List<String> licenseNames = new ArrayList<>();
-            boolean hasLicenses = false;
+    private static class Element {
+        private static final Set<String> TEXTS = Set.of("groupId", "artifactId", "name", "url");
 
-            String groupId = getTagContent(licenses.getParentNode(), "groupId");
-            String artifactId = getTagContent(licenses.getParentNode(), "artifactId");
-            String dependency = groupId + ":" + artifactId;
+        private final String name;
+        private final Map<String, String> texts = new HashMap<>();
+        // the licenses of a licenses element
+        private final List<Map<String, String>> licenses = new ArrayList<>();
+        // the licenses elements of a dependency
+        private final List<List<Map<String, String>>> children = new ArrayList<>();
 
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-                if ("license".equals(child.getNodeName())) {
-                    hasLicenses = true;
-                    handleLicense(unsupportedLicenses, licenseNames, dependency, child);
-                }
-            }
-            return !licenseNames.isEmpty() || !hasLicenses;
+        private Element(String name) {
+            this.name = name;
         }
+    }
 
-        private void handleLicense(Map<String, List<String>> unsupportedLicenses, List<String> licenseNames,
-                String dependency, Node child) {
-            String name = getTagContent(child, "name");
-            String url = getTagContent(child, "url");
-            String key = url != null ? url : name != null ? name : null;
-
-            if (key == null) {
-                Assert.fail("There is no license info (name or url) por dependency: " + dependency);
-            } else if (!whitelist.contains(key)) {
-                List<String> licenses = unsupportedLicenses.computeIfAbsent(dependency, k -> new ArrayList<>());
-                licenses.add(name + ": " + url);
-            } else {
-                licenseNames.add(name);
-            }
-        }
+    private static Path getCache() {
+        String cache = System.getProperty("vaadin.license.cache");
+        return cache != null ? Paths.get(cache)
+                : Paths.get(System.getProperty("user.home"), ".m2", "repository", ".cache", "vaadin-license-check");
+    }
 
-        private String getTagContent(Node node, String tag) {
-            NodeList children = node.getChildNodes();
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-                if (tag.equals(child.getNodeName())) {
-                    return child.getTextContent();
-                }
+    /**
+     * Checks a file, unless its whitelisted licenses are cached and all of
+     * them are still whitelisted.
+     *
+     * @return the error message, or {@code null} if the licenses are
+     *         whitelisted
+     */
+    private static String check(Path file, Path cache) {
+        try {
+            byte[] content = Files.readAllBytes(file);
+            Path cached = cache.resolve(sha256(content) + ".txt");
+            if (Files.isRegularFile(cached) && isWhitelisted(Files.readAllLines(cached, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            LicenseFile licenseFile = LicenseFile.parse(file, content);
+            if (!licenseFile.isValid()) {
+                return licenseFile.getErrorMessage();
             }
+            write(cached, licenseFile.whitelisted);
             return null;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
         }
+    }
 
-        public boolean visited() {
-            return visited;
-        }
+    // One line per dependency, its licenses separated by tabs
+    private static boolean isWhitelisted(List<String> cached) {
+        return cached.stream().map(line -> line.split("\t"))
+                .allMatch(t -> Arrays.stream(t, 1, t.length).allMatch(whitelist::contains));
+    }
 
+    private static void write(Path cached, Map<String, Set<String>> whitelisted) throws IOException {
+        List<String> lines = whitelisted.entrySet().stream()
+                .map(e -> e.getKey() + "\t" + String.join("\t", e.getValue())).collect(Collectors.toList());
+        Files.createDirectories(cached.getParent());
+        // written aside first, as other builds may read the cache
+        Path temp = Files.createTempFile(cached.getParent(), "licenses", ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
     }
 
     @Test
@@ -230,5 +355,17 @@ public class LicenseCheckTest {
         Assert.assertTrue(
                 "No license.xml visited, you need to run `mvn license:download-licenses` in the parent folder",
                 visitor.visited());
+
+        Path cache = getCache();
+        List<String> errors;
+        try {
+            errors = visitor.files.parallelStream().map(file -> check(file, cache)).filter(error -> error != null)
+                    .sorted().collect(Collectors.toList());
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        if (!errors.isEmpty()) {
+            Assert.fail(String.join("\n", errors));
+        }
     }
 }
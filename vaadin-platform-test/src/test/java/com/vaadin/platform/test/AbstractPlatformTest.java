@@ -22,6 +22,8 @@ import org.junit.BeforeClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vaadin.platform.test.pool.PooledDriverRule;
+import com.vaadin.platform.test.server.TestServerPool;
 import com.vaadin.testbench.IPAddress;
 import com.vaadin.testbench.parallel.ParallelTest;
 
@@ -59,13 +61,31 @@ public abstract class AbstractPlatformTest extends ParallelTest {
         }
         hostName = isHub ? IPAddress.findSiteLocalAddress() : "localhost";
         getLogger().info("Running Tests app-url=http://{}:{} mode={}", hostName,
-                SERVER_PORT,
+                TestServerPool.isEnabled() ? TestServerPool.getPort()
+                        : SERVER_PORT,
                 isSauce ? "SAUCE (user:" + sauceUser + ")"
                         : isHub ? "HUB (hub-host:" + hubHost + ")"
                                 : "LOCAL (chromedriver)");
     }
 
+    private final PooledDriverRule driverRule = new PooledDriverRule(this);
+
+    public AbstractPlatformTest() {
+        // releases the browser to the pool after the failure screenshot
+        screenshotOnFailure = driverRule;
+    }
+
     @Before
+    @Override
+    public void setup() throws Exception {
+        setDriver(driverRule.acquire(getDesiredCapabilities(), () -> {
+            super.setup();
+            return getDriver();
+        }));
+        // not a @Before method of its own, as it needs the driver
+        setUp();
+    }
+
     public void setUp() {
         getDriver().get(getRootURL() + getTestPath());
     }
@@ -90,10 +110,13 @@ public abstract class AbstractPlatformTest extends ParallelTest {
     /**
      * Used to determine what port the test is running on.
      *
-     * @return The port the test is running on, by default 8080
+     * @return The port the test is running on, by default 8080, or the port
+     *         of the server of this fork when {@link TestServerPool} is
+     *         enabled
      */
     protected int getDeploymentPort() {
-        return SERVER_PORT;
+        return TestServerPool.isEnabled() ? TestServerPool.getPort()
+                : SERVER_PORT;
     }
 
     /**
@@ -57,6 +57,8 @@ import com.vaadin.flow.component.textfield.testbench.TextAreaElement;
 import com.vaadin.flow.component.textfield.testbench.TextFieldElement;
 import com.vaadin.flow.component.upload.testbench.UploadElement;
 import com.vaadin.flow.component.virtuallist.testbench.VirtualListElement;
+import com.vaadin.platform.test.batch.ElementSnapshot;
+import com.vaadin.platform.test.batch.SnapshotQuery;
 import com.vaadin.testbench.ElementQuery;
 import com.vaadin.testbench.TestBenchElement;
 import com.vaadin.testbench.annotations.BrowserConfiguration;
@@ -251,13 +253,9 @@ public class ChromeComponentsIT extends AbstractPlatformTest {
         TestBenchElement itemsContainer = ironList.$(DivElement.class).id("items");
         assertElementRendered(itemsContainer);
 
-        List<TestBenchElement> items = ironList.$("span").all();
-        Assert.assertFalse(items.isEmpty());
-        items.stream().forEach(this::assertElementRendered);
-
-        for (int i = 0; i < items.size(); i++) {
-            Assert.assertEquals("Item " + i, items.get(i).getText());
-        }
+        List<ElementSnapshot<TestBenchElement>> items = new SnapshotQuery()
+                .text().size().fetch(ironList, "span");
+        assertRenderedWithTexts(items);
     }
 
     @Test
@@ -268,13 +266,10 @@ public class ChromeComponentsIT extends AbstractPlatformTest {
         assertElementRendered(itemsContainer);
 
         // All the root-level div elements
-        List<TestBenchElement> items = virtualList.$("div:not(#items):not(:empty)").all();
-        Assert.assertFalse(items.isEmpty());
-        items.stream().forEach(this::assertElementRendered);
-
-        for (int i = 0; i < items.size(); i++) {
-            Assert.assertEquals("Item " + i, items.get(i).getText());
-        }
+        List<ElementSnapshot<TestBenchElement>> items = new SnapshotQuery()
+                .text().size()
+                .fetch(virtualList, "div:not(#items):not(:empty)");
+        assertRenderedWithTexts(items);
     }
 
     @Test
@@ -303,17 +298,12 @@ public class ChromeComponentsIT extends AbstractPlatformTest {
                 .attribute("part", "group-field").first();
         assertElementRendered(groupField);
 
-        List<RadioButtonElement> radioButtons = radioButtonGroup
-                .$(RadioButtonElement.class).all();
+        List<ElementSnapshot<RadioButtonElement>> radioButtons = new SnapshotQuery()
+                .text().size().fetch(radioButtonGroup, RadioButtonElement.class);
         Assert.assertEquals(5, radioButtons.size());
+        assertRenderedWithTexts(radioButtons);
 
-        radioButtons.stream().forEach(this::assertElementRendered);
-
-        for (int i = 0; i < 5; i++) {
-            Assert.assertEquals("Item " + i, radioButtons.get(i).getText());
-        }
-
-        radioButtons.get(0).click();
+        radioButtons.get(0).getElement().click();
 
         assertLog("RadioButtonGroup value changed from null to Item 0");
     }
@@ -496,15 +486,11 @@ public class ChromeComponentsIT extends AbstractPlatformTest {
 
         assertElementRendered(itemsContainer);
 
-        List<TestBenchElement> items = listBoxElement.$("vaadin-item").all();
+        List<ElementSnapshot<TestBenchElement>> items = new SnapshotQuery()
+                .text().size().fetch(listBoxElement, "vaadin-item");
 
         Assert.assertEquals(7, items.size());
-
-        items.stream().forEach(this::assertElementRendered);
-
-        for (int i = 0; i < 7; i++) {
-            Assert.assertEquals("Item " + i, items.get(i).getText());
-        }
+        assertRenderedWithTexts(items);
 
         TestBenchElement listBoxInnerComponent = listBoxElement.$(DivElement.class)
                 .id("list-box-component");
@@ -663,6 +649,19 @@ public class ChromeComponentsIT extends AbstractPlatformTest {
         Assert.assertEquals(msg, log.getText());
     }
 
+    /**
+     * Checks that the elements are rendered and show "Item 0", "Item 1" and
+     * so on.
+     */
+    private void assertRenderedWithTexts(
+            List<? extends ElementSnapshot<?>> items) {
+        Assert.assertFalse(items.isEmpty());
+        for (int i = 0; i < items.size(); i++) {
+            Assert.assertTrue(items.get(i).isRendered());
+            Assert.assertEquals("Item " + i, items.get(i).getText());
+        }
+    }
+
     private void assertElementRendered(WebElement element) {
         Assert.assertTrue(element.getSize().getHeight() > 0);
         Assert.assertTrue(element.getSize().getWidth() > 0);
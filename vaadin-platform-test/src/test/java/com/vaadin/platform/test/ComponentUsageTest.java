@@ -4,33 +4,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.reflect.ClassPath;
-import com.google.common.reflect.ClassPath.ClassInfo;
 import com.vaadin.experimental.FeatureFlags;
-import com.vaadin.flow.component.Component;
-import com.vaadin.flow.component.Tag;
-import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.di.Lookup;
-import com.vaadin.testbench.TestBenchElement;
-import com.vaadin.testbench.elementsbase.Element;
+import com.vaadin.jandex.indexer.ComponentCatalog;
+import com.vaadin.jandex.indexer.ComponentUsage;
+import com.vaadin.jandex.indexer.UsageScanner;
 
 public class ComponentUsageTest {
 
@@ -41,14 +33,14 @@ public class ComponentUsageTest {
     // RadioButton is not public
 
     public static class TestComponent {
-        public Class<? extends Component> component;
-        public Class<? extends TestBenchElement> tbElement;
+        public String component;
+        public String tbElement;
         public String localName;
         public List<String> imports;
         public String tag;
         public String tbEquivalentName;
 
-        public TestComponent(Class<? extends Component> component, Class<? extends TestBenchElement> tbElement,
+        public TestComponent(String component, String tbElement,
                 String tbEquivalentName, String localName, List<String> imports, String tag) {
             this.component = component;
             this.tbElement = tbElement;
@@ -60,14 +52,13 @@ public class ComponentUsageTest {
 
         @Override
 		public String toString() {
-			return "   ComponentName: " + (component == null ? "" : component.getName()) + "\n   TBElementName: "
-					+ (tbElement == null ? "" : tbElement.getName()) + "\n   Imports: " + imports + "\n   LocalName: "
+			return "   ComponentName: " + (component == null ? "" : component) + "\n   TBElementName: "
+					+ (tbElement == null ? "" : tbElement) + "\n   Imports: " + imports + "\n   LocalName: "
 					+ localName + " - Tag: " + tag;
 		}
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private <T> List<Class<? extends T>> filterByType(Collection<Class<?>> list, Class<T> type) {
+    private static List<String> filterExperimental(Collection<String> classNames) {
         FeatureFlags featureFlags = new FeatureFlags(new Lookup() {
             @Override
             public <T> Collection<T> lookupAll(Class<T> serviceClass) {
@@ -85,10 +76,8 @@ public class ComponentUsageTest {
                         ""))
                 .collect(Collectors.toList());
 
-        return (List) list.stream()
-                .filter(clz -> type.isAssignableFrom(clz) && !clz.getName().contains("$")
-                        && Modifier.isPublic(clz.getModifiers()) && !Modifier.isAbstract(clz.getModifiers())
-                        && !experimentalNamespaces.contains(clz.getPackageName()))
+        return classNames.stream()
+                .filter(name -> !experimentalNamespaces.contains(name.replaceFirst("\\.[^\\.]+$", "")))
                 .collect(Collectors.toList());
     }
 
@@ -99,32 +88,27 @@ public class ComponentUsageTest {
     }
 
     public ComponentUsageTest() throws Exception {
-        ClassLoader cl = getClass().getClassLoader();
-        ImmutableSet<ClassInfo> classInfos = ClassPath.from(cl)
-                .getTopLevelClassesRecursive("com.vaadin.flow.component");
-        List<Class<?>> vaadinClasses = classInfos.stream().map(ci -> ci.load()).collect(Collectors.toList());
-        List<Class<? extends Component>> allComponentClasses = filterByType(vaadinClasses, Component.class);
-        List<Class<? extends TestBenchElement>> allTBElementClasses = filterByType(vaadinClasses,
-                TestBenchElement.class);
-
-        List<String> allComponentNames = allComponentClasses.stream().map(c -> c.getName())
-                .collect(Collectors.toList());
-        List<String> allTBElementNames = allTBElementClasses.stream().map(c -> c.getName())
-                .collect(Collectors.toList());
-        List<List<String>> allJsImports = allComponentClasses.stream()
-                .map(c -> getValues(c, JsModule.class).stream().collect(Collectors.toList()))
-                .collect(Collectors.toList());
-        List<String> allComponentTags = allComponentClasses.stream().map(c -> getValue(c, Tag.class))
-                .collect(Collectors.toList());
-        List<String> allTBElementTags = allTBElementClasses.stream().map(c -> getValue(c, Element.class))
+        // the catalogs of vaadin and vaadin-core list the components and
+        // elements, so that no class is loaded to find them
+        ComponentCatalog catalog = ComponentCatalog.read(getClass().getClassLoader());
+        assertFalse("No component catalog found", catalog.getComponents().isEmpty());
+        Map<String, ComponentCatalog.Entry> components = catalog.getComponents();
+        Map<String, String> elements = catalog.getElements();
+
+        List<String> allComponentNames = filterExperimental(components.keySet());
+        List<String> allTBElementNames = filterExperimental(elements.keySet());
+        List<List<String>> allJsImports = allComponentNames.stream()
+                .map(c -> components.get(c).getJsModules()).collect(Collectors.toList());
+        List<String> allComponentTags = allComponentNames.stream().map(c -> components.get(c).getTag())
                 .collect(Collectors.toList());
+        List<String> allTBElementTags = allTBElementNames.stream().map(elements::get)
+                .map(tag -> tag.isEmpty() ? null : tag).collect(Collectors.toList());
 
         HashMap<String, TestComponent> byComponent = new HashMap<>();
         HashMap<String, TestComponent> byTbElement = new HashMap<>();
         HashMap<String, TestComponent> byTag = new HashMap<>();
 
-        for (int i = 0; i < allComponentClasses.size(); i++) {
-            Class<? extends Component> component = allComponentClasses.get(i);
+        for (int i = 0; i < allComponentNames.size(); i++) {
             String componentName = allComponentNames.get(i);
             String componentTag = allComponentTags.get(i);
             List<String> imports = allJsImports.get(i);
@@ -132,17 +116,17 @@ public class ComponentUsageTest {
                 continue;
             }
 
-            String equivalent = component.getName().replaceFirst("(.*)\\.(.*)", "$1.testbench.$2Element");
+            String equivalent = componentName.replaceFirst("(.*)\\.(.*)", "$1.testbench.$2Element");
 
-            Class<? extends TestBenchElement> tbElement = null;
+            String tbElement = null;
             String tbElementTag = null;
 
             int j = allTBElementNames.indexOf(equivalent);
             if (j >= 0) {
-                tbElement = allTBElementClasses.get(j);
+                tbElement = allTBElementNames.get(j);
                 tbElementTag = allTBElementTags.get(j);
             }
-            TestComponent testComponent = new TestComponent(component, tbElement, equivalent, componentTag, imports,
+            TestComponent testComponent = new TestComponent(componentName, tbElement, equivalent, componentTag, imports,
                     tbElementTag);
             byComponent.put(componentName, testComponent);
             byTag.put(componentTag, testComponent);
@@ -152,12 +136,12 @@ public class ComponentUsageTest {
             }
         }
 
-        for (int i = 0; i < allTBElementClasses.size(); i++) {
-            Class<? extends TestBenchElement> tbElement = allTBElementClasses.get(i);
+        for (int i = 0; i < allTBElementNames.size(); i++) {
             String tbElementName = allTBElementNames.get(i);
             if (byTbElement.containsKey(tbElementName)) {
                 continue;
             }
+            String tbElement = tbElementName;
             String tbTag = allTBElementTags.get(i);
             if ("*".equals(tbTag)) {
                 // some special components like GridTRElement has the * selector
@@ -178,50 +162,49 @@ public class ComponentUsageTest {
     public void verifyComponents() throws Exception {
         testComponents.forEach(c -> {
             if (c.component == null) {
-                System.err.printf("ERROR: no Flow-Component for TB-Element %s - %s\n", c.tag, c.tbElement.getName());
+                System.err.printf("ERROR: no Flow-Component for TB-Element %s - %s\n", c.tag, c.tbElement);
             }
             if (c.tbElement == null) {
                 System.err.printf("ERROR: no TB-Element for Flow-Component %s - %s\n", c.localName,
-                        c.component.getName());
+                        c.component);
             }
             if (c.component != null) {
-                String equivalent = c.component.getName().replaceFirst("(.*)\\.(.*)", "$1.testbench.$2Element");
+                String equivalent = c.component.replaceFirst("(.*)\\.(.*)", "$1.testbench.$2Element");
                 if (!equivalent.equals(c.tbEquivalentName)) {
                     System.err.printf("ERROR: TB-Element does not follow name convention %s should be %s\n",
-                            c.tbElement.getName(), c.tbEquivalentName);
+                            c.tbElement, c.tbEquivalentName);
                 }
             }
             if (c.component != null && c.tbElement != null && !c.localName.equals(c.tag)) {
                 System.err.printf("ERROR: different tags used in TB-Element and Flow-Component %s %s %s %s\n",
-                        c.localName, c.tag, c.component.getName(), c.tbElement.getName());
+                        c.localName, c.tag, c.component, c.tbElement);
             }
         });
     }
 
     @Test
     public void testComponentUsage() throws Exception {
-        List<Class<? extends Component>> allClasses = testComponents.stream().filter(tc -> tc.component != null)
+        List<String> allClasses = testComponents.stream().filter(tc -> tc.component != null)
                 .map(tc -> tc.component).collect(Collectors.toList());
 
-        List<String> javaImportRegexs = allClasses.stream().map(c -> ".*[^\\w](" + c.getName() + ")[^\\w].*")
-                .collect(Collectors.toList());
-        List<String> javaImports = allClasses.stream().map(c -> "import " + c.getName() + ";")
+        UsageScanner.Builder javaImports = UsageScanner.builder();
+        allClasses.forEach(c -> javaImports.javaReference("import " + c + ";", c));
+        List<String> javaVarRegexs = allClasses.stream().map(ComponentUsageTest::getSimpleName)
+                .map(c -> "^\\s*([\\w\\.]+\\.)?(" + c + " *(<.*>)? *" + StringUtils.uncapitalize(c) + ") *[;=].*")
                 .collect(Collectors.toList());
-        List<String> javaVarRegexs = allClasses.stream().map(c -> "^\\s*([\\w\\.]+\\.)?(" + c.getSimpleName()
-                + " *(<.*>)? *" + StringUtils.uncapitalize(c.getSimpleName()) + ") *[;=].*")
-                .collect(Collectors.toList());
-        List<String> javaVars = allClasses.stream()
-                .map(c -> c.getSimpleName() + " " + StringUtils.uncapitalize(c.getSimpleName()) + " =")
+        List<String> javaVars = allClasses.stream().map(ComponentUsageTest::getSimpleName)
+                .map(c -> c + " " + StringUtils.uncapitalize(c) + " =")
                 .collect(Collectors.toList());
 
         File javaViewFile = new File(JAVA_VIEW);
         assertTrue("Java File Unavailable " + javaViewFile.getName(), javaViewFile.canRead());
+        String javaContent = FileUtils.readFileToString(javaViewFile, "UTF-8");
         List<String> javaLines = FileUtils.readLines(javaViewFile, "UTF-8");
 
         boolean fail = false;
         List<String> checkedList;
 
-        checkedList = checkLines(javaLines, javaImportRegexs, javaImports);
+        checkedList = missing(javaContent, javaImports.build());
         if (!checkedList.isEmpty()) {
             fail = true;
             System.out.printf("\n>>> There are %s imports missing in %s\n   %s\n", checkedList.size(),
@@ -241,44 +224,28 @@ public class ComponentUsageTest {
 
         Set<String> vaadinImports = testComponents.stream().filter(tc -> tc.imports.size() > 0)
                 .flatMap(tc -> tc.imports.stream()).filter(s -> s.matches("^@vaadin/.*$"))
-                .map(s -> s.replaceFirst(".[tj]s$", "")).collect(Collectors.toSet());
+                .map(s -> s.replaceFirst("\\.[tj]s$", "")).collect(Collectors.toSet());
 
         List<String> jsImportRegex1s = vaadinImports.stream()
                 .map(s -> "^\\s*import\\s+'" + s.replaceFirst("/src/", "/(src/|)") + "'; *")
                 .collect(Collectors.toList());
-        List<String> jsImportRegexs = vaadinImports.stream().map(s -> {
-            String[] t = s.split("/");
-            if (t.length == 4 && t[2].equals("src") && t[1].equals(t[3].replaceFirst("^vaadin-", ""))) {
-                return "^\\s*import\\s+'(" + t[0] + "/" + t[1] + "|" + s + ")'; *";
-            } else {
-                return "^\\s*import\\s+'" + s + "'; *";
-            }
-        }).collect(Collectors.toList());
-        List<String> jsImports = vaadinImports.stream().map(s -> {
-            String[] t = s.split("/");
-            if (t.length == 4 && t[2].equals("src") && t[1].equals(t[3].replaceFirst("^vaadin-", ""))) {
-                return "import '" + t[0] + "/" + t[1] + "';";
-            } else {
-                return "import '" + s + "';";
-            }
-        }).collect(Collectors.toList());
-        List<String> jsRenderRegexs = vaadinComponents.stream().map(s -> "^.*</?" + s + ">.*")
-                .collect(Collectors.toList());
-        List<String> jsComponents = vaadinComponents.stream().map(s -> "<" + s + "></" + s + ">")
-                .collect(Collectors.toList());
+        UsageScanner.Builder jsImports = UsageScanner.builder();
+        vaadinImports.forEach(s -> jsImports.jsImport(ComponentUsage.jsImport(s), s));
+        UsageScanner.Builder jsComponents = UsageScanner.builder();
+        vaadinComponents.forEach(s -> jsComponents.jsRender("<" + s + "></" + s + ">", s));
 
         File tsViewFile = new File(TS_VIEW);
         assertTrue("TS File Unavailable " + tsViewFile.getName(), tsViewFile.canRead());
-        List<String> tsLines = FileUtils.readLines(tsViewFile, "UTF-8");
+        String tsContent = FileUtils.readFileToString(tsViewFile, "UTF-8");
 
-        checkedList = checkLines(tsLines, jsImportRegexs, jsImports);
+        checkedList = missing(tsContent, jsImports.build());
         if (!checkedList.isEmpty()) {
             fail = true;
             System.out.printf("\n>>> There are %s web-components imports missing in %s\n   %s\n", checkedList.size(),
                     tsViewFile.getName(), String.join("\n   ", checkedList));
         }
 
-        checkedList = checkLines(tsLines, jsRenderRegexs, jsComponents);
+        checkedList = missing(tsContent, jsComponents.build());
         if (!checkedList.isEmpty()) {
             fail = true;
             System.out.printf("\n>>> There are %s web-components not rendered in %s\n   %s\n", checkedList.size(),
@@ -289,43 +256,25 @@ public class ComponentUsageTest {
     }
 
     private List<String> checkLines(List<String> fileContent, List<String> regexs, List<String> source) {
-        return regexs.stream().map(regex -> {
-            Optional<String> line = fileContent.stream().filter(l -> {
-                return l.matches(regex);
-            }).findFirst();
-            return !line.isPresent() ? (source.get(regexs.indexOf(regex)) /* + " " + regex */) : null;
-        }).filter(s -> s != null).sorted().collect(Collectors.toList());
-    }
-
-    private static String getValue(Class<?> claz, Class<? extends Annotation> annotation) {
-        List<String> values = getValues(claz, annotation);
-        return values.size() > 0 ? values.get(0) : null;
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < regexs.size(); i++) {
+            Pattern pattern = Pattern.compile(regexs.get(i));
+            if (fileContent.stream().noneMatch(l -> pattern.matcher(l).matches())) {
+                missing.add(source.get(i));
+            }
+        }
+        Collections.sort(missing);
+        return missing;
     }
 
-    private static List<String> getValues(Class<?> claz, Class<? extends Annotation> annotation) {
-        List<String> wcs = new ArrayList<>();
-        Annotation[] anns = claz.getAnnotationsByType(annotation);
-        for (Annotation ann : anns) {
-            wcs.addAll(getValues(ann));
-        }
-        Annotation ann = claz.getAnnotation(annotation);
-        if (ann != null) {
-            wcs.addAll(getValues(ann));
-        }
-        return wcs;
+    // The ids of the scanner are the lines expected in the file
+    private List<String> missing(String fileContent, UsageScanner scanner) {
+        Set<String> found = scanner.scan(fileContent);
+        return scanner.getIds().stream().filter(id -> !found.contains(id)).sorted()
+                .collect(Collectors.toList());
     }
 
-    private static Set<String> getValues(Annotation ann) {
-        Set<String> values = new HashSet<>();
-        if (ann != null) {
-            Class<? extends Annotation> type = ann.annotationType();
-            try {
-                Method m = type.getDeclaredMethod("value", (Class<?>[]) null);
-                String val = m.invoke(ann, (Object[]) null).toString();
-                values.add(val);
-            } catch (Exception ignore) {
-            }
-        }
-        return values;
+    private static String getSimpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
     }
 }
@@ -72,7 +72,7 @@ public class ComponentsIT extends AbstractPlatformTest {
         $("body").first().click();
 
         String tag = testComponent.localName != null ? testComponent.localName : testComponent.tag;
-        String className = testComponent.component != null ? testComponent.component.getName() : null;
+        String className = testComponent.component;
 
         Runnable run = beforeRunsByTag.get(className);
         if (beforeRunsByTag.containsKey(tag) || beforeRunsByTag.containsKey(className)) {
@@ -92,7 +92,7 @@ public class ComponentsIT extends AbstractPlatformTest {
 
         ElementQuery<? extends TestBenchElement> $ = null;
         if (testComponent.tbElement != null) {
-            $ = $(testComponent.tbElement);
+            $ = $(elementClass(testComponent.tbElement));
         }
         if (($  == null || !$.exists()) && tag != null) {
             $ = $(tag);
@@ -108,6 +108,15 @@ public class ComponentsIT extends AbstractPlatformTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static Class<? extends TestBenchElement> elementClass(String className) {
+        try {
+            return (Class<? extends TestBenchElement>) Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private <T extends TestBenchElement> void checkElement(ElementQuery<T> $) {
         assertTrue($.exists());
         String tagName = $.first().getTagName().toLowerCase();
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vaadin.flow.component.crud.CrudFilter;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.SortDirection;
+
+/**
+ * Measures what a {@code Crud} asks from {@link IndexedCrudDataProvider}: the
+ * size and the first page each time a filter field changes, and a page
+ * somewhere in the results when scrolling. {@code fullScan} does the same as
+ * {@code keystroke} by scanning all the items, for comparison.
+ * <p>
+ * Run with
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test \
+ *   -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main IndexedCrudDataProviderBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IndexedCrudDataProviderBenchmark {
+
+    private static final int PAGE = 50;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    private List<Entity> entities;
+    private IndexedCrudDataProvider<Entity> provider;
+    private List<String> prefixes;
+    private CrudFilter scrollFilter;
+    private Random random;
+    private int keystroke;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        entities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entities.add(new Entity(randomName()));
+        }
+        provider = new IndexedCrudDataProvider<>(Entity.class, entities);
+
+        // what is typed in the filter field, one letter at a time
+        prefixes = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            String name = entities.get(random.nextInt(size)).getName();
+            for (int length = 1; length <= 4; length++) {
+                prefixes.add(name.substring(0, length));
+            }
+        }
+
+        scrollFilter = new CrudFilter();
+        scrollFilter.getSortOrders().put("name", SortDirection.DESCENDING);
+        // builds the index
+        provider.size(new Query<>(scrollFilter));
+    }
+
+    /**
+     * Changes the filter and fetches the size and the first page.
+     */
+    @Benchmark
+    public void keystroke(Blackhole blackhole) {
+        CrudFilter filter = new CrudFilter();
+        filter.getConstraints().put("name", nextPrefix());
+        blackhole.consume(provider.size(new Query<>(filter)));
+        provider.fetch(new Query<>(0, PAGE, Collections.emptyList(), null,
+                filter)).forEach(blackhole::consume);
+    }
+
+    /**
+     * Fetches a page at a random offset of the sorted items.
+     */
+    @Benchmark
+    public void scroll(Blackhole blackhole) {
+        provider.fetch(new Query<>(random.nextInt(size - PAGE), PAGE,
+                Collections.emptyList(), null, scrollFilter))
+                .forEach(blackhole::consume);
+    }
+
+    /**
+     * Same as {@link #keystroke(Blackhole)}, scanning all the items.
+     */
+    @Benchmark
+    public void fullScan(Blackhole blackhole) {
+        String prefix = nextPrefix().toLowerCase(Locale.ROOT);
+        List<Entity> matching = entities.stream()
+                .filter(entity -> entity.getName().toLowerCase(Locale.ROOT)
+                        .startsWith(prefix))
+                .sorted((a, b) -> a.getName().compareToIgnoreCase(b.getName()))
+                .collect(Collectors.toList());
+        blackhole.consume(matching.size());
+        matching.stream().limit(PAGE).forEach(blackhole::consume);
+    }
+
+    private String nextPrefix() {
+        keystroke = (keystroke + 1) % prefixes.size();
+        return prefixes.get(keystroke);
+    }
+
+    private String randomName() {
+        char[] name = new char[8];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(26));
+        }
+        name[0] = Character.toUpperCase(name[0]);
+        return new String(name);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.crud.CrudFilter;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.SortDirection;
+
+public class IndexedCrudDataProviderTest {
+
+    public static class Person {
+        private String name;
+        private String city;
+
+        public Person(String name, String city) {
+            this.name = name;
+            this.city = city;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getCity() {
+            return city;
+        }
+    }
+
+    public static class Order {
+        private final String name;
+        private final Integer quantity;
+
+        public Order(String name, Integer quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+    }
+
+    private List<Person> people;
+    private IndexedCrudDataProvider<Person> provider;
+    private CrudFilter filter;
+
+    @Before
+    public void setUp() {
+        people = new ArrayList<>(List.of(new Person("Mary", "Turku"),
+                new Person("Mark", "Helsinki"), new Person("anna", "Turku"),
+                new Person("Matti", "Tampere"), new Person("Maria", "Turku"),
+                new Person("Anton", "Helsinki")));
+        provider = new IndexedCrudDataProvider<>(Person.class, people);
+        filter = new CrudFilter();
+    }
+
+    @Test
+    public void noFilter_itemsInOriginalOrder() {
+        assertEquals(6, size());
+        assertEquals(List.of("Mary", "Mark", "anna", "Matti", "Maria",
+                "Anton"), fetch(0, 10));
+    }
+
+    @Test
+    public void constraint_matchesStartIgnoringCase() {
+        filter.getConstraints().put("name", "ma");
+
+        assertEquals(4, size());
+        assertEquals(List.of("Maria", "Mark", "Mary", "Matti"), fetch(0, 10));
+    }
+
+    @Test
+    public void constraint_offsetAndLimit() {
+        filter.getConstraints().put("name", "MA");
+
+        assertEquals(List.of("Mark", "Mary"), fetch(1, 2));
+        assertEquals(List.of("Matti"), fetch(3, 10));
+        assertEquals(Collections.emptyList(), fetch(10, 10));
+    }
+
+    @Test
+    public void emptyConstraint_ignored() {
+        filter.getConstraints().put("name", "");
+
+        assertEquals(6, size());
+    }
+
+    @Test
+    public void sortDescending() {
+        filter.getSortOrders().put("name", SortDirection.DESCENDING);
+
+        assertEquals(List.of("Matti", "Mary", "Mark", "Maria", "Anton",
+                "anna"), fetch(0, 10));
+    }
+
+    @Test
+    public void constraintAndSortOnOtherProperty() {
+        filter.getConstraints().put("name", "ma");
+        filter.getSortOrders().put("city", SortDirection.ASCENDING);
+
+        assertEquals(List.of("Mark", "Matti", "Mary", "Maria"), fetch(0, 10));
+    }
+
+    @Test
+    public void twoConstraints_bothMatch() {
+        filter.getConstraints().put("name", "ma");
+        filter.getConstraints().put("city", "tu");
+
+        assertEquals(2, size());
+        assertEquals(Set.of("Maria", "Mary"), new HashSet<>(fetch(0, 10)));
+    }
+
+    @Test
+    public void twoSortOrders_secondBreaksTies() {
+        filter.getSortOrders().put("city", SortDirection.DESCENDING);
+        filter.getSortOrders().put("name", SortDirection.ASCENDING);
+
+        assertEquals(List.of("anna", "Maria", "Mary", "Matti", "Anton",
+                "Mark"), fetch(0, 10));
+    }
+
+    @Test
+    public void filterChangedInPlace_resolvedAgain() {
+        filter.getConstraints().put("name", "ma");
+        assertEquals(4, size());
+
+        filter.getConstraints().put("name", "mar");
+        assertEquals(3, size());
+    }
+
+    @Test
+    public void refreshAll_itemChanged_indexesRebuilt() {
+        filter.getConstraints().put("name", "ma");
+        assertEquals(4, size());
+
+        people.get(2).setName("Marja");
+        assertEquals(4, size());
+        provider.refreshAll();
+
+        assertEquals(5, size());
+    }
+
+    @Test
+    public void refreshItem_itemChanged_indexesRebuilt() {
+        filter.getConstraints().put("name", "an");
+        assertEquals(2, size());
+
+        people.get(0).setName("Anne");
+        provider.refreshItem(people.get(0));
+
+        assertEquals(3, size());
+    }
+
+    @Test
+    public void sortNumbers_byValueNotAsStrings() {
+        IndexedCrudDataProvider<Order> orders = orders();
+        filter.getSortOrders().put("quantity", SortDirection.ASCENDING);
+
+        assertEquals(List.of("none", "two", "nine", "ten", "twelve",
+                "hundred"), fetchOrders(orders));
+    }
+
+    @Test
+    public void constraintAndSortOnSameNumber_sortedByValue() {
+        IndexedCrudDataProvider<Order> orders = orders();
+        filter.getConstraints().put("quantity", "1");
+        filter.getSortOrders().put("quantity", SortDirection.DESCENDING);
+
+        assertEquals(List.of("hundred", "twelve", "ten"),
+                fetchOrders(orders));
+    }
+
+    @Test
+    public void twoSortOrders_equalNumbersBrokenByName() {
+        IndexedCrudDataProvider<Order> orders = orders();
+        filter.getSortOrders().put("quantity", SortDirection.DESCENDING);
+        filter.getSortOrders().put("name", SortDirection.ASCENDING);
+
+        assertEquals(List.of("hundred", "twelve", "ten", "nine", "two",
+                "none"), fetchOrders(orders));
+
+        orders = new IndexedCrudDataProvider<>(Order.class,
+                List.of(new Order("b", 10), new Order("c", 2),
+                        new Order("a", 10)));
+        assertEquals(List.of("a", "b", "c"), fetchOrders(orders));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownProperty_throws() {
+        filter.getConstraints().put("age", "3");
+        size();
+    }
+
+    private static IndexedCrudDataProvider<Order> orders() {
+        return new IndexedCrudDataProvider<>(Order.class,
+                List.of(new Order("ten", 10), new Order("two", 2),
+                        new Order("hundred", 100), new Order("none", null),
+                        new Order("nine", 9), new Order("twelve", 12)));
+    }
+
+    private List<String> fetchOrders(IndexedCrudDataProvider<Order> orders) {
+        return orders
+                .fetch(new Query<>(0, 10, Collections.emptyList(), null,
+                        filter))
+                .map(Order::getName).collect(Collectors.toList());
+    }
+
+    private int size() {
+        return provider.size(new Query<>(filter));
+    }
+
+    private List<String> fetch(int offset, int limit) {
+        return provider
+                .fetch(new Query<>(offset, limit, Collections.emptyList(),
+                        null, filter))
+                .map(Person::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.data.provider.hierarchy.HierarchicalQuery;
+import com.vaadin.flow.data.provider.hierarchy.HierarchyMapper;
+import com.vaadin.flow.internal.Range;
+
+/**
+ * Expands and scrolls trees of different sizes the same way {@code TreeGrid}
+ * does, and checks that the work done for each step does not grow with the
+ * tree.
+ */
+public class IndexedHierarchicalDataProviderTest {
+
+    private static final int PAGE = 50;
+
+    /**
+     * Counts what the provider reads from the tree and passes to the grid.
+     */
+    private static class CountingProvider
+            extends IndexedHierarchicalDataProvider<Entity> {
+        private final AtomicInteger childrenReads;
+        private int fetched;
+
+        CountingProvider(List<Entity> roots, AtomicInteger childrenReads) {
+            super(roots, entity -> {
+                childrenReads.incrementAndGet();
+                return entity.getEntities();
+            });
+            this.childrenReads = childrenReads;
+        }
+
+        @Override
+        protected Stream<Entity> fetchChildrenFromBackEnd(
+                HierarchicalQuery<Entity, Void> query) {
+            return super.fetchChildrenFromBackEnd(query)
+                    .peek(entity -> fetched++);
+        }
+    }
+
+    /**
+     * Work done to expand a node and scroll through its children.
+     */
+    private static class Cost {
+        int childrenReads;
+        int fetched;
+        long nanos;
+    }
+
+    @Test
+    public void wideNode_expandAndScroll_costDoesNotDependOnChildCount() {
+        Cost small = expandAndScroll(wideTree(1_000));
+        Cost large = expandAndScroll(wideTree(1_000_000));
+        log("1K children", small);
+        log("1M children", large);
+
+        assertEquals(small.childrenReads, large.childrenReads);
+        assertEquals(small.fetched, large.fetched);
+    }
+
+    @Test
+    public void deepTree_expandAndScroll_costDoesNotDependOnTreeSize() {
+        Cost small = expandAndScroll(deepTree(200, 200));
+        Cost large = expandAndScroll(deepTree(1_000, 1_000));
+        log("200 x 200 nodes", small);
+        log("1K x 1K nodes", large);
+
+        assertEquals(small.childrenReads, large.childrenReads);
+        assertEquals(small.fetched, large.fetched);
+    }
+
+    @Test
+    public void fetchChildren_returnsRequestedPage() {
+        CountingProvider provider = new CountingProvider(wideTree(1_000),
+                new AtomicInteger());
+        Entity root = provider.fetchChildren(new HierarchicalQuery<>(null, null))
+                .findFirst().get();
+
+        List<String> page = provider
+                .fetchChildren(new HierarchicalQuery<>(990, 20,
+                        Collections.emptyList(), null, null, root))
+                .map(Entity::getName).collect(Collectors.toList());
+
+        assertEquals(10, page.size());
+        assertEquals("Child 990", page.get(0));
+        assertEquals("Child 999", page.get(9));
+    }
+
+    @Test
+    public void fetchChildren_inMemorySorting_sortsAllChildren() {
+        CountingProvider provider = new CountingProvider(wideTree(1_000),
+                new AtomicInteger());
+        Entity root = provider.fetchChildren(new HierarchicalQuery<>(null, null))
+                .findFirst().get();
+        Comparator<Entity> descending = Comparator
+                .comparing(Entity::getName).reversed();
+
+        List<String> page = provider
+                .fetchChildren(new HierarchicalQuery<>(0, 2,
+                        Collections.emptyList(), descending, null, root))
+                .map(Entity::getName).collect(Collectors.toList());
+
+        assertEquals(List.of("Child 999", "Child 998"), page);
+    }
+
+    @Test
+    public void refreshItem_readsChildrenAgain() {
+        AtomicInteger childrenReads = new AtomicInteger();
+        CountingProvider provider = new CountingProvider(wideTree(10),
+                childrenReads);
+        Entity root = provider.fetchChildren(new HierarchicalQuery<>(null, null))
+                .findFirst().get();
+        HierarchicalQuery<Entity, Void> query = new HierarchicalQuery<>(null,
+                root);
+        assertEquals(10, provider.getChildCount(query));
+
+        root.setEntities(List.of(new Entity("Child")));
+        assertEquals(10, provider.getChildCount(query));
+        provider.refreshItem(root, true);
+
+        assertEquals(1, provider.getChildCount(query));
+        assertEquals(2, childrenReads.get());
+    }
+
+    @Test
+    public void refreshItem_readsDescendantsAgain() {
+        AtomicInteger childrenReads = new AtomicInteger();
+        CountingProvider provider = new CountingProvider(deepTree(2, 10),
+                childrenReads);
+        Entity root = provider.fetchChildren(new HierarchicalQuery<>(null, null))
+                .findFirst().get();
+        Entity node = root.getEntities().get(0);
+        HierarchicalQuery<Entity, Void> query = new HierarchicalQuery<>(null,
+                node);
+        assertEquals(2, provider.getChildCount(
+                new HierarchicalQuery<>(null, root)));
+        assertEquals(10, provider.getChildCount(query));
+
+        node.setEntities(List.of(new Entity("Leaf")));
+        provider.refreshItem(root, true);
+
+        // the children of the node are read again, not only the root ones
+        assertEquals(1, provider.getChildCount(query));
+        assertEquals(3, childrenReads.get());
+    }
+
+    /**
+     * Scrolls through the roots, expands the first one and scrolls through
+     * its children, then does the same for the first child having children
+     * in the middle of them.
+     */
+    private static Cost expandAndScroll(List<Entity> roots) {
+        AtomicInteger childrenReads = new AtomicInteger();
+        CountingProvider provider = new CountingProvider(roots,
+                childrenReads);
+        HierarchyMapper<Entity, Void> mapper = new HierarchyMapper<>(provider);
+
+        long started = System.nanoTime();
+        Entity parent = scroll(mapper, null).get(0);
+        while (parent != null) {
+            mapper.expand(parent);
+            parent = scroll(mapper, parent).stream()
+                    .filter(mapper::hasChildren).findFirst().orElse(null);
+        }
+
+        Cost cost = new Cost();
+        cost.nanos = System.nanoTime() - started;
+        cost.childrenReads = childrenReads.get();
+        cost.fetched = provider.fetched;
+        return cost;
+    }
+
+    /**
+     * Fetches the first, the middle and the last page of the children of the
+     * given item, or of the roots, and returns the middle one.
+     */
+    private static List<Entity> scroll(HierarchyMapper<Entity, Void> mapper,
+            Entity parent) {
+        int size = parent == null ? mapper.getRootSize()
+                : mapper.countChildItems(parent);
+        List<Entity> middle = null;
+        for (int offset : new int[] { 0, size / 2, size - PAGE }) {
+            Range range = Range.withLength(Math.max(offset, 0), PAGE);
+            List<Entity> page = fetch(parent == null
+                    ? mapper.fetchRootItems(range)
+                    : mapper.fetchChildItems(parent, range));
+            // the grid asks whether each visible row can be expanded
+            page.forEach(mapper::hasChildren);
+            if (middle == null || offset == size / 2) {
+                middle = page;
+            }
+        }
+        return middle;
+    }
+
+    private static List<Entity> fetch(Stream<Entity> items) {
+        return items.collect(Collectors.toList());
+    }
+
+    private static List<Entity> wideTree(int children) {
+        List<Entity> entities = new ArrayList<>(children);
+        for (int i = 0; i < children; i++) {
+            entities.add(new Entity("Child " + i));
+        }
+        Entity root = new Entity("Root");
+        root.setEntities(entities);
+        return List.of(root);
+    }
+
+    private static List<Entity> deepTree(int width, int children) {
+        List<Entity> level = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            List<Entity> leaves = new ArrayList<>(children);
+            for (int j = 0; j < children; j++) {
+                leaves.add(new Entity("Leaf " + i + "." + j));
+            }
+            Entity node = new Entity("Node " + i);
+            node.setEntities(leaves);
+            level.add(node);
+        }
+        Entity root = new Entity("Root");
+        root.setEntities(level);
+        return List.of(root);
+    }
+
+    private static void log(String tree, Cost cost) {
+        LoggerFactory.getLogger(IndexedHierarchicalDataProviderTest.class).info(
+                "{}: {} children lists read, {} items fetched in {} ms", tree,
+                cost.childrenReads, cost.fetched, cost.nanos / 1_000_000);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.dom.Element;
+
+public class LogTest {
+
+    private UI ui;
+    private Log log;
+
+    @Before
+    public void setUp() {
+        ui = new UI();
+        log = new Log(3);
+        ui.add(log);
+    }
+
+    @Test
+    public void messagesOfOneRequest_sentTogether() {
+        log.log("first");
+        log.log("second");
+        // nothing changes until the response is written
+        assertEquals("", lastMessage());
+        assertEquals(List.of(), rows());
+
+        respond();
+
+        assertEquals("second", lastMessage());
+        assertEquals(List.of("1. first", "2. second"), rows());
+    }
+
+    @Test
+    public void manyMessages_onlyCapacityKept() {
+        for (int i = 1; i <= 10; i++) {
+            log.log("message " + i);
+            respond();
+        }
+
+        assertEquals(List.of("message 8", "message 9", "message 10"),
+                log.getMessages());
+        assertEquals("message 10", lastMessage());
+        assertEquals(List.of("8. message 8", "9. message 9",
+                "10. message 10"), rows());
+    }
+
+    @Test
+    public void moreMessagesThanCapacityInOneRequest_lastOnesShown() {
+        for (int i = 1; i <= 5; i++) {
+            log.log("message " + i);
+        }
+        respond();
+
+        assertEquals(List.of("3. message 3", "4. message 4", "5. message 5"),
+                rows());
+    }
+
+    @Test
+    public void loggedBeforeAttach_sentOnAttach() {
+        Log detached = new Log();
+        detached.log("early");
+
+        ui.add(detached);
+        respond();
+
+        assertEquals(List.of("early"), detached.getMessages());
+        assertEquals("early",
+                detached.getElement().getChild(0).getText());
+    }
+
+    @Test
+    public void detachedBeforeResponse_sentAfterReattach() {
+        log.log("before detach");
+        ui.remove(log);
+        respond();
+
+        ui.add(log);
+        respond();
+        assertEquals("before detach", lastMessage());
+
+        log.log("after attach");
+        respond();
+        assertEquals("after attach", lastMessage());
+        assertEquals(List.of("1. before detach", "2. after attach"), rows());
+    }
+
+    @Test
+    public void detachedBeforeResponse_sentInOtherUi() {
+        log.log("before move");
+        ui.remove(log);
+        // as done when a preserved component is moved to a refreshed UI
+        log.getElement().getNode().removeFromTree();
+        ui = new UI();
+        ui.add(log);
+        respond();
+        assertEquals("before move", lastMessage());
+
+        log.log("after move");
+        respond();
+        assertEquals("after move", lastMessage());
+    }
+
+    private void respond() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+    }
+
+    private String lastMessage() {
+        return log.getElement().getChild(0).getText();
+    }
+
+    /**
+     * Gets the texts of the rows, in the order the client shows them.
+     */
+    private List<String> rows() {
+        Element container = log.getElement().getChild(1);
+        return container.getChildren()
+                .sorted((a, b) -> Integer.compare(
+                        Integer.parseInt(a.getStyle().get("order")),
+                        Integer.parseInt(b.getStyle().get("order"))))
+                .map(Element::getText).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import org.junit.runner.RunWith;
+
+import com.vaadin.platform.test.schedule.ScheduledSuite;
+
+/**
+ * Runs all the integration tests of the module in shards balanced by their
+ * past durations, one per fork, with {@code mvn verify -Pscheduled}. Each
+ * entry class runs the shard of the fork that runs it, or the first shard
+ * left, so there are entries for up to eight forks.
+ */
+public class ScheduledShardsIT {
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork1 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork2 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork3 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork4 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork5 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork6 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork7 {
+    }
+
+    @RunWith(ScheduledSuite.class)
+    public static class Fork8 {
+    }
+}
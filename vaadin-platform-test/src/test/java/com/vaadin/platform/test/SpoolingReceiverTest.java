@@ -0,0 +1,182 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class SpoolingReceiverTest {
+
+    private static final int THRESHOLD = 1000;
+    private static final int SEGMENT = 4096;
+
+    @Test
+    public void readAfterUpload_returnsAllBytes() throws IOException {
+        SpoolingReceiver receiver = new SpoolingReceiver(null, THRESHOLD,
+                SEGMENT, Long.MAX_VALUE);
+        byte[] data = randomBytes(10 * SEGMENT + 123);
+
+        try (OutputStream out = receiver.receiveUpload("data.bin",
+                "application/octet-stream")) {
+            // odd chunks, crossing the threshold and the segments
+            for (int offset = 0; offset < data.length; offset += 777) {
+                out.write(data, offset, Math.min(777, data.length - offset));
+            }
+        }
+
+        assertEquals("data.bin", receiver.getFileName());
+        assertArrayEquals(data, readAll(receiver.getInputStream()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readTwice_throws() throws IOException {
+        SpoolingReceiver receiver = new SpoolingReceiver();
+        receiver.receiveUpload("data.txt", "text/plain").close();
+
+        receiver.getInputStream();
+        receiver.getInputStream();
+    }
+
+    @Test
+    public void handler_readsWhileUploading() throws Exception {
+        CountDownLatch firstByteRead = new CountDownLatch(1);
+        CompletableFuture<byte[]> handled = new CompletableFuture<>();
+        SpoolingReceiver receiver = new SpoolingReceiver(
+                (fileName, mimeType, stream) -> {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    bytes.write(stream.read());
+                    firstByteRead.countDown();
+                    stream.transferTo(bytes);
+                    handled.complete(bytes.toByteArray());
+                }, THRESHOLD, SEGMENT, 2 * SEGMENT);
+        byte[] data = randomBytes(20 * SEGMENT);
+
+        OutputStream out = receiver.receiveUpload("data.bin",
+                "application/octet-stream");
+        out.write(data, 0, 1);
+        // the upload is not complete yet
+        assertTrue(firstByteRead.await(5, TimeUnit.SECONDS));
+        out.write(data, 1, data.length - 1);
+        out.close();
+
+        assertArrayEquals(data, handled.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void slowHandler_uploadWaits() throws Exception {
+        CountDownLatch startReading = new CountDownLatch(1);
+        CompletableFuture<Long> handled = new CompletableFuture<>();
+        SpoolingReceiver receiver = new SpoolingReceiver(
+                (fileName, mimeType, stream) -> {
+                    await(startReading);
+                    handled.complete(stream.transferTo(
+                            OutputStream.nullOutputStream()));
+                }, THRESHOLD, SEGMENT, 2 * SEGMENT);
+        byte[] data = randomBytes(20 * SEGMENT);
+
+        OutputStream out = receiver.receiveUpload("data.bin",
+                "application/octet-stream");
+        CompletableFuture<Void> upload = CompletableFuture.runAsync(() -> {
+            try {
+                out.write(data);
+                out.close();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse("The upload should wait for the handler",
+                upload.isDone());
+
+        startReading.countDown();
+        upload.get(5, TimeUnit.SECONDS);
+        assertEquals(data.length, (long) handled.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void handlerStopsReading_uploadFails() throws Exception {
+        SpoolingReceiver receiver = new SpoolingReceiver(
+                (fileName, mimeType, stream) -> stream.read(), THRESHOLD,
+                SEGMENT, 2 * SEGMENT);
+
+        OutputStream out = receiver.receiveUpload("data.bin",
+                "application/octet-stream");
+        try {
+            out.write(randomBytes(20 * SEGMENT));
+            fail("The upload should fail once the handler has returned");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void abort_handlerFails() throws Exception {
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        SpoolingReceiver receiver = new SpoolingReceiver(
+                (fileName, mimeType, stream) -> {
+                    try {
+                        stream.transferTo(OutputStream.nullOutputStream());
+                    } catch (IOException e) {
+                        failure.set(e);
+                    }
+                    done.countDown();
+                });
+
+        OutputStream out = receiver.receiveUpload("data.bin",
+                "application/octet-stream");
+        out.write(randomBytes(100));
+        receiver.abort();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(failure.get() != null);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        try (stream) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
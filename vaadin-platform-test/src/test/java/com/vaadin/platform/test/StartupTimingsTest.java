@@ -0,0 +1,82 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import elemental.json.JsonObject;
+
+public class StartupTimingsTest {
+
+    private final StartupTimings timings = new StartupTimings();
+
+    @Test
+    public void readyOnlyWhenRoutesAndBundleEnded() {
+        timings.begin(StartupTimings.LOOKUP);
+        timings.end(StartupTimings.LOOKUP);
+        timings.end(StartupTimings.ROUTES);
+        assertFalse("No servlet initialized yet", timings.isReady());
+
+        timings.begin(StartupTimings.SERVLET_INIT + "servlet");
+        timings.end(StartupTimings.SERVLET_INIT + "servlet");
+        timings.begin(StartupTimings.BUNDLE + "servlet");
+        assertFalse(timings.isReady());
+
+        timings.end(StartupTimings.BUNDLE + "servlet");
+        assertTrue(timings.isReady());
+    }
+
+    @Test
+    public void phaseNotStarted_startsWhenPreviousEnded() {
+        timings.begin(StartupTimings.LOOKUP);
+        timings.end(StartupTimings.LOOKUP);
+        timings.end(StartupTimings.ROUTES);
+
+        JsonObject phases = timings.toJson().getObject("phases");
+        assertEquals(phases.getObject(StartupTimings.LOOKUP).getNumber("end"),
+                phases.getObject(StartupTimings.ROUTES).getNumber("start"),
+                0);
+    }
+
+    @Test
+    public void firstPhase_containerEndsWhenItStarts() {
+        timings.begin(StartupTimings.LOOKUP);
+
+        JsonObject phases = timings.toJson().getObject("phases");
+        JsonObject container = phases.getObject(StartupTimings.CONTAINER);
+        assertEquals(0, container.getNumber("start"), 0);
+        assertEquals(container.getNumber("end"),
+                phases.getObject(StartupTimings.LOOKUP).getNumber("start"), 0);
+        assertFalse("Lookup has not ended", phases
+                .getObject(StartupTimings.LOOKUP).hasKey("end"));
+        assertFalse(timings.toJson().getBoolean("ready"));
+    }
+
+    @Test
+    public void failedPhase_neverReady() {
+        timings.end(StartupTimings.ROUTES);
+        timings.begin(StartupTimings.BUNDLE + "servlet");
+        timings.fail(StartupTimings.BUNDLE + "servlet");
+
+        assertTrue(timings.hasEnded(StartupTimings.BUNDLE + "servlet"));
+        assertTrue(timings.hasFailed());
+        assertFalse(timings.isReady());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TimedVaadinServletTest {
+
+    private static final String PHASE = StartupTimings.BUNDLE + "servlet";
+
+    private final StartupTimings timings = new StartupTimings();
+
+    @Test
+    public void pageNotFound_phaseEndsWhenFound() {
+        timings.begin(PHASE);
+        AtomicInteger reads = new AtomicInteger();
+
+        TimedVaadinServlet.awaitPage(
+                () -> reads.incrementAndGet() < 3 ? null : "<html>", timings,
+                PHASE, TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(3, reads.get());
+        assertTrue(timings.hasEnded(PHASE));
+        assertFalse(timings.hasFailed());
+    }
+
+    @Test
+    public void pageNeverFound_phaseFails() {
+        timings.end(StartupTimings.ROUTES);
+        timings.begin(PHASE);
+
+        TimedVaadinServlet.awaitPage(() -> null, timings, PHASE,
+                TimeUnit.MILLISECONDS.toNanos(300));
+
+        assertTrue(timings.hasEnded(PHASE));
+        assertTrue(timings.hasFailed());
+        assertFalse("A failed phase is never ready", timings.isReady());
+        assertTrue(timings.toJson().getObject("phases").getObject(PHASE)
+                .getBoolean("failed"));
+    }
+
+    @Test
+    public void pageReadFails_phaseEndsWhenRead() {
+        timings.begin(PHASE);
+        AtomicInteger reads = new AtomicInteger();
+
+        TimedVaadinServlet.awaitPage(() -> {
+            if (reads.incrementAndGet() < 2) {
+                throw new IllegalStateException("Dev server not started");
+            }
+            return "<html>";
+        }, timings, PHASE, TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(timings.hasEnded(PHASE));
+        assertFalse(timings.hasFailed());
+    }
+}
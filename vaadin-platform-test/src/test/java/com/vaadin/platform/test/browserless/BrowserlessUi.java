@@ -0,0 +1,489 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.browserless;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.mockito.Mockito;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.di.Lookup;
+import com.vaadin.flow.di.ResourceProvider;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.function.DeploymentConfiguration;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.internal.nodefeature.ElementPropertyMap;
+import com.vaadin.flow.server.AbstractPropertyConfiguration;
+import com.vaadin.flow.server.PropertyDeploymentConfiguration;
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServlet;
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.communication.rpc.PublishedServerEventHandlerRpcHandler;
+import com.vaadin.flow.server.frontend.FallbackChunk;
+import com.vaadin.flow.server.startup.ApplicationConfiguration;
+import com.vaadin.flow.shared.JsonConstants;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Shows a view in a {@link UI} of the test JVM and simulates what the client
+ * engine sends for it, without a browser or a server.
+ * <p>
+ * Client events go through the same Flow API the UIDL request handlers use:
+ * property changes are applied as synchronized properties coming from the
+ * client, DOM events are fired to the listeners of the element and the
+ * methods called by the client connectors go through the RPC handler. After
+ * each one, the changes are collected as when the response is written, so
+ * that anything done before the client response, like the batched updates of
+ * {@code Log}, is visible in the element state.
+ * <p>
+ * All the UIs of the JVM share one {@link VaadinServletService}, as views may
+ * configure the service once from a static initializer, like
+ * {@code ComponentsView} does for Collaboration Engine. The service is not
+ * deployed to a servlet container and runs in development mode, like the
+ * application of the integration tests, so the same licenses are needed.
+ */
+public class BrowserlessUi {
+
+    private static VaadinService service;
+
+    private final AlwaysLockedSession session;
+    private final UI ui;
+
+    private static class AlwaysLockedSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        AlwaysLockedSession(VaadinService service) {
+            super(service);
+            lock.lock();
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+
+        void release() {
+            while (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The service of a servlet that is never deployed, keeping its context in
+     * memory instead of a servlet context.
+     */
+    private static class BrowserlessService extends VaadinServletService {
+        private final VaadinContext context;
+
+        BrowserlessService(VaadinContext context,
+                DeploymentConfiguration configuration) {
+            super(new VaadinServlet(), configuration);
+            this.context = context;
+        }
+
+        @Override
+        protected VaadinContext constructVaadinContext() {
+            return context;
+        }
+    }
+
+    /**
+     * Finds the resources, like the feature flags file, in the class path of
+     * the test.
+     */
+    private static class ClassLoaderResources implements ResourceProvider {
+        private final ClassLoader classLoader = BrowserlessUi.class
+                .getClassLoader();
+
+        @Override
+        public URL getApplicationResource(String path) {
+            return classLoader.getResource(path);
+        }
+
+        @Override
+        public List<URL> getApplicationResources(String path)
+                throws IOException {
+            return Collections.list(classLoader.getResources(path));
+        }
+
+        @Override
+        public URL getClientResource(String path) {
+            return getApplicationResource(path);
+        }
+
+        @Override
+        public InputStream getClientResourceAsStream(String path)
+                throws IOException {
+            URL url = getClientResource(path);
+            return url == null ? null : url.openStream();
+        }
+    }
+
+    private static class BrowserlessConfiguration
+            extends AbstractPropertyConfiguration
+            implements ApplicationConfiguration {
+        private final VaadinContext context;
+
+        BrowserlessConfiguration(VaadinContext context) {
+            super(Collections.emptyMap());
+            this.context = context;
+        }
+
+        @Override
+        public boolean isProductionMode() {
+            return false;
+        }
+
+        @Override
+        public Enumeration<String> getPropertyNames() {
+            return Collections.enumeration(getProperties().keySet());
+        }
+
+        @Override
+        public VaadinContext getContext() {
+            return context;
+        }
+
+        @Override
+        public FallbackChunk getFallbackChunk() {
+            return null;
+        }
+
+        @Override
+        public boolean isDevModeSessionSerializationEnabled() {
+            return false;
+        }
+    }
+
+    private static class MemoryContext implements VaadinContext {
+        private final Map<Class<?>, Object> attributes = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> T getAttribute(Class<T> type,
+                Supplier<T> defaultValueSupplier) {
+            if (defaultValueSupplier == null) {
+                return type.cast(attributes.get(type));
+            }
+            return type.cast(attributes.computeIfAbsent(type,
+                    key -> defaultValueSupplier.get()));
+        }
+
+        @Override
+        public <T> void setAttribute(Class<T> clazz, T value) {
+            attributes.put(clazz, value);
+        }
+
+        @Override
+        public void removeAttribute(Class<?> clazz) {
+            attributes.remove(clazz);
+        }
+
+        @Override
+        public Enumeration<String> getContextParameterNames() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public String getContextParameter(String name) {
+            return null;
+        }
+    }
+
+    private BrowserlessUi() {
+        VaadinService.setCurrent(getService());
+        session = new AlwaysLockedSession(service);
+        session.setConfiguration(service.getDeploymentConfiguration());
+        VaadinSession.setCurrent(session);
+
+        ui = new UI();
+        ui.getInternals().setSession(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 0, "ROOT");
+        session.addUI(ui);
+        UI.setCurrent(ui);
+    }
+
+    /**
+     * Opens a new UI showing the view, as when the page is loaded.
+     *
+     * @param viewFactory
+     *            creates the view
+     * @return the opened UI
+     */
+    public static BrowserlessUi open(Supplier<? extends Component> viewFactory) {
+        BrowserlessUi browserlessUi = new BrowserlessUi();
+        browserlessUi.ui.add(viewFactory.get());
+        browserlessUi.respond();
+        return browserlessUi;
+    }
+
+    /**
+     * Releases the session lock and clears the current instances set when the
+     * UI was opened.
+     */
+    public void close() {
+        session.release();
+        UI.setCurrent(null);
+        VaadinSession.setCurrent(null);
+        VaadinService.setCurrent(null);
+    }
+
+    public UI getUI() {
+        return ui;
+    }
+
+    /**
+     * Finds the attached components of exactly the given type, in document
+     * order, like the tag name is matched in the integration tests. The
+     * subclasses used inside other components, like the time picker of
+     * {@code DateTimePicker}, are not found. Overlays, like dialogs and
+     * notifications, are found once they are added to the UI.
+     *
+     * @param type
+     *            the component type
+     * @param <T>
+     *            the component type
+     * @return the components
+     */
+    public <T extends Component> Stream<T> find(Class<T> type) {
+        return descendants(ui)
+                .filter(component -> component.getClass() == type)
+                .map(type::cast);
+    }
+
+    /**
+     * Finds the first attached component of the given type.
+     *
+     * @param type
+     *            the component type
+     * @param <T>
+     *            the component type
+     * @return the component
+     * @throws AssertionError
+     *             if there is none
+     */
+    public <T extends Component> T first(Class<T> type) {
+        return find(type).findFirst().orElseThrow(() -> new AssertionError(
+                "No " + type.getSimpleName() + " in the UI"));
+    }
+
+    /**
+     * Finds the attached component with the given id.
+     *
+     * @param type
+     *            the component type
+     * @param id
+     *            the id
+     * @param <T>
+     *            the component type
+     * @return the component
+     * @throws AssertionError
+     *             if there is none
+     */
+    public <T extends Component> T id(Class<T> type, String id) {
+        return find(type)
+                .filter(component -> component.getId()
+                        .filter(id::equals).isPresent())
+                .findFirst().orElseThrow(() -> new AssertionError(
+                        "No " + type.getSimpleName() + " with id " + id));
+    }
+
+    /**
+     * Finds the attached element with the given id, also inside components
+     * that do not expose their content as child components.
+     *
+     * @param id
+     *            the id
+     * @return the element, or an empty optional if there is none
+     */
+    public Optional<Element> getElementById(String id) {
+        return elements(ui.getElement())
+                .filter(element -> id.equals(element.getAttribute("id")))
+                .findFirst();
+    }
+
+    /**
+     * Sends a change of a synchronized property from the client, as when the
+     * web component updates it and fires its change event.
+     *
+     * @param component
+     *            the changed component
+     * @param property
+     *            the property name
+     * @param value
+     *            the new value, numbers as {@link Double} like in JSON
+     * @throws AssertionError
+     *             if the property is not synchronized from the client
+     */
+    public void setPropertyFromClient(Component component, String property,
+            Serializable value) {
+        Runnable update;
+        try {
+            update = component.getElement().getNode()
+                    .getFeature(ElementPropertyMap.class)
+                    .deferredUpdateFromClient(property, value);
+        } catch (Exception e) {
+            throw new AssertionError("Property " + property + " of "
+                    + component.getClass().getSimpleName()
+                    + " cannot be changed from the client", e);
+        }
+        update.run();
+        respond();
+    }
+
+    /**
+     * Fires a DOM event from the client with no event data.
+     *
+     * @param component
+     *            the component the event is fired on
+     * @param eventType
+     *            the DOM event type
+     */
+    public void fireDomEvent(Component component, String eventType) {
+        fireDomEvent(component, eventType, Json.createObject());
+    }
+
+    /**
+     * Fires a DOM event from the client.
+     *
+     * @param component
+     *            the component the event is fired on
+     * @param eventType
+     *            the DOM event type
+     * @param eventData
+     *            the values of the event data expressions of the listeners
+     */
+    public void fireDomEvent(Component component, String eventType,
+            JsonObject eventData) {
+        Element element = component.getElement();
+        element.getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(element, eventType, eventData));
+        respond();
+    }
+
+    /**
+     * Calls a {@code @ClientCallable} method of the component, as the client
+     * connector of the web component does, and writes the response.
+     *
+     * @param component
+     *            the component
+     * @param method
+     *            the method name
+     * @param arguments
+     *            the arguments, numbers as {@link Double} like in JSON
+     */
+    public void callFromClient(Component component, String method,
+            JsonValue... arguments) {
+        JsonArray args = Json.createArray();
+        for (JsonValue argument : arguments) {
+            args.set(args.length(), argument);
+        }
+        JsonObject invocation = Json.createObject();
+        invocation.put(JsonConstants.RPC_TYPE,
+                JsonConstants.RPC_PUBLISHED_SERVER_EVENT_HANDLER);
+        invocation.put(JsonConstants.RPC_NODE,
+                component.getElement().getNode().getId());
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_METHOD_NAME, method);
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_ARGS, args);
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_PROMISE, -1);
+        new PublishedServerEventHandlerRpcHandler().handle(ui, invocation)
+                .ifPresent(Runnable::run);
+        respond();
+    }
+
+    /**
+     * Clicks the component.
+     *
+     * @param component
+     *            the component to click
+     */
+    public void click(Component component) {
+        fireDomEvent(component, "click");
+    }
+
+    /**
+     * Runs a server-side action, like the request handlers not based on DOM
+     * events do, and writes the response.
+     *
+     * @param action
+     *            the action to run
+     */
+    public void run(Runnable action) {
+        action.run();
+        respond();
+    }
+
+    /**
+     * Runs what is scheduled before the client response and collects the
+     * changes, as done when the response is written.
+     */
+    public void respond() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+    }
+
+    private static Stream<Component> descendants(Component component) {
+        return Stream.concat(Stream.of(component), component.getChildren()
+                .flatMap(BrowserlessUi::descendants));
+    }
+
+    private static Stream<Element> elements(Element element) {
+        return Stream.concat(Stream.of(element),
+                element.getChildren().flatMap(BrowserlessUi::elements));
+    }
+
+    private static synchronized VaadinService getService() {
+        if (service == null) {
+            VaadinContext context = new MemoryContext();
+            context.setAttribute(Lookup.class,
+                    Lookup.of(new ClassLoaderResources(),
+                            ResourceProvider.class));
+            ApplicationConfiguration configuration = new BrowserlessConfiguration(
+                    context);
+            context.setAttribute(ApplicationConfiguration.class,
+                    configuration);
+
+            service = new BrowserlessService(context,
+                    new PropertyDeploymentConfiguration(configuration,
+                            BrowserlessUi.class, new Properties()));
+        }
+        return service;
+    }
+}
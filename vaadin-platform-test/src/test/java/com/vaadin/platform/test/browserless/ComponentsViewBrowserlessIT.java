@@ -0,0 +1,317 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.browserless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.collaborationengine.CollaborationAvatarGroup;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.checkbox.Checkbox;
+import com.vaadin.flow.component.checkbox.CheckboxGroup;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.contextmenu.ContextMenu;
+import com.vaadin.flow.component.datepicker.DatePicker;
+import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.listbox.ListBox;
+import com.vaadin.flow.component.menubar.MenuBar;
+import com.vaadin.flow.component.messages.MessageInput;
+import com.vaadin.flow.component.messages.MessageList;
+import com.vaadin.flow.component.messages.MessageListItem;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.radiobutton.RadioButtonGroup;
+import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.component.splitlayout.SplitLayout;
+import com.vaadin.flow.component.tabs.Tab;
+import com.vaadin.flow.component.tabs.Tabs;
+import com.vaadin.flow.component.textfield.PasswordField;
+import com.vaadin.flow.component.textfield.TextArea;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.component.timepicker.TimePicker;
+import com.vaadin.flow.component.upload.SucceededEvent;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.platform.test.ComponentsView;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Runs the scenarios of {@code ChromeComponentsIT} that check what the server
+ * does for client events, with {@link BrowserlessUi} instead of a browser.
+ * <p>
+ * The values sent are the ones the web components send, like item keys for
+ * the selection components. What is only seen in the browser, like the
+ * rendering, the overlays and the browser console, is still checked by
+ * {@code ChromeComponentsIT}.
+ * <p>
+ * It needs no server, but runs with the integration tests: the view uses
+ * commercial components, whose license is checked online in development
+ * mode.
+ */
+public class ComponentsViewBrowserlessIT {
+
+    private BrowserlessUi ui;
+
+    @Before
+    public void setUp() {
+        ui = BrowserlessUi.open(ComponentsView::new);
+    }
+
+    @After
+    public void tearDown() {
+        ui.close();
+    }
+
+    @Test
+    public void buttonReceivesClicks() {
+        ui.click(ui.id(Button.class, "button"));
+        assertLog("Clicked button");
+    }
+
+    @Test
+    public void checkboxReceivesValueChangeEvent() {
+        ui.setPropertyFromClient(ui.first(Checkbox.class), "checked", true);
+        assertLog("Checkbox value changed from 'false' to 'true'");
+    }
+
+    @Test
+    public void checkboxGroupReceivesValueChangeEvent() {
+        JsonArray keys = Json.createArray();
+        keys.set(0, "1");
+        ui.setPropertyFromClient(ui.first(CheckboxGroup.class), "value", keys);
+        assertLog("CheckboxGroup value changed from '[]' to '[foo]'");
+    }
+
+    @Test
+    public void comboboxReceivesValueChangeEvent() {
+        ComboBox<?> comboBox = ui.first(ComboBox.class);
+        // the items are requested when the dropdown is opened, which gives
+        // them the keys sent as the value
+        ui.callFromClient(comboBox, "setRequestedRange", Json.create(0),
+                Json.create(comboBox.getPageSize()), Json.create(""));
+        ui.setPropertyFromClient(comboBox, "value", "1");
+        assertLog("ComboBox value changed from 'null' to 'First'");
+    }
+
+    @Test
+    public void datePickerReceivesValueChangeEvent() {
+        ui.setPropertyFromClient(ui.first(DatePicker.class), "value",
+                "2018-12-04");
+        assertLog("DatePicker value changed from null to 2018-12-04");
+    }
+
+    @Test
+    public void timePickerReceivesValueChangeEvent() {
+        ui.setPropertyFromClient(ui.first(TimePicker.class), "value", "01:37");
+        assertLog("TimePicker value changed from null to 01:37");
+    }
+
+    @Test
+    public void selectReceivesValueChangeEvent() {
+        ui.setPropertyFromClient(ui.first(Select.class), "value", "1");
+        assertLog("Select value changed from null to Spring");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void gridReceivesSelectionEvents() {
+        Grid<Map<String, String>> grid = ui.id(Grid.class, "grid");
+        List<Map<String, String>> items = grid.getGenericDataView().getItems()
+                .collect(Collectors.toList());
+        assertEquals(2, items.size());
+        assertEquals("Some", items.get(0).get("foo"));
+        assertEquals("Data", items.get(0).get("bar"));
+        assertEquals("Second", items.get(1).get("foo"));
+        assertEquals("Row", items.get(1).get("bar"));
+
+        // what the client connector calls when a row is clicked
+        ui.run(() -> grid.getSelectionModel().selectFromClient(items.get(0)));
+
+        assertLog("Grid selection changed to 'Optional[{bar=Data, foo=Some}]'");
+    }
+
+    @Test
+    public void radioButtonGroupReceivesValueChangeEvents() {
+        ui.setPropertyFromClient(ui.first(RadioButtonGroup.class), "value",
+                "1");
+        assertLog("RadioButtonGroup value changed from null to Item 0");
+    }
+
+    @Test
+    public void textFieldReceivesValueChangeEvents() {
+        ui.setPropertyFromClient(ui.id(TextField.class, "textfield"), "value",
+                "foo");
+        // the empty old value leaves two spaces, collapsed in the browser
+        assertLog("TextField value changed from  to foo");
+    }
+
+    @Test
+    public void passwordFieldReceivesValueChangeEvents() {
+        ui.setPropertyFromClient(ui.first(PasswordField.class), "value", "foo");
+        assertLog("PasswordField value changed from  to foo");
+    }
+
+    @Test
+    public void textAreaReceivesValueChangeEvents() {
+        ui.setPropertyFromClient(ui.first(TextArea.class), "value", "foo");
+        assertLog("TextArea value changed from  to foo");
+    }
+
+    @Test
+    public void uploadReceivesFile() {
+        Upload upload = ui.first(Upload.class);
+
+        // what the upload handler does with the request body
+        ui.run(() -> {
+            try (OutputStream out = upload.getReceiver()
+                    .receiveUpload("foo.txt", "text/plain")) {
+                out.write("foo".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            ComponentUtil.fireEvent(upload,
+                    new SucceededEvent(upload, "foo.txt", "text/plain", 3));
+        });
+
+        assertLog("Upload received file text/plain with text foo");
+    }
+
+    @Test
+    public void dialogIsOpened() {
+        ui.click(ui.id(Button.class, "open-dialog"));
+
+        Dialog dialog = ui.first(Dialog.class);
+        assertTrue(dialog.isOpened());
+        assertEquals("This is the contents of the dialog",
+                dialog.getChildren().filter(Label.class::isInstance)
+                        .findFirst().map(Component::getElement)
+                        .map(Element::getText).orElse(null));
+    }
+
+    @Test
+    public void notificationIsOpened() {
+        assertTrue(ui.first(Notification.class).isOpened());
+    }
+
+    @Test
+    public void formLayoutHasFields() {
+        assertEquals(6, ui.first(FormLayout.class).getChildren()
+                .filter(TextField.class::isInstance).count());
+    }
+
+    @Test
+    public void layoutsHaveButtons() {
+        assertEquals(3, ui.id(VerticalLayout.class, "verticallayout")
+                .getChildren().filter(Button.class::isInstance).count());
+        assertEquals(3, ui.id(HorizontalLayout.class, "horizontallayout")
+                .getChildren().filter(Button.class::isInstance).count());
+        assertEquals(2, ui.id(SplitLayout.class, "splithorizontal")
+                .getChildren().filter(Button.class::isInstance).count());
+    }
+
+    @Test
+    public void menuBarHasRootItem() {
+        assertEquals(1, ui.id(MenuBar.class, "menubar").getItems().size());
+    }
+
+    @Test
+    public void tabsReceivesSelectionEvents() {
+        Tabs tabs = ui.first(Tabs.class);
+        List<String> labels = tabs.getChildren().map(Tab.class::cast)
+                .map(Tab::getLabel).collect(Collectors.toList());
+        assertEquals(List.of("foo", "bar"), labels);
+
+        ui.setPropertyFromClient(tabs, "selected", 1.0);
+
+        assertLog("Tabs selected index changed to 1");
+    }
+
+    @Test
+    public void listBoxReceivesValueChangeEvents() {
+        ListBox<?> listBox = ui.first(ListBox.class);
+        assertEquals("One more item as a component",
+                ui.getElementById("list-box-component").map(Element::getText)
+                        .orElse(null));
+
+        ui.setPropertyFromClient(listBox, "selected", 1.0);
+
+        assertLog("ListBox value changed from 'null' to 'Item 1'");
+    }
+
+    @Test
+    public void contextMenuReceivesItemSelectionEvents() {
+        // what the target connector sends when the target is clicked, after
+        // which the menu is added to the UI
+        JsonObject eventData = Json.createObject();
+        eventData.put("event.detail", Json.createObject());
+        ui.fireDomEvent(ui.id(Div.class, "context-menu-target"),
+                "vaadin-context-menu-before-open", eventData);
+
+        ContextMenu contextMenu = ui.first(ContextMenu.class);
+        assertEquals(2, contextMenu.getItems().size());
+
+        ui.click(contextMenu.getItems().get(0));
+
+        assertLog("Context menu Item 0 is clicked");
+    }
+
+    @Test
+    public void collaborationAvatarGroupsAreAttached() {
+        ui.id(CollaborationAvatarGroup.class, "collab-avatar-group-1");
+        ui.id(CollaborationAvatarGroup.class, "collab-avatar-group-2");
+    }
+
+    @Test
+    public void messageListHasMessages() {
+        List<String> texts = ui.first(MessageList.class).getItems().stream()
+                .map(MessageListItem::getText).collect(Collectors.toList());
+        assertEquals(List.of("foo", "bar"), texts);
+    }
+
+    @Test
+    public void messageInputFiresSubmitEvent() {
+        JsonObject eventData = Json.createObject();
+        eventData.put("event.detail.value", "foo");
+        ui.fireDomEvent(ui.first(MessageInput.class), "submit", eventData);
+        assertLog("foo");
+    }
+
+    private void assertLog(String msg) {
+        assertEquals(msg, ui.getElementById("log").map(Element::getText)
+                .orElseThrow(() -> new AssertionError("No log")));
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.load;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.platform.test.uidl.UidlSession;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Scrolls the grid of {@code GridStressView} without a browser, requesting
+ * ranges of rows the same way the grid connector does, and collects what the
+ * server reports for each of them: the time spent in the data communicator,
+ * the number of items and their size. The size of each UIDL response is
+ * measured as well.
+ * <p>
+ * Every fourth request jumps to a random row, as when dragging the scroll
+ * bar, and the others continue from the previous range, as when scrolling
+ * with the mouse wheel.
+ * <p>
+ * Run it against a started application, e.g. after {@code mvn jetty:run}:
+ *
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.vaadin.platform.test.load.GridScrollDriver \
+ *   -Dgrid.rows=10000000 -Dgrid.scrolls=500
+ * </pre>
+ *
+ * Available system properties:
+ * <ul>
+ * <li>{@code grid.url}: servlet URL, by default the production mode servlet
+ * in {@code serverPort}</li>
+ * <li>{@code grid.rows}: rows in the grid, 1000000 by default</li>
+ * <li>{@code grid.scrolls}: requested ranges, 200 by default</li>
+ * <li>{@code grid.length}: rows per requested range, 100 by default</li>
+ * </ul>
+ */
+public class GridScrollDriver {
+
+    /**
+     * Results of a scroll run.
+     */
+    public static class Report {
+        private final int rows;
+        private final int errors;
+        private final long[] serverMicros;
+        private final long[] roundTripNanos;
+        private final long items;
+        private final long dataBytes;
+        private final long wireBytes;
+
+        Report(int rows, int errors, long[] serverMicros,
+                long[] roundTripNanos, long items, long dataBytes,
+                long wireBytes) {
+            this.rows = rows;
+            this.errors = errors;
+            this.serverMicros = serverMicros;
+            this.roundTripNanos = roundTripNanos;
+            this.items = items;
+            this.dataBytes = dataBytes;
+            this.wireBytes = wireBytes;
+            Arrays.sort(this.serverMicros);
+            Arrays.sort(this.roundTripNanos);
+        }
+
+        /**
+         * Gets the number of updates reported by the server.
+         *
+         * @return the update count
+         */
+        public int getUpdates() {
+            return serverMicros.length;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the time spent in the data communicator for the given
+         * percentile.
+         *
+         * @param percentile
+         *            a number between 0 and 100
+         * @return the time in milliseconds
+         */
+        public double getServerTime(double percentile) {
+            return percentile(serverMicros, percentile) / 1_000d;
+        }
+
+        /**
+         * Gets the round-trip time for the given percentile.
+         *
+         * @param percentile
+         *            a number between 0 and 100
+         * @return the time in milliseconds
+         */
+        public double getRoundTrip(double percentile) {
+            return percentile(roundTripNanos, percentile) / 1_000_000d;
+        }
+
+        /**
+         * Gets the number of items sent in all the updates.
+         *
+         * @return the item count
+         */
+        public long getItems() {
+            return items;
+        }
+
+        /**
+         * Gets the JSON size of the items sent in all the updates.
+         *
+         * @return the size in bytes
+         */
+        public long getDataBytes() {
+            return dataBytes;
+        }
+
+        /**
+         * Gets the size of all the UIDL responses.
+         *
+         * @return the size in bytes
+         */
+        public long getWireBytes() {
+            return wireBytes;
+        }
+
+        private static long percentile(long[] values, double percentile) {
+            if (values.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * values.length) - 1;
+            return values[Math.max(index, 0)];
+        }
+
+        @Override
+        public String toString() {
+            int updates = Math.max(getUpdates(), 1);
+            return String.format(
+                    "%d rows, %d updates, %d errors%n"
+                            + "server time: p50 %.2f ms, p99 %.2f ms%n"
+                            + "round-trip: p50 %.2f ms, p99 %.2f ms%n"
+                            + "per update: %d items, %d bytes of items, "
+                            + "%d bytes of UIDL",
+                    rows, getUpdates(), errors, getServerTime(50),
+                    getServerTime(99), getRoundTrip(50), getRoundTrip(99),
+                    items / updates, dataBytes / updates,
+                    wireBytes / updates);
+        }
+    }
+
+    private static final String LAST_SAMPLE_PROPERTY = "lastSample";
+
+    private final String url;
+    private final int rows;
+    private final int scrolls;
+    private final int length;
+
+    /**
+     * Creates a driver.
+     *
+     * @param url
+     *            the servlet URL
+     * @param rows
+     *            the number of rows in the grid
+     * @param scrolls
+     *            the number of ranges to request
+     * @param length
+     *            the number of rows in each range
+     */
+    public GridScrollDriver(String url, int rows, int scrolls, int length) {
+        this.url = url;
+        this.rows = rows;
+        this.scrolls = scrolls;
+        this.length = length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("grid.url", "http://localhost:"
+                + System.getProperty("serverPort", "8080") + "/prod-mode/");
+        GridScrollDriver driver = new GridScrollDriver(url,
+                Integer.getInteger("grid.rows", 1_000_000),
+                Integer.getInteger("grid.scrolls", 200),
+                Integer.getInteger("grid.length", 100));
+        System.out.println(driver.run());
+    }
+
+    /**
+     * Opens the view and requests all the ranges one after the other.
+     *
+     * @return the results
+     */
+    public Report run() throws IOException, InterruptedException {
+        UidlSession session = new UidlSession(HttpClient.newHttpClient(),
+                url);
+        session.open("grid-stress?rows=" + rows);
+        int view = session.findNode("grid-stress");
+        int grid = session.findNode("grid");
+
+        Random random = new Random(42);
+        List<Long> serverMicros = new ArrayList<>();
+        long[] roundTrips = new long[scrolls];
+        int done = 0;
+        int errors = 0;
+        long items = 0;
+        long dataBytes = 0;
+        long wireBytes = 0;
+        JsonObject initial = lastSample(session, view);
+        int lastUpdate = initial == null ? -1
+                : (int) initial.getNumber("updateId");
+
+        int start = 0;
+        for (int i = 0; i < scrolls; i++) {
+            if (i % 4 == 0) {
+                start = random.nextInt(Math.max(rows - length, 1));
+            } else {
+                start = Math.min(start + length, Math.max(rows - length, 0));
+            }
+            List<JsonObject> invocations = new ArrayList<>();
+            if (lastUpdate >= 0) {
+                // the connector confirms each update once it has applied it
+                invocations.add(UidlSession.callServer(grid, "confirmUpdate",
+                        Json.create(lastUpdate)));
+            }
+            invocations.add(UidlSession.callServer(grid, "setRequestedRange",
+                    Json.create(start), Json.create(length)));
+
+            long started = System.nanoTime();
+            try {
+                session.send(invocations.toArray(new JsonObject[0]));
+                roundTrips[done++] = System.nanoTime() - started;
+            } catch (IOException e) {
+                errors++;
+                LoggerFactory.getLogger(GridScrollDriver.class)
+                        .warn("Round-trip failed", e);
+                continue;
+            }
+            wireBytes += session.getLastResponseLength();
+
+            JsonObject sample = lastSample(session, view);
+            if (sample != null
+                    && (int) sample.getNumber("updateId") != lastUpdate) {
+                lastUpdate = (int) sample.getNumber("updateId");
+                serverMicros.add((long) sample.getNumber("micros"));
+                items += (long) sample.getNumber("items");
+                dataBytes += (long) sample.getNumber("bytes");
+            }
+        }
+        return new Report(rows, errors,
+                serverMicros.stream().mapToLong(Long::longValue).toArray(),
+                Arrays.copyOf(roundTrips, done), items, dataBytes, wireBytes);
+    }
+
+    private static JsonObject lastSample(UidlSession session, int view) {
+        JsonValue value = session.getProperty(view, LAST_SAMPLE_PROPERTY);
+        return value instanceof JsonObject ? (JsonObject) value : null;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scrolls a short while through {@code GridStressView} to check that every
+ * requested range is answered and measured.
+ */
+public class GridStressIT {
+
+    private static final int SCROLLS = 20;
+    private static final int LENGTH = 100;
+
+    @Test
+    public void scroll_everyUpdateMeasured() throws Exception {
+        String url = "http://localhost:"
+                + System.getProperty("serverPort", "8080") + "/prod-mode/";
+        GridScrollDriver.Report report = new GridScrollDriver(url, 100_000,
+                SCROLLS, LENGTH).run();
+        LoggerFactory.getLogger(GridStressIT.class).info("Scroll results:\n{}",
+                report);
+
+        assertEquals(0, report.getErrors());
+        assertEquals(SCROLLS, report.getUpdates());
+        assertTrue(report.getItems() >= SCROLLS * LENGTH / 2);
+        assertTrue(report.getDataBytes() > 0);
+        assertTrue(report.getWireBytes() > report.getDataBytes());
+    }
+}
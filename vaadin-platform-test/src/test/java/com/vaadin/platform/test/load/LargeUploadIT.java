@@ -0,0 +1,181 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.platform.test.uidl.UidlSession;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Uploads a few large CSV files at the same time to {@code UploadStressView},
+ * and checks that the server received each of them completely.
+ * <p>
+ * The files are 2 GB each by default, so that they do not fit in the heap of
+ * the server when it is started with e.g. {@code MAVEN_OPTS=-Xmx512m}. Use
+ * {@code -Dupload.size} and {@code -Dupload.parallel} to change the size and
+ * the number of files.
+ */
+public class LargeUploadIT {
+
+    private static final long SIZE = Long.getLong("upload.size",
+            2L * 1024 * 1024 * 1024);
+    private static final int PARALLEL = Integer.getInteger("upload.parallel",
+            2);
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Test
+    public void parallelLargeUploads_receivedCompletely() throws Exception {
+        String url = "http://localhost:"
+                + System.getProperty("serverPort", "8080") + "/prod-mode/";
+        HttpClient client = HttpClient.newHttpClient();
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLEL);
+        try {
+            List<Future<Double>> uploads = new ArrayList<>();
+            for (int i = 0; i < PARALLEL; i++) {
+                String fileName = "large-" + i + ".csv";
+                uploads.add(executor
+                        .submit(() -> upload(client, url, fileName)));
+            }
+            double maxHeap = 0;
+            for (Future<Double> upload : uploads) {
+                maxHeap = upload.get();
+            }
+            long total = SIZE * PARALLEL;
+            getLogger().info("Uploaded {} MB with a server heap of {} MB",
+                    total >> 20, (long) maxHeap >> 20);
+            if (total <= maxHeap) {
+                getLogger().warn("The uploaded files fit in the server heap, "
+                        + "start the server with a lower -Xmx");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Uploads one file in its own UI and waits for the result.
+     *
+     * @return the maximum heap size of the server
+     */
+    private static double upload(HttpClient client, String url,
+            String fileName) throws Exception {
+        UidlSession session = new UidlSession(client, url);
+        session.open("upload-stress");
+        int view = session.findNode("upload-stress");
+        int upload = session.findNode("upload");
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream content = new DigestInputStream(
+                new CsvInputStream(SIZE), digest)) {
+            session.upload(upload, fileName, "text/csv", content, SIZE);
+        }
+        String expected = String.format("%064x",
+                new BigInteger(1, digest.digest()));
+
+        // the result is sent with the next response
+        long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        JsonValue uploads = null;
+        while (uploads == null && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            session.send();
+            uploads = session.getProperty(view, "uploads");
+        }
+        assertNotNull("No result for " + fileName, uploads);
+
+        JsonObject result = ((JsonArray) uploads).getObject(0);
+        assertEquals(fileName, result.getString("fileName"));
+        assertEquals(SIZE, (long) result.getNumber("size"));
+        assertEquals(expected, result.getString("sha256"));
+        return session.getProperty(view, "maxHeap").asNumber();
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(LargeUploadIT.class);
+    }
+
+    /**
+     * Generates CSV rows up to the given size, without keeping them in
+     * memory.
+     */
+    private static class CsvInputStream extends InputStream {
+        private final long size;
+        private final byte[] line = new byte[64];
+        private long position;
+        private long row;
+        private int lineLength;
+        private int lineOffset;
+
+        CsvInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                if (lineOffset == lineLength) {
+                    nextLine();
+                }
+                buffer[offset + i] = line[lineOffset++];
+            }
+            position += count;
+            return count;
+        }
+
+        private void nextLine() {
+            String value = row + ",item-" + row + "," + (row * 7919 % 1000)
+                    + "\n";
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, line, 0, bytes.length);
+            lineLength = bytes.length;
+            lineOffset = 0;
+            row++;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.platform.test.uidl.UidlSession;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Opens a number of concurrent UIs of {@code ComponentsView} without a
+ * browser and replays the same interactions as a user would do: clicking the
+ * button, typing in the text field and scrolling the grid.
+ * <p>
+ * Run it against a started application, e.g. after {@code mvn jetty:run}:
+ *
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.vaadin.platform.test.load.UidlLoadDriver \
+ *   -Dload.sessions=200 -Dload.iterations=100
+ * </pre>
+ *
+ * Available system properties:
+ * <ul>
+ * <li>{@code load.url}: servlet URL, by default the production mode servlet
+ * in {@code serverPort}</li>
+ * <li>{@code load.sessions}: concurrent UIs, 50 by default</li>
+ * <li>{@code load.iterations}: round-trips per UI, 100 by default</li>
+ * <li>{@code load.jmx}: {@code host:port} of the server JMX agent, when given
+ * the heap used after a full GC is compared before and after opening the
+ * UIs</li>
+ * </ul>
+ */
+public class UidlLoadDriver {
+
+    /**
+     * Results of a load run.
+     */
+    public static class Report {
+        private final int sessions;
+        private final int roundTrips;
+        private final int errors;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private final long heapPerSession;
+
+        Report(int sessions, int errors, long elapsedNanos, long[] latencies,
+                long heapPerSession) {
+            this.sessions = sessions;
+            this.roundTrips = latencies.length;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.heapPerSession = heapPerSession;
+            Arrays.sort(this.latencies);
+        }
+
+        public int getRoundTrips() {
+            return roundTrips;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the completed round-trips per second.
+         *
+         * @return the throughput
+         */
+        public double getThroughput() {
+            return roundTrips * (double) TimeUnit.SECONDS.toNanos(1)
+                    / elapsedNanos;
+        }
+
+        /**
+         * Gets the round-trip latency for the given percentile.
+         *
+         * @param percentile
+         *            a number between 0 and 100
+         * @return the latency in milliseconds
+         */
+        public double getLatency(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length)
+                    - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000d;
+        }
+
+        /**
+         * Gets the growth of the server heap per open UI.
+         *
+         * @return the bytes per session, or -1 when it was not measured
+         */
+        public long getHeapPerSession() {
+            return heapPerSession;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d sessions, %d round-trips, %d errors%n"
+                            + "throughput: %.1f round-trips/s%n"
+                            + "latency: p50 %.2f ms, p99 %.2f ms%n"
+                            + "heap per session: %s",
+                    sessions, roundTrips, errors, getThroughput(),
+                    getLatency(50), getLatency(99),
+                    heapPerSession < 0 ? "not measured (set load.jmx)"
+                            : heapPerSession / 1024 + " KB");
+        }
+    }
+
+    private final String url;
+    private final int sessions;
+    private final int iterations;
+    private final String jmx;
+
+    /**
+     * Creates a driver.
+     *
+     * @param url
+     *            the servlet URL
+     * @param sessions
+     *            the number of concurrent UIs
+     * @param iterations
+     *            the number of round-trips per UI
+     * @param jmx
+     *            the {@code host:port} of the server JMX agent, or
+     *            {@code null} to skip the heap measurement
+     */
+    public UidlLoadDriver(String url, int sessions, int iterations,
+            String jmx) {
+        this.url = url;
+        this.sessions = sessions;
+        this.iterations = iterations;
+        this.jmx = jmx;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("load.url", "http://localhost:"
+                + System.getProperty("serverPort", "8080") + "/prod-mode/");
+        UidlLoadDriver driver = new UidlLoadDriver(url,
+                Integer.getInteger("load.sessions", 50),
+                Integer.getInteger("load.iterations", 100),
+                System.getProperty("load.jmx"));
+        System.out.println(driver.run());
+    }
+
+    /**
+     * Opens all the UIs, runs the interactions in all of them at the same
+     * time and keeps the UIs open until the heap has been measured.
+     *
+     * @return the results
+     */
+    public Report run() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        CountDownLatch opened = new CountDownLatch(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger errors = new AtomicInteger();
+
+        try (HeapProbe heap = HeapProbe.connect(jmx)) {
+            long heapBefore = heap.usedAfterGc();
+
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                results.add(executor.submit(() -> {
+                    UidlSession session = new UidlSession(client, url);
+                    try {
+                        session.open();
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                        getLogger().warn("Could not open UI", e);
+                        return new long[0];
+                    } finally {
+                        opened.countDown();
+                    }
+                    start.await();
+                    return interact(session, errors);
+                }));
+            }
+            opened.await();
+            long started = System.nanoTime();
+            start.countDown();
+
+            List<long[]> latencies = new ArrayList<>();
+            for (Future<long[]> result : results) {
+                latencies.add(result.get());
+            }
+            long elapsed = System.nanoTime() - started;
+
+            // UIs are still referenced from their sessions at this point
+            long heapAfter = heap.usedAfterGc();
+            long heapPerSession = heapBefore < 0 ? -1
+                    : (heapAfter - heapBefore) / sessions;
+
+            return new Report(sessions, errors.get(), elapsed,
+                    latencies.stream().flatMapToLong(Arrays::stream)
+                            .toArray(),
+                    heapPerSession);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long[] interact(UidlSession session, AtomicInteger errors)
+            throws InterruptedException {
+        int button = session.findNode("button");
+        int textField = session.findNode("textfield");
+        int grid = session.findNode("grid");
+
+        long[] latencies = new long[iterations];
+        int done = 0;
+        for (int i = 0; i < iterations; i++) {
+            JsonObject invocation;
+            switch (i % 3) {
+            case 0:
+                invocation = UidlSession.event(button, "click");
+                break;
+            case 1:
+                invocation = UidlSession.sync(textField, "value",
+                        Json.create("value " + i));
+                break;
+            default:
+                // the grid has only two rows, so the viewport is always the
+                // first page
+                invocation = UidlSession.callServer(grid, "setRequestedRange",
+                        Json.create(0), Json.create(50));
+                break;
+            }
+            long started = System.nanoTime();
+            try {
+                session.send(invocation);
+                latencies[done++] = System.nanoTime() - started;
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                getLogger().warn("Round-trip failed", e);
+            }
+        }
+        return Arrays.copyOf(latencies, done);
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(UidlLoadDriver.class);
+    }
+
+    /**
+     * Reads the heap usage of the server through JMX.
+     */
+    private static class HeapProbe implements AutoCloseable {
+        private final JMXConnector connector;
+        private final MemoryMXBean memory;
+
+        private HeapProbe(JMXConnector connector, MemoryMXBean memory) {
+            this.connector = connector;
+            this.memory = memory;
+        }
+
+        static HeapProbe connect(String hostAndPort) throws IOException {
+            if (hostAndPort == null || hostAndPort.isEmpty()) {
+                return new HeapProbe(null, null);
+            }
+            JMXConnector connector = JMXConnectorFactory
+                    .connect(new JMXServiceURL("service:jmx:rmi:///jndi/rmi://"
+                            + hostAndPort + "/jmxrmi"));
+            MBeanServerConnection connection = connector
+                    .getMBeanServerConnection();
+            return new HeapProbe(connector,
+                    ManagementFactory.newPlatformMXBeanProxy(connection,
+                            ManagementFactory.MEMORY_MXBEAN_NAME,
+                            MemoryMXBean.class));
+        }
+
+        long usedAfterGc() {
+            if (memory == null) {
+                return -1;
+            }
+            memory.gc();
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (connector != null) {
+                connector.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.load;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a short load with a few UIs to check that the browserless driver stays
+ * compatible with the UIDL protocol and with {@code ComponentsView}.
+ */
+public class UidlLoadIT {
+
+    private static final int SESSIONS = 5;
+    private static final int ITERATIONS = 30;
+
+    @Test
+    public void concurrentSessions_allRoundTripsSucceed() throws Exception {
+        String url = "http://localhost:"
+                + System.getProperty("serverPort", "8080") + "/prod-mode/";
+        UidlLoadDriver.Report report = new UidlLoadDriver(url, SESSIONS,
+                ITERATIONS, null).run();
+        LoggerFactory.getLogger(UidlLoadIT.class).info("Load results:\n{}",
+                report);
+
+        assertEquals(0, report.getErrors());
+        assertEquals(SESSIONS * ITERATIONS, report.getRoundTrips());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.memory;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Estimates the size of object graphs by walking their fields with
+ * reflection, so that no heap dump is needed. Sizes assume a 64-bit JVM with
+ * compressed references.
+ * <p>
+ * Every object is counted once: objects already visited by a previous walk,
+ * or marked as shared with {@link #exclude(Object)}, are skipped. JDK classes
+ * whose fields cannot be read are sized from their public API.
+ */
+class ObjectSizer {
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAP_ENTRY = 32;
+
+    /**
+     * Reference fields and shallow size of a class.
+     */
+    private static class Layout {
+        final long size;
+        final List<Field> references = new ArrayList<>();
+        boolean readable = true;
+
+        Layout(Class<?> type) {
+            long fields = 0;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    fields += fieldType.isPrimitive() ? primitiveSize(fieldType)
+                            : REFERENCE;
+                    if (!fieldType.isPrimitive()) {
+                        if (field.trySetAccessible()) {
+                            references.add(field);
+                        } else {
+                            readable = false;
+                        }
+                    }
+                }
+            }
+            size = align(HEADER + fields);
+        }
+    }
+
+    private final Map<Class<?>, Layout> layouts = new HashMap<>();
+    private final Set<Object> visited = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> excluded = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Marks all the objects reachable from the given root as shared, so that
+     * they are not counted by later walks.
+     *
+     * @param root
+     *            the root of the shared objects
+     */
+    void exclude(Object root) {
+        walk(root, object -> false, (object, size) -> excluded.add(object));
+    }
+
+    /**
+     * Checks whether the given object was marked as shared.
+     *
+     * @param object
+     *            the object to check
+     * @return {@code true} if the object is reachable from an excluded root
+     */
+    boolean isExcluded(Object object) {
+        return excluded.contains(object);
+    }
+
+    /**
+     * Walks the objects reachable from the given root which have not been
+     * visited yet.
+     *
+     * @param root
+     *            the object to start from
+     * @param boundary
+     *            objects for which the walk stops, they are left unvisited so
+     *            that a later walk can count them
+     * @param visitor
+     *            receives each visited object with its shallow size
+     * @return the sum of the shallow sizes of the visited objects
+     */
+    long walk(Object root, Predicate<Object> boundary,
+            ObjLongConsumer<Object> visitor) {
+        long total = 0;
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (isShared(object) || visited.contains(object)
+                    || (object != root && boundary.test(object))) {
+                continue;
+            }
+            visited.add(object);
+            long size = sizeAndReferences(object, pending);
+            visitor.accept(object, size);
+            total += size;
+        }
+        return total;
+    }
+
+    private long sizeAndReferences(Object object, Deque<Object> pending) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            Class<?> component = type.getComponentType();
+            if (!component.isPrimitive()) {
+                for (Object element : (Object[]) object) {
+                    push(pending, element);
+                }
+                return align(ARRAY_HEADER + (long) length * REFERENCE);
+            }
+            return align(ARRAY_HEADER
+                    + (long) length * primitiveSize(component));
+        }
+
+        Layout layout = layouts.computeIfAbsent(type, Layout::new);
+        for (Field field : layout.references) {
+            try {
+                push(pending, field.get(object));
+            } catch (IllegalAccessException e) {
+                // skip fields that cannot be read
+            }
+        }
+        if (layout.readable) {
+            return layout.size;
+        }
+
+        // Fields are not accessible, estimate the internal structure
+        if (object instanceof String) {
+            return layout.size
+                    + align(ARRAY_HEADER + ((String) object).length());
+        }
+        try {
+            if (object instanceof Collection) {
+                Collection<?> collection = (Collection<?>) object;
+                collection.forEach(element -> push(pending, element));
+                return layout.size + align(
+                        ARRAY_HEADER + (long) collection.size() * REFERENCE);
+            }
+            if (object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                map.forEach((key, value) -> {
+                    push(pending, key);
+                    push(pending, value);
+                });
+                return layout.size + (long) map.size() * MAP_ENTRY + align(
+                        ARRAY_HEADER + (long) map.size() * 4 / 3 * REFERENCE);
+            }
+        } catch (RuntimeException e) {
+            // collection cannot be iterated, count only its shallow size
+        }
+        return layout.size;
+    }
+
+    private static void push(Deque<Object> pending, Object object) {
+        if (object != null) {
+            pending.push(object);
+        }
+    }
+
+    private static boolean isShared(Object object) {
+        return object instanceof Class || object instanceof ClassLoader
+                || object instanceof Thread || object instanceof Enum
+                || object instanceof Module;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+}
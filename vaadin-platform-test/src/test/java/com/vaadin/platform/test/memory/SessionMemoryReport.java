@@ -0,0 +1,416 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.memory;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.mockito.Mockito;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.di.Lookup;
+import com.vaadin.flow.function.DeploymentConfiguration;
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.Version;
+import com.vaadin.flow.server.startup.ApplicationConfiguration;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Builds a view inside a {@link VaadinSession} and reports the memory the
+ * session retains, broken down by component type.
+ * <p>
+ * Two numbers are given for each type: the retained size estimated by walking
+ * the object graph ({@link ObjectSizer}), and the size it takes when the
+ * session is serialized. Objects are attributed to the closest component
+ * owning them, and what is not owned by any component goes to the session
+ * itself. Objects shared by all the sessions, like the service and
+ * everything it references, are not counted.
+ */
+public class SessionMemoryReport {
+
+    static final String SESSION = "(session)";
+
+    /**
+     * Memory used by all the instances of a component type.
+     */
+    public static class Entry {
+        private final String type;
+        private int instances;
+        private long retained;
+        private long serialized;
+
+        Entry(String type) {
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public int getInstances() {
+            return instances;
+        }
+
+        public long getRetained() {
+            return retained;
+        }
+
+        public long getSerialized() {
+            return serialized;
+        }
+    }
+
+    private static class AlwaysLockedSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        AlwaysLockedSession(VaadinService service) {
+            super(service);
+            lock.lock();
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+    }
+
+    private static class MemoryContext implements VaadinContext {
+        private final Map<Class<?>, Object> attributes = new ConcurrentHashMap<>();
+
+        @Override
+        public <T> T getAttribute(Class<T> type,
+                Supplier<T> defaultValueSupplier) {
+            if (defaultValueSupplier == null) {
+                return type.cast(attributes.get(type));
+            }
+            return type.cast(attributes.computeIfAbsent(type,
+                    key -> defaultValueSupplier.get()));
+        }
+
+        @Override
+        public <T> void setAttribute(Class<T> clazz, T value) {
+            attributes.put(clazz, value);
+        }
+
+        @Override
+        public void removeAttribute(Class<?> clazz) {
+            attributes.remove(clazz);
+        }
+
+        @Override
+        public Enumeration<String> getContextParameterNames() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public String getContextParameter(String name) {
+            return null;
+        }
+    }
+
+    private static class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private final String view;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long retained;
+    private long serialized;
+
+    private SessionMemoryReport(String view) {
+        this.view = view;
+    }
+
+    /**
+     * Builds the view twice, each one in its own session, and measures the
+     * second one. Everything the second session shares with the first one,
+     * like constants and lazily created singletons, is not counted.
+     *
+     * @param viewFactory
+     *            creates the view to measure
+     * @return the report
+     * @throws IOException
+     *             if the session cannot be serialized
+     */
+    public static SessionMemoryReport measure(
+            Supplier<? extends Component> viewFactory) throws IOException {
+        VaadinService service = createService();
+        try {
+            VaadinSession warmUp = createSession(service, viewFactory);
+
+            ObjectSizer sizer = new ObjectSizer();
+            sizer.exclude(service);
+            sizer.exclude(warmUp);
+
+            VaadinSession session = createSession(service, viewFactory);
+            UI ui = session.getUIs().iterator().next();
+            SessionMemoryReport report = new SessionMemoryReport(ui
+                    .getChildren().findFirst().get().getClass().getName());
+            Map<Object, Entry> owners = report.walk(sizer, session, ui);
+            report.serialize(sizer, session, owners);
+            return report;
+        } finally {
+            UI.setCurrent(null);
+            VaadinSession.setCurrent(null);
+            VaadinService.setCurrent(null);
+        }
+    }
+
+    /**
+     * Gets the fully qualified name of the measured view.
+     *
+     * @return the view class name
+     */
+    public String getView() {
+        return view;
+    }
+
+    /**
+     * Gets the estimated size of all the objects retained by the session.
+     *
+     * @return the size in bytes
+     */
+    public long getRetained() {
+        return retained;
+    }
+
+    /**
+     * Gets the size of the serialized session.
+     *
+     * @return the size in bytes
+     */
+    public long getSerialized() {
+        return serialized;
+    }
+
+    /**
+     * Gets the memory used by each component type, biggest first. Memory not
+     * owned by any component is reported with the {@code (session)} type.
+     *
+     * @return the entries
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getRetained).reversed());
+        return list;
+    }
+
+    /**
+     * Writes the report as JSON, so that it can be compared between platform
+     * versions.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        JsonObject json = Json.createObject();
+        json.put("view", view);
+        json.put("flowVersion", Version.getFullVersion());
+        json.put("retained", retained);
+        json.put("serialized", serialized);
+        JsonObject types = Json.createObject();
+        for (Entry entry : getEntries()) {
+            JsonObject type = Json.createObject();
+            type.put("instances", entry.instances);
+            type.put("retained", entry.retained);
+            type.put("serialized", entry.serialized);
+            types.put(entry.type, type);
+        }
+        json.put("types", types);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, json.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format(
+                "%s: retained %,d bytes, serialized %,d bytes%n", view,
+                retained, serialized));
+        builder.append(String.format("%-70s %9s %12s %12s%n", "type",
+                "instances", "retained", "serialized"));
+        for (Entry entry : getEntries()) {
+            builder.append(String.format("%-70s %9d %,12d %,12d%n",
+                    entry.type, entry.instances, entry.retained,
+                    entry.serialized));
+        }
+        return builder.toString();
+    }
+
+    private Map<Object, Entry> walk(ObjectSizer sizer, VaadinSession session,
+            UI ui) {
+        List<Component> components = new ArrayList<>();
+        collect(ui, components);
+        // state nodes belong to their components, and the tree they all
+        // reference belongs to the UI
+        Map<Object, Component> nodeOwners = new IdentityHashMap<>();
+        components.forEach(component -> nodeOwners
+                .putIfAbsent(component.getElement().getNode(), component));
+        nodeOwners.put(ui.getInternals().getStateTree(), ui);
+
+        Map<Object, Entry> owners = new IdentityHashMap<>();
+        retained += walk(sizer, session, null, nodeOwners, owners,
+                entry(SESSION));
+        // children first, so that state they share with their parents, like
+        // shortcut listeners registered on the UI, is attributed to them
+        Collections.reverse(components);
+        for (Component component : components) {
+            Entry entry = entry(component.getClass().getName());
+            entry.instances++;
+            retained += walk(sizer, component, component, nodeOwners, owners,
+                    entry);
+        }
+        return owners;
+    }
+
+    private long walk(ObjectSizer sizer, Object root, Component owner,
+            Map<Object, Component> nodeOwners, Map<Object, Entry> owners,
+            Entry entry) {
+        return sizer.walk(root, object -> {
+            if (object instanceof Component) {
+                return object != owner;
+            }
+            Component nodeOwner = nodeOwners.get(object);
+            return nodeOwner != null && nodeOwner != owner;
+        }, (object, size) -> {
+            entry.retained += size;
+            owners.put(object, entry);
+        });
+    }
+
+    private void serialize(ObjectSizer sizer, VaadinSession session,
+            Map<Object, Entry> owners) throws IOException {
+        CountingStream counter = new CountingStream();
+        Entry[] current = { entries.get(SESSION) };
+        long[] attributed = { 0 };
+        try (ObjectOutputStream out = new ObjectOutputStream(counter) {
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object object) throws IOException {
+                if (sizer.isExcluded(object)) {
+                    // shared objects are not counted for the session
+                    return null;
+                }
+                // bytes written since the previous object belong to it
+                flush();
+                current[0].serialized += counter.count - attributed[0];
+                attributed[0] = counter.count;
+                Entry owner = owners.get(object);
+                if (owner != null) {
+                    current[0] = owner;
+                }
+                return object;
+            }
+        }) {
+            out.writeObject(session);
+            out.flush();
+            current[0].serialized += counter.count - attributed[0];
+        }
+        serialized = counter.count;
+    }
+
+    private Entry entry(String type) {
+        return entries.computeIfAbsent(type, Entry::new);
+    }
+
+    private static void collect(Component component,
+            List<Component> components) {
+        components.add(component);
+        component.getChildren().forEach(child -> collect(child, components));
+    }
+
+    private static VaadinService createService() {
+        DeploymentConfiguration configuration = Mockito
+                .mock(DeploymentConfiguration.class);
+        Mockito.when(configuration.getInitParameters())
+                .thenReturn(new Properties());
+
+        // sessions are serialized only in production mode
+        ApplicationConfiguration applicationConfiguration = Mockito
+                .mock(ApplicationConfiguration.class);
+        Mockito.when(applicationConfiguration.isProductionMode())
+                .thenReturn(true);
+
+        VaadinContext context = new MemoryContext();
+        context.setAttribute(Lookup.class, Mockito.mock(Lookup.class));
+        context.setAttribute(ApplicationConfiguration.class,
+                applicationConfiguration);
+
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        Mockito.when(service.getContext()).thenReturn(context);
+        VaadinService.setCurrent(service);
+        return service;
+    }
+
+    private static VaadinSession createSession(VaadinService service,
+            Supplier<? extends Component> viewFactory) {
+        VaadinSession session = new AlwaysLockedSession(service);
+        session.setConfiguration(service.getDeploymentConfiguration());
+        VaadinSession.setCurrent(session);
+
+        UI ui = new UI();
+        ui.getInternals().setSession(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 0, "ROOT");
+        session.addUI(ui);
+        UI.setCurrent(ui);
+
+        ui.add(viewFactory.get());
+        // produce the first response, as done when the page is loaded
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+        return session;
+    }
+}
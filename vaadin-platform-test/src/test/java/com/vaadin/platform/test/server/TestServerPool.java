@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.platform.test.server;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.jetty.annotations.AnnotationConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.webapp.Configuration;
+import org.eclipse.jetty.webapp.JettyWebXmlConfiguration;
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts the application under test in an embedded Jetty server of the test
+ * JVM, so that each fork of the integration tests has a server of its own,
+ * with its own sessions and logs, instead of sharing the one started by the
+ * {@code jetty-maven-plugin}, or by Gretty in the Gradle test project, which
+ * compiles this class from here.
+ * <p>
+ * The server is started on a free port by the first test class of the fork
+ * asking for it, and reused by the next ones, as forks are reused. It is
+ * stopped when the JVM exits.
+ * <p>
+ * The pool is used when the {@code vaadin.test.serverPool} system property
+ * gives the war, or the exploded war, to deploy, as done by the
+ * {@code server-pool} profile, or by {@code gradle integrationTest
+ * -PserverPool}. Otherwise the tests use the server on the port of the
+ * {@code serverPort} system property, 8080 by default.
+ * <p>
+ * The {@code vaadin.test.fork} system property names the fork in the logs and
+ * in the Collaboration Engine data folder. The {@code server-pool} profile
+ * gives it the {@code surefire.forkNumber}; Gradle does not number its forks,
+ * so they are named by their process id there.
+ */
+public final class TestServerPool {
+
+    public static final String WAR_PROPERTY = "vaadin.test.serverPool";
+
+    public static final String FORK_PROPERTY = "vaadin.test.fork";
+
+    private static Server server;
+    private static int port;
+
+    private TestServerPool() {
+    }
+
+    static Logger getLogger() {
+        return LoggerFactory.getLogger(TestServerPool.class);
+    }
+
+    /**
+     * Tells whether the tests use a server of their own.
+     *
+     * @return {@code true} if the pool is enabled
+     */
+    public static boolean isEnabled() {
+        String war = System.getProperty(WAR_PROPERTY);
+        return war != null && !war.isEmpty();
+    }
+
+    /**
+     * Gets the port of the server of this JVM, starting it if needed.
+     *
+     * @return the port of the server
+     * @throws IllegalStateException
+     *             if the server cannot be started
+     */
+    public static synchronized int getPort() {
+        if (server == null) {
+            start(Paths.get(System.getProperty(WAR_PROPERTY)));
+        }
+        return port;
+    }
+
+    private static void start(Path war) {
+        if (!Files.exists(war)) {
+            throw new IllegalStateException(
+                    "No war to deploy at " + war + ", package it first");
+        }
+        // the Collaboration Engine data of each fork, as with the logs
+        String fork = System.getProperty(FORK_PROPERTY,
+                String.valueOf(ProcessHandle.current().pid()));
+        if (System.getProperty("vaadin.ce.dataDir") == null) {
+            System.setProperty("vaadin.ce.dataDir", new File(
+                    war.toAbsolutePath().getParent().toFile(), "fork-" + fork)
+                            .getPath());
+        }
+
+        long start = System.nanoTime();
+        Server newServer = new Server(0);
+        // runs the servlet container initializers of Flow
+        Configuration.ClassList.setServerDefault(newServer).addBefore(
+                JettyWebXmlConfiguration.class.getName(),
+                AnnotationConfiguration.class.getName());
+        WebAppContext context = new WebAppContext();
+        context.setContextPath("/");
+        context.setWar(war.toAbsolutePath().toString());
+        context.setThrowUnavailableOnStartupException(true);
+        newServer.setHandler(context);
+        try {
+            newServer.start();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot start the server of " + war,
+                    e);
+        }
+        server = newServer;
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        Runtime.getRuntime().addShutdownHook(
+                new Thread(TestServerPool::stop, "test-server-pool-stop"));
+        getLogger().info("Started the server of fork {} on port {} in {} ms",
+                fork, port, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static synchronized void stop() {
+        try {
+            server.stop();
+        } catch (Exception e) {
+            getLogger().warn("Cannot stop the server on port {}", port, e);
+        }
+    }
+}